@@ -0,0 +1,117 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.ObserverMethod;
+import javax.inject.Qualifier;
+import javax.interceptor.InvocationContext;
+
+/**
+ * Stand-ins for the container, so that the benchmarks measure Seam Cron rather than
+ * a particular CDI implementation.
+ *
+ * @author Peter Royle
+ */
+public final class Stubs {
+
+    private Stubs() {
+    }
+
+    /**
+     * A #{@link BeanManager} which recognises #{@link Qualifier}s and counts the events fired at it,
+     * either directly or through the single observer it resolves for any event.
+     */
+    public static final class EventCounter implements InvocationHandler {
+
+        public long events;
+
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            final String name = method.getName();
+            if ("fireEvent".equals(name) || "notify".equals(name)) {
+                events++;
+                return null;
+            } else if ("isQualifier".equals(name)) {
+                return ((Class<?>) args[0]).isAnnotationPresent(Qualifier.class);
+            } else if ("resolveObserverMethods".equals(name)) {
+                return Collections.singleton(Proxy.newProxyInstance(Stubs.class.getClassLoader(),
+                        new Class<?>[]{ObserverMethod.class}, this));
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("toString".equals(name)) {
+                // eg: the name of the observer in the metrics
+                return "EventCounter";
+            }
+            throw new UnsupportedOperationException(name);
+        }
+
+        public BeanManager beanManager() {
+            return (BeanManager) Proxy.newProxyInstance(Stubs.class.getClassLoader(),
+                    new Class<?>[]{BeanManager.class}, this);
+        }
+    }
+
+    /**
+     * An #{@link InvocationContext} which "invokes" the method by returning a fixed result.
+     */
+    public static final class FixedInvocationContext implements InvocationContext {
+
+        private final Method method;
+        private final Object result;
+        private final Map<String, Object> contextData = new HashMap<String, Object>();
+
+        public FixedInvocationContext(final Method method, final Object result) {
+            this.method = method;
+            this.result = result;
+        }
+
+        public Object getTarget() {
+            return null;
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+
+        public Object[] getParameters() {
+            return new Object[0];
+        }
+
+        public void setParameters(final Object[] params) {
+        }
+
+        public Map<String, Object> getContextData() {
+            return contextData;
+        }
+
+        public Object getTimer() {
+            return null;
+        }
+
+        public Object proceed() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.jboss.seam.cron.Stubs.EventCounter;
+import org.jboss.seam.cron.Stubs.FixedInvocationContext;
+import org.jboss.seam.cron.metrics.AsynchronousMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end throughput of #{@link AsynchronousInterceptor}: intercepting a call to a method
+ * returning a #{@link Future}, running it on the default pool and getting the result back.
+ * Either one call at a time (the round trip) or in batches (how fast the pool drains).
+ *
+ * @author Peter Royle
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+public class AsyncThroughputBenchmark {
+
+    private static final int BATCH = 1000;
+    private AsynchronousExecutor executor;
+    private AsynchronousInterceptor interceptor;
+    private FixedInvocationContext ctx;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        final EventCounter events = new EventCounter();
+        executor = new AsynchronousExecutor();
+        executor.beanMan = events.beanManager();
+        executor.metrics = new AsynchronousMetrics();
+        executor.init();
+        interceptor = new AsynchronousInterceptor();
+        interceptor.beanMan = executor.beanMan;
+        interceptor.executor = executor;
+        ctx = new FixedInvocationContext(BenchmarkMethods.class.getMethod("future"),
+                new AsyncResult<String>("result"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public Object roundTrip() throws Exception {
+        return ((Future) interceptor.executeAsynchronously(ctx)).get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void batch() throws Exception {
+        final Future[] futures = new Future[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            futures[i] = (Future) interceptor.executeAsynchronously(ctx);
+        }
+        for (Future future : futures) {
+            future.get();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.Future;
+import javax.inject.Qualifier;
+import org.jboss.seam.cron.annotations.Asynchronous;
+
+/**
+ * The asynchronous methods invoked by the benchmarks. They're never called directly; the
+ * benchmarks only need their #{@link java.lang.reflect.Method}s.
+ *
+ * @author Peter Royle
+ */
+public class BenchmarkMethods {
+
+    @Qualifier
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Reporting {
+    }
+
+    @Asynchronous
+    @Reporting
+    public String value() {
+        return "result";
+    }
+
+    @Asynchronous
+    @Reporting
+    public Future<String> future() {
+        return new AsyncResult<String>("result");
+    }
+
+    @Asynchronous
+    public void nothing() {
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import javax.enterprise.inject.spi.BeanManager;
+import org.jboss.seam.cron.Stubs.EventCounter;
+import org.jboss.seam.cron.Stubs.FixedInvocationContext;
+import org.jboss.seam.cron.metrics.AsynchronousMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The overhead Seam Cron adds to each #{@link org.jboss.seam.cron.annotations.Asynchronous}
+ * invocation on the pool thread (running #{@link InvocationCallable#call()} around a method which
+ * returns immediately), and the cost of working out the method's qualifiers, with and without
+ * the per-method cache.
+ *
+ * @author Peter Royle
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class InvocationBenchmark {
+
+    private EventCounter events;
+    private BeanManager beanManager;
+    private AsynchronousExecutor executor;
+    private Method method;
+    private AsynchronousMethod asyncMethod;
+    private FixedInvocationContext ctx;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        events = new EventCounter();
+        beanManager = events.beanManager();
+        executor = new AsynchronousExecutor();
+        executor.beanMan = beanManager;
+        executor.metrics = new AsynchronousMetrics();
+        executor.init();
+        method = BenchmarkMethods.class.getMethod("value");
+        asyncMethod = executor.getAsynchronousMethod(method);
+        ctx = new FixedInvocationContext(method, "result");
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public Object callWithCachedMethod() throws Exception {
+        return new InvocationCallable(beanManager, asyncMethod, ctx).call();
+    }
+
+    @Benchmark
+    public Object callAsManagedBean() throws Exception {
+        // how InvocationCallable was used before the cache: the qualifiers are worked out on every call
+        final InvocationCallable icr = new InvocationCallable();
+        icr.beanMan = beanManager;
+        icr.setInvocationContext(ctx);
+        return icr.call();
+    }
+
+    @Benchmark
+    public void qualifierLookupReflective(final Blackhole bh) {
+        for (Annotation ant : method.getAnnotations()) {
+            if (beanManager.isQualifier(ant.annotationType())) {
+                bh.consume(ant);
+            }
+        }
+    }
+
+    @Benchmark
+    public Annotation[] qualifierLookupCached() {
+        return executor.getAsynchronousMethod(method).getQualifiers();
+    }
+}
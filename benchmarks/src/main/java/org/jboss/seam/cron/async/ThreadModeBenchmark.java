@@ -0,0 +1,106 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.seam.cron.annotations.ThreadMode;
+import org.jboss.seam.cron.async.ExecutorConfiguration.RejectionPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares platform and virtual threads for a burst of 100k concurrent @Asynchronous calls which
+ * each block for a while (as if waiting on I/O). Each op is one call, so the score is the average
+ * time per call. Run with {@literal -prof gc} to compare allocation, eg:
+ * <code>java -jar target/benchmarks.jar ThreadModeBenchmark -prof gc</code>
+ * <p/>
+ * The VIRTUAL case silently falls back to platform threads on a JVM without virtual threads.
+ *
+ * @author Peter Royle
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+public class ThreadModeBenchmark {
+
+    public static final int CALLS = 100000;
+    @Param({"PLATFORM", "VIRTUAL"})
+    public ThreadMode threads;
+    /**
+     * Size of the platform thread pool.
+     */
+    @Param({"200"})
+    public int poolSize;
+    /**
+     * How long each call blocks for.
+     */
+    @Param({"10"})
+    public int blockMillis;
+    private ExecutorService executor;
+
+    @Setup(Level.Iteration)
+    public void createExecutor() {
+        final ExecutorConfiguration config = new ExecutorConfiguration("benchmark", poolSize, poolSize, CALLS, 60,
+                RejectionPolicy.CALLER_RUNS, threads);
+        executor = new AsynchronousExecutor().createExecutorService(config);
+    }
+
+    @TearDown(Level.Iteration)
+    public void shutdownExecutor() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void blockingCalls() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(CALLS);
+        for (int i = 0; i < CALLS; i++) {
+            executor.execute(new Runnable() {
+
+                public void run() {
+                    try {
+                        Thread.sleep(blockMillis);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        done.await();
+    }
+}
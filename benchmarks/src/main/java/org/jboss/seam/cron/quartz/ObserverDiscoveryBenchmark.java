@@ -0,0 +1,166 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.ObserverMethod;
+import javax.enterprise.inject.spi.ProcessObserverMethod;
+import javax.enterprise.util.AnnotationLiteral;
+import javax.inject.Qualifier;
+import org.jboss.seam.cron.Stubs.EventCounter;
+import org.jboss.seam.cron.annotations.EveryBinding;
+import org.jboss.seam.cron.executor.ScheduledExecutorSchedulingProvider;
+import org.jboss.seam.cron.quartz.jobs.ScheduledQualifiedEventPayload;
+import org.jboss.seam.cron.spi.SchedulingProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost at deployment of finding the scheduled events in a synthetic application: the
+ * container hands the extension every observer method, of which one in a hundred observes a
+ * scheduled event, and the extension works out the distinct schedules. Each measurement is one
+ * deployment, with a fresh extension.
+ *
+ * @author Peter Royle
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+public class ObserverDiscoveryBenchmark {
+
+    /**
+     * The number of observer methods in the application.
+     */
+    @Param({"10000"})
+    public int observers;
+    private ProcessObserverMethod<?, ?>[] events;
+    private BeanManager manager;
+    private QuartzStarter starter;
+
+    @Setup(Level.Trial)
+    public void setUpDeployment() {
+        // the cheapest provider to start and stop for every deployment
+        System.setProperty(SchedulingProvider.PROVIDER_PROPERTY, ScheduledExecutorSchedulingProvider.class.getName());
+        manager = new EventCounter().beanManager();
+        events = new ProcessObserverMethod<?, ?>[observers];
+        for (int i = 0; i < observers; i++) {
+            final Set<Annotation> qualifiers = new HashSet<Annotation>();
+            qualifiers.add(new ComponentLiteral(i % 100));
+            if (i % 100 == 0) {
+                qualifiers.add(new EveryBinding(1 + i / 100 % 10, org.jboss.seam.cron.events.TimeUnit.MINUTE));
+            }
+            events[i] = processObserverMethod(qualifiers);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        starter = new QuartzStarter();
+        starter.loadScheduleIndex(null);
+        starter.initTicker(null, manager);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        starter.stopTicker(null);
+    }
+
+    @Benchmark
+    public Set<ScheduledQualifiedEventPayload> discoverSchedules() {
+        for (ProcessObserverMethod<?, ?> event : events) {
+            starter.registerCronEventObserver(event);
+        }
+        return starter.findSchedules();
+    }
+
+    static ProcessObserverMethod<?, ?> processObserverMethod(final Set<Annotation> qualifiers) {
+        final ObserverMethod<?> observer = (ObserverMethod<?>) Proxy.newProxyInstance(
+                ObserverDiscoveryBenchmark.class.getClassLoader(), new Class<?>[]{ObserverMethod.class},
+                new InvocationHandler() {
+
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if ("getObservedQualifiers".equals(method.getName())) {
+                    return qualifiers;
+                } else if ("getObservedType".equals(method.getName())) {
+                    return Object.class;
+                } else if ("hashCode".equals(method.getName())) {
+                    return System.identityHashCode(proxy);
+                } else if ("equals".equals(method.getName())) {
+                    return proxy == args[0];
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        return (ProcessObserverMethod<?, ?>) Proxy.newProxyInstance(ObserverDiscoveryBenchmark.class.getClassLoader(),
+                new Class<?>[]{ProcessObserverMethod.class}, new InvocationHandler() {
+
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if ("getObserverMethod".equals(method.getName())) {
+                    return observer;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /**
+     * An ordinary qualifier, of the kind most observers have.
+     */
+    @Qualifier
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Component {
+
+        int value();
+    }
+
+    @SuppressWarnings("all")
+    private static class ComponentLiteral extends AnnotationLiteral<Component> implements Component {
+
+        private final int value;
+
+        ComponentLiteral(final int value) {
+            this.value = value;
+        }
+
+        public int value() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.io.File;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.ProcessObserverMethod;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.jboss.seam.cron.Stubs.EventCounter;
+import org.jboss.seam.cron.executor.ScheduledExecutorSchedulingProvider;
+import org.jboss.seam.cron.processor.ScheduleIndexProcessor;
+import org.jboss.seam.cron.quartz.jobs.ScheduledQualifiedEventPayload;
+import org.jboss.seam.cron.spi.SchedulingProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost at start up of finding the schedules of thousands of scheduled observers, each observing
+ * an event with a qualifier type of its own, with and without the index written by the annotation
+ * processor. The qualifier types are compiled once per trial, then each measurement deploys them
+ * from a fresh class loader, so that nothing has been reflected on yet, as at a real start up.
+ * Scheduling the jobs costs the same either way, so isn't measured.
+ *
+ * @author Peter Royle
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 30)
+public class StartupBenchmark {
+
+    /**
+     * The number of scheduled observers, and of qualifier types.
+     */
+    @Param({"5000"})
+    public int observers;
+    /**
+     * Whether the qualifier types were compiled with the annotation processor.
+     */
+    @Param({"false", "true"})
+    public boolean indexed;
+    private File classes;
+    private BeanManager manager;
+    private URLClassLoader loader;
+    private ClassLoader previousLoader;
+    private ProcessObserverMethod<?, ?>[] events;
+    private QuartzStarter starter;
+
+    @Setup(Level.Trial)
+    public void compileQualifiers() throws Exception {
+        System.setProperty(SchedulingProvider.PROVIDER_PROPERTY, ScheduledExecutorSchedulingProvider.class.getName());
+        manager = new EventCounter().beanManager();
+        classes = File.createTempFile("qualifiers", "");
+        classes.delete();
+        classes.mkdirs();
+
+        final List<JavaFileObject> sources = new ArrayList<JavaFileObject>();
+        for (int i = 0; i < observers; i++) {
+            // half on cron schedules, half on intervals
+            final String schedule = i % 2 == 0
+                    ? "@Scheduled(\"0 " + i % 60 + " " + i / 60 % 24 + " * * ?\")"
+                    : "@Every(nth = " + (1 + i % 30) + ", value = TimeUnit.MINUTE)";
+            sources.add(source("Q" + i, "@Qualifier @Retention(RetentionPolicy.RUNTIME) " + schedule
+                    + " public @interface Q" + i + " {}"));
+        }
+        final List<String> options = new ArrayList<String>(Arrays.asList(
+                "-classpath", System.getProperty("java.class.path"), "-d", classes.getPath()));
+        if (!indexed) {
+            options.add("-proc:none");
+        }
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final JavaCompiler.CompilationTask task = compiler.getTask(null, null, null, options, null, sources);
+        if (indexed) {
+            task.setProcessors(Collections.singletonList(new ScheduleIndexProcessor()));
+        }
+        if (!task.call()) {
+            throw new IllegalStateException("Could not compile the qualifiers");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteQualifiers() {
+        delete(classes);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp() throws Exception {
+        loader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, StartupBenchmark.class.getClassLoader());
+        events = new ProcessObserverMethod<?, ?>[observers];
+        for (int i = 0; i < observers; i++) {
+            final Class<? extends Annotation> type = loader.loadClass("generated.Q" + i).asSubclass(Annotation.class);
+            events[i] = ObserverDiscoveryBenchmark.processObserverMethod(Collections.singleton(qualifier(type)));
+        }
+        // the extension finds the index through the application's class loader
+        previousLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(loader);
+        starter = new QuartzStarter();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws Exception {
+        starter.stopTicker(null);
+        Thread.currentThread().setContextClassLoader(previousLoader);
+        loader.close();
+    }
+
+    @Benchmark
+    public Set<ScheduledQualifiedEventPayload> startUp() {
+        starter.loadScheduleIndex(null);
+        for (ProcessObserverMethod<?, ?> event : events) {
+            starter.registerCronEventObserver(event);
+        }
+        starter.initTicker(null, manager);
+        return starter.findSchedules();
+    }
+
+    /**
+     * @return an instance of the given qualifier type, made without reflecting on its annotations.
+     */
+    private static Annotation qualifier(final Class<? extends Annotation> type) {
+        return (Annotation) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new InvocationHandler() {
+
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if ("annotationType".equals(method.getName())) {
+                    return type;
+                } else if ("hashCode".equals(method.getName())) {
+                    return 0;
+                } else if ("equals".equals(method.getName())) {
+                    return args[0] instanceof Annotation && ((Annotation) args[0]).annotationType() == type;
+                } else if ("toString".equals(method.getName())) {
+                    return "@" + type.getName() + "()";
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static JavaFileObject source(final String simpleName, final String body) {
+        final String code = "package generated;\n"
+                + "import java.lang.annotation.*;\n"
+                + "import javax.inject.Qualifier;\n"
+                + "import org.jboss.seam.cron.annotations.*;\n"
+                + "import org.jboss.seam.cron.events.TimeUnit;\n"
+                + body;
+        return new SimpleJavaFileObject(URI.create("string:///generated/" + simpleName + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+
+            @Override
+            public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.jboss.seam.cron.Stubs.EventCounter;
+import org.jboss.seam.cron.annotations.EveryBinding;
+import org.jboss.seam.cron.metrics.SchedulerMetrics;
+import org.jboss.seam.cron.quartz.jobs.SecondJob;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleTrigger;
+import org.quartz.spi.TriggerFiredBundle;
+
+/**
+ * The cost of firing one scheduled event from a Quartz job, ie: everything the job does between
+ * Quartz calling it and the event reaching the (stub) #{@link javax.enterprise.inject.spi.ObserverMethod},
+ * which is what a per-second ticker pays once per qualifier per second.
+ *
+ * @author Peter Royle
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TimeEventJobBenchmark {
+
+    private static final String JOB_NAME = "Every#benchmark-trigger";
+    private Scheduler scheduler;
+    private TimeEventJobAdapter job;
+    private JobExecutionContext context;
+
+    @Setup
+    public void setUp() throws SchedulerException {
+        final QuartzConfiguration config = QuartzConfiguration.read(
+                new SchedulePropertiesManager(new Properties()));
+        scheduler = new QuartzSchedulerFactory(config).createLocalScheduler();
+        final SchedulerMetrics metrics = new SchedulerMetrics(scheduler.getSchedulerName(), config.getThreadCount());
+        final SecondJob secondJob = new SecondJob();
+        secondJob.bind(new EventCounter().beanManager(),
+                new EveryBinding(1, org.jboss.seam.cron.events.TimeUnit.SECOND), metrics.register(JOB_NAME, "benchmark"));
+        job = new TimeEventJobAdapter(secondJob);
+
+        final JobDetail jobDetail = new JobDetail(JOB_NAME, QuartzStarter.TICKER_JOB_GROUP,
+                TimeEventJobAdapter.class);
+        final SimpleTrigger trigger = new SimpleTrigger("benchmark", QuartzStarter.TICKER_JOB_GROUP, new Date(),
+                null, SimpleTrigger.REPEAT_INDEFINITELY, 1000);
+        final Date now = new Date();
+        context = new JobExecutionContext(scheduler,
+                new TriggerFiredBundle(jobDetail, trigger, null, false, now, now, null, null), job);
+    }
+
+    @TearDown
+    public void tearDown() throws SchedulerException {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public JobExecutionContext execute() throws Exception {
+        job.execute(context);
+        return context;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz.jobs;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.jboss.seam.cron.annotations.EveryBinding;
+import org.jboss.seam.cron.annotations.ScheduledBinding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The cost of de-duplicating the observed schedules at start up: hashing and comparing
+ * #{@link ScheduledQualifiedEventPayload}s (which hash their qualifier annotations), and
+ * working out their stable job names.
+ *
+ * @author Peter Royle
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PayloadBenchmark {
+
+    /**
+     * The number of distinct schedules. Each is observed twice.
+     */
+    @Param({"100", "1000"})
+    public int schedules;
+    private List<ScheduledQualifiedEventPayload> payloads;
+
+    @Setup
+    public void setUp() {
+        payloads = new ArrayList<ScheduledQualifiedEventPayload>();
+        for (int copy = 0; copy < 2; copy++) {
+            for (int i = 0; i < schedules; i++) {
+                if (i % 2 == 0) {
+                    payloads.add(new ScheduledQualifiedEventPayload(
+                            new EveryBinding(i + 1, org.jboss.seam.cron.events.TimeUnit.SECOND), SecondJob.class));
+                } else {
+                    payloads.add(new ScheduledQualifiedEventPayload("0 0/" + i + " * ? * *",
+                            new ScheduledBinding("schedule." + i), ScheduledEventJob.class));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Set<ScheduledQualifiedEventPayload> dedup() {
+        return new HashSet<ScheduledQualifiedEventPayload>(payloads);
+    }
+
+    @Benchmark
+    public void jobNames(final Blackhole bh) {
+        for (ScheduledQualifiedEventPayload payload : payloads) {
+            // a fresh copy, as the name is cached once worked out
+            final ScheduledQualifiedEventPayload copy = payload.isInterval()
+                    ? new ScheduledQualifiedEventPayload((EveryBinding) payload.getQualifier(), payload.getPayloadType())
+                    : new ScheduledQualifiedEventPayload(payload.getScheduleSpec(), payload.getQualifier(),
+                    payload.getPayloadType());
+            bh.consume(copy.getJobName());
+        }
+    }
+}
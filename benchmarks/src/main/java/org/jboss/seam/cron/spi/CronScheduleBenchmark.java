@@ -0,0 +1,101 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.spi;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quartz.CronExpression;
+
+/**
+ * #{@link CronSchedule} vs Quartz's #{@link CronExpression}: the time to work out one next
+ * firing (averaged over a thousand successive firings, ie: years of them for the daily and
+ * monthly schedules), and to get hold of a schedule for an expression.
+ *
+ * @author Peter Royle
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CronScheduleBenchmark {
+
+    private static final int FIRINGS = 1000;
+    // 2020-01-01T00:00:00Z
+    private static final long START = 1577836800000L;
+
+    @Param({"0 0/5 * * * ?", "0 0 12 ? * MON-FRI", "0 15 10 1,15 * ?", "0 30 2 ? JAN,JUL MON"})
+    public String expression;
+    private CronSchedule schedule;
+    private CronExpression quartz;
+
+    @Setup
+    public void setUp() throws ParseException {
+        schedule = CronSchedule.compile(expression);
+        quartz = new CronExpression(expression);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FIRINGS)
+    public long nextFireTime() {
+        long time = START;
+        for (int i = 0; i < FIRINGS; i++) {
+            time = schedule.getNextFireTime(time);
+            if (time < 0) {
+                time = START;
+            }
+        }
+        return time;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FIRINGS)
+    public Date quartzNextFireTime() {
+        Date time = new Date(START);
+        for (int i = 0; i < FIRINGS; i++) {
+            time = quartz.getNextValidTimeAfter(time);
+            if (time == null) {
+                time = new Date(START);
+            }
+        }
+        return time;
+    }
+
+    @Benchmark
+    public CronSchedule compile() throws ParseException {
+        return CronSchedule.compile(expression);
+    }
+
+    @Benchmark
+    public CronExpression quartzParse() throws ParseException {
+        return new CronExpression(expression);
+    }
+}
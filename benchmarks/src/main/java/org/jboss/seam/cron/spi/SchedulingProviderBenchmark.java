@@ -0,0 +1,105 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.spi;
+
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.jboss.seam.cron.annotations.MisfirePolicy;
+import org.jboss.seam.cron.metrics.SchedulerMetrics;
+import org.jboss.seam.cron.quartz.QuartzSchedulingProvider;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+import org.jboss.seam.cron.wheel.HashedWheelSchedulingProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Quartz vs the timing wheel with lots of @Every jobs already registered: the time to register
+ * another 1000 of them (each measurement is one batch of 1000). None of the jobs come due during
+ * the benchmark, so this is the cost of the provider's bookkeeping alone. The providers are
+ * refilled for each iteration, which takes a while for Quartz at a million jobs.
+ *
+ * @author Peter Royle
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, batchSize = 1000)
+@Measurement(iterations = 10, batchSize = 1000)
+public class SchedulingProviderBenchmark {
+
+    private static final MisfireConfiguration SKIP = new MisfireConfiguration(MisfirePolicy.SKIP, 1);
+    private static final TimeEventJob JOB = new NoopJob();
+
+    @Param({"quartz", "wheel"})
+    public String engine;
+    /**
+     * The number of jobs registered before measuring.
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int timers;
+    private SchedulingProvider provider;
+    private Date startTime;
+    private int extra;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        final Properties props = new Properties();
+        props.setProperty(SchedulerConfiguration.PROPERTY_PREFIX + SchedulerConfiguration.THREAD_COUNT, "4");
+        provider = "wheel".equals(engine) ? new HashedWheelSchedulingProvider() : new QuartzSchedulingProvider();
+        provider.initProvider(new SchedulePropertiesManager(props), new SchedulerMetrics("benchmark", 4));
+        // far enough away that nothing fires while measuring
+        startTime = new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1));
+        for (int i = 0; i < timers; i++) {
+            provider.scheduleInterval("job" + i, JOB, org.jboss.seam.cron.events.TimeUnit.HOUR, 1 + i % 24, true,
+                    SKIP, startTime);
+        }
+        provider.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        provider.shutdown();
+    }
+
+    @Benchmark
+    public void scheduleInterval() {
+        provider.scheduleInterval("extra" + extra++, JOB, org.jboss.seam.cron.events.TimeUnit.HOUR, 1, true,
+                SKIP, startTime);
+    }
+
+    /**
+     * Does nothing, but can be fired by any provider.
+     */
+    public static class NoopJob implements TimeEventJob {
+
+        public void fire(final long scheduledFireTime) {
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.processor;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Writes an index of the qualifier types compiled with it, so that Seam Cron can tell which of
+ * them are scheduled, and when, without reflecting on each one at deployment. For each qualifier
+ * type the index lists the Seam Cron annotations on it (eg: @Jitter), plus the settings of its
+ * @Scheduled or @Every meta-annotation if it has one. Qualifier types which aren't in the index (eg: those of
+ * libraries compiled without the processor) are still found by reflection.
+ * <p/>
+ * Schedules named in scheduler.properties are left for Seam Cron to look up at deployment, since
+ * the file (or a system property) may be changed without recompiling the application.
+ * <p/>
+ * A second index lists the @Asynchronous methods (those annotated, and those declared by an
+ * annotated type), each with the types of its qualifiers, how it returns its result and the kind
+ * of thread it asks for, so that Seam Cron needn't reflect on them when they are first invoked.
+ * Only annotation types annotated with @Qualifier are taken for qualifiers.
+ *
+ * @author Peter Royle
+ */
+@SupportedAnnotationTypes({ScheduleIndexProcessor.QUALIFIER, ScheduleIndexProcessor.ASYNCHRONOUS})
+public class ScheduleIndexProcessor extends AbstractProcessor {
+
+    /**
+     * Where the index is written, relative to the class output directory. Read by
+     * org.jboss.seam.cron.quartz.ScheduleIndex.
+     */
+    public static final String INDEX_RESOURCE = "META-INF/seam-cron/schedule-index.properties";
+    /**
+     * Where the index of @Asynchronous methods is written, relative to the class output directory.
+     * Read by org.jboss.seam.cron.async.AsynchronousIndex.
+     */
+    public static final String ASYNC_INDEX_RESOURCE = "META-INF/seam-cron/async-index.properties";
+    static final String QUALIFIER = "javax.inject.Qualifier";
+    static final String ASYNCHRONOUS = "org.jboss.seam.cron.annotations.Asynchronous";
+    static final String ANNOTATIONS_PACKAGE = "org.jboss.seam.cron.annotations.";
+    static final String SCHEDULED = "org.jboss.seam.cron.annotations.Scheduled";
+    static final String EVERY = "org.jboss.seam.cron.annotations.Every";
+    // sorted, so that the same sources always give the same index
+    private final Map<String, String> entries = new TreeMap<String, String>();
+    private final Map<String, String> asyncEntries = new TreeMap<String, String>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!entries.isEmpty()) {
+                writeIndex(INDEX_RESOURCE, "Qualifier types", entries);
+            }
+            if (!asyncEntries.isEmpty()) {
+                writeIndex(ASYNC_INDEX_RESOURCE, "@Asynchronous methods", asyncEntries);
+            }
+        } else {
+            for (TypeElement annotation : annotations) {
+                final boolean asynchronous = annotation.getQualifiedName().contentEquals(ASYNCHRONOUS);
+                for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                    if (asynchronous && element.getKind() == ElementKind.METHOD) {
+                        indexAsynchronous((ExecutableElement) element);
+                    } else if (asynchronous && element.getKind() == ElementKind.CLASS) {
+                        for (Element member : element.getEnclosedElements()) {
+                            if (member.getKind() == ElementKind.METHOD
+                                    && !member.getModifiers().contains(Modifier.PRIVATE)
+                                    && !member.getModifiers().contains(Modifier.STATIC)) {
+                                indexAsynchronous((ExecutableElement) member);
+                            }
+                        }
+                    } else if (!asynchronous && element.getKind() == ElementKind.ANNOTATION_TYPE) {
+                        index((TypeElement) element);
+                    }
+                }
+            }
+        }
+        // other processors may be interested in qualifiers too
+        return false;
+    }
+
+    private void index(final TypeElement qualifierType) {
+        final Elements elements = processingEnv.getElementUtils();
+        final String name = elements.getBinaryName(qualifierType).toString();
+        final List<String> annotationNames = new ArrayList<String>();
+        for (AnnotationMirror mirror : qualifierType.getAnnotationMirrors()) {
+            final String annotationName = elements.getBinaryName(
+                    (TypeElement) mirror.getAnnotationType().asElement()).toString();
+            if (!annotationName.startsWith(ANNOTATIONS_PACKAGE)) {
+                continue;
+            }
+            annotationNames.add(annotationName);
+            if (SCHEDULED.equals(annotationName)) {
+                entries.put(name + "#scheduled", String.valueOf(getValue(mirror, "value")));
+                putIfNotClustered(name + "#scheduled", mirror);
+            } else if (EVERY.equals(annotationName) && getValue(mirror, "value") instanceof VariableElement) {
+                // the unit is an enum constant (unless it doesn't compile, which javac will report)
+                entries.put(name + "#every", getValue(mirror, "nth") + " "
+                        + ((VariableElement) getValue(mirror, "value")).getSimpleName());
+                putIfNotClustered(name + "#every", mirror);
+            }
+        }
+        entries.put(name, join(annotationNames));
+    }
+
+    /**
+     * Index an @Asynchronous method as eg: "com.acme.Reports#run(java.lang.String,int[])", listing the
+     * types of its qualifiers, with ".returns" (how the result is handed back) and, unless the
+     * method leaves it to the configuration, ".threads".
+     */
+    private void indexAsynchronous(final ExecutableElement method) {
+        final Elements elements = processingEnv.getElementUtils();
+        final Types types = processingEnv.getTypeUtils();
+        final TypeElement declaringType = (TypeElement) method.getEnclosingElement();
+        final StringBuilder key = new StringBuilder(elements.getBinaryName(declaringType)).append('#')
+                .append(method.getSimpleName()).append('(');
+        for (VariableElement parameter : method.getParameters()) {
+            if (key.charAt(key.length() - 1) != '(') {
+                key.append(',');
+            }
+            key.append(typeName(types.erasure(parameter.asType())));
+        }
+        key.append(')');
+
+        final List<String> qualifiers = new ArrayList<String>();
+        String threads = null;
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            final TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(ASYNCHRONOUS)) {
+                threads = getThreads(mirror);
+            } else if (isQualifier(annotationType)) {
+                qualifiers.add(elements.getBinaryName(annotationType).toString());
+            }
+        }
+        if (threads == null) {
+            // as on the declaring type, inherited or not
+            for (AnnotationMirror mirror : elements.getAllAnnotationMirrors(declaringType)) {
+                if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName()
+                        .contentEquals(ASYNCHRONOUS)) {
+                    threads = getThreads(mirror);
+                }
+            }
+        }
+        asyncEntries.put(key.toString(), join(qualifiers));
+        asyncEntries.put(key + ".returns", getReturnKind(method.getReturnType()));
+        if (threads != null) {
+            asyncEntries.put(key + ".threads", threads);
+        }
+    }
+
+    /**
+     * @return the thread mode asked for by an @Asynchronous annotation, or null for DEFAULT.
+     */
+    private String getThreads(final AnnotationMirror asynchronous) {
+        final Object threads = getValue(asynchronous, "threads");
+        if (threads instanceof VariableElement) {
+            final String name = ((VariableElement) threads).getSimpleName().toString();
+            return "DEFAULT".equals(name) ? null : name;
+        }
+        return null;
+    }
+
+    private boolean isQualifier(final TypeElement annotationType) {
+        for (AnnotationMirror mirror : annotationType.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(QUALIFIER)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the name of the org.jboss.seam.cron.async.AsynchronousMethod.ReturnKind of a method
+     *         returning the given type.
+     */
+    private String getReturnKind(final TypeMirror returnType) {
+        if (returnType.getKind() == TypeKind.VOID) {
+            return "VOID";
+        }
+        final Types types = processingEnv.getTypeUtils();
+        final TypeMirror erased = types.erasure(returnType);
+        final TypeMirror completionStage = erasedType("java.util.concurrent.CompletionStage");
+        final TypeMirror completableFuture = erasedType("java.util.concurrent.CompletableFuture");
+        // as CompletionStages.isCompletionStageType: something a CompletableFuture can be returned as
+        if (completionStage != null && completableFuture != null && types.isAssignable(erased, completionStage)
+                && types.isAssignable(completableFuture, erased)) {
+            return "COMPLETION_STAGE";
+        }
+        if (types.isAssignable(erased, erasedType("java.util.concurrent.Future"))) {
+            return "FUTURE";
+        }
+        return "VALUE";
+    }
+
+    private TypeMirror erasedType(final String name) {
+        final TypeElement type = processingEnv.getElementUtils().getTypeElement(name);
+        return type == null ? null : processingEnv.getTypeUtils().erasure(type.asType());
+    }
+
+    /**
+     * @return the name of an erased type, as org.jboss.seam.cron.async.AsynchronousIndex names a Class.
+     */
+    private String typeName(final TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return typeName(((ArrayType) type).getComponentType()) + "[]";
+        }
+        if (type.getKind() == TypeKind.DECLARED) {
+            return processingEnv.getElementUtils().getBinaryName((TypeElement) ((DeclaredType) type).asElement())
+                    .toString();
+        }
+        return type.toString();
+    }
+
+    private void putIfNotClustered(final String key, final AnnotationMirror mirror) {
+        if (Boolean.FALSE.equals(getValue(mirror, "clustered"))) {
+            entries.put(key + ".clustered", "false");
+        }
+    }
+
+    private Object getValue(final AnnotationMirror mirror, final String attribute) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(attribute)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private void writeIndex(final String resource, final String description, final Map<String, String> contents) {
+        try {
+            final FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    resource);
+            final Writer writer = new OutputStreamWriter(index.openOutputStream(), "ISO-8859-1");
+            try {
+                writer.write("# " + description + " indexed by the Seam Cron annotation processor\n");
+                for (Map.Entry<String, String> entry : contents.entrySet()) {
+                    writer.write(entry.getKey() + "=" + escape(entry.getValue()) + "\n");
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException ex) {
+            // not fatal: without the index everything is found by reflection
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Could not write the Seam Cron index "
+                    + resource + ": " + ex.getMessage());
+        }
+    }
+
+    private static String join(final List<String> names) {
+        final StringBuilder joined = new StringBuilder();
+        for (String name : names) {
+            if (joined.length() > 0) {
+                joined.append(',');
+            }
+            joined.append(name);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * @return the given value, escaped as java.util.Properties expects.
+     */
+    static String escape(final String value) {
+        final StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '\\') {
+                escaped.append("\\\\");
+            } else if (c == ' ' && i == 0) {
+                escaped.append("\\ ");
+            } else if (c < 0x20 || c > 0x7e) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
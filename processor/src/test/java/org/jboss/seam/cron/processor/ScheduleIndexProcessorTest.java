@@ -0,0 +1,203 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.processor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that #{@link ScheduleIndexProcessor} indexes each qualifier type compiled with it, with
+ * the settings of its @Scheduled or @Every meta-annotation, and each @Asynchronous method.
+ *
+ * @author Peter Royle
+ */
+public class ScheduleIndexProcessorTest {
+
+    private File output;
+
+    @Before
+    public void createOutput() throws Exception {
+        output = File.createTempFile("classes", "");
+        output.delete();
+        output.mkdirs();
+    }
+
+    @After
+    public void deleteOutput() {
+        delete(output);
+    }
+
+    @Test
+    public void testQualifierTypesAreIndexed() throws Exception {
+        compile(source("com.acme.Hourly", "@Qualifier @Retention(RetentionPolicy.RUNTIME)\n"
+                + "@Scheduled(value = \"0 0 * * * ?\", clustered = false)\n"
+                + "public @interface Hourly {}"),
+                source("com.acme.Often", "@Qualifier @Retention(RetentionPolicy.RUNTIME)\n"
+                + "@Every(nth = 5, value = TimeUnit.MINUTE) @Jitter(1000)\n"
+                + "public @interface Often {}"),
+                source("com.acme.Plain", "@Qualifier @Retention(RetentionPolicy.RUNTIME)\n"
+                + "public @interface Plain {}"),
+                source("com.acme.Outer", "public class Outer {\n"
+                + "    @Qualifier @Retention(RetentionPolicy.RUNTIME) @Every(TimeUnit.SECOND)\n"
+                + "    public @interface Inner {}\n"
+                + "}"));
+
+        final Properties index = readIndex(ScheduleIndexProcessor.INDEX_RESOURCE);
+        Assert.assertEquals("0 0 * * * ?", index.getProperty("com.acme.Hourly#scheduled"));
+        Assert.assertEquals("false", index.getProperty("com.acme.Hourly#scheduled.clustered"));
+        Assert.assertNull(index.getProperty("com.acme.Hourly#every"));
+        Assert.assertEquals("5 MINUTE", index.getProperty("com.acme.Often#every"));
+        // clustered is the default
+        Assert.assertNull(index.getProperty("com.acme.Often#every.clustered"));
+        Assert.assertEquals("1 SECOND", index.getProperty("com.acme.Outer$Inner#every"));
+
+        // every qualifier type is listed with its Seam Cron annotations, if any
+        Assert.assertEquals("", index.getProperty("com.acme.Plain"));
+        Assert.assertNull(index.getProperty("com.acme.Plain#scheduled"));
+        Assert.assertNull(index.getProperty("com.acme.Plain#every"));
+        Assert.assertEquals(Arrays.asList(ScheduleIndexProcessor.EVERY, "org.jboss.seam.cron.annotations.Jitter"),
+                Arrays.asList(index.getProperty("com.acme.Often").split(",")));
+        Assert.assertNull(index.getProperty("com.acme.Outer"));
+    }
+
+    @Test
+    public void testAsynchronousMethodsAreIndexed() throws Exception {
+        compile(source("com.acme.Nightly", "@Qualifier @Retention(RetentionPolicy.RUNTIME)\n"
+                + "public @interface Nightly {}"),
+                source("com.acme.Reports", "public class Reports {\n"
+                + "    @Asynchronous(threads = ThreadMode.VIRTUAL) @Nightly @Deprecated\n"
+                + "    public java.util.concurrent.Future<String> run(String name, int[] days, Reports[][] more) {\n"
+                + "        return null;\n"
+                + "    }\n"
+                + "    @Asynchronous public <T extends Number> void record(T value) {}\n"
+                + "    @Asynchronous public java.util.concurrent.CompletableFuture<String> stage() { return null; }\n"
+                + "    public String notAsynchronous() { return null; }\n"
+                + "}"),
+                source("com.acme.Batch", "@Asynchronous(threads = ThreadMode.PLATFORM) public class Batch {\n"
+                + "    public int count() { return 0; }\n"
+                + "    @Asynchronous public Object describe(Outer.Inner inner) { return null; }\n"
+                + "    private void hidden() {}\n"
+                + "    public static void utility() {}\n"
+                + "    public static class Outer { public static class Inner {} }\n"
+                + "}"));
+
+        final Properties index = readIndex(ScheduleIndexProcessor.ASYNC_INDEX_RESOURCE);
+        final String run = "com.acme.Reports#run(java.lang.String,int[],com.acme.Reports[][])";
+        // only the qualifiers
+        Assert.assertEquals("com.acme.Nightly", index.getProperty(run));
+        Assert.assertEquals("FUTURE", index.getProperty(run + ".returns"));
+        Assert.assertEquals("VIRTUAL", index.getProperty(run + ".threads"));
+
+        // erased, and left to the configuration
+        Assert.assertEquals("", index.getProperty("com.acme.Reports#record(java.lang.Number)"));
+        Assert.assertEquals("VOID", index.getProperty("com.acme.Reports#record(java.lang.Number).returns"));
+        Assert.assertNull(index.getProperty("com.acme.Reports#record(java.lang.Number).threads"));
+        Assert.assertEquals("COMPLETION_STAGE", index.getProperty("com.acme.Reports#stage().returns"));
+        Assert.assertNull(index.getProperty("com.acme.Reports#notAsynchronous()"));
+
+        // the methods of an annotated type, as on the type unless they say otherwise
+        Assert.assertEquals("VALUE", index.getProperty("com.acme.Batch#count().returns"));
+        Assert.assertEquals("PLATFORM", index.getProperty("com.acme.Batch#count().threads"));
+        Assert.assertEquals("PLATFORM",
+                index.getProperty("com.acme.Batch#describe(com.acme.Batch$Outer$Inner).threads"));
+        Assert.assertNull(index.getProperty("com.acme.Batch#hidden()"));
+        Assert.assertNull(index.getProperty("com.acme.Batch#utility()"));
+
+        // and the qualifier still goes in the schedule index
+        Assert.assertEquals("", readIndex(ScheduleIndexProcessor.INDEX_RESOURCE).getProperty("com.acme.Nightly"));
+    }
+
+    @Test
+    public void testNoIndexIsWrittenWithoutQualifierTypes() throws Exception {
+        compile(source("com.acme.Service", "public class Service {}"));
+        Assert.assertFalse(new File(output, ScheduleIndexProcessor.INDEX_RESOURCE).exists());
+        Assert.assertFalse(new File(output, ScheduleIndexProcessor.ASYNC_INDEX_RESOURCE).exists());
+    }
+
+    @Test
+    public void testValuesAreEscaped() {
+        Assert.assertEquals("0 0 12 * * ?", ScheduleIndexProcessor.escape("0 0 12 * * ?"));
+        Assert.assertEquals("\\ a\\\\b\\u00e9", ScheduleIndexProcessor.escape(" a\\b\u00e9"));
+    }
+
+    private void compile(final JavaFileObject... sources) {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final List<String> options = new ArrayList<String>();
+        options.addAll(Arrays.asList("-classpath", System.getProperty("java.class.path"),
+                "-d", output.getPath()));
+        final JavaCompiler.CompilationTask task = compiler.getTask(null, null, null, options, null,
+                Arrays.asList(sources));
+        task.setProcessors(Collections.singletonList(new ScheduleIndexProcessor()));
+        Assert.assertTrue("The sources should compile", task.call());
+    }
+
+    private Properties readIndex(final String resource) throws Exception {
+        final Properties index = new Properties();
+        final InputStream in = new FileInputStream(new File(output, resource));
+        try {
+            index.load(in);
+        } finally {
+            in.close();
+        }
+        return index;
+    }
+
+    private static JavaFileObject source(final String className, final String body) {
+        final int lastDot = className.lastIndexOf('.');
+        final String code = "package " + className.substring(0, lastDot) + ";\n"
+                + "import java.lang.annotation.*;\n"
+                + "import javax.inject.Qualifier;\n"
+                + "import org.jboss.seam.cron.annotations.*;\n"
+                + "import org.jboss.seam.cron.events.TimeUnit;\n"
+                + body;
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+
+            @Override
+            public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -20,6 +20,7 @@ import java.lang.annotation.Inherited;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 
+import javax.enterprise.util.Nonbinding;
 import javax.interceptor.InterceptorBinding;
 
 import static java.lang.annotation.ElementType.METHOD;
@@ -29,6 +30,10 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 /**
  * Indicates that the annotated method, or all methods in the annotated class
  * will be executed asynchronously.
+ * <p/>
+ * By default the method is run on the application's thread pool. Methods which spend
+ * most of their time blocked on I/O may instead ask for a virtual thread each:
+ * <code>@Asynchronous(threads = ThreadMode.VIRTUAL)</code>
  *
  * @author Peter Royle
  */
@@ -37,4 +42,13 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 @Retention(RUNTIME)
 @Target({METHOD, TYPE})
 public @interface Asynchronous {
+
+    /**
+     * The kind of thread to run the method on. Defaults to whatever is configured
+     * for the application or the method's qualifiers.
+     *
+     * @return the thread mode.
+     */
+    @Nonbinding
+    ThreadMode threads() default ThreadMode.DEFAULT;
 }
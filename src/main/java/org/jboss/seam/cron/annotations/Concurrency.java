@@ -0,0 +1,54 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits how many executions of a scheduled event may run at once. Put it on a qualifier
+ * alongside #{@link Every} or #{@link Scheduled}, eg:
+ * <pre>
+ * &#064;Every(SECOND)
+ * &#064;Concurrency(ConcurrencyPolicy.SKIP)
+ * &#064;Qualifier
+ * &#064;Retention(RUNTIME)
+ * &#064;Target({PARAMETER})
+ * public &#064;interface EverySecondOneAtATime {}
+ * </pre>
+ * The same can be set (or overridden) in /scheduler.properties with the qualifier's name, eg:
+ * {@literal org.jboss.seam.cron.scheduler.com.acme.EverySecondOneAtATime.concurrency=SKIP} and
+ * {@literal org.jboss.seam.cron.scheduler.com.acme.EverySecondOneAtATime.maxConcurrent=1}.
+ *
+ * @author Peter Royle
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.ANNOTATION_TYPE)
+public @interface Concurrency {
+
+    /**
+     * @return what to do with a firing when the maximum number of executions are already running.
+     */
+    ConcurrencyPolicy value();
+
+    /**
+     * @return the maximum number of executions which may run at once. Ignored for ALLOW.
+     */
+    int max() default 1;
+}
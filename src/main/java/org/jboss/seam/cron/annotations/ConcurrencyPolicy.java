@@ -0,0 +1,40 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.annotations;
+
+/**
+ * What to do when a scheduled event is due but its observers are still running from earlier
+ * firings (see #{@link Concurrency}).
+ *
+ * @author Peter Royle
+ */
+public enum ConcurrencyPolicy {
+
+    /**
+     * Fire the event regardless, however many executions are already running.
+     */
+    ALLOW,
+    /**
+     * Skip this firing if the maximum number of executions are already running.
+     */
+    SKIP,
+    /**
+     * If the maximum number of executions are already running, fire the event as soon as one
+     * of them finishes. Only one firing is kept waiting: any more are merged into it.
+     */
+    COALESCE;
+}
@@ -29,6 +29,10 @@ import org.jboss.seam.cron.events.TimeUnit;
  * every event in a particular schedule. Eg:
  * <code>public void doSomething( @Observes @Every Minute min )</code> will
  * observe the event fired every minute.
+ * <p/>
+ * When the scheduler is clustered, each event is fired on just one node of the cluster.
+ * Use <code>@Every(value = MINUTE, clustered = false)</code> for observers which must run
+ * on every node.
  *
  * @author Peter Royle
  */
@@ -42,4 +46,10 @@ import org.jboss.seam.cron.events.TimeUnit;
 public @interface Every {
     int nth() default 1;
     TimeUnit value();
+
+    /**
+     * @return false if the event must be fired on every node of a clustered scheduler,
+     * rather than on just one of them.
+     */
+    boolean clustered() default true;
 }
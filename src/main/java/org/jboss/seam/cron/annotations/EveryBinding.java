@@ -28,12 +28,18 @@ public class EveryBinding
 
     private final int nth;
     private final TimeUnit value;
+    private final boolean clustered;
 
     public EveryBinding(int nth, TimeUnit value) {
+        this(nth, value, true);
+    }
+
+    public EveryBinding(int nth, TimeUnit value, boolean clustered) {
         this.nth = nth;
         this.value = value;
+        this.clustered = clustered;
     }
-    
+
     public int nth() {
         return nth;
     }
@@ -41,5 +47,9 @@ public class EveryBinding
     public TimeUnit value() {
         return value;
     }
-    
+
+    public boolean clustered() {
+        return clustered;
+    }
+
 }
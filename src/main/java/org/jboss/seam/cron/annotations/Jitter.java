@@ -0,0 +1,51 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Spreads the firings of an #{@link Every} event away from those of the other events with the
+ * same interval, by delaying its start by up to the given number of milliseconds. The delay is
+ * worked out from the qualifier, so it is the same every time the application starts and on
+ * every node of a cluster. Put it on the qualifier, eg:
+ * <pre>
+ * &#064;Every(MINUTE)
+ * &#064;Jitter(30000)
+ * &#064;Qualifier
+ * &#064;Retention(RUNTIME)
+ * &#064;Target({PARAMETER})
+ * public &#064;interface EveryMinuteOrSo {}
+ * </pre>
+ * <code>&#064;Jitter(0)</code> keeps an event in step with the others when jitter has been
+ * turned on for everything in /scheduler.properties (see
+ * #{@link org.jboss.seam.cron.quartz.JitterConfiguration}).
+ *
+ * @author Peter Royle
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.ANNOTATION_TYPE)
+public @interface Jitter {
+
+    /**
+     * @return the longest delay in milliseconds, capped at the event's interval. 0 for none.
+     */
+    long value();
+}
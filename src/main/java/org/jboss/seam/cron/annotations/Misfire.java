@@ -0,0 +1,54 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Says what to do when a scheduled event misfires. Put it on a qualifier alongside
+ * #{@link Every} or #{@link Scheduled}, eg:
+ * <pre>
+ * &#064;Scheduled("0 0 * ? * *")
+ * &#064;Misfire(value = MisfirePolicy.CATCH_UP, maxCatchUp = 24)
+ * &#064;Qualifier
+ * &#064;Retention(RUNTIME)
+ * &#064;Target({PARAMETER})
+ * public &#064;interface Hourly {}
+ * </pre>
+ * The same can be set (or overridden) in /scheduler.properties with the qualifier's name, eg:
+ * {@literal org.jboss.seam.cron.scheduler.com.acme.Hourly.misfire=CATCH_UP} and
+ * {@literal org.jboss.seam.cron.scheduler.com.acme.Hourly.maxCatchUp=24}.
+ *
+ * @author Peter Royle
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.ANNOTATION_TYPE)
+public @interface Misfire {
+
+    /**
+     * @return what to do when the event misfires.
+     */
+    MisfirePolicy value();
+
+    /**
+     * @return the most missed firings to make up for after one misfire. Only used by CATCH_UP.
+     */
+    int maxCatchUp() default 10;
+}
@@ -0,0 +1,43 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.annotations;
+
+/**
+ * What to do when a scheduled event couldn't be fired on time, eg: because of a long garbage
+ * collection pause or because all of the scheduler's threads were busy (see #{@link Misfire}).
+ * A firing is a misfire when it is later than the scheduler's misfire threshold.
+ *
+ * @author Peter Royle
+ */
+public enum MisfirePolicy {
+
+    /**
+     * Fire the event once, straight away, then carry on with the schedule. This is what
+     * happens to @Scheduled events unless told otherwise.
+     */
+    FIRE_NOW,
+    /**
+     * Don't fire the event until its next scheduled time. This is what happens to @Every
+     * events unless told otherwise.
+     */
+    SKIP,
+    /**
+     * Fire the event for each of the firings which were missed (up to a limit, the most recent
+     * first to go), one at a time, then carry on with the schedule.
+     */
+    CATCH_UP;
+}
@@ -0,0 +1,52 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Notifies each observer of a scheduled event on a thread of its own, so that a slow observer
+ * doesn't hold up the others. Put it on the qualifier alongside #{@link Every} or
+ * #{@link Scheduled}, eg:
+ * <pre>
+ * &#064;Every(MINUTE)
+ * &#064;ParallelObservers
+ * &#064;Qualifier
+ * &#064;Retention(RUNTIME)
+ * &#064;Target({PARAMETER})
+ * public &#064;interface Housekeeping {}
+ * </pre>
+ * The observers are run on the pool which runs #{@link Asynchronous} methods with the same
+ * qualifier (see #{@link org.jboss.seam.cron.async.ExecutorConfiguration}). A failing observer
+ * doesn't stop the others, and the firing is finished once all of them are. The same can be set
+ * (or overridden) in /scheduler.properties with the qualifier's name, eg:
+ * {@literal org.jboss.seam.cron.scheduler.com.acme.Housekeeping.parallelObservers=true}.
+ *
+ * @author Peter Royle
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.ANNOTATION_TYPE)
+public @interface ParallelObservers {
+
+    /**
+     * @return false to notify the observers one after the other on the scheduler's thread.
+     */
+    boolean value() default true;
+}
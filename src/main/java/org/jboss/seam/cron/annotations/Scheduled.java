@@ -64,4 +64,12 @@ public @interface Scheduled {
      * @return the value.
      */
     String value();
+
+    /**
+     * When the scheduler is clustered, each scheduled event is fired on just one node of
+     * the cluster. Set this to false for observers which must run on every node.
+     *
+     * @return false if the event must be fired on every node of a clustered scheduler.
+     */
+    boolean clustered() default true;
 }
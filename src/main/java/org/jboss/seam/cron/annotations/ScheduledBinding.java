@@ -25,6 +25,7 @@ public class ScheduledBinding
         extends AnnotationLiteral<Scheduled>
         implements Scheduled {
     private final String value;
+    private final boolean clustered;
 
     /**
      * Create a new instance of ScheduledBinding with a default 'value'. Note that
@@ -32,7 +33,7 @@ public class ScheduledBinding
      * during setting up of the schedules if used.
      */
     public ScheduledBinding() {
-        value = "unspecified schedule";
+        this("unspecified schedule");
     }
 
     /**
@@ -42,7 +43,19 @@ public class ScheduledBinding
      * @param value The value to be used as the schedule specification/name.
      */
     public ScheduledBinding(String value) {
+        this(value, true);
+    }
+
+    /**
+     * Create a new instance of ScheduledBinding using the given value as the schedule
+     * specification/name.
+     *
+     * @param value     The value to be used as the schedule specification/name.
+     * @param clustered False if the event must be fired on every node of a clustered scheduler.
+     */
+    public ScheduledBinding(String value, boolean clustered) {
         this.value = value;
+        this.clustered = clustered;
     }
 
     /**
@@ -55,4 +68,8 @@ public class ScheduledBinding
     public String value() {
         return value;
     }
+
+    public boolean clustered() {
+        return clustered;
+    }
 }
@@ -0,0 +1,40 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.annotations;
+
+/**
+ * The kind of threads used to run #{@link Asynchronous} methods and scheduled observers.
+ *
+ * @author Peter Royle
+ */
+public enum ThreadMode {
+
+    /**
+     * Use whatever is configured for the application (or qualifier).
+     */
+    DEFAULT,
+    /**
+     * Use a bounded pool of ordinary platform threads.
+     */
+    PLATFORM,
+    /**
+     * Start a new virtual thread for each execution. Well suited to methods which spend
+     * most of their time blocked on I/O. Requires a JVM with virtual thread support, otherwise
+     * platform threads are used instead.
+     */
+    VIRTUAL;
+}
@@ -0,0 +1,42 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+/**
+ * Receives the outcome of an #{@link org.jboss.seam.cron.annotations.Asynchronous} method
+ * invocation when it completes, so that the caller does not have to block waiting for it.
+ * See #{@link ListenableFuture#addCallback(AsyncCallback)}.
+ *
+ * @author Peter Royle
+ */
+public interface AsyncCallback<T> {
+
+    /**
+     * Called when the invocation returns normally.
+     *
+     * @param result The value returned by the method.
+     */
+    void onSuccess(T result);
+
+    /**
+     * Called when the invocation throws an exception or is cancelled.
+     *
+     * @param failure The exception thrown by the method, or a
+     * #{@link java.util.concurrent.CancellationException} if it was cancelled.
+     */
+    void onFailure(Throwable failure);
+}
@@ -31,13 +31,20 @@ import org.jboss.seam.cron.annotations.Asynchronous;
  * that immediately to the calling method.
  * </p>
  * <p>
- * @#{@link Asynchronous} methods which do not have a return type of #{@link Future} must
- * listen for the method's return value using CDI observers.
+ * Declare the method's return type as #{@link ListenableFuture} to give the caller a future
+ * to which they can attach an #{@link AsyncCallback} rather than blocking on it. On Java 8 or
+ * later a method may instead return a #{@literal CompletionStage} or #{@literal CompletableFuture}
+ * (eg: #{@literal CompletableFuture.completedFuture(result)}), and the caller gets a
+ * #{@literal CompletableFuture} which completes when that stage does.
+ * </p>
+ * <p>
+ * @#{@link Asynchronous} methods which do not have a return type of #{@link Future} or
+ * #{@literal CompletionStage} must listen for the method's return value using CDI observers.
  * </p>
  * 
  * @author Peter Royle
  */
-public class AsyncResult<T> implements Future<T> {
+public class AsyncResult<T> implements ListenableFuture<T> {
 
     private T result;
 
@@ -84,4 +91,13 @@ public class AsyncResult<T> implements Future<T> {
     public T get(long l, TimeUnit tu) throws InterruptedException, ExecutionException, TimeoutException {
         return result;
     }
+
+    /**
+     * This "dummy" Future represents a calculation which has already been performed, so the
+     * callback is notified immediately.
+     * @param callback The callback to notify.
+     */
+    public void addCallback(AsyncCallback<? super T> callback) {
+        callback.onSuccess(result);
+    }
 }
@@ -0,0 +1,304 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.inject.Inject;
+import org.jboss.logging.Logger;
+import org.jboss.seam.cron.annotations.Asynchronous;
+import org.jboss.seam.cron.annotations.ThreadMode;
+import org.jboss.seam.cron.metrics.AsynchronousMetrics;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+import org.jboss.seam.cron.util.VirtualThreads;
+
+/**
+ * <p>
+ * Runs #{@link Asynchronous} method invocations on bounded thread pools rather than spawning
+ * a new thread for each invocation. There is one application-wide pool, plus an optional
+ * dedicated pool for each qualifier configured as described in #{@link ExecutorConfiguration}.
+ * A method carrying such a qualifier is executed on that qualifier's pool. Pools configured
+ * (or methods annotated) to use virtual threads start a new virtual thread per invocation.
+ * </p>
+ * <p>
+ * The details of each method are worked out on its first invocation, from the index written by
+ * the Seam Cron annotation processor if the method is in it (see #{@link AsynchronousIndex}),
+ * otherwise by reflection.
+ * </p>
+ * <p>
+ * This bean may be injected to submit arbitrary work to the same pools, and may be
+ * specialized to plug in a different kind of #{@link ExecutorService} by overriding
+ * #{@link #createExecutorService(ExecutorConfiguration)}.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+@ApplicationScoped
+public class AsynchronousExecutor {
+
+    private static final Logger log = Logger.getLogger(AsynchronousExecutor.class);
+    @Inject
+    BeanManager beanMan;
+    @Inject
+    AsynchronousMetrics metrics;
+    AsynchronousIndex index = AsynchronousIndex.EMPTY;
+    private ExecutorConfiguration defaultConfig;
+    private ExecutorService defaultExecutor;
+    private final ConcurrentMap<String, ExecutorService> executors = new ConcurrentHashMap<String, ExecutorService>();
+    private final ConcurrentMap<Method, AsynchronousMethod> methods = new ConcurrentHashMap<Method, AsynchronousMethod>();
+
+    @PostConstruct
+    public void init() {
+        index = AsynchronousIndex.load(Thread.currentThread().getContextClassLoader());
+        defaultConfig = ExecutorConfiguration.defaultConfiguration(SchedulePropertiesManager.instance());
+        defaultExecutor = getOrCreateExecutorService(defaultConfig);
+    }
+
+    /**
+     * Shut down all of the pools, allowing already submitted invocations to complete.
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService executor : executors.values()) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Submit a task to the pool responsible for the given method.
+     *
+     * @param method The #{@link Asynchronous} method being invoked.
+     * @param task   The task which will invoke it.
+     * @return a #{@link ListenableFuture} representing the pending result of the task.
+     */
+    public <T> ListenableFuture<T> submit(final Method method, final Callable<T> task) {
+        return submit(getAsynchronousMethod(method), task);
+    }
+
+    /**
+     * Submit a task to the pool responsible for the given method.
+     *
+     * @param method The #{@link Asynchronous} method being invoked.
+     * @param task   The task which will invoke it.
+     * @return a #{@link ListenableFuture} representing the pending result of the task.
+     */
+    public <T> ListenableFuture<T> submit(final AsynchronousMethod method, final Callable<T> task) {
+        final ListenableFutureTask<T> future = new ListenableFutureTask<T>(task);
+        method.getExecutorService().execute(future);
+        return future;
+    }
+
+    /**
+     * Execute a task on the pool responsible for the given method.
+     *
+     * @param method The #{@link Asynchronous} method being invoked.
+     * @param task   The task which will invoke it.
+     */
+    public void execute(final Method method, final Runnable task) {
+        getExecutorService(method).execute(task);
+    }
+
+    /**
+     * @param method The #{@link Asynchronous} method being invoked.
+     * @return the pool of the first qualifier on the method which has a dedicated pool configured,
+     * otherwise the application-wide pool, switched to virtual or platform threads if the method's
+     * #{@link Asynchronous} annotation asks for them.
+     */
+    public ExecutorService getExecutorService(final Method method) {
+        return getAsynchronousMethod(method).getExecutorService();
+    }
+
+    /**
+     * @param qualifier A qualifier, eg: of a scheduled event whose observers are notified in parallel.
+     * @return the pool dedicated to the qualifier if it has one configured, otherwise the
+     * application-wide pool.
+     */
+    public ExecutorService getExecutorService(final Annotation qualifier) {
+        final ExecutorConfiguration qualifierConfig = ExecutorConfiguration.qualifierConfiguration(
+                SchedulePropertiesManager.instance(), qualifier.annotationType().getName(), defaultConfig);
+        return qualifierConfig == null ? defaultExecutor : getOrCreateExecutorService(qualifierConfig);
+    }
+
+    /**
+     * @param method The #{@link Asynchronous} method being invoked.
+     * @return the (cached) details of how to invoke the method.
+     */
+    public AsynchronousMethod getAsynchronousMethod(final Method method) {
+        AsynchronousMethod asyncMethod = methods.get(method);
+        if (asyncMethod == null) {
+            final AsynchronousIndex.Entry indexed = index.get(method);
+            final Annotation[] qualifiers;
+            final ThreadMode requested;
+            final AsynchronousMethod.ReturnKind returnKind;
+            if (indexed == null) {
+                qualifiers = getQualifiers(method);
+                requested = getRequestedThreadMode(method);
+                returnKind = AsynchronousMethod.returnKindOf(method);
+            } else {
+                qualifiers = getQualifiers(method, indexed.getQualifierTypes());
+                requested = indexed.getThreadMode();
+                returnKind = indexed.getReturnKind();
+            }
+            asyncMethod = new AsynchronousMethod(method, qualifiers, returnKind,
+                    lookupExecutorService(qualifiers, requested), metrics.register(method));
+            final AsynchronousMethod existing = methods.putIfAbsent(method, asyncMethod);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return asyncMethod;
+    }
+
+    /**
+     * @return the application-wide pool.
+     */
+    public ExecutorService getDefaultExecutorService() {
+        return defaultExecutor;
+    }
+
+    /**
+     * Create the #{@link ExecutorService} for the given settings. Override this to plug in
+     * a different implementation.
+     *
+     * @param config The settings of the pool.
+     * @return a new #{@link ExecutorService}.
+     */
+    protected ExecutorService createExecutorService(final ExecutorConfiguration config) {
+        if (config.getThreadMode() == ThreadMode.VIRTUAL) {
+            final ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor(
+                    "SeamCronAsynchronous-" + config.getName() + "-virtual-");
+            if (executor != null) {
+                return executor;
+            }
+            log.warn("Virtual threads are not supported by this JVM, using platform threads for " + config.getName());
+        }
+        final BlockingQueue<Runnable> queue;
+        if (config.getQueueCapacity() <= 0) {
+            queue = new SynchronousQueue<Runnable>();
+        } else if (config.getQueueCapacity() == Integer.MAX_VALUE) {
+            queue = new LinkedBlockingQueue<Runnable>();
+        } else {
+            queue = new ArrayBlockingQueue<Runnable>(config.getQueueCapacity());
+        }
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(config.getCoreSize(), config.getMaxSize(),
+                config.getKeepAliveSeconds(), TimeUnit.SECONDS, queue, new NamedThreadFactory(config.getName()),
+                config.getRejectionPolicy().createHandler());
+        return executor;
+    }
+
+    private Annotation[] getQualifiers(final Method method) {
+        final List<Annotation> qualifiers = new ArrayList<Annotation>();
+        for (Annotation ant : method.getAnnotations()) {
+            if (beanMan.isQualifier(ant.annotationType())) {
+                qualifiers.add(ant);
+            }
+        }
+        return qualifiers.toArray(new Annotation[qualifiers.size()]);
+    }
+
+    /**
+     * @return the annotations on the method of the given (indexed) qualifier types, in the order reflection gives.
+     */
+    private Annotation[] getQualifiers(final Method method, final Set<String> qualifierTypes) {
+        final List<Annotation> qualifiers = new ArrayList<Annotation>(qualifierTypes.size());
+        if (!qualifierTypes.isEmpty()) {
+            for (Annotation ant : method.getAnnotations()) {
+                if (qualifierTypes.contains(ant.annotationType().getName())) {
+                    qualifiers.add(ant);
+                }
+            }
+        }
+        return qualifiers.toArray(new Annotation[qualifiers.size()]);
+    }
+
+    private ExecutorService lookupExecutorService(final Annotation[] qualifiers, final ThreadMode requested) {
+        ExecutorConfiguration config = defaultConfig;
+        for (Annotation ant : qualifiers) {
+            final ExecutorConfiguration qualifierConfig = ExecutorConfiguration.qualifierConfiguration(
+                    SchedulePropertiesManager.instance(), ant.annotationType().getName(), defaultConfig);
+            if (qualifierConfig != null) {
+                config = qualifierConfig;
+                break;
+            }
+        }
+        if (requested != ThreadMode.DEFAULT && requested != config.getThreadMode()) {
+            config = config.withThreadMode(requested);
+        }
+        return getOrCreateExecutorService(config);
+    }
+
+    private ThreadMode getRequestedThreadMode(final Method method) {
+        Asynchronous async = method.getAnnotation(Asynchronous.class);
+        if (async == null || async.threads() == ThreadMode.DEFAULT) {
+            async = method.getDeclaringClass().getAnnotation(Asynchronous.class);
+        }
+        return async == null ? ThreadMode.DEFAULT : async.threads();
+    }
+
+    private ExecutorService getOrCreateExecutorService(final ExecutorConfiguration config) {
+        final String key = config.getName() + "/" + config.getThreadMode();
+        ExecutorService executor = executors.get(key);
+        if (executor == null) {
+            executor = createExecutorService(config);
+            final ExecutorService existing = executors.putIfAbsent(key, executor);
+            if (existing != null) {
+                executor.shutdown();
+                return existing;
+            }
+            log.info("Asynchronous methods will be executed using " + config);
+        }
+        return executor;
+    }
+
+    /**
+     * Gives the pool threads recognisable names.
+     */
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        public NamedThreadFactory(final String poolName) {
+            this.prefix = "SeamCronAsynchronous-" + poolName + "-";
+        }
+
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, prefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.jboss.logging.Logger;
+import org.jboss.seam.cron.annotations.Asynchronous;
+import org.jboss.seam.cron.annotations.ThreadMode;
+import org.jboss.seam.cron.async.AsynchronousMethod.ReturnKind;
+
+/**
+ * The #{@link Asynchronous} methods of the application which were indexed at build time by the
+ * Seam Cron annotation processor (seam-cron-processor), with the types of the qualifiers of
+ * each, how it returns its result and the kind of thread it asks for. Methods which aren't in
+ * the index (eg: those of libraries compiled without the processor) are reflected on instead.
+ *
+ * @author Peter Royle
+ */
+final class AsynchronousIndex {
+
+    /**
+     * Where the annotation processor writes the index, in each jar or classes directory.
+     */
+    static final String INDEX_RESOURCE = "META-INF/seam-cron/async-index.properties";
+    /**
+     * An index of nothing, so that every method is reflected on.
+     */
+    static final AsynchronousIndex EMPTY = new AsynchronousIndex(new Properties());
+    private static final Logger log = Logger.getLogger(AsynchronousIndex.class);
+    private final Map<String, Entry> methods = new HashMap<String, Entry>();
+
+    /**
+     * @param entries The contents of one or more index files.
+     */
+    AsynchronousIndex(final Properties entries) {
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            final String key = (String) entry.getKey();
+            if (key.endsWith(")")) {
+                final String value = (String) entry.getValue();
+                try {
+                    final String threads = entries.getProperty(key + ".threads");
+                    methods.put(key, new Entry(value.length() == 0 ? Collections.<String>emptySet()
+                            : new HashSet<String>(Arrays.asList(value.split(","))),
+                            ReturnKind.valueOf(entries.getProperty(key + ".returns")),
+                            threads == null ? ThreadMode.DEFAULT : ThreadMode.valueOf(threads)));
+                } catch (RuntimeException ex) {
+                    log.warn("Ignoring the invalid entry for " + key + " in " + INDEX_RESOURCE
+                            + ", was it written by a different version of seam-cron-processor?", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read and merge all of the index files visible to the given class loader.
+     *
+     * @param loader The class loader of the application, may be null.
+     * @return the index, which is empty if there are no index files or they can't be read.
+     */
+    static AsynchronousIndex load(final ClassLoader loader) {
+        if (loader == null) {
+            return EMPTY;
+        }
+        final Properties entries = new Properties();
+        try {
+            final Enumeration<URL> resources = loader.getResources(INDEX_RESOURCE);
+            while (resources.hasMoreElements()) {
+                final URL url = resources.nextElement();
+                final InputStream in = url.openStream();
+                try {
+                    entries.load(in);
+                } finally {
+                    in.close();
+                }
+                log.debug("Loaded the index of @Asynchronous methods at " + url);
+            }
+        } catch (IOException ex) {
+            log.warn("Error reading " + INDEX_RESOURCE + ", the @Asynchronous methods will be reflected on instead",
+                    ex);
+            return EMPTY;
+        }
+        return new AsynchronousIndex(entries);
+    }
+
+    /**
+     * @param method An #{@link Asynchronous} method.
+     * @return what the index knows of the method, or null if it wasn't indexed.
+     */
+    Entry get(final Method method) {
+        return methods.isEmpty() ? null : methods.get(key(method));
+    }
+
+    /**
+     * @return the method as the annotation processor names it, eg: "com.acme.Reports#run(java.lang.String,int[])".
+     */
+    static String key(final Method method) {
+        final StringBuilder key = new StringBuilder(method.getDeclaringClass().getName()).append('#')
+                .append(method.getName()).append('(');
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                key.append(',');
+            }
+            Class<?> type = parameterTypes[i];
+            int dimensions = 0;
+            while (type.isArray()) {
+                type = type.getComponentType();
+                dimensions++;
+            }
+            key.append(type.getName());
+            for (int d = 0; d < dimensions; d++) {
+                key.append("[]");
+            }
+        }
+        return key.append(')').toString();
+    }
+
+    /**
+     * What the index knows of one method.
+     */
+    static final class Entry {
+
+        private final Set<String> qualifierTypes;
+        private final ReturnKind returnKind;
+        private final ThreadMode threadMode;
+
+        Entry(final Set<String> qualifierTypes, final ReturnKind returnKind, final ThreadMode threadMode) {
+            this.qualifierTypes = qualifierTypes;
+            this.returnKind = returnKind;
+            this.threadMode = threadMode;
+        }
+
+        /**
+         * @return the names of the types of the method's qualifiers.
+         */
+        Set<String> getQualifierTypes() {
+            return qualifierTypes;
+        }
+
+        ReturnKind getReturnKind() {
+            return returnKind;
+        }
+
+        /**
+         * @return the kind of thread asked for by the method (or its declaring type), or DEFAULT.
+         */
+        ThreadMode getThreadMode() {
+            return threadMode;
+        }
+    }
+}
@@ -16,9 +16,7 @@
  */
 package org.jboss.seam.cron.async;
 
-import java.util.concurrent.Future;
-import java.util.concurrent.FutureTask;
-import javax.enterprise.inject.Instance;
+import java.util.concurrent.RejectedExecutionException;
 import javax.enterprise.inject.spi.BeanManager;
 import javax.inject.Inject;
 import javax.interceptor.AroundInvoke;
@@ -38,36 +36,52 @@ import org.jboss.seam.cron.annotations.Asynchronous;
 @Interceptor
 public class AsynchronousInterceptor {
 
-    Logger log = Logger.getLogger(AsynchronousInterceptor.class);
+    private static final Logger log = Logger.getLogger(AsynchronousInterceptor.class);
     @Inject
     BeanManager beanMan;
     @Inject
-    Instance<InvocationCallable> icrs;
+    AsynchronousExecutor executor;
 
     @AroundInvoke
     public Object executeAsynchronously(final InvocationContext ctx) throws Exception {
         Object result;
 
-        log.trace("Intercepting method invocation of " + ctx.getMethod().getName() + " to make it @Asynchronous");
+        if (log.isTraceEnabled()) {
+            log.trace("Intercepting method invocation of " + ctx.getMethod().getName() + " to make it @Asynchronous");
+        }
 
-        final InvocationCallable icr = icrs.get();
-        icr.setInvocationContext(ctx);
+        final AsynchronousMethod asyncMethod = executor.getAsynchronousMethod(ctx.getMethod());
+        final InvocationCallable icr = new InvocationCallable(beanMan, asyncMethod, ctx);
 
-        if (Future.class.isAssignableFrom(ctx.getMethod().getReturnType())) {
-            // swap the "dummy" Future for a truly asynchronous future to return to the caller immediately
-            icr.setPopResultsFromFuture(true);
-            // use of FutureTask here provides the exception behaviour described by EJB
-            FutureTask asyncResult = new FutureTask(icr);
-            new Thread(asyncResult).start();
-            result = asyncResult;
-        } else {
-            // Execute the method in a background thread and return nothing of value to the caller.
-            // They'll need to be observing an event if they want a return value.
-            new CallableAsThread(icr).start();
-            result = null;
+        try {
+            result = submit(asyncMethod, icr);
+        } catch (RejectedExecutionException ex) {
+            icr.recordRejection();
+            throw ex;
         }
 
-        // this will either be a Future, or null
+        // this will either be a CompletionStage, a Future, or null
+        return result;
+    }
+
+    private Object submit(final AsynchronousMethod asyncMethod, final InvocationCallable icr) {
+        final Object result;
+        switch (asyncMethod.getReturnKind()) {
+            case COMPLETION_STAGE:
+                // hand back a CompletableFuture which completes when the stage returned by the method does
+                result = new CompletionStageInvocation(icr).submit(executor, asyncMethod);
+                break;
+            case FUTURE:
+                // swap the "dummy" Future for a truly asynchronous future to return to the caller immediately.
+                // The executor wraps it in a ListenableFutureTask, which provides the exception behaviour described by EJB
+                result = executor.submit(asyncMethod, icr);
+                break;
+            default:
+                // Execute the method in a pooled thread and return nothing of value to the caller.
+                // They'll need to be observing an event if they want a return value.
+                asyncMethod.getExecutorService().execute(new CallableAsRunnable(icr));
+                result = null;
+        }
         return result;
     }
     
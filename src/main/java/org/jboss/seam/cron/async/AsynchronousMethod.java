@@ -0,0 +1,137 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.jboss.seam.cron.annotations.Asynchronous;
+import org.jboss.seam.cron.metrics.AsynchronousMethodMetrics;
+import org.jboss.seam.cron.util.CompletionStages;
+
+/**
+ * Everything Seam Cron needs to know about an #{@link Asynchronous} method in order to invoke it,
+ * worked out once (on the first invocation) so that invocations don't have to reflect on the method.
+ * Obtained from #{@link AsynchronousExecutor#getAsynchronousMethod(Method)}.
+ *
+ * @author Peter Royle
+ */
+public final class AsynchronousMethod {
+
+    /**
+     * How the return value of the method is handed back to the caller.
+     */
+    public enum ReturnKind {
+
+        /**
+         * Nothing is returned, and no post-execution event is fired.
+         */
+        VOID,
+        /**
+         * The caller gets null, and the value is delivered as a post-execution event.
+         */
+        VALUE,
+        /**
+         * The caller gets a #{@link ListenableFuture}.
+         */
+        FUTURE,
+        /**
+         * The caller gets a #{@literal CompletableFuture}.
+         */
+        COMPLETION_STAGE
+    }
+    private final Method method;
+    private final Annotation[] qualifiers;
+    private final ReturnKind returnKind;
+    private final ExecutorService executorService;
+    private final AsynchronousMethodMetrics metrics;
+
+    public AsynchronousMethod(final Method method, final Annotation[] qualifiers, final ExecutorService executorService) {
+        this(method, qualifiers, executorService, new AsynchronousMethodMetrics(method.getName()));
+    }
+
+    public AsynchronousMethod(final Method method, final Annotation[] qualifiers, final ExecutorService executorService,
+            final AsynchronousMethodMetrics metrics) {
+        this(method, qualifiers, returnKindOf(method), executorService, metrics);
+    }
+
+    /**
+     * @param returnKind How the method returns its result, as worked out by #{@link #returnKindOf(Method)}
+     *                   (or at build time).
+     */
+    public AsynchronousMethod(final Method method, final Annotation[] qualifiers, final ReturnKind returnKind,
+            final ExecutorService executorService, final AsynchronousMethodMetrics metrics) {
+        this.method = method;
+        this.qualifiers = qualifiers;
+        this.returnKind = returnKind;
+        this.executorService = executorService;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param method An #{@link Asynchronous} method.
+     * @return how the method's return value is handed back to the caller.
+     */
+    public static ReturnKind returnKindOf(final Method method) {
+        final Class<?> returnType = method.getReturnType();
+        if (returnType.equals(Void.TYPE)) {
+            return ReturnKind.VOID;
+        } else if (CompletionStages.isCompletionStageType(returnType)) {
+            // checked before Future, as CompletableFuture is both
+            return ReturnKind.COMPLETION_STAGE;
+        } else if (Future.class.isAssignableFrom(returnType)) {
+            return ReturnKind.FUTURE;
+        }
+        return ReturnKind.VALUE;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the qualifiers of the method, with which the post-execution event is fired.
+     * Not to be modified.
+     */
+    public Annotation[] getQualifiers() {
+        return qualifiers;
+    }
+
+    public ReturnKind getReturnKind() {
+        return returnKind;
+    }
+
+    /**
+     * @return the pool on which the method is executed.
+     */
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * @return the invocation statistics of the method.
+     */
+    public AsynchronousMethodMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return method.getDeclaringClass().getName() + "." + method.getName() + " (" + returnKind + ")";
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import org.jboss.logging.Logger;
+
+/**
+ * Simply wraps our #{@link Callable} in a #{@link Runnable} so that it can be handed to an
+ * #{@link java.util.concurrent.Executor} when nobody is waiting for its result. Any error is
+ * logged, since there is no caller to report it to.
+ * @author Peter Royle
+ */
+public class CallableAsRunnable implements Runnable, Discardable {
+
+    private static final Logger log = Logger.getLogger(CallableAsRunnable.class);
+    private final Callable invCall;
+
+    public CallableAsRunnable(Callable invCall) {
+        this.invCall = invCall;
+    }
+
+    public void run() {
+        try {
+            invCall.call();
+        } catch (Throwable t) {
+            log.error("Error executing callable method", t);
+        }
+    }
+
+    public void discarded(final RejectedExecutionException reason) {
+        if (invCall instanceof Discardable) {
+            ((Discardable) invCall).discarded(reason);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import org.jboss.seam.cron.annotations.Asynchronous;
+import org.jboss.seam.cron.util.CompletionStages;
+
+/**
+ * Runs an #{@link Asynchronous} method which returns a #{@literal CompletionStage}. The caller
+ * immediately gets a #{@literal CompletableFuture} which is completed (without blocking any thread)
+ * when the stage returned by the method completes, and cancelling it cancels the invocation.
+ *
+ * @author Peter Royle
+ */
+class CompletionStageInvocation implements Callable<Object>, AsyncCallback<Object>, Discardable {
+
+    private final InvocationCallable icr;
+    private final Object future = CompletionStages.newCompletableFuture();
+    private volatile Future<Object> task;
+    private volatile Object stage;
+
+    public CompletionStageInvocation(final InvocationCallable icr) {
+        this.icr = icr;
+    }
+
+    /**
+     * Submit the invocation to the pool responsible for the method.
+     *
+     * @param executor The pools.
+     * @param method   The #{@link Asynchronous} method being invoked.
+     * @return the #{@literal CompletableFuture} to hand back to the caller.
+     */
+    public Object submit(final AsynchronousExecutor executor, final AsynchronousMethod method) {
+        CompletionStages.whenComplete(future, new AsyncCallback<Object>() {
+
+            public void onSuccess(final Object result) {
+            }
+
+            public void onFailure(final Throwable failure) {
+                if (failure instanceof CancellationException) {
+                    cancel();
+                }
+            }
+        });
+        task = executor.submit(method, this);
+        return future;
+    }
+
+    public Object call() {
+        try {
+            stage = icr.proceed();
+        } catch (Throwable t) {
+            icr.recordFailure(t);
+            CompletionStages.completeExceptionally(future, t);
+            return null;
+        }
+        if (stage == null) {
+            onSuccess(null);
+        } else {
+            if (((Future) future).isCancelled()) {
+                cancel();
+            }
+            CompletionStages.whenComplete(stage, this);
+        }
+        return null;
+    }
+
+    /**
+     * A full pool dropped the invocation, so the method will never be called.
+     */
+    public void discarded(final RejectedExecutionException reason) {
+        icr.recordRejection();
+        CompletionStages.completeExceptionally(future, reason);
+    }
+
+    /**
+     * The stage returned by the method completed normally.
+     */
+    public void onSuccess(final Object result) {
+        try {
+            icr.fireResultEvent(result);
+        } catch (RuntimeException ex) {
+            onFailure(ex);
+            return;
+        }
+        icr.recordSuccess();
+        CompletionStages.complete(future, result);
+    }
+
+    /**
+     * The stage returned by the method completed exceptionally.
+     */
+    public void onFailure(final Throwable failure) {
+        icr.recordFailure(failure);
+        CompletionStages.completeExceptionally(future, failure);
+    }
+
+    private void cancel() {
+        final Future<Object> runningTask = task;
+        if (runningTask != null) {
+            runningTask.cancel(true);
+        }
+        final Object returnedStage = stage;
+        if (returnedStage instanceof Future) {
+            ((Future) returnedStage).cancel(true);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Drops the invocations which a full pool can't take, either the new one or the oldest one
+ * still queued. Unlike #{@link ThreadPoolExecutor.DiscardPolicy} the dropped invocation isn't
+ * forgotten: its #{@link Future} (or #{@literal CompletionStage}) is failed with a
+ * #{@link RejectedExecutionException}, so a caller waiting for it doesn't wait forever.
+ *
+ * @author Peter Royle
+ */
+class DiscardPolicy implements RejectedExecutionHandler {
+
+    private final boolean oldest;
+
+    /**
+     * @param oldest true to drop the oldest queued invocation to make room for the new one,
+     *               false to drop the new one.
+     */
+    DiscardPolicy(final boolean oldest) {
+        this.oldest = oldest;
+    }
+
+    public void rejectedExecution(final Runnable r, final ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            discard(r, "the pool has been shut down");
+            return;
+        }
+        final Runnable head = oldest ? executor.getQueue().poll() : null;
+        if (head == null) {
+            discard(r, "the pool is full");
+        } else {
+            discard(head, "the pool is full, and newer invocations are preferred");
+            executor.execute(r);
+        }
+    }
+
+    private void discard(final Runnable r, final String reason) {
+        final RejectedExecutionException ex = new RejectedExecutionException("Discarded " + r + ", " + reason);
+        if (r instanceof Discardable) {
+            ((Discardable) r).discarded(ex);
+        } else if (r instanceof Future) {
+            ((Future) r).cancel(false);
+        }
+    }
+}
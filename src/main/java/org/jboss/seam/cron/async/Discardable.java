@@ -16,27 +16,20 @@
  */
 package org.jboss.seam.cron.async;
 
-import java.util.concurrent.Callable;
-import org.jboss.seam.cron.exception.AsynchronousMethodExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
- * Simply wraps our #{@link Callable} in #{@link Thread}.
+ * An invocation which has to be told when a full pool drops it, because somebody may be
+ * waiting for its result. See #{@link DiscardPolicy}.
+ *
  * @author Peter Royle
  */
-public class CallableAsThread extends Thread {
-
-    private final Callable invCall;
-
-    public CallableAsThread(Callable invCall) {
-        this.invCall = invCall;
-    }
+interface Discardable {
 
-    @Override
-    public void run() {
-        try {
-            invCall.call();
-        } catch (Throwable t) {
-            throw new AsynchronousMethodExecutionException("Error executing callable method", t);
-        }
-    }
+    /**
+     * Called instead of running the invocation, which will now never run.
+     *
+     * @param reason Why it was dropped.
+     */
+    void discarded(RejectedExecutionException reason);
 }
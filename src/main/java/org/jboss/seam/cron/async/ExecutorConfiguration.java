@@ -0,0 +1,222 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.jboss.seam.cron.annotations.Asynchronous;
+import org.jboss.seam.cron.annotations.ThreadMode;
+import org.jboss.seam.cron.exception.SchedulerConfigurationException;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+
+/**
+ * <p>
+ * The settings of one of the thread pools used to run #{@link Asynchronous} methods. The
+ * application-wide pool is configured in the /scheduler.properties file like so:
+ * </p>
+ * <pre>
+ * org.jboss.seam.cron.asynchronous.coreSize=16
+ * org.jboss.seam.cron.asynchronous.maxSize=64
+ * org.jboss.seam.cron.asynchronous.queueCapacity=10000
+ * org.jboss.seam.cron.asynchronous.keepAliveSeconds=60
+ * org.jboss.seam.cron.asynchronous.rejectionPolicy=CALLER_RUNS
+ * org.jboss.seam.cron.asynchronous.threads=PLATFORM
+ * </pre>
+ * <p>
+ * When threads is set to VIRTUAL, each invocation gets its own virtual thread and the sizing
+ * settings are ignored.
+ * </p>
+ * <p>
+ * Methods carrying a particular qualifier may be given a dedicated pool by repeating any of
+ * these settings with the fully qualified name of the qualifier inserted, eg:
+ * {@literal org.jboss.seam.cron.asynchronous.com.acme.Reports.maxSize=2}. Settings which are
+ * not repeated are inherited from the application-wide pool.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+public class ExecutorConfiguration {
+
+    /**
+     * The prefix of all properties used to configure the asynchronous thread pools.
+     */
+    public static final String PROPERTY_PREFIX = "org.jboss.seam.cron.asynchronous.";
+    public static final String CORE_SIZE = "coreSize";
+    public static final String MAX_SIZE = "maxSize";
+    public static final String QUEUE_CAPACITY = "queueCapacity";
+    public static final String KEEP_ALIVE_SECONDS = "keepAliveSeconds";
+    public static final String REJECTION_POLICY = "rejectionPolicy";
+    public static final String THREADS = "threads";
+
+    /**
+     * What to do with an asynchronous invocation when both the queue and the pool are full.
+     */
+    public enum RejectionPolicy {
+
+        /**
+         * Throw a #{@link java.util.concurrent.RejectedExecutionException} back to the caller.
+         */
+        ABORT,
+        /**
+         * Run the method synchronously in the calling thread, slowing the caller down.
+         */
+        CALLER_RUNS,
+        /**
+         * Drop the invocation. A caller holding its #{@link java.util.concurrent.Future} gets a
+         * #{@link java.util.concurrent.RejectedExecutionException} from it.
+         */
+        DISCARD,
+        /**
+         * Drop the oldest queued invocation to make room for this one, failing its future as for
+         * #{@link #DISCARD}.
+         */
+        DISCARD_OLDEST;
+
+        public RejectedExecutionHandler createHandler() {
+            switch (this) {
+                case ABORT:
+                    return new ThreadPoolExecutor.AbortPolicy();
+                case DISCARD:
+                    return new DiscardPolicy(false);
+                case DISCARD_OLDEST:
+                    return new DiscardPolicy(true);
+                default:
+                    return new ThreadPoolExecutor.CallerRunsPolicy();
+            }
+        }
+    }
+    private final String name;
+    private final int coreSize;
+    private final int maxSize;
+    private final int queueCapacity;
+    private final long keepAliveSeconds;
+    private final RejectionPolicy rejectionPolicy;
+    private final ThreadMode threadMode;
+
+    public ExecutorConfiguration(String name, int coreSize, int maxSize, int queueCapacity, long keepAliveSeconds,
+            RejectionPolicy rejectionPolicy, ThreadMode threadMode) {
+        this.name = name;
+        this.coreSize = coreSize;
+        this.maxSize = Math.max(coreSize, maxSize);
+        this.queueCapacity = queueCapacity;
+        this.keepAliveSeconds = keepAliveSeconds;
+        this.rejectionPolicy = rejectionPolicy;
+        this.threadMode = threadMode == ThreadMode.DEFAULT ? ThreadMode.PLATFORM : threadMode;
+    }
+
+    /**
+     * @param mode The kind of threads to use.
+     * @return a copy of this configuration which uses the given kind of threads.
+     */
+    public ExecutorConfiguration withThreadMode(final ThreadMode mode) {
+        return new ExecutorConfiguration(name, coreSize, maxSize, queueCapacity, keepAliveSeconds, rejectionPolicy, mode);
+    }
+
+    /**
+     * Read the application-wide pool settings from /scheduler.properties.
+     *
+     * @param props The properties to read from.
+     * @return the configuration of the default pool.
+     */
+    public static ExecutorConfiguration defaultConfiguration(final SchedulePropertiesManager props) {
+        final ExecutorConfiguration builtIn = new ExecutorConfiguration("default", 16, 64, 10000, 60,
+                RejectionPolicy.CALLER_RUNS, ThreadMode.PLATFORM);
+        return read(props, "default", PROPERTY_PREFIX, builtIn);
+    }
+
+    /**
+     * Read the settings of the pool dedicated to the given qualifier, if any.
+     *
+     * @param props     The properties to read from.
+     * @param qualifier The fully qualified name of the qualifier annotation.
+     * @param defaults  The application-wide settings to inherit.
+     * @return the configuration of the qualifier's pool, or null if the qualifier does not have one.
+     */
+    public static ExecutorConfiguration qualifierConfiguration(final SchedulePropertiesManager props,
+            final String qualifier, final ExecutorConfiguration defaults) {
+        final String prefix = PROPERTY_PREFIX + qualifier + ".";
+        if (!props.hasPropertiesStartingWith(prefix)) {
+            return null;
+        }
+        return read(props, qualifier, prefix, defaults);
+    }
+
+    private static ExecutorConfiguration read(final SchedulePropertiesManager props, final String name,
+            final String prefix, final ExecutorConfiguration defaults) {
+        RejectionPolicy policy = defaults.getRejectionPolicy();
+        final String policyName = props.getProperty(prefix + REJECTION_POLICY, null);
+        if (policyName != null) {
+            try {
+                policy = RejectionPolicy.valueOf(policyName.toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                throw new SchedulerConfigurationException("Unknown rejection policy '" + policyName + "' for "
+                        + prefix + REJECTION_POLICY + " in " + SchedulePropertiesManager.SCHEDULE_PROPERTIES_PATH, ex);
+            }
+        }
+        ThreadMode mode = defaults.getThreadMode();
+        final String modeName = props.getProperty(prefix + THREADS, null);
+        if (modeName != null) {
+            try {
+                mode = ThreadMode.valueOf(modeName.toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                throw new SchedulerConfigurationException("Unknown thread mode '" + modeName + "' for "
+                        + prefix + THREADS + " in " + SchedulePropertiesManager.SCHEDULE_PROPERTIES_PATH, ex);
+            }
+        }
+        return new ExecutorConfiguration(name,
+                props.getIntProperty(prefix + CORE_SIZE, defaults.getCoreSize()),
+                props.getIntProperty(prefix + MAX_SIZE, defaults.getMaxSize()),
+                props.getIntProperty(prefix + QUEUE_CAPACITY, defaults.getQueueCapacity()),
+                props.getLongProperty(prefix + KEEP_ALIVE_SECONDS, defaults.getKeepAliveSeconds()),
+                policy, mode);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCoreSize() {
+        return coreSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public long getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    public ThreadMode getThreadMode() {
+        return threadMode;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutorConfiguration{" + "name=" + name + ", coreSize=" + coreSize + ", maxSize=" + maxSize
+                + ", queueCapacity=" + queueCapacity + ", keepAliveSeconds=" + keepAliveSeconds
+                + ", rejectionPolicy=" + rejectionPolicy + ", threadMode=" + threadMode + '}';
+    }
+}
@@ -21,6 +21,7 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import javax.enterprise.inject.spi.BeanManager;
 import javax.inject.Inject;
 import javax.interceptor.InvocationContext;
@@ -31,22 +32,39 @@ import org.jboss.seam.cron.exception.InternalException;
 /**
  * This class handles the invocation of the #{@link Asynchronous} method, unwrapping of the
  * results out of a "dummy" #{@link AsyncResult} if necessary, and firing post-execution
- * events with the results if any. It is designed as a managed bean to be instantiated via 
- * #{@literal @Inject Instance<InvocationCallable>}.
+ * events with the results if any. The #{@link AsynchronousInterceptor} creates one per invocation
+ * with the cached #{@link AsynchronousMethod} details, but it may also be instantiated as a managed
+ * bean via #{@literal @Inject Instance<InvocationCallable>}.
  * 
  * @author Peter Royle
  */
-public class InvocationCallable implements Callable {
+public class InvocationCallable implements Callable<Object>, Discardable {
 
     @Inject
     BeanManager beanMan;
     private InvocationContext ic;
+    private AsynchronousMethod asyncMethod;
     private boolean popResultsFromFuture = false;
-    private Logger log = Logger.getLogger(InvocationCallable.class);
+    private long queuedTime;
+    private long startTime;
+    private static final Logger log = Logger.getLogger(InvocationCallable.class);
 
     public InvocationCallable() {
     }
 
+    /**
+     * @param beanMan     The bean manager with which to fire the post-execution event.
+     * @param asyncMethod The details of the method being invoked.
+     * @param ic          The #{@link InvocationContext} which will be executed.
+     */
+    public InvocationCallable(final BeanManager beanMan, final AsynchronousMethod asyncMethod, final InvocationContext ic) {
+        this.beanMan = beanMan;
+        this.asyncMethod = asyncMethod;
+        this.ic = ic;
+        this.popResultsFromFuture = asyncMethod.getReturnKind() == AsynchronousMethod.ReturnKind.FUTURE;
+        this.queuedTime = asyncMethod.getMetrics().queued();
+    }
+
     /**
      * @param ic The #{@link InvocationContext} which will be executed.
      */
@@ -76,46 +94,120 @@ public class InvocationCallable implements Callable {
         
         // This will be the basic form, with the result available immediately
         Object result;
-            
-            // housekeeping
+        try {
+            result = proceed();
+
+            if (popResultsFromFuture) {
+                // pop the value out of the "dummy" AsynchResult as it will be wrapped
+                // in proper AsynchResult by the AsynchronousInterceptor
+                result = ((Future) result).get();
+            }
+
+            fireResultEvent(result);
+        } catch (Exception ex) {
+            recordFailure(ex);
+            throw ex;
+        } catch (Error err) {
+            recordFailure(err);
+            throw err;
+        }
+        recordSuccess();
+
+        return result;
+    }
+
+    /**
+     * Execute the #{@link InvocationContext} without any post-processing of its result.
+     *
+     * @return The value returned by the method.
+     * @throws Exception Includes any exception thrown by the invoked method.
+     */
+    public Object proceed() throws Exception {
+        // housekeeping
         if (ic.getMethod() == null) {
             throw new InternalException("Failed to provide an InvocationContext to this " + this.getClass().getName());
         }
-        final Method method = ic.getMethod();
         if (log.isTraceEnabled()) {
-            log.trace("Running Invocation Context for " + method.getName());
+            log.trace("Running Invocation Context for " + ic.getMethod().getName());
+        }
+        if (asyncMethod != null) {
+            startTime = asyncMethod.getMetrics().started(queuedTime);
         }
+        return ic.proceed();
+    }
 
-        // grab qualifiers from the method to use for the post-execution event
-        ArrayList<Annotation> qualifiers = new ArrayList<Annotation>();
-        for (Annotation ant : method.getAnnotations()) {
-            if (beanMan.isQualifier(ant.annotationType())) {
-                qualifiers.add(ant);
-            }
+    /**
+     * Record the successful completion of the invocation in the method's metrics.
+     */
+    void recordSuccess() {
+        if (asyncMethod != null) {
+            asyncMethod.getMetrics().completed(startTime);
         }
+    }
 
-        result = ic.proceed();
+    /**
+     * Record the failure of the invocation in the method's metrics.
+     *
+     * @param failure The exception thrown by the invocation.
+     */
+    void recordFailure(final Throwable failure) {
+        if (asyncMethod != null) {
+            asyncMethod.getMetrics().failed(startTime, failure);
+        }
+    }
 
-        if (popResultsFromFuture) {
-            // pop the value out of the "dummy" AsynchResult as it will be wrapped
-            // in proper AsynchResult by the AsynchronousInterceptor
-            result = ((Future) result).get();
+    /**
+     * Record that the pool refused to run the invocation.
+     */
+    void recordRejection() {
+        if (asyncMethod != null) {
+            asyncMethod.getMetrics().rejected();
         }
+    }
+
+    /**
+     * A full pool dropped the invocation, which counts as a rejection: otherwise it would be
+     * counted as waiting for ever.
+     */
+    public void discarded(final RejectedExecutionException reason) {
+        recordRejection();
+    }
+
+    /**
+     * Fire the post-execution event for the given result of the method, with the qualifiers of the method.
+     * Nothing is fired for a null result.
+     *
+     * @param result The (unwrapped) value returned by the method.
+     */
+    public void fireResultEvent(final Object result) {
+        final Method method = ic.getMethod();
 
         // fire the post execution event if a result was returned.
         if (result != null) {
             if (log.isTraceEnabled()) {
                 log.trace("Firing post execution event result: " + result);
             }
-            beanMan.fireEvent(result, qualifiers.toArray(new Annotation[qualifiers.size()]));
-        } else {
+            beanMan.fireEvent(result, getQualifiers(method));
+        } else if (log.isDebugEnabled()) {
             if (method.getReturnType().equals(Void.TYPE)) {
                 log.debug("Method invocation on " + method.getName() + ":" + method.getClass().getName() + " returns void, so not firing a post-execution event");
             } else {
                 log.debug("Method invocation on " + method.getName() + ":" + method.getClass().getName() + " returned null, so not firing an event");
             }
         }
+    }
 
-        return result;
+    private Annotation[] getQualifiers(final Method method) {
+        if (asyncMethod != null) {
+            return asyncMethod.getQualifiers();
+        }
+        // grab qualifiers from the method to use for the post-execution event
+        ArrayList<Annotation> qualifiers = new ArrayList<Annotation>();
+        for (Annotation ant : method.getAnnotations()) {
+            if (beanMan.isQualifier(ant.annotationType())) {
+                qualifiers.add(ant);
+            }
+        }
+        return qualifiers.toArray(new Annotation[qualifiers.size()]);
     }
 }
@@ -0,0 +1,39 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+import java.util.concurrent.Future;
+
+/**
+ * A #{@link Future} which notifies callbacks when it completes. This is what Seam Cron returns
+ * to the caller of an #{@link org.jboss.seam.cron.annotations.Asynchronous} method declared to
+ * return a #{@link Future} (or #{@link ListenableFuture}), so that asynchronous work can be
+ * chained together without parking a thread in #{@link #get()}.
+ *
+ * @author Peter Royle
+ */
+public interface ListenableFuture<T> extends Future<T> {
+
+    /**
+     * Register a callback to be notified when the computation completes. If it has already
+     * completed then the callback is notified immediately on the calling thread, otherwise
+     * it is notified on the thread which completes it.
+     *
+     * @param callback The callback to notify.
+     */
+    void addCallback(AsyncCallback<? super T> callback);
+}
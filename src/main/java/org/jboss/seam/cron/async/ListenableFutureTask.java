@@ -0,0 +1,109 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import org.jboss.logging.Logger;
+
+/**
+ * A #{@link FutureTask} which notifies its #{@link AsyncCallback}s once it is done, including
+ * when a full pool discards it.
+ *
+ * @author Peter Royle
+ */
+public class ListenableFutureTask<T> extends FutureTask<T> implements ListenableFuture<T>, Discardable {
+
+    private static final Logger log = Logger.getLogger(ListenableFutureTask.class);
+    private final Callable<T> callable;
+    private List<AsyncCallback<? super T>> callbacks = new ArrayList<AsyncCallback<? super T>>();
+
+    public ListenableFutureTask(final Callable<T> callable) {
+        super(callable);
+        this.callable = callable;
+    }
+
+    /**
+     * Fail the task with the given exception, as it will never be run.
+     *
+     * @param reason Why it was dropped.
+     */
+    public void discarded(final RejectedExecutionException reason) {
+        if (callable instanceof Discardable) {
+            ((Discardable) callable).discarded(reason);
+        }
+        setException(reason);
+    }
+
+    public void addCallback(final AsyncCallback<? super T> callback) {
+        synchronized (this) {
+            if (callbacks != null) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        notifyCallback(callback);
+    }
+
+    @Override
+    protected void done() {
+        final List<AsyncCallback<? super T>> toNotify;
+        synchronized (this) {
+            toNotify = callbacks;
+            callbacks = null;
+        }
+        for (AsyncCallback<? super T> callback : toNotify) {
+            notifyCallback(callback);
+        }
+    }
+
+    private void notifyCallback(final AsyncCallback<? super T> callback) {
+        final T result;
+        try {
+            result = get();
+        } catch (CancellationException ex) {
+            notifyFailure(callback, ex);
+            return;
+        } catch (ExecutionException ex) {
+            notifyFailure(callback, ex.getCause());
+            return;
+        } catch (InterruptedException ex) {
+            // cannot happen, we're done
+            Thread.currentThread().interrupt();
+            notifyFailure(callback, ex);
+            return;
+        }
+        try {
+            callback.onSuccess(result);
+        } catch (RuntimeException ex) {
+            log.error("Error in callback " + callback, ex);
+        }
+    }
+
+    private void notifyFailure(final AsyncCallback<? super T> callback, final Throwable failure) {
+        try {
+            callback.onFailure(failure);
+        } catch (RuntimeException ex) {
+            log.error("Error in callback " + callback, ex);
+        }
+    }
+}
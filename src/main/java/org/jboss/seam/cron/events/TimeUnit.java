@@ -20,14 +20,28 @@ import javax.enterprise.event.Observes;
 import org.jboss.seam.cron.annotations.Every;
 
 /**
- * Represents the time intervals observable using #{@link Observes} #{@link Every(timeUnit)}
+ * Represents the time intervals observable using #{@link Observes} #{@link Every(timeUnit)}.
+ * A DAY is always 24 hours and a WEEK 7 days, whatever daylight saving does to the clock, so
+ * use #{@link org.jboss.seam.cron.annotations.Scheduled} for events which must happen at the
+ * same time of day.
  * @author Peter Royle
  */
 public enum TimeUnit {
 
-    SECOND, MINUTE, HOUR;
+    MILLISECOND(1L), SECOND(1000L), MINUTE(60 * 1000L), HOUR(60 * 60 * 1000L), DAY(24 * 60 * 60 * 1000L),
+    WEEK(7 * 24 * 60 * 60 * 1000L);
 
-    private TimeUnit() {
+    private final long millis;
+
+    private TimeUnit(final long millis) {
+        this.millis = millis;
+    }
+
+    /**
+     * @return the length of one of these units, in milliseconds.
+     */
+    public long getMillis() {
+        return millis;
     }
 
 }
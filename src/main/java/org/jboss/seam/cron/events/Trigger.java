@@ -32,7 +32,8 @@ public class Trigger {
     
     private long timeFired;
     
-    // the value of the second, miute or hour, as the case may be
+    // the value of the millisecond, second, minute, hour, day (of the month) or week (of the year),
+    // as the case may be
     protected int value;
 
     /**
@@ -50,14 +51,15 @@ public class Trigger {
     }
 
     /**
-     * @return The time at which the event was fired.
+     * @return The time at which the event was scheduled to fire.
      */
     public long getTimeFired() {
         return timeFired;
     }
 
     /**
-     * @return The value of the second, minute or hour fired.
+     * @return The value of the millisecond, second, minute, hour, day of the month or week
+     *         of the year fired (for @Every events).
      */
     public int getValue() {
         return value;
@@ -0,0 +1,293 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.executor;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+import org.jboss.seam.cron.annotations.MisfirePolicy;
+import org.jboss.seam.cron.annotations.ThreadMode;
+import org.jboss.seam.cron.exception.SchedulerConfigurationException;
+import org.jboss.seam.cron.metrics.JobMetrics;
+import org.jboss.seam.cron.metrics.SchedulerMetrics;
+import org.jboss.seam.cron.spi.CatchUpExecutor;
+import org.jboss.seam.cron.spi.CronSchedule;
+import org.jboss.seam.cron.spi.MisfireConfiguration;
+import org.jboss.seam.cron.spi.Recurrence;
+import org.jboss.seam.cron.spi.SchedulerConfiguration;
+import org.jboss.seam.cron.spi.SchedulingProvider;
+import org.jboss.seam.cron.spi.TimeEventJob;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+import org.jboss.seam.cron.util.VirtualThreads;
+
+/**
+ * <p>
+ * Fires scheduled events from a plain <code>ScheduledThreadPoolExecutor</code>, for deployments
+ * which don't need Quartz's job store, listeners or clustering and would rather not pay for them.
+ * Select it in /scheduler.properties:
+ * </p>
+ * <pre>
+ * org.jboss.seam.cron.scheduler.provider=org.jboss.seam.cron.executor.ScheduledExecutorSchedulingProvider
+ * </pre>
+ * <p>
+ * Each job reschedules itself for its next firing just before it fires, so events keep to
+ * their schedule. When they fall more than the misfire threshold behind they follow their
+ * misfire policy, and whatever the policy they stay in phase. The observers are run on the executor's <code>threadCount</code>
+ * threads, or on virtual threads. Everything is kept in memory, so it can't be clustered.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+public class ScheduledExecutorSchedulingProvider
+        implements SchedulingProvider {
+
+    private static final String NAME_PREFIX = "SeamCronExecutor";
+    private final ConcurrentMap<String, ScheduledJob> jobs = new ConcurrentHashMap<String, ScheduledJob>();
+    private ScheduledThreadPoolExecutor executor;
+    // null unless the observers are run on virtual threads
+    private ExecutorService virtualExecutor;
+    private CatchUpExecutor catchUp;
+    private SchedulerMetrics metrics;
+    private long misfireThreshold;
+    private boolean started;
+    private static final Logger log = Logger.getLogger(ScheduledExecutorSchedulingProvider.class);
+
+    public void initProvider(final SchedulePropertiesManager properties, final SchedulerMetrics metrics) {
+        final SchedulerConfiguration config = SchedulerConfiguration.read(properties);
+        if (config.isClustered()) {
+            throw new SchedulerConfigurationException("A ScheduledExecutorService can't share scheduled events "
+                    + "between the nodes of a cluster. Please use the Quartz provider, or turn off "
+                    + SchedulerConfiguration.PROPERTY_PREFIX + SchedulerConfiguration.CLUSTERED);
+        }
+        log.info("Initialising scheduled executor using " + config);
+        misfireThreshold = config.getMisfireThreshold();
+        int threadCount = config.getThreadCount();
+        if (config.getThreadMode() == ThreadMode.VIRTUAL) {
+            if (VirtualThreads.isSupported()) {
+                log.info("Scheduled observers will be run on virtual threads");
+                virtualExecutor = VirtualThreads.newThreadPerTaskExecutor(NAME_PREFIX + "-virtual-");
+                // just the one thread to hand the firings over
+                threadCount = 1;
+            } else {
+                log.warn("Virtual threads are not supported by this JVM, running scheduled observers on "
+                        + "platform threads");
+            }
+        }
+        executor = new ScheduledThreadPoolExecutor(threadCount, createThreadFactory(config));
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        catchUp = new CatchUpExecutor(NAME_PREFIX);
+        this.metrics = metrics;
+    }
+
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void scheduleInterval(final String jobName, final TimeEventJob job,
+            final org.jboss.seam.cron.events.TimeUnit unit, final int interval, final boolean clustered,
+            final MisfireConfiguration misfire, final Date startTime) {
+        log.debug("Scheduler for " + jobName + " initialised");
+        add(jobName, new ScheduledJob(jobName, job, misfire, startTime.getTime(),
+                Recurrence.every(interval * unit.getMillis())));
+    }
+
+    public void scheduleCron(final String jobName, final TimeEventJob job, final CronSchedule schedule,
+            final boolean clustered, final MisfireConfiguration misfire, final Date startTime) {
+        // as Quartz does, the start time itself is a candidate
+        final long first = schedule.getNextFireTime(startTime.getTime() - 1000L);
+        if (first < 0) {
+            log.warn("Schedule '" + schedule + "' of " + jobName + " will never fire");
+            return;
+        }
+        log.debug("Scheduler for " + jobName + " initialised");
+        add(jobName, new ScheduledJob(jobName, job, misfire, first, Recurrence.of(schedule)));
+    }
+
+    public boolean unschedule(final String jobName) {
+        final ScheduledJob job = jobs.remove(jobName);
+        if (job == null) {
+            return false;
+        }
+        job.cancel();
+        return true;
+    }
+
+    public Set<String> getJobNames() {
+        return Collections.unmodifiableSet(jobs.keySet());
+    }
+
+    public Date getNextFireTime(final String jobName) {
+        final ScheduledJob job = jobs.get(jobName);
+        if (job == null) {
+            return null;
+        }
+        final long deadline = job.deadline;
+        return deadline < 0 ? null : new Date(deadline);
+    }
+
+    public synchronized void start() {
+        started = true;
+        for (ScheduledJob job : jobs.values()) {
+            job.schedule();
+        }
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdown();
+        }
+        if (catchUp != null) {
+            catchUp.shutdown();
+        }
+    }
+
+    /**
+     * Put the job on the executor straight away if it is scheduled after the provider has started.
+     */
+    private synchronized void add(final String jobName, final ScheduledJob job) {
+        jobs.put(jobName, job);
+        if (started) {
+            job.schedule();
+        }
+    }
+
+    private ThreadFactory createThreadFactory(final SchedulerConfiguration config) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadFactory() {
+
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, NAME_PREFIX + "-worker-" + threadNumber.incrementAndGet());
+                thread.setPriority(config.getThreadPriority());
+                return thread;
+            }
+        };
+    }
+
+    private void fire(final TimeEventJob job, final long scheduledFireTime) {
+        final Runnable firing = new Runnable() {
+
+            public void run() {
+                try {
+                    job.fire(scheduledFireTime);
+                } catch (RuntimeException ex) {
+                    log.error("Error firing scheduled event", ex);
+                }
+            }
+        };
+        if (virtualExecutor != null) {
+            virtualExecutor.execute(firing);
+        } else {
+            firing.run();
+        }
+    }
+
+    private void misfired(final String jobName, final long deadline, final long now, final MisfirePolicy policy) {
+        log.warn("Scheduled event " + jobName + " misfired by " + (now - deadline) + "ms, handling with " + policy);
+        final JobMetrics jobMetrics = metrics.getJobMetrics(jobName);
+        if (jobMetrics != null) {
+            jobMetrics.misfired(policy);
+        }
+    }
+
+    /**
+     * A job which puts itself back on the executor for its next firing.
+     */
+    private class ScheduledJob
+            implements Runnable, Recurrence.Firing {
+
+        private final String jobName;
+        private final TimeEventJob job;
+        private final MisfireConfiguration misfire;
+        private final Recurrence recurrence;
+        private volatile long deadline;
+        private volatile boolean cancelled;
+        private volatile ScheduledFuture<?> future;
+
+        ScheduledJob(final String jobName, final TimeEventJob job, final MisfireConfiguration misfire,
+                final long firstDeadline, final Recurrence recurrence) {
+            this.jobName = jobName;
+            this.job = job;
+            this.misfire = misfire;
+            this.recurrence = recurrence;
+            this.deadline = firstDeadline;
+        }
+
+        void schedule() {
+            if (cancelled) {
+                return;
+            }
+            try {
+                future = executor.schedule(this, Math.max(0, deadline - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                log.debug("Not rescheduling " + jobName + ", the executor has been shut down");
+            }
+        }
+
+        /**
+         * Stop firing, whether or not the job is waiting on the executor or is about to put itself back on it.
+         */
+        void cancel() {
+            cancelled = true;
+            final ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            recurrence.fireDue(deadline, System.currentTimeMillis(), misfireThreshold, misfire, this);
+        }
+
+        public void next(final long nextDeadline) {
+            deadline = nextDeadline;
+            if (nextDeadline >= 0) {
+                schedule();
+            }
+        }
+
+        public void fire(final long scheduledFireTime) {
+            ScheduledExecutorSchedulingProvider.this.fire(job, scheduledFireTime);
+        }
+
+        public void misfired(final long missed, final long now, final MisfirePolicy policy) {
+            ScheduledExecutorSchedulingProvider.this.misfired(jobName, missed, now, policy);
+        }
+
+        public void catchUp(final List<Long> scheduledFireTimes) {
+            catchUp.replay(jobName, job, scheduledFireTimes);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.metrics;
+
+import java.util.Date;
+
+/**
+ * Invocation statistics of one #{@link org.jboss.seam.cron.annotations.Asynchronous} method.
+ * The counters are striped, as a busy method may be invoked from many threads at once, and
+ * times are measured in microseconds.
+ *
+ * @author Peter Royle
+ */
+public class AsynchronousMethodMetrics implements AsynchronousMethodMetricsMBean {
+
+    private final String methodName;
+    private final StripedCounter queued = new StripedCounter();
+    private final StripedCounter rejected = new StripedCounter();
+    private final StripedCounter started = new StripedCounter();
+    private final StripedCounter completed = new StripedCounter();
+    private final StripedCounter failed = new StripedCounter();
+    private final Histogram timeInQueue = new Histogram();
+    private final Histogram executionTime = new Histogram();
+    private volatile long lastFailure;
+    private volatile String lastFailureMessage;
+
+    public AsynchronousMethodMetrics(final String methodName) {
+        this.methodName = methodName;
+    }
+
+    /**
+     * Record that an invocation is being handed to the pool.
+     *
+     * @return the time it was queued, to be handed to #{@link #started(long)}.
+     */
+    public long queued() {
+        queued.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * Record that the pool refused an invocation, or dropped it from its queue.
+     */
+    public void rejected() {
+        rejected.increment();
+    }
+
+    /**
+     * Record that an invocation has started running.
+     *
+     * @param queuedTime The value returned by #{@link #queued()}.
+     * @return the time it started, to be handed to #{@link #completed(long)} or #{@link #failed(long, Throwable)}.
+     */
+    public long started(final long queuedTime) {
+        final long now = System.nanoTime();
+        started.increment();
+        timeInQueue.record((now - queuedTime) / 1000);
+        return now;
+    }
+
+    /**
+     * Record that an invocation has completed normally.
+     *
+     * @param startTime The value returned by #{@link #started(long)}.
+     */
+    public void completed(final long startTime) {
+        executionTime.record((System.nanoTime() - startTime) / 1000);
+        completed.increment();
+    }
+
+    /**
+     * Record that an invocation has thrown an exception.
+     *
+     * @param startTime The value returned by #{@link #started(long)}.
+     * @param failure   The exception thrown.
+     */
+    public void failed(final long startTime, final Throwable failure) {
+        executionTime.record((System.nanoTime() - startTime) / 1000);
+        failed.increment();
+        lastFailure = System.currentTimeMillis();
+        lastFailureMessage = String.valueOf(failure);
+    }
+
+    /**
+     * @return the histogram of how long (in microseconds) invocations waited for a thread.
+     */
+    public Histogram getTimeInQueue() {
+        return timeInQueue;
+    }
+
+    /**
+     * @return the histogram of how long (in microseconds) invocations took to run.
+     */
+    public Histogram getExecutionTime() {
+        return executionTime;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public long getQueued() {
+        return queued.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getStarted() {
+        return started.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getWaiting() {
+        return Math.max(0, getQueued() - getRejected() - getStarted());
+    }
+
+    public long getRunning() {
+        return Math.max(0, getStarted() - getCompleted() - getFailed());
+    }
+
+    public Date getLastFailure() {
+        final long time = lastFailure;
+        return time == 0 ? null : new Date(time);
+    }
+
+    public String getLastFailureMessage() {
+        return lastFailureMessage;
+    }
+
+    public double getTimeInQueueMeanMillis() {
+        return timeInQueue.getMean() / 1000;
+    }
+
+    public double getTimeInQueue99thPercentileMillis() {
+        return timeInQueue.getPercentile(99) / 1000.0;
+    }
+
+    public double getTimeInQueueMaxMillis() {
+        return timeInQueue.getMax() / 1000.0;
+    }
+
+    public double getExecutionTimeMeanMillis() {
+        return executionTime.getMean() / 1000;
+    }
+
+    public double getExecutionTime99thPercentileMillis() {
+        return executionTime.getPercentile(99) / 1000.0;
+    }
+
+    public double getExecutionTimeMaxMillis() {
+        return executionTime.getMax() / 1000.0;
+    }
+
+    /**
+     * Zero the histograms and counters. Invocations in flight at the time will make
+     * #{@link #getWaiting()} and #{@link #getRunning()} under-report until they finish.
+     */
+    public void reset() {
+        queued.reset();
+        rejected.reset();
+        started.reset();
+        completed.reset();
+        failed.reset();
+        timeInQueue.reset();
+        executionTime.reset();
+        lastFailure = 0;
+        lastFailureMessage = null;
+    }
+
+    @Override
+    public String toString() {
+        return methodName + ": queued=" + getQueued() + ", completed=" + getCompleted() + ", failed=" + getFailed()
+                + ", time in queue(us) " + timeInQueue + ", execution time(us) " + executionTime;
+    }
+}
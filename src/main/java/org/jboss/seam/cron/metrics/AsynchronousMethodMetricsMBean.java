@@ -0,0 +1,82 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.metrics;
+
+import java.util.Date;
+
+/**
+ * JMX view of the #{@link AsynchronousMethodMetrics} of one asynchronous method.
+ *
+ * @author Peter Royle
+ */
+public interface AsynchronousMethodMetricsMBean {
+
+    String getMethodName();
+
+    /**
+     * @return the number of invocations handed to the pool.
+     */
+    long getQueued();
+
+    /**
+     * @return the number of invocations refused or dropped by a full pool.
+     */
+    long getRejected();
+
+    long getStarted();
+
+    long getCompleted();
+
+    long getFailed();
+
+    /**
+     * @return the number of invocations waiting in the pool's queue.
+     */
+    long getWaiting();
+
+    /**
+     * @return the number of invocations currently running.
+     */
+    long getRunning();
+
+    Date getLastFailure();
+
+    String getLastFailureMessage();
+
+    /**
+     * @return the mean time between the method being called and it starting to run.
+     */
+    double getTimeInQueueMeanMillis();
+
+    double getTimeInQueue99thPercentileMillis();
+
+    double getTimeInQueueMaxMillis();
+
+    /**
+     * @return the mean time taken by the method (including any stage it returned).
+     */
+    double getExecutionTimeMeanMillis();
+
+    double getExecutionTime99thPercentileMillis();
+
+    double getExecutionTimeMaxMillis();
+
+    /**
+     * Zero all of the counters and histograms.
+     */
+    void reset();
+}
@@ -0,0 +1,182 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.metrics;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.management.ObjectName;
+
+/**
+ * <p>
+ * The registry of #{@link AsynchronousMethodMetrics} for all of the
+ * #{@link org.jboss.seam.cron.annotations.Asynchronous} methods invoked so far. Inject it to read
+ * (or alert on) the metrics programmatically:
+ * </p>
+ * <pre>
+ * &#64;Inject AsynchronousMetrics metrics;
+ * </pre>
+ * <p>
+ * The same metrics are exposed through JMX under the #{@value SchedulerMetrics#DOMAIN} domain,
+ * with one MBean for the totals and one per method.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+@ApplicationScoped
+public class AsynchronousMetrics implements AsynchronousMetricsMBean {
+
+    private final ConcurrentMap<String, AsynchronousMethodMetrics> methods = new ConcurrentHashMap<String, AsynchronousMethodMetrics>();
+    private final List<ObjectName> registeredNames = Collections.synchronizedList(new ArrayList<ObjectName>());
+    private final String id = Integer.toHexString(System.identityHashCode(this));
+
+    @PostConstruct
+    public void registerMBean() {
+        registerMBean(this, SchedulerMetrics.DOMAIN + ":type=Asynchronous,id=" + id);
+    }
+
+    @PreDestroy
+    public void unregisterMBeans() {
+        synchronized (registeredNames) {
+            for (ObjectName name : registeredNames) {
+                MBeans.unregister(name);
+            }
+            registeredNames.clear();
+        }
+    }
+
+    /**
+     * Start measuring the given method, unless it is already being measured.
+     *
+     * @param method The asynchronous method.
+     * @return the metrics of the method.
+     */
+    public AsynchronousMethodMetrics register(final Method method) {
+        final String name = nameOf(method);
+        AsynchronousMethodMetrics metrics = methods.get(name);
+        if (metrics == null) {
+            metrics = new AsynchronousMethodMetrics(name);
+            final AsynchronousMethodMetrics existing = methods.putIfAbsent(name, metrics);
+            if (existing != null) {
+                return existing;
+            }
+            registerMBean(metrics, SchedulerMetrics.DOMAIN + ":type=AsynchronousMethod,id=" + id
+                    + ",name=" + ObjectName.quote(name));
+        }
+        return metrics;
+    }
+
+    /**
+     * @param method The asynchronous method.
+     * @return the metrics of the method, or null if it hasn't been invoked.
+     */
+    public AsynchronousMethodMetrics getMethodMetrics(final Method method) {
+        return methods.get(nameOf(method));
+    }
+
+    /**
+     * @return the metrics of all of the asynchronous methods invoked so far.
+     */
+    public Collection<AsynchronousMethodMetrics> getAllMethodMetrics() {
+        return Collections.unmodifiableCollection(methods.values());
+    }
+
+    public long getQueued() {
+        long total = 0;
+        for (AsynchronousMethodMetrics metrics : methods.values()) {
+            total += metrics.getQueued();
+        }
+        return total;
+    }
+
+    public long getRejected() {
+        long total = 0;
+        for (AsynchronousMethodMetrics metrics : methods.values()) {
+            total += metrics.getRejected();
+        }
+        return total;
+    }
+
+    public long getCompleted() {
+        long total = 0;
+        for (AsynchronousMethodMetrics metrics : methods.values()) {
+            total += metrics.getCompleted();
+        }
+        return total;
+    }
+
+    public long getFailed() {
+        long total = 0;
+        for (AsynchronousMethodMetrics metrics : methods.values()) {
+            total += metrics.getFailed();
+        }
+        return total;
+    }
+
+    public long getWaiting() {
+        long total = 0;
+        for (AsynchronousMethodMetrics metrics : methods.values()) {
+            total += metrics.getWaiting();
+        }
+        return total;
+    }
+
+    public long getRunning() {
+        long total = 0;
+        for (AsynchronousMethodMetrics metrics : methods.values()) {
+            total += metrics.getRunning();
+        }
+        return total;
+    }
+
+    public String[] getMethodNames() {
+        return methods.keySet().toArray(new String[0]);
+    }
+
+    public void reset() {
+        for (AsynchronousMethodMetrics metrics : methods.values()) {
+            metrics.reset();
+        }
+    }
+
+    private void registerMBean(final Object mbean, final String name) {
+        final ObjectName objectName = MBeans.register(mbean, name);
+        if (objectName != null) {
+            registeredNames.add(objectName);
+        }
+    }
+
+    private static String nameOf(final Method method) {
+        final StringBuilder name = new StringBuilder(method.getDeclaringClass().getName())
+                .append('.').append(method.getName()).append('(');
+        final Class<?>[] params = method.getParameterTypes();
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                name.append(',');
+            }
+            name.append(params[i].getSimpleName());
+        }
+        return name.append(')').toString();
+    }
+}
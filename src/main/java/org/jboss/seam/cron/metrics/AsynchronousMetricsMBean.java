@@ -0,0 +1,47 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.metrics;
+
+/**
+ * JMX view of the #{@link AsynchronousMetrics}, summed over all asynchronous methods.
+ *
+ * @author Peter Royle
+ */
+public interface AsynchronousMetricsMBean {
+
+    long getQueued();
+
+    long getRejected();
+
+    long getCompleted();
+
+    long getFailed();
+
+    long getWaiting();
+
+    long getRunning();
+
+    /**
+     * @return the names of the asynchronous methods invoked so far.
+     */
+    String[] getMethodNames();
+
+    /**
+     * Zero the counters and histograms of all of the asynchronous methods.
+     */
+    void reset();
+}
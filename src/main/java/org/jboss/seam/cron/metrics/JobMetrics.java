@@ -0,0 +1,291 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.seam.cron.annotations.MisfirePolicy;
+
+/**
+ * Execution statistics of one scheduled event (ie: one #{@link org.jboss.seam.cron.annotations.Every}
+ * or #{@link org.jboss.seam.cron.annotations.Scheduled} qualifier) on this node. Lateness is
+ * measured in milliseconds, as that is the resolution of the schedule, and execution time in
+ * microseconds.
+ *
+ * @author Peter Royle
+ */
+public class JobMetrics implements JobMetricsMBean {
+
+    private final String jobName;
+    private final String qualifier;
+    private final Histogram lateness = new Histogram();
+    private final Histogram executionTime = new Histogram();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong misfires = new AtomicLong();
+    private final AtomicLong misfiresFiredNow = new AtomicLong();
+    private final AtomicLong misfiresSkipped = new AtomicLong();
+    private final AtomicLong misfiresCaughtUp = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicInteger currentExecutions = new AtomicInteger();
+    private final AtomicInteger peakConcurrentExecutions = new AtomicInteger();
+    private volatile long lastSuccess;
+    private volatile long lastFailure;
+    private volatile String lastFailureMessage;
+    private volatile ObserverMetrics[] observers = new ObserverMetrics[0];
+
+    public JobMetrics(final String jobName, final String qualifier) {
+        this.jobName = jobName;
+        this.qualifier = qualifier;
+    }
+
+    /**
+     * Start measuring each of the observers of the event separately.
+     *
+     * @param observerNames Descriptions of the observers.
+     * @return the metrics of each observer, in the same order.
+     */
+    public ObserverMetrics[] registerObservers(final List<String> observerNames) {
+        final ObserverMetrics[] registered = new ObserverMetrics[observerNames.size()];
+        for (int i = 0; i < registered.length; i++) {
+            registered[i] = new ObserverMetrics(observerNames.get(i));
+        }
+        observers = registered;
+        return registered.clone();
+    }
+
+    /**
+     * @return the metrics of each of the observers of the event.
+     */
+    public List<ObserverMetrics> getObserverMetrics() {
+        return Collections.unmodifiableList(Arrays.asList(observers));
+    }
+
+    /**
+     * Record that the event is being fired.
+     *
+     * @param scheduledFireTime When the event should have been fired (ms since the epoch).
+     * @param actualFireTime    When it actually was.
+     * @return the start time of the execution, to be handed to #{@link #executionSucceeded(long)}
+     * or #{@link #executionFailed(long, Throwable)}.
+     */
+    public long executionStarted(final long scheduledFireTime, final long actualFireTime) {
+        lateness.record(actualFireTime - scheduledFireTime);
+        final int current = currentExecutions.incrementAndGet();
+        int peak = peakConcurrentExecutions.get();
+        while (current > peak && !peakConcurrentExecutions.compareAndSet(peak, current)) {
+            peak = peakConcurrentExecutions.get();
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Record that the observers of the event completed normally.
+     *
+     * @param startTime The value returned by #{@link #executionStarted(long, long)}.
+     */
+    public void executionSucceeded(final long startTime) {
+        executionFinished(startTime);
+        lastSuccess = System.currentTimeMillis();
+    }
+
+    /**
+     * Record that an observer of the event threw an exception.
+     *
+     * @param startTime The value returned by #{@link #executionStarted(long, long)}.
+     * @param failure   The exception thrown.
+     */
+    public void executionFailed(final long startTime, final Throwable failure) {
+        executionFinished(startTime);
+        failures.incrementAndGet();
+        lastFailure = System.currentTimeMillis();
+        lastFailureMessage = String.valueOf(failure);
+    }
+
+    /**
+     * Record that the event was not fired on time because there was no thread available to fire it.
+     *
+     * @param handledBy What was done about it.
+     */
+    public void misfired(final MisfirePolicy handledBy) {
+        misfires.incrementAndGet();
+        switch (handledBy) {
+            case FIRE_NOW:
+                misfiresFiredNow.incrementAndGet();
+                break;
+            case CATCH_UP:
+                misfiresCaughtUp.incrementAndGet();
+                break;
+            default:
+                misfiresSkipped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record that a firing was skipped because too many executions were already running.
+     */
+    public void skipped() {
+        skipped.incrementAndGet();
+    }
+
+    /**
+     * Record that a firing was merged into one already waiting for an execution to finish.
+     */
+    public void coalesced() {
+        coalesced.incrementAndGet();
+    }
+
+    private void executionFinished(final long startTime) {
+        executionTime.record((System.nanoTime() - startTime) / 1000);
+        currentExecutions.decrementAndGet();
+        executions.incrementAndGet();
+    }
+
+    /**
+     * @return the histogram of how late (in milliseconds) the event was fired.
+     */
+    public Histogram getLateness() {
+        return lateness;
+    }
+
+    /**
+     * @return the histogram of how long (in microseconds) the observers took.
+     */
+    public Histogram getExecutionTime() {
+        return executionTime;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getQualifier() {
+        return qualifier;
+    }
+
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getMisfires() {
+        return misfires.get();
+    }
+
+    public long getMisfiresFiredNow() {
+        return misfiresFiredNow.get();
+    }
+
+    public long getMisfiresSkipped() {
+        return misfiresSkipped.get();
+    }
+
+    public long getMisfiresCaughtUp() {
+        return misfiresCaughtUp.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public int getCurrentExecutions() {
+        return currentExecutions.get();
+    }
+
+    public int getPeakConcurrentExecutions() {
+        return peakConcurrentExecutions.get();
+    }
+
+    public Date getLastSuccess() {
+        final long time = lastSuccess;
+        return time == 0 ? null : new Date(time);
+    }
+
+    public Date getLastFailure() {
+        final long time = lastFailure;
+        return time == 0 ? null : new Date(time);
+    }
+
+    public String getLastFailureMessage() {
+        return lastFailureMessage;
+    }
+
+    public double getLatenessMeanMillis() {
+        return lateness.getMean();
+    }
+
+    public long getLateness99thPercentileMillis() {
+        return lateness.getPercentile(99);
+    }
+
+    public long getLatenessMaxMillis() {
+        return lateness.getMax();
+    }
+
+    public double getExecutionTimeMeanMillis() {
+        return executionTime.getMean() / 1000;
+    }
+
+    public double getExecutionTime99thPercentileMillis() {
+        return executionTime.getPercentile(99) / 1000.0;
+    }
+
+    public double getExecutionTimeMaxMillis() {
+        return executionTime.getMax() / 1000.0;
+    }
+
+    public void reset() {
+        lateness.reset();
+        executionTime.reset();
+        executions.set(0);
+        failures.set(0);
+        misfires.set(0);
+        misfiresFiredNow.set(0);
+        misfiresSkipped.set(0);
+        misfiresCaughtUp.set(0);
+        skipped.set(0);
+        coalesced.set(0);
+        peakConcurrentExecutions.set(currentExecutions.get());
+        lastSuccess = 0;
+        lastFailure = 0;
+        lastFailureMessage = null;
+        for (ObserverMetrics observer : observers) {
+            observer.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return qualifier + ": executions=" + getExecutions() + ", failures=" + getFailures() + ", misfires="
+                + getMisfires() + " (fired now=" + getMisfiresFiredNow() + ", skipped=" + getMisfiresSkipped()
+                + ", caught up=" + getMisfiresCaughtUp() + "), skipped=" + getSkipped() + ", coalesced="
+                + getCoalesced() + ", lateness(ms) " + lateness + ", execution time(us) " + executionTime;
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.metrics;
+
+import java.util.Date;
+
+/**
+ * JMX view of the #{@link JobMetrics} of one scheduled event.
+ *
+ * @author Peter Royle
+ */
+public interface JobMetricsMBean {
+
+    /**
+     * @return the name of the job firing the event.
+     */
+    String getJobName();
+
+    /**
+     * @return the qualifier with which the event is fired.
+     */
+    String getQualifier();
+
+    long getExecutions();
+
+    long getFailures();
+
+    long getMisfires();
+
+    /**
+     * @return the number of misfires handled by firing the event straight away.
+     */
+    long getMisfiresFiredNow();
+
+    /**
+     * @return the number of misfires handled by waiting for the next firing.
+     */
+    long getMisfiresSkipped();
+
+    /**
+     * @return the number of misfires handled by replaying the missed firings.
+     */
+    long getMisfiresCaughtUp();
+
+    /**
+     * @return the number of firings skipped because too many executions were already running.
+     */
+    long getSkipped();
+
+    /**
+     * @return the number of firings merged into one waiting for an execution to finish.
+     */
+    long getCoalesced();
+
+    int getCurrentExecutions();
+
+    int getPeakConcurrentExecutions();
+
+    /**
+     * @return when the observers last completed without an exception, or null if they never have.
+     */
+    Date getLastSuccess();
+
+    /**
+     * @return when the observers last threw an exception, or null if they never have.
+     */
+    Date getLastFailure();
+
+    String getLastFailureMessage();
+
+    /**
+     * @return the mean time between when the event was scheduled to fire and when it did.
+     */
+    double getLatenessMeanMillis();
+
+    long getLateness99thPercentileMillis();
+
+    long getLatenessMaxMillis();
+
+    /**
+     * @return the mean time taken by the observers of the event.
+     */
+    double getExecutionTimeMeanMillis();
+
+    double getExecutionTime99thPercentileMillis();
+
+    double getExecutionTimeMaxMillis();
+
+    /**
+     * Zero all of the counters and histograms.
+     */
+    void reset();
+}
@@ -0,0 +1,65 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.metrics;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.jboss.logging.Logger;
+
+/**
+ * Registers the metrics MBeans with the platform MBean server. Failures are logged rather
+ * than thrown, as Seam Cron works perfectly well without them.
+ *
+ * @author Peter Royle
+ */
+final class MBeans {
+
+    private static final Logger log = Logger.getLogger(MBeans.class);
+
+    private MBeans() {
+    }
+
+    /**
+     * @param mbean The MBean.
+     * @param name  The name to register it as.
+     * @return the name it was registered with, or null if it could not be registered.
+     */
+    static ObjectName register(final Object mbean, final String name) {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName objectName = new ObjectName(name);
+            server.registerMBean(mbean, objectName);
+            return objectName;
+        } catch (JMException ex) {
+            log.warn("Could not register metrics " + name + " with JMX", ex);
+            return null;
+        }
+    }
+
+    /**
+     * @param name The name of the MBean to unregister.
+     */
+    static void unregister(final ObjectName name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException ex) {
+            log.debug("Could not unregister " + name, ex);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.metrics;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Execution statistics of one observer of a scheduled event on this node, so that a slow or
+ * failing observer can be told apart from the others observing the same event. Execution time
+ * is measured in microseconds.
+ *
+ * @author Peter Royle
+ */
+public class ObserverMetrics implements ObserverMetricsMBean {
+
+    private final String observer;
+    private final Histogram executionTime = new Histogram();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long lastFailure;
+    private volatile String lastFailureMessage;
+
+    public ObserverMetrics(final String observer) {
+        this.observer = observer;
+    }
+
+    /**
+     * Record that the observer is being notified.
+     *
+     * @return the time it started, to be handed to #{@link #succeeded(long)} or #{@link #failed(long, Throwable)}.
+     */
+    public long started() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record that the observer completed normally.
+     *
+     * @param startTime The value returned by #{@link #started()}.
+     */
+    public void succeeded(final long startTime) {
+        finished(startTime);
+    }
+
+    /**
+     * Record that the observer threw an exception.
+     *
+     * @param startTime The value returned by #{@link #started()}.
+     * @param failure   The exception thrown.
+     */
+    public void failed(final long startTime, final Throwable failure) {
+        finished(startTime);
+        failures.incrementAndGet();
+        lastFailure = System.currentTimeMillis();
+        lastFailureMessage = String.valueOf(failure);
+    }
+
+    private void finished(final long startTime) {
+        executionTime.record((System.nanoTime() - startTime) / 1000);
+        executions.incrementAndGet();
+    }
+
+    /**
+     * @return the histogram of how long (in microseconds) the observer took.
+     */
+    public Histogram getExecutionTime() {
+        return executionTime;
+    }
+
+    public String getObserver() {
+        return observer;
+    }
+
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public Date getLastFailure() {
+        final long time = lastFailure;
+        return time == 0 ? null : new Date(time);
+    }
+
+    public String getLastFailureMessage() {
+        return lastFailureMessage;
+    }
+
+    public double getExecutionTimeMeanMillis() {
+        return executionTime.getMean() / 1000;
+    }
+
+    public double getExecutionTime99thPercentileMillis() {
+        return executionTime.getPercentile(99) / 1000.0;
+    }
+
+    public double getExecutionTimeMaxMillis() {
+        return executionTime.getMax() / 1000.0;
+    }
+
+    public void reset() {
+        executionTime.reset();
+        executions.set(0);
+        failures.set(0);
+        lastFailure = 0;
+        lastFailureMessage = null;
+    }
+
+    @Override
+    public String toString() {
+        return observer + ": executions=" + getExecutions() + ", failures=" + getFailures() + ", execution time(us) "
+                + executionTime;
+    }
+}
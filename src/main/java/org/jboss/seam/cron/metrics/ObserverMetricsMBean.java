@@ -0,0 +1,57 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.metrics;
+
+import java.util.Date;
+
+/**
+ * JMX view of the #{@link ObserverMetrics} of one observer of a scheduled event.
+ *
+ * @author Peter Royle
+ */
+public interface ObserverMetricsMBean {
+
+    /**
+     * @return a description of the observer method.
+     */
+    String getObserver();
+
+    long getExecutions();
+
+    long getFailures();
+
+    /**
+     * @return when the observer last threw an exception, or null if it never has.
+     */
+    Date getLastFailure();
+
+    String getLastFailureMessage();
+
+    /**
+     * @return the mean time taken by the observer.
+     */
+    double getExecutionTimeMeanMillis();
+
+    double getExecutionTime99thPercentileMillis();
+
+    double getExecutionTimeMaxMillis();
+
+    /**
+     * Zero the counters and histogram.
+     */
+    void reset();
+}
@@ -0,0 +1,262 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.management.ObjectName;
+
+/**
+ * <p>
+ * The registry of #{@link JobMetrics} for all of the scheduled events observed on this node.
+ * Inject it to read (or alert on) the metrics programmatically:
+ * </p>
+ * <pre>
+ * &#64;Inject SchedulerMetrics metrics;
+ * </pre>
+ * <p>
+ * The same metrics are exposed through JMX under the #{@value #DOMAIN} domain, with one MBean for
+ * the scheduler, one per scheduled event and one per observer of each event.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+public class SchedulerMetrics implements SchedulerMetricsMBean {
+
+    /**
+     * The JMX domain of the metrics MBeans.
+     */
+    public static final String DOMAIN = "org.jboss.seam.cron";
+    private final String schedulerName;
+    private final int threadCount;
+    private final ConcurrentMap<String, JobMetrics> jobs = new ConcurrentHashMap<String, JobMetrics>();
+    // the names of the MBeans registered for the scheduler itself, and for each job
+    private final List<ObjectName> registeredNames = Collections.synchronizedList(new ArrayList<ObjectName>());
+    private final ConcurrentMap<String, List<ObjectName>> registeredJobNames =
+            new ConcurrentHashMap<String, List<ObjectName>>();
+    private volatile boolean mbeansRegistered;
+
+    /**
+     * @param schedulerName The name of the scheduler on this node.
+     * @param threadCount   The number of threads each scheduler has for firing events.
+     */
+    public SchedulerMetrics(final String schedulerName, final int threadCount) {
+        this.schedulerName = schedulerName;
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Start measuring the given job, unless it is already being measured.
+     *
+     * @param jobName   The name of the job.
+     * @param qualifier The qualifier with which the job fires its event.
+     * @return the metrics of the job.
+     */
+    public JobMetrics register(final String jobName, final String qualifier) {
+        final JobMetrics metrics = new JobMetrics(jobName, qualifier);
+        final JobMetrics existing = jobs.putIfAbsent(jobName, metrics);
+        return existing == null ? metrics : existing;
+    }
+
+    /**
+     * Stop measuring the given job, and unregister its MBeans.
+     *
+     * @param jobName The name of the job.
+     */
+    public void unregister(final String jobName) {
+        jobs.remove(jobName);
+        unregisterMBeans(jobName);
+    }
+
+    /**
+     * @param jobName The name of the job.
+     * @return the metrics of the job, or null if it is not observed on this node.
+     */
+    public JobMetrics getJobMetrics(final String jobName) {
+        return jobs.get(jobName);
+    }
+
+    /**
+     * @return the metrics of all of the jobs observed on this node.
+     */
+    public Collection<JobMetrics> getAllJobMetrics() {
+        return Collections.unmodifiableCollection(jobs.values());
+    }
+
+    public String getSchedulerName() {
+        return schedulerName;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public int getCurrentExecutions() {
+        int total = 0;
+        for (JobMetrics metrics : jobs.values()) {
+            total += metrics.getCurrentExecutions();
+        }
+        return total;
+    }
+
+    public long getExecutions() {
+        long total = 0;
+        for (JobMetrics metrics : jobs.values()) {
+            total += metrics.getExecutions();
+        }
+        return total;
+    }
+
+    public long getFailures() {
+        long total = 0;
+        for (JobMetrics metrics : jobs.values()) {
+            total += metrics.getFailures();
+        }
+        return total;
+    }
+
+    public long getMisfires() {
+        long total = 0;
+        for (JobMetrics metrics : jobs.values()) {
+            total += metrics.getMisfires();
+        }
+        return total;
+    }
+
+    public long getMisfiresFiredNow() {
+        long total = 0;
+        for (JobMetrics metrics : jobs.values()) {
+            total += metrics.getMisfiresFiredNow();
+        }
+        return total;
+    }
+
+    public long getMisfiresSkipped() {
+        long total = 0;
+        for (JobMetrics metrics : jobs.values()) {
+            total += metrics.getMisfiresSkipped();
+        }
+        return total;
+    }
+
+    public long getMisfiresCaughtUp() {
+        long total = 0;
+        for (JobMetrics metrics : jobs.values()) {
+            total += metrics.getMisfiresCaughtUp();
+        }
+        return total;
+    }
+
+    public long getSkipped() {
+        long total = 0;
+        for (JobMetrics metrics : jobs.values()) {
+            total += metrics.getSkipped();
+        }
+        return total;
+    }
+
+    public long getCoalesced() {
+        long total = 0;
+        for (JobMetrics metrics : jobs.values()) {
+            total += metrics.getCoalesced();
+        }
+        return total;
+    }
+
+    public String[] getJobNames() {
+        return jobs.keySet().toArray(new String[0]);
+    }
+
+    public void reset() {
+        for (JobMetrics metrics : jobs.values()) {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * Register this registry and all of the jobs registered so far with the platform MBean server.
+     */
+    public void registerMBeans() {
+        registerMBean(this, DOMAIN + ":type=Scheduler,name=" + ObjectName.quote(schedulerName), registeredNames);
+        for (JobMetrics metrics : jobs.values()) {
+            registerJobMBeans(metrics);
+        }
+        mbeansRegistered = true;
+    }
+
+    /**
+     * Register the MBeans of a job which was registered after #{@link #registerMBeans()} was
+     * called, if it has been.
+     *
+     * @param jobName The name of the job.
+     */
+    public void registerMBeans(final String jobName) {
+        final JobMetrics metrics = jobs.get(jobName);
+        if (mbeansRegistered && metrics != null && !registeredJobNames.containsKey(jobName)) {
+            registerJobMBeans(metrics);
+        }
+    }
+
+    /**
+     * Unregister all of the MBeans registered by #{@link #registerMBeans()}.
+     */
+    public void unregisterMBeans() {
+        mbeansRegistered = false;
+        for (String jobName : registeredJobNames.keySet()) {
+            unregisterMBeans(jobName);
+        }
+        synchronized (registeredNames) {
+            for (ObjectName name : registeredNames) {
+                MBeans.unregister(name);
+            }
+            registeredNames.clear();
+        }
+    }
+
+    private void registerJobMBeans(final JobMetrics metrics) {
+        final List<ObjectName> names = new ArrayList<ObjectName>();
+        registerMBean(metrics, DOMAIN + ":type=Job,scheduler=" + ObjectName.quote(schedulerName)
+                + ",name=" + ObjectName.quote(metrics.getJobName()), names);
+        final List<ObserverMetrics> observers = metrics.getObserverMetrics();
+        for (int i = 0; i < observers.size(); i++) {
+            registerMBean(observers.get(i), DOMAIN + ":type=Observer,scheduler=" + ObjectName.quote(schedulerName)
+                    + ",job=" + ObjectName.quote(metrics.getJobName()) + ",name=" + ObjectName.quote(i + " "
+                    + observers.get(i).getObserver()), names);
+        }
+        registeredJobNames.put(metrics.getJobName(), names);
+    }
+
+    private void unregisterMBeans(final String jobName) {
+        final List<ObjectName> names = registeredJobNames.remove(jobName);
+        if (names != null) {
+            for (ObjectName name : names) {
+                MBeans.unregister(name);
+            }
+        }
+    }
+
+    private void registerMBean(final Object mbean, final String name, final List<ObjectName> registered) {
+        final ObjectName objectName = MBeans.register(mbean, name);
+        if (objectName != null) {
+            registered.add(objectName);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.metrics;
+
+/**
+ * JMX view of the #{@link SchedulerMetrics} of this node, summed over all scheduled events.
+ *
+ * @author Peter Royle
+ */
+public interface SchedulerMetricsMBean {
+
+    String getSchedulerName();
+
+    /**
+     * @return the number of threads each scheduler has for firing events. If the current
+     * executions reach this then the scheduler is saturated and events will start firing late.
+     */
+    int getThreadCount();
+
+    int getCurrentExecutions();
+
+    long getExecutions();
+
+    long getFailures();
+
+    long getMisfires();
+
+    long getMisfiresFiredNow();
+
+    long getMisfiresSkipped();
+
+    long getMisfiresCaughtUp();
+
+    long getSkipped();
+
+    long getCoalesced();
+
+    /**
+     * @return the names of the scheduled events being measured.
+     */
+    String[] getJobNames();
+
+    /**
+     * Zero the counters and histograms of all of the scheduled events.
+     */
+    void reset();
+}
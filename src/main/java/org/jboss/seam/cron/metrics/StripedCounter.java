@@ -0,0 +1,82 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter which many threads can increment at once without contending on a single
+ * memory location. Each thread adds to one of several stripes (chosen by its id), each on
+ * its own cache line, and reading the counter sums the stripes. Reads are therefore slower
+ * than writes, which suits metrics which are updated on every invocation but only read now
+ * and again.
+ *
+ * @author Peter Royle
+ */
+public class StripedCounter {
+
+    private static final int STRIPES = stripeCount();
+    // 8 longs = 64 bytes, so that no two stripes share a cache line
+    private static final int PADDING = 8;
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(final long delta) {
+        cells.addAndGet(stripeIndex(), delta);
+    }
+
+    /**
+     * @return the sum of all of the increments since creation or the last reset. Not an atomic
+     * snapshot if the counter is being incremented concurrently.
+     */
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    public void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PADDING, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+
+    private static int stripeIndex() {
+        // spread consecutive thread ids over the stripes
+        final long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return ((int) (id >>> 32) & (STRIPES - 1)) * PADDING;
+    }
+
+    private static int stripeCount() {
+        int stripes = 1;
+        final int wanted = Math.min(64, Runtime.getRuntime().availableProcessors() * 2);
+        while (stripes < wanted) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.quartz.Job;
+import org.quartz.SchedulerException;
+import org.quartz.simpl.SimpleJobFactory;
+import org.quartz.spi.JobFactory;
+import org.quartz.spi.TriggerFiredBundle;
+
+/**
+ * Hands Quartz the job instances which were bound to their event when they were scheduled,
+ * rather than a fresh instance per firing which then has to look its event up again. Jobs
+ * it doesn't know about (eg: from a shared job store, scheduled by another node) are
+ * instantiated as usual.
+ *
+ * @author Peter Royle
+ */
+public class BoundJobFactory implements JobFactory {
+
+    private final ConcurrentMap<String, Job> jobs = new ConcurrentHashMap<String, Job>();
+    private final JobFactory fallback = new SimpleJobFactory();
+
+    /**
+     * Use the given instance for every execution of the named job.
+     *
+     * @param jobName The name of the job.
+     * @param job     The job instance, which must be safe to execute concurrently.
+     */
+    public void bind(final String jobName, final Job job) {
+        jobs.put(jobName, job);
+    }
+
+    /**
+     * Forget the instance of the named job.
+     *
+     * @param jobName The name of the job.
+     */
+    public void unbind(final String jobName) {
+        jobs.remove(jobName);
+    }
+
+    public Job newJob(final TriggerFiredBundle bundle) throws SchedulerException {
+        final Job job = jobs.get(bundle.getJobDetail().getName());
+        return job == null ? fallback.newJob(bundle) : job;
+    }
+}
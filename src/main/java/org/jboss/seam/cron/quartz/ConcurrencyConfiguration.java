@@ -0,0 +1,148 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.lang.annotation.Annotation;
+
+import org.jboss.seam.cron.annotations.Concurrency;
+import org.jboss.seam.cron.annotations.ConcurrencyPolicy;
+import org.jboss.seam.cron.annotations.ParallelObservers;
+import org.jboss.seam.cron.exception.SchedulerConfigurationException;
+import org.jboss.seam.cron.spi.SchedulerConfiguration;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+
+/**
+ * <p>
+ * How many executions of one scheduled event may run at once, what happens to firings
+ * beyond that, and whether each execution notifies the event's observers in parallel. The
+ * default for all events is set in /scheduler.properties:
+ * </p>
+ * <pre>
+ * # one of ALLOW, SKIP or COALESCE
+ * org.jboss.seam.cron.scheduler.concurrency=ALLOW
+ * org.jboss.seam.cron.scheduler.maxConcurrent=1
+ * org.jboss.seam.cron.scheduler.parallelObservers=false
+ * </pre>
+ * <p>
+ * An event's qualifier can have its own settings, either with #{@link Concurrency} and
+ * #{@link ParallelObservers} meta-annotations or by repeating these with its fully qualified name inserted, eg:
+ * {@literal org.jboss.seam.cron.scheduler.com.acme.Reports.concurrency=SKIP}, which wins.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+public class ConcurrencyConfiguration {
+
+    public static final String CONCURRENCY = "concurrency";
+    public static final String MAX_CONCURRENT = "maxConcurrent";
+    public static final String PARALLEL_OBSERVERS = "parallelObservers";
+    private final ConcurrencyPolicy policy;
+    private final int maxConcurrent;
+    private final boolean parallelObservers;
+
+    public ConcurrencyConfiguration(final ConcurrencyPolicy policy, final int maxConcurrent) {
+        this(policy, maxConcurrent, false);
+    }
+
+    public ConcurrencyConfiguration(final ConcurrencyPolicy policy, final int maxConcurrent,
+            final boolean parallelObservers) {
+        this.policy = policy;
+        this.maxConcurrent = maxConcurrent;
+        this.parallelObservers = parallelObservers;
+    }
+
+    /**
+     * Work out the settings for the event fired with the given qualifier.
+     *
+     * @param props     The properties to read from.
+     * @param qualifier The qualifier of the event.
+     * @return the concurrency settings of the event.
+     */
+    public static ConcurrencyConfiguration read(final SchedulePropertiesManager props, final Annotation qualifier) {
+        return read(props, qualifier, qualifier.annotationType().getAnnotation(Concurrency.class),
+                qualifier.annotationType().getAnnotation(ParallelObservers.class));
+    }
+
+    /**
+     * Work out the settings for the event fired with the given qualifier.
+     *
+     * @param props              The properties to read from.
+     * @param qualifier          The qualifier of the event.
+     * @param annotation         The #{@link Concurrency} meta-annotation of the qualifier, or null.
+     * @param parallelAnnotation The #{@link ParallelObservers} meta-annotation of the qualifier, or null.
+     * @return the concurrency settings of the event.
+     */
+    public static ConcurrencyConfiguration read(final SchedulePropertiesManager props, final Annotation qualifier,
+            final Concurrency annotation, final ParallelObservers parallelAnnotation) {
+        final String prefix = SchedulerConfiguration.PROPERTY_PREFIX + qualifier.annotationType().getName() + ".";
+
+        ConcurrencyPolicy policy = readPolicy(props, SchedulerConfiguration.PROPERTY_PREFIX, ConcurrencyPolicy.ALLOW);
+        int max = props.getIntProperty(SchedulerConfiguration.PROPERTY_PREFIX + MAX_CONCURRENT, 1);
+        if (annotation != null) {
+            policy = annotation.value();
+            max = annotation.max();
+        }
+        policy = readPolicy(props, prefix, policy);
+        max = props.getIntProperty(prefix + MAX_CONCURRENT, max);
+        if (max < 1) {
+            throw new SchedulerConfigurationException("The maximum concurrent executions of " + qualifier
+                    + " must be at least 1, but is " + max);
+        }
+
+        boolean parallel = props.getBooleanProperty(SchedulerConfiguration.PROPERTY_PREFIX + PARALLEL_OBSERVERS, false);
+        if (parallelAnnotation != null) {
+            parallel = parallelAnnotation.value();
+        }
+        parallel = props.getBooleanProperty(prefix + PARALLEL_OBSERVERS, parallel);
+        return new ConcurrencyConfiguration(policy, max, parallel);
+    }
+
+    private static ConcurrencyPolicy readPolicy(final SchedulePropertiesManager props, final String prefix,
+            final ConcurrencyPolicy defaultPolicy) {
+        final String policyName = props.getProperty(prefix + CONCURRENCY, null);
+        if (policyName == null) {
+            return defaultPolicy;
+        }
+        try {
+            return ConcurrencyPolicy.valueOf(policyName.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new SchedulerConfigurationException("Unknown concurrency policy '" + policyName + "' for "
+                    + prefix + CONCURRENCY + " in " + SchedulePropertiesManager.SCHEDULE_PROPERTIES_PATH, ex);
+        }
+    }
+
+    public ConcurrencyPolicy getPolicy() {
+        return policy;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * @return true if the observers of each execution are notified in parallel.
+     */
+    public boolean isParallelObservers() {
+        return parallelObservers;
+    }
+
+    @Override
+    public String toString() {
+        return (policy == ConcurrencyPolicy.ALLOW ? policy.toString() : policy + " beyond " + maxConcurrent)
+                + (parallelObservers ? ", observers in parallel" : "");
+    }
+}
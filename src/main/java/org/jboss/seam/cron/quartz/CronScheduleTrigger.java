@@ -0,0 +1,215 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.text.ParseException;
+import java.util.Date;
+
+import org.jboss.seam.cron.spi.CronSchedule;
+import org.quartz.Calendar;
+import org.quartz.CronTrigger;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.Trigger;
+
+/**
+ * <p>
+ * A trigger which fires on a #{@link CronSchedule}, so that working out each next firing costs
+ * what the compiled schedule does rather than what Quartz's <code>CronExpression</code> does. It
+ * otherwise behaves as a #{@link CronTrigger} does, including its misfire instructions.
+ * </p>
+ * <p>
+ * Only for the local scheduler: a shared job store would need every node to be able to load
+ * this class, so clustered schedules keep to a plain #{@link CronTrigger}.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+public class CronScheduleTrigger extends Trigger {
+
+    public static final int MISFIRE_INSTRUCTION_FIRE_ONCE_NOW = CronTrigger.MISFIRE_INSTRUCTION_FIRE_ONCE_NOW;
+    public static final int MISFIRE_INSTRUCTION_DO_NOTHING = CronTrigger.MISFIRE_INSTRUCTION_DO_NOTHING;
+    private static final long serialVersionUID = 1L;
+    private final String expression;
+    // recompiled (from the cache) if the trigger is ever deserialised
+    private transient CronSchedule schedule;
+    private Date startTime;
+    private Date endTime;
+    private Date nextFireTime;
+    private Date previousFireTime;
+
+    /**
+     * @param name     The name of the trigger.
+     * @param group    The group of the trigger.
+     * @param schedule The schedule to fire on.
+     */
+    public CronScheduleTrigger(final String name, final String group, final CronSchedule schedule) {
+        super(name, group);
+        this.expression = schedule.getExpression();
+        this.schedule = schedule;
+        setStartTime(new Date());
+    }
+
+    public CronSchedule getSchedule() {
+        if (schedule == null) {
+            try {
+                schedule = CronSchedule.compile(expression);
+            } catch (ParseException ex) {
+                throw new IllegalStateException("Error parsing schedule '" + expression + "' of " + getFullName(), ex);
+            }
+        }
+        return schedule;
+    }
+
+    /**
+     * @return the cron expression of the schedule.
+     */
+    public String getCronExpression() {
+        return expression;
+    }
+
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(final Date startTime) {
+        if (startTime == null) {
+            throw new IllegalArgumentException("Start time cannot be null");
+        }
+        if (endTime != null && endTime.before(startTime)) {
+            throw new IllegalArgumentException("End time cannot be before start time");
+        }
+        // as CronTrigger does, the schedule has no finer precision than a second
+        this.startTime = new Date(startTime.getTime() - startTime.getTime() % 1000L);
+    }
+
+    public Date getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(final Date endTime) {
+        if (endTime != null && endTime.before(startTime)) {
+            throw new IllegalArgumentException("End time cannot be before start time");
+        }
+        this.endTime = endTime;
+    }
+
+    public Date getNextFireTime() {
+        return nextFireTime;
+    }
+
+    public void setNextFireTime(final Date nextFireTime) {
+        this.nextFireTime = nextFireTime;
+    }
+
+    public Date getPreviousFireTime() {
+        return previousFireTime;
+    }
+
+    public void setPreviousFireTime(final Date previousFireTime) {
+        this.previousFireTime = previousFireTime;
+    }
+
+    public Date getFireTimeAfter(final Date afterTime) {
+        long after = afterTime == null ? System.currentTimeMillis() : afterTime.getTime();
+        // the start time itself is a candidate
+        if (startTime.getTime() > after) {
+            after = startTime.getTime() - 1000L;
+        }
+        if (endTime != null && after >= endTime.getTime()) {
+            return null;
+        }
+        final long next = getSchedule().getNextFireTime(after);
+        if (next < 0 || (endTime != null && next > endTime.getTime())) {
+            return null;
+        }
+        return new Date(next);
+    }
+
+    /**
+     * @return null, as for a #{@link CronTrigger}, which doesn't work out its final firing either.
+     */
+    public Date getFinalFireTime() {
+        return null;
+    }
+
+    public boolean mayFireAgain() {
+        return nextFireTime != null;
+    }
+
+    public Date computeFirstFireTime(final Calendar calendar) {
+        nextFireTime = firstIncludedAfter(new Date(startTime.getTime() - 1000L), calendar);
+        return nextFireTime;
+    }
+
+    public void triggered(final Calendar calendar) {
+        previousFireTime = nextFireTime;
+        nextFireTime = firstIncludedAfter(nextFireTime, calendar);
+    }
+
+    public void updateAfterMisfire(final Calendar calendar) {
+        int instruction = getMisfireInstruction();
+        if (instruction == MISFIRE_INSTRUCTION_SMART_POLICY) {
+            instruction = MISFIRE_INSTRUCTION_FIRE_ONCE_NOW;
+        }
+        if (instruction == MISFIRE_INSTRUCTION_DO_NOTHING) {
+            nextFireTime = firstIncludedAfter(new Date(), calendar);
+        } else if (instruction == MISFIRE_INSTRUCTION_FIRE_ONCE_NOW) {
+            nextFireTime = new Date();
+        }
+    }
+
+    public void updateWithNewCalendar(final Calendar calendar, final long misfireThreshold) {
+        nextFireTime = firstIncludedAfter(previousFireTime, calendar);
+        final long now = System.currentTimeMillis();
+        if (nextFireTime != null && now - nextFireTime.getTime() >= misfireThreshold) {
+            nextFireTime = firstIncludedAfter(nextFireTime, calendar);
+        }
+    }
+
+    public int executionComplete(final JobExecutionContext context, final JobExecutionException result) {
+        if (result != null && result.refireImmediately()) {
+            return INSTRUCTION_RE_EXECUTE_JOB;
+        }
+        if (result != null && result.unscheduleFiringTrigger()) {
+            return INSTRUCTION_SET_TRIGGER_COMPLETE;
+        }
+        if (result != null && result.unscheduleAllTriggers()) {
+            return INSTRUCTION_SET_ALL_JOB_TRIGGERS_COMPLETE;
+        }
+        if (!mayFireAgain()) {
+            return INSTRUCTION_DELETE_TRIGGER;
+        }
+        return INSTRUCTION_NOOP;
+    }
+
+    protected boolean validateMisfireInstruction(final int misfireInstruction) {
+        return misfireInstruction >= MISFIRE_INSTRUCTION_SMART_POLICY
+                && misfireInstruction <= MISFIRE_INSTRUCTION_DO_NOTHING;
+    }
+
+    /**
+     * @return the first firing after the given time which the calendar (if any) doesn't exclude.
+     */
+    private Date firstIncludedAfter(final Date after, final Calendar calendar) {
+        Date next = getFireTimeAfter(after);
+        while (next != null && calendar != null && !calendar.isTimeIncluded(next.getTime())) {
+            next = getFireTimeAfter(next);
+        }
+        return next;
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.lang.annotation.Annotation;
+
+import org.jboss.seam.cron.annotations.Jitter;
+import org.jboss.seam.cron.exception.SchedulerConfigurationException;
+import org.jboss.seam.cron.spi.SchedulerConfiguration;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+
+/**
+ * <p>
+ * How far the start of each @Every event may be moved so that events with the same interval
+ * don't all fire on the same millisecond. Off unless turned on in /scheduler.properties:
+ * </p>
+ * <pre>
+ * # the longest delay in milliseconds (capped at each event's interval)
+ * org.jboss.seam.cron.scheduler.maxJitter=60000
+ * </pre>
+ * <p>
+ * An event's qualifier can have its own maximum, either with a #{@link Jitter} meta-annotation
+ * or by repeating the property with its fully qualified name inserted, eg:
+ * {@literal org.jboss.seam.cron.scheduler.com.acme.Reports.maxJitter=0}, which wins. A maximum
+ * of 0 keeps the event in step with the others.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+public final class JitterConfiguration {
+
+    public static final String MAX_JITTER = "maxJitter";
+
+    private JitterConfiguration() {
+    }
+
+    /**
+     * Work out the longest delay for the event fired with the given qualifier.
+     *
+     * @param props     The properties to read from.
+     * @param qualifier The qualifier of the event.
+     * @return the longest delay in milliseconds, 0 if the event isn't to be moved.
+     */
+    public static long readMaxJitter(final SchedulePropertiesManager props, final Annotation qualifier) {
+        return readMaxJitter(props, qualifier, qualifier.annotationType().getAnnotation(Jitter.class));
+    }
+
+    /**
+     * Work out the longest delay for the event fired with the given qualifier.
+     *
+     * @param props      The properties to read from.
+     * @param qualifier  The qualifier of the event.
+     * @param annotation The #{@link Jitter} meta-annotation of the qualifier, or null if it hasn't one.
+     * @return the longest delay in milliseconds, 0 if the event isn't to be moved.
+     */
+    public static long readMaxJitter(final SchedulePropertiesManager props, final Annotation qualifier,
+            final Jitter annotation) {
+        long max = props.getLongProperty(SchedulerConfiguration.PROPERTY_PREFIX + MAX_JITTER, 0);
+        if (annotation != null) {
+            max = annotation.value();
+        }
+        max = props.getLongProperty(SchedulerConfiguration.PROPERTY_PREFIX + qualifier.annotationType().getName()
+                + "." + MAX_JITTER, max);
+        if (max < 0) {
+            throw new SchedulerConfigurationException("The maximum jitter of " + qualifier
+                    + " can't be negative, but is " + max);
+        }
+        return max;
+    }
+
+    /**
+     * Work out how far to move the start of a job. The same job always gets the same delay.
+     *
+     * @param jobName   The name of the job, which is the same on every node.
+     * @param maxJitter The longest delay in milliseconds.
+     * @param period    The milliseconds between firings of the job.
+     * @return the delay in milliseconds, at least 0 and less than both the maximum and the period.
+     */
+    public static long offset(final String jobName, final long maxJitter, final long period) {
+        final long range = Math.min(maxJitter, period);
+        if (range <= 1) {
+            return 0;
+        }
+        // String.hashCode() is the same on every JVM; mix it so that similar names end up far apart
+        long hash = jobName.hashCode();
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (hash & Long.MAX_VALUE) % range;
+    }
+}
@@ -0,0 +1,640 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.lang.annotation.Annotation;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+
+import org.apache.commons.lang.StringUtils;
+import org.jboss.logging.Logger;
+import org.jboss.seam.cron.annotations.Concurrency;
+import org.jboss.seam.cron.annotations.ConcurrencyPolicy;
+import org.jboss.seam.cron.annotations.Every;
+import org.jboss.seam.cron.annotations.Jitter;
+import org.jboss.seam.cron.annotations.Misfire;
+import org.jboss.seam.cron.annotations.MisfirePolicy;
+import org.jboss.seam.cron.annotations.ParallelObservers;
+import org.jboss.seam.cron.annotations.Scheduled;
+import org.jboss.seam.cron.async.AsynchronousExecutor;
+import org.jboss.seam.cron.events.TimeUnit;
+import org.jboss.seam.cron.exception.SchedulerConfigurationException;
+import org.jboss.seam.cron.exception.SchedulerInitialisationException;
+import org.jboss.seam.cron.metrics.SchedulerMetrics;
+import org.jboss.seam.cron.quartz.jobs.AbstractTimeEventJob;
+import org.jboss.seam.cron.quartz.jobs.DayJob;
+import org.jboss.seam.cron.quartz.jobs.HourJob;
+import org.jboss.seam.cron.quartz.jobs.MillisecondJob;
+import org.jboss.seam.cron.quartz.jobs.MinuteJob;
+import org.jboss.seam.cron.quartz.jobs.ScheduledEventJob;
+import org.jboss.seam.cron.quartz.jobs.ScheduledQualifiedEventPayload;
+import org.jboss.seam.cron.quartz.jobs.SecondJob;
+import org.jboss.seam.cron.quartz.jobs.WeekJob;
+import org.jboss.seam.cron.spi.CronSchedule;
+import org.jboss.seam.cron.spi.MisfireConfiguration;
+import org.jboss.seam.cron.spi.SchedulerConfiguration;
+import org.jboss.seam.cron.spi.SchedulingProvider;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+
+/**
+ * <p>
+ * Schedules events while the application is running, and changes the schedules of those already
+ * scheduled, without redeploying it. Inject it to (say) slow a heavy job down at peak times:
+ * </p>
+ * <pre>
+ * &#64;Inject JobScheduler jobs;
+ *
+ * String jobName = jobs.schedule(new EveryBinding(5, TimeUnit.MINUTE));
+ * jobs.reschedule(jobName, TimeUnit.MINUTE, 15);
+ * jobs.pause(jobName);
+ * </pre>
+ * <p>
+ * The events observed when the application was deployed are scheduled through here too, under
+ * the same job names as the #{@link SchedulingProvider} and #{@link SchedulerMetrics} know them
+ * by. A job is bound to the observers of its qualifier when it is first scheduled, and keeps them
+ * whatever happens to its schedule. The jobs are looked up by name in a hash map, so none of
+ * these operations gets slower with the number of jobs (beyond whatever the provider costs), and
+ * changes are made one at a time. Pausing or cancelling a clustered event with Quartz stops it on
+ * every node.
+ * </p>
+ * <p>
+ * A job whose schedule is named (eg: <code>@Scheduled("at.midnight")</code>) remembers the name,
+ * so that it can be rescheduled when the schedule is changed in /scheduler.properties (see
+ * #{@link SchedulerConfiguration#getReloadInterval()}).
+ * </p>
+ * <p>
+ * The provider isn't initialised and started until there is an event to fire, so an application
+ * which observes no scheduled events (eg: one which only has #{@link org.jboss.seam.cron.annotations.Asynchronous}
+ * methods) has no scheduler threads or timers unless it schedules something here. The
+ * #{@link SchedulerMetrics} are created up front and handed to the provider when it starts, so
+ * they can be injected (and watched) before there is anything to fire.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+public class JobScheduler {
+
+    private final SchedulingProvider provider;
+    private final BeanManager manager;
+    private final SchedulePropertiesManager properties;
+    private final ScheduleBindings bindings;
+    private final SchedulerMetrics metrics;
+    private final ConcurrentMap<String, JobEntry> jobs = new ConcurrentHashMap<String, JobEntry>();
+    // whether the provider has been initialised and started, which waits for the first job
+    private boolean started;
+    private SchedulePropertiesWatcher propertiesWatcher;
+    private static final Logger log = Logger.getLogger(JobScheduler.class);
+
+    /**
+     * @param provider   The provider which fires the scheduled events.
+     * @param manager    The JSR-299 Bean Manager, used to resolve the observers of the events.
+     * @param properties The contents of /scheduler.properties.
+     * @param bindings   The schedules, and other settings, of the qualifier types.
+     */
+    JobScheduler(final SchedulingProvider provider, final BeanManager manager,
+            final SchedulePropertiesManager properties, final ScheduleBindings bindings) {
+        this.provider = provider;
+        this.manager = manager;
+        this.properties = properties;
+        this.bindings = bindings;
+        final SchedulerConfiguration config = SchedulerConfiguration.read(properties);
+        this.metrics = new SchedulerMetrics(config.getName() + "_" + UUID.randomUUID(), config.getThreadCount());
+    }
+
+    /**
+     * @return the execution metrics of the scheduled events, which are the same object whether
+     *         or not the provider has been started yet.
+     */
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Start firing the event with the given qualifier to its observers, from the next whole
+     * second, unless it is already scheduled.
+     *
+     * @param qualifier An instance of @Scheduled or @Every, or of a qualifier with one of those
+     *                  as a meta-annotation.
+     * @return the name of the job which fires the event.
+     * @throws SchedulerConfigurationException if the qualifier doesn't say when to fire the event.
+     */
+    public synchronized String schedule(final Annotation qualifier) {
+        final ScheduledQualifiedEventPayload payload = createPayload(qualifier);
+        if (payload == null) {
+            throw new SchedulerConfigurationException("Can't tell when to fire " + qualifier + ", it is neither "
+                    + "@Scheduled nor @Every and has neither as a meta-annotation");
+        }
+        final String jobName = payload.getJobName();
+        if (jobs.containsKey(jobName)) {
+            log.info("Not scheduling " + qualifier + ", it is already scheduled as " + jobName);
+            return jobName;
+        }
+        if (started) {
+            schedule(payload, new Date(nextSecond()));
+            metrics.registerMBeans(jobName);
+        } else {
+            start(Collections.singleton(payload), new Date(nextSecond()));
+        }
+        return jobName;
+    }
+
+    /**
+     * Initialise the provider, schedule the given events and then start firing them, unless there
+     * are none, in which case the provider is left alone until an event is scheduled.
+     *
+     * @param payloads  The events to schedule.
+     * @param startTime When to start firing them.
+     */
+    synchronized void start(final Set<ScheduledQualifiedEventPayload> payloads, final Date startTime) {
+        if (payloads.isEmpty()) {
+            log.info("Not starting the scheduler yet, no scheduled events are observed");
+            return;
+        }
+        provider.initProvider(properties, metrics);
+        for (ScheduledQualifiedEventPayload payload : payloads) {
+            schedule(payload, startTime);
+        }
+        metrics.registerMBeans();
+        provider.start();
+        started = true;
+
+        final long reloadInterval = SchedulerConfiguration.read(properties).getReloadInterval();
+        if (reloadInterval > 0) {
+            propertiesWatcher = new SchedulePropertiesWatcher(properties, this, reloadInterval);
+        }
+    }
+
+    /**
+     * @return true once the provider has been started, ie: there has been an event to schedule.
+     */
+    synchronized boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Stop firing the events and release the provider's threads, if it was ever started.
+     */
+    synchronized void shutdown() {
+        if (!started) {
+            return;
+        }
+        if (propertiesWatcher != null) {
+            propertiesWatcher.shutdown();
+        }
+        metrics.unregisterMBeans();
+        provider.shutdown();
+        started = false;
+    }
+
+    /**
+     * Fire the job on a new cron schedule from now on.
+     *
+     * @param jobName      The name of the job.
+     * @param scheduleSpec The new schedule in cron format, or the name of one in /scheduler.properties.
+     * @return false if there is no such job.
+     * @throws SchedulerConfigurationException if the schedule is not valid.
+     */
+    public synchronized boolean reschedule(final String jobName, final String scheduleSpec) {
+        final JobEntry entry = jobs.get(jobName);
+        if (entry == null) {
+            return false;
+        }
+        final CronSchedule schedule = compile(jobName, lookupNamedScheduleIfNecessary(scheduleSpec));
+        log.info("Rescheduling " + jobName + " to '" + schedule + "'");
+        unschedule(entry);
+        entry.setSchedule(schedule, isNamed(scheduleSpec) ? scheduleSpec : null,
+                readMisfire(entry.qualifier, MisfirePolicy.FIRE_NOW), System.currentTimeMillis());
+        submit(entry);
+        return true;
+    }
+
+    /**
+     * Fire the job every <code>interval</code> units, from the next whole second.
+     *
+     * @param jobName  The name of the job.
+     * @param unit     The unit of the interval.
+     * @param interval The number of units between firings.
+     * @return false if there is no such job.
+     * @throws SchedulerConfigurationException if the interval is not positive.
+     */
+    public synchronized boolean reschedule(final String jobName, final TimeUnit unit, final int interval) {
+        final JobEntry entry = jobs.get(jobName);
+        if (entry == null) {
+            return false;
+        }
+        if (interval < 1) {
+            throw new SchedulerConfigurationException("Can't fire " + jobName + " every " + interval + " " + unit);
+        }
+        log.info("Rescheduling " + jobName + " to every " + interval + " " + unit);
+        unschedule(entry);
+        entry.setInterval(unit, interval, readMisfire(entry.qualifier, MisfirePolicy.SKIP),
+                jitteredStartTime(jobName, entry.qualifier, unit, interval, nextSecond()));
+        submit(entry);
+        return true;
+    }
+
+    /**
+     * Stop firing the job until it is resumed.
+     *
+     * @param jobName The name of the job.
+     * @return false if there is no such job.
+     */
+    public synchronized boolean pause(final String jobName) {
+        final JobEntry entry = jobs.get(jobName);
+        if (entry == null) {
+            return false;
+        }
+        if (!entry.paused) {
+            log.info("Pausing " + jobName);
+            unschedule(entry);
+            entry.paused = true;
+        }
+        return true;
+    }
+
+    /**
+     * Start firing a paused job again. An @Every job carries on in the same phase as before
+     * rather than from now, and the firings it missed while it was paused are not made up.
+     *
+     * @param jobName The name of the job.
+     * @return false if there is no such job.
+     */
+    public synchronized boolean resume(final String jobName) {
+        final JobEntry entry = jobs.get(jobName);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.paused) {
+            log.info("Resuming " + jobName);
+            entry.paused = false;
+            entry.catchUpStartTime(System.currentTimeMillis());
+            submit(entry);
+        }
+        return true;
+    }
+
+    /**
+     * Stop firing the job for good, and forget its metrics. A firing which is already running
+     * is left to finish.
+     *
+     * @param jobName The name of the job.
+     * @return false if there is no such job.
+     */
+    public synchronized boolean cancel(final String jobName) {
+        final JobEntry entry = jobs.remove(jobName);
+        if (entry == null) {
+            return false;
+        }
+        log.info("Cancelling " + jobName);
+        unschedule(entry);
+        metrics.unregister(jobName);
+        return true;
+    }
+
+    /**
+     * @param jobName The name of the job.
+     * @return true if the job exists and is paused.
+     */
+    public boolean isPaused(final String jobName) {
+        final JobEntry entry = jobs.get(jobName);
+        return entry != null && entry.paused;
+    }
+
+    /**
+     * @return the names of all of the scheduled jobs, including the paused ones.
+     */
+    public Set<String> getJobNames() {
+        return Collections.unmodifiableSet(jobs.keySet());
+    }
+
+    /**
+     * Reschedule the jobs whose named schedules have changed since they were scheduled (eg: after
+     * /scheduler.properties has been reloaded), leaving all of the others alone. A named schedule
+     * which has gone missing or is not valid is logged, and the job keeps its current schedule.
+     *
+     * @return the names of the jobs which were rescheduled.
+     */
+    synchronized List<String> reloadNamedSchedules() {
+        final List<String> rescheduled = new ArrayList<String>();
+        for (JobEntry entry : jobs.values()) {
+            if (entry.scheduleName == null) {
+                continue;
+            }
+            final String spec = properties.getScheduleProperties().getProperty(entry.scheduleName);
+            if (StringUtils.isBlank(spec)) {
+                log.warn("Named schedule '" + entry.scheduleName + "' of " + entry.jobName + " has been removed from "
+                        + SchedulePropertiesManager.SCHEDULE_PROPERTIES_PATH + ", leaving it on '" + entry.schedule
+                        + "'");
+                continue;
+            }
+            if (spec.trim().equals(entry.schedule.getExpression().trim())) {
+                continue;
+            }
+            final CronSchedule schedule;
+            try {
+                schedule = CronSchedule.compile(spec.trim());
+            } catch (ParseException ex) {
+                log.error("Error parsing schedule '" + spec + "' of " + entry.jobName + ", leaving it on '"
+                        + entry.schedule + "'", ex);
+                continue;
+            }
+            log.info("Named schedule '" + entry.scheduleName + "' has changed, rescheduling " + entry.jobName
+                    + " to '" + schedule + "'");
+            unschedule(entry);
+            entry.setSchedule(schedule, entry.scheduleName, entry.misfire, System.currentTimeMillis());
+            submit(entry);
+            rescheduled.add(entry.jobName);
+        }
+        return rescheduled;
+    }
+
+    /**
+     * Set up the schedule of an event. The job which fires the event is bound to the given
+     * qualifier, which will usually be an instance of @Scheduled or @Every, or some other
+     * binding type with one of those as a meta-annotation.
+     *
+     * @param payload   The schedule specification in cron format, plus the qualifier annotations and event
+     *                  payload type.
+     * @param startTime The time to start the schedule.
+     */
+    synchronized void schedule(final ScheduledQualifiedEventPayload payload, final Date startTime) {
+        final String name = payload.getJobName();
+        log.info("Scheduling trigger " + name + " for " + payload);
+
+        final Annotation qualifier = payload.getQualifier();
+        final JobEntry entry = new JobEntry(name, qualifier, createBoundJob(name, qualifier,
+                payload.getPayloadType()), payload.isClustered());
+        if (payload.isInterval()) {
+            entry.setInterval(payload.getRepeatUnit(), payload.getRepeatInterval(),
+                    readMisfire(qualifier, MisfirePolicy.SKIP), jitteredStartTime(name, qualifier,
+                    payload.getRepeatUnit(), payload.getRepeatInterval(), startTime.getTime()));
+        } else {
+            final Scheduled scheduled = bindings.getScheduled(qualifier);
+            entry.setSchedule(compile(name, payload.getScheduleSpec()),
+                    scheduled != null && isNamed(scheduled.value()) ? scheduled.value() : null,
+                    readMisfire(qualifier, MisfirePolicy.FIRE_NOW), startTime.getTime());
+        }
+        jobs.put(name, entry);
+        submit(entry);
+    }
+
+    /**
+     * @param qualifier A qualifier of an observed event.
+     * @return the schedule of the event, or null if the qualifier isn't for a scheduled event.
+     * @throws SchedulerConfigurationException if the event has a named schedule which can't be found.
+     */
+    ScheduledQualifiedEventPayload createPayload(final Annotation qualifier) {
+        final Scheduled schedBinding = bindings.getScheduled(qualifier);
+        final Every everyBinding = bindings.getEvery(qualifier);
+        ScheduledQualifiedEventPayload payload = null;
+        // if we've found s scheduled event, record its bindings against
+        // the cron formatted schedule specification so that it can be fired according
+        // to the apropriate schedule.
+        if (schedBinding != null) {
+            final String cronScheduleSpec = lookupNamedScheduleIfNecessary(schedBinding.value());
+            payload = new ScheduledQualifiedEventPayload(cronScheduleSpec, qualifier, ScheduledEventJob.class,
+                    schedBinding.clustered());
+        }
+        if (everyBinding != null) {
+            payload = createEveryPayload(qualifier, everyBinding);
+        }
+        return payload;
+    }
+
+    /**
+     * Inspects the given @Every binding and extracts its settings into a new #{@link ScheduledQualifiedEventPayload}.
+     *
+     * @param qualifier    The qualifier to fire the event with: the @Every binding itself, or a qualifier
+     *                     with it as a meta-annotation, whose other meta-annotations configure the job.
+     * @param everyBinding
+     * @return a fully populated #{@link ScheduledQualifiedEventPayload}.
+     */
+    static ScheduledQualifiedEventPayload createEveryPayload(final Annotation qualifier, final Every everyBinding) {
+        Class jobClass = null;
+        switch (everyBinding.value()) {
+            case MILLISECOND:
+                jobClass = MillisecondJob.class;
+                break;
+            case SECOND:
+                jobClass = SecondJob.class;
+                break;
+            case MINUTE:
+                jobClass = MinuteJob.class;
+                break;
+            case HOUR:
+                jobClass = HourJob.class;
+                break;
+            case DAY:
+                jobClass = DayJob.class;
+                break;
+            case WEEK:
+                jobClass = WeekJob.class;
+        }
+        return new ScheduledQualifiedEventPayload(qualifier, everyBinding, jobClass);
+    }
+
+    private void submit(final JobEntry entry) {
+        if (entry.paused) {
+            return;
+        }
+        if (entry.schedule == null) {
+            provider.scheduleInterval(entry.jobName, entry.job, entry.unit, entry.interval, entry.clustered,
+                    entry.misfire, new Date(entry.startTime));
+        } else {
+            provider.scheduleCron(entry.jobName, entry.job, entry.schedule, entry.clustered, entry.misfire,
+                    new Date(entry.startTime));
+        }
+    }
+
+    private void unschedule(final JobEntry entry) {
+        if (!entry.paused) {
+            provider.unschedule(entry.jobName);
+        }
+    }
+
+    private static long nextSecond() {
+        return (System.currentTimeMillis() / 1000L + 1) * 1000L;
+    }
+
+    private long jitteredStartTime(final String jobName, final Annotation qualifier, final TimeUnit unit,
+            final int interval, final long startTime) {
+        final long maxJitter = JitterConfiguration.readMaxJitter(properties, qualifier,
+                bindings.getMetaAnnotation(qualifier, Jitter.class));
+        final long jitter = JitterConfiguration.offset(jobName, maxJitter, interval * unit.getMillis());
+        if (jitter > 0) {
+            log.info("Starting " + jobName + " " + jitter + "ms later than the other events, to spread them out");
+        }
+        return startTime + jitter;
+    }
+
+    private MisfireConfiguration readMisfire(final Annotation qualifier, final MisfirePolicy defaultPolicy) {
+        return MisfireConfiguration.read(properties, qualifier, bindings.getMetaAnnotation(qualifier, Misfire.class),
+                defaultPolicy);
+    }
+
+    private static CronSchedule compile(final String jobName, final String scheduleSpec) {
+        try {
+            return CronSchedule.compile(scheduleSpec);
+        } catch (ParseException ex) {
+            throw new SchedulerConfigurationException("Error parsing schedule '" + scheduleSpec + "' of " + jobName,
+                    ex);
+        }
+    }
+
+    /**
+     * If the given String is already a schedule then just return it, otherwise check the
+     * scheduler.properties file for schedule spec with the given name and return that.
+     * @param scheduleSpec
+     * @return
+     * @throws SchedulerConfigurationException
+     */
+    private String lookupNamedScheduleIfNecessary(final String scheduleSpec)
+            throws SchedulerConfigurationException {
+        final String cronScheduleSpec;
+
+        if (!isNamed(scheduleSpec)) {
+            cronScheduleSpec = scheduleSpec;
+        } else {
+            cronScheduleSpec = properties.getScheduleProperties().getProperty(scheduleSpec);
+
+            if (StringUtils.isEmpty(cronScheduleSpec)) {
+                throw new SchedulerConfigurationException("Found empty or missing cron definition for named scheule '"
+                        + scheduleSpec + "'. Should be specified in the file "
+                        + SchedulePropertiesManager.SCHEDULE_PROPERTIES_PATH
+                        + " on the classpath.");
+            }
+        }
+
+        return cronScheduleSpec;
+    }
+
+    /**
+     * @return true if the given schedule is the name of one in /scheduler.properties rather than a cron expression.
+     */
+    private static boolean isNamed(final String scheduleSpec) {
+        return !scheduleSpec.contains(" ");
+    }
+
+    private AbstractTimeEventJob createBoundJob(final String jobName, final Annotation qualifier,
+            final Class jobKlass) {
+        final AbstractTimeEventJob job;
+        try {
+            job = (AbstractTimeEventJob) jobKlass.newInstance();
+        } catch (InstantiationException ex) {
+            throw new SchedulerInitialisationException("Could not create job " + jobName, ex);
+        } catch (IllegalAccessException ex) {
+            throw new SchedulerInitialisationException("Could not create job " + jobName, ex);
+        }
+        job.bind(manager, qualifier, metrics.register(jobName, String.valueOf(qualifier)));
+        final ConcurrencyConfiguration concurrency = ConcurrencyConfiguration.read(properties, qualifier,
+                bindings.getMetaAnnotation(qualifier, Concurrency.class),
+                bindings.getMetaAnnotation(qualifier, ParallelObservers.class));
+        if (concurrency.getPolicy() != ConcurrencyPolicy.ALLOW || concurrency.isParallelObservers()) {
+            log.info("Concurrent executions of " + jobName + ": " + concurrency);
+        }
+        job.setConcurrency(concurrency.getPolicy(), concurrency.getMaxConcurrent());
+        if (concurrency.isParallelObservers()) {
+            job.setObserverExecutor(getAsynchronousExecutor().getExecutorService(qualifier));
+        }
+        return job;
+    }
+
+    /**
+     * @return the bean which runs asynchronous work, and the observers of scheduled events
+     * which are notified in parallel.
+     */
+    private AsynchronousExecutor getAsynchronousExecutor() {
+        final Bean<?> bean = manager.resolve(manager.getBeans(AsynchronousExecutor.class));
+        if (bean == null) {
+            throw new SchedulerInitialisationException("Observers of scheduled events can't be notified in parallel "
+                    + "without the " + AsynchronousExecutor.class.getSimpleName() + " bean");
+        }
+        return (AsynchronousExecutor) manager.getReference(bean, AsynchronousExecutor.class,
+                manager.createCreationalContext(bean));
+    }
+
+    /**
+     * A scheduled job, and its current schedule: either a cron schedule or an interval.
+     */
+    private static class JobEntry {
+
+        private final String jobName;
+        private final Annotation qualifier;
+        private final AbstractTimeEventJob job;
+        private final boolean clustered;
+        private CronSchedule schedule;
+        // the name of the schedule in /scheduler.properties, if it has one
+        private String scheduleName;
+        private TimeUnit unit;
+        private int interval;
+        private MisfireConfiguration misfire;
+        private long startTime;
+        private volatile boolean paused;
+
+        JobEntry(final String jobName, final Annotation qualifier, final AbstractTimeEventJob job,
+                final boolean clustered) {
+            this.jobName = jobName;
+            this.qualifier = qualifier;
+            this.job = job;
+            this.clustered = clustered;
+        }
+
+        void setSchedule(final CronSchedule schedule, final String scheduleName, final MisfireConfiguration misfire,
+                final long startTime) {
+            this.schedule = schedule;
+            this.scheduleName = scheduleName;
+            this.unit = null;
+            this.misfire = misfire;
+            this.startTime = startTime;
+        }
+
+        void setInterval(final TimeUnit unit, final int interval, final MisfireConfiguration misfire,
+                final long startTime) {
+            this.schedule = null;
+            this.scheduleName = null;
+            this.unit = unit;
+            this.interval = interval;
+            this.misfire = misfire;
+            this.startTime = startTime;
+        }
+
+        /**
+         * Move the start time up to the first firing from now, keeping an interval in phase.
+         */
+        void catchUpStartTime(final long now) {
+            if (startTime >= now) {
+                return;
+            }
+            if (schedule != null) {
+                startTime = now;
+            } else {
+                final long period = interval * unit.getMillis();
+                startTime += ((now - startTime) / period + 1) * period;
+            }
+        }
+    }
+}
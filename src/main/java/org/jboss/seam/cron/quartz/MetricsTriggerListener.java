@@ -0,0 +1,125 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.seam.cron.annotations.MisfirePolicy;
+import org.jboss.seam.cron.metrics.JobMetrics;
+import org.jboss.seam.cron.metrics.SchedulerMetrics;
+import org.jboss.seam.cron.spi.CatchUpExecutor;
+import org.jboss.seam.cron.spi.MisfireConfiguration;
+import org.jboss.seam.cron.spi.TimeEventJob;
+import org.quartz.JobExecutionContext;
+import org.quartz.Trigger;
+import org.quartz.TriggerListener;
+
+/**
+ * Counts the misfires of the scheduled events observed on this node, and catches up on the
+ * missed firings of those with the CATCH_UP misfire policy (which Quartz can't do itself).
+ * The rest of the metrics are recorded by the jobs themselves.
+ *
+ * @author Peter Royle
+ */
+public class MetricsTriggerListener implements TriggerListener {
+
+    private final SchedulerMetrics metrics;
+    private final CatchUpExecutor catchUp;
+    // the misfire settings of the jobs observed on this node, by trigger name
+    private final ConcurrentMap<String, MisfireHandling> handling = new ConcurrentHashMap<String, MisfireHandling>();
+
+    public MetricsTriggerListener(final SchedulerMetrics metrics, final CatchUpExecutor catchUp) {
+        this.metrics = metrics;
+        this.catchUp = catchUp;
+    }
+
+    /**
+     * Say what is done when the given trigger misfires.
+     *
+     * @param triggerName The name of the trigger.
+     * @param job         The job which the trigger fires.
+     * @param misfire     The misfire settings of the job.
+     */
+    public void register(final String triggerName, final TimeEventJob job, final MisfireConfiguration misfire) {
+        handling.put(triggerName, new MisfireHandling(job, misfire));
+    }
+
+    /**
+     * Forget the misfire settings of the given trigger.
+     *
+     * @param triggerName The name of the trigger.
+     */
+    public void unregister(final String triggerName) {
+        handling.remove(triggerName);
+    }
+
+    public String getName() {
+        return MetricsTriggerListener.class.getName();
+    }
+
+    public void triggerFired(final Trigger trigger, final JobExecutionContext context) {
+    }
+
+    public boolean vetoJobExecution(final Trigger trigger, final JobExecutionContext context) {
+        return false;
+    }
+
+    public void triggerMisfired(final Trigger trigger) {
+        // in a cluster the misfire may be noticed by a node which doesn't observe the event
+        final MisfireHandling misfireHandling = handling.get(trigger.getName());
+        final MisfirePolicy policy = misfireHandling == null ? MisfirePolicy.SKIP
+                : misfireHandling.misfire.getPolicy();
+        final JobMetrics jobMetrics = metrics.getJobMetrics(trigger.getName());
+        if (jobMetrics != null) {
+            jobMetrics.misfired(policy);
+        }
+        if (policy == MisfirePolicy.CATCH_UP) {
+            // the trigger hasn't been moved on yet, so its next firing is the first one missed
+            final long now = System.currentTimeMillis();
+            final int max = misfireHandling.misfire.getMaxCatchUp();
+            final LinkedList<Long> missed = new LinkedList<Long>();
+            for (Date fireTime = trigger.getNextFireTime(); fireTime != null && fireTime.getTime() <= now;
+                    fireTime = trigger.getFireTimeAfter(fireTime)) {
+                missed.add(fireTime.getTime());
+                if (missed.size() > max) {
+                    missed.removeFirst();
+                }
+            }
+            catchUp.replay(trigger.getName(), misfireHandling.job, missed);
+        }
+    }
+
+    public void triggerComplete(final Trigger trigger, final JobExecutionContext context, final int triggerInstructionCode) {
+    }
+
+    /**
+     * The job fired by a trigger and what to do when it misfires.
+     */
+    private static class MisfireHandling {
+
+        private final TimeEventJob job;
+        private final MisfireConfiguration misfire;
+
+        MisfireHandling(final TimeEventJob job, final MisfireConfiguration misfire) {
+            this.job = job;
+            this.misfire = misfire;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.jboss.seam.cron.exception.SchedulerConfigurationException;
+import org.jboss.seam.cron.spi.SchedulerConfiguration;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.quartz.impl.jdbcjobstore.StdJDBCDelegate;
+import org.quartz.simpl.RAMJobStore;
+
+/**
+ * <p>
+ * The settings of the Quartz scheduler which fires scheduled events, as read from the
+ * /scheduler.properties file (or overridden by system properties of the same name). On top of
+ * the thread, misfire and reload settings described by #{@link SchedulerConfiguration}:
+ * </p>
+ * <pre>
+ * org.jboss.seam.cron.scheduler.jobStore=org.quartz.simpl.RAMJobStore
+ * # one trigger per time unit for all of the &#064;Every events, rather than one each
+ * org.jboss.seam.cron.scheduler.coalesce=false
+ * </pre>
+ * <p>
+ * To share the scheduled events between the nodes of a cluster, so that each event is fired
+ * on only one node, point every node at the same database (which must contain the standard
+ * Quartz tables) and give each node its own instance id (defaults to the host name):
+ * </p>
+ * <pre>
+ * org.jboss.seam.cron.scheduler.clustered=true
+ * org.jboss.seam.cron.scheduler.name=SeamCronScheduler
+ * org.jboss.seam.cron.scheduler.instanceId=node1
+ * org.jboss.seam.cron.scheduler.dataSource.jndiUrl=java:/CronDS
+ * # ... or, instead of JNDI (requires commons-dbcp)
+ * org.jboss.seam.cron.scheduler.dataSource.driver=org.h2.Driver
+ * org.jboss.seam.cron.scheduler.dataSource.url=jdbc:h2:tcp://dbhost/cron
+ * org.jboss.seam.cron.scheduler.dataSource.user=sa
+ * org.jboss.seam.cron.scheduler.dataSource.password=
+ * org.jboss.seam.cron.scheduler.dataSource.maxConnections=10
+ * org.jboss.seam.cron.scheduler.driverDelegate=org.quartz.impl.jdbcjobstore.StdJDBCDelegate
+ * org.jboss.seam.cron.scheduler.tablePrefix=QRTZ_
+ * org.jboss.seam.cron.scheduler.clusterCheckinInterval=7500
+ * </pre>
+ *
+ * @author Peter Royle
+ */
+public class QuartzConfiguration extends SchedulerConfiguration {
+
+    public static final String JOB_STORE = "jobStore";
+    public static final String COALESCE = "coalesce";
+    public static final String INSTANCE_ID = "instanceId";
+    public static final String DATA_SOURCE_JNDI_URL = "dataSource.jndiUrl";
+    public static final String DATA_SOURCE_DRIVER = "dataSource.driver";
+    public static final String DATA_SOURCE_URL = "dataSource.url";
+    public static final String DATA_SOURCE_USER = "dataSource.user";
+    public static final String DATA_SOURCE_PASSWORD = "dataSource.password";
+    public static final String DATA_SOURCE_MAX_CONNECTIONS = "dataSource.maxConnections";
+    public static final String DATA_SOURCE_VALIDATION_QUERY = "dataSource.validationQuery";
+    public static final String DRIVER_DELEGATE = "driverDelegate";
+    public static final String TABLE_PREFIX = "tablePrefix";
+    public static final String CLUSTER_CHECKIN_INTERVAL = "clusterCheckinInterval";
+    private static final int DEFAULT_MAX_CONNECTIONS = 10;
+    private static final long DEFAULT_CLUSTER_CHECKIN_INTERVAL = 7500;
+    private final String jobStoreClass;
+    private final boolean coalesce;
+    private final String instanceId;
+    private final String dataSourceJndiUrl;
+    private final String dataSourceDriver;
+    private final String dataSourceUrl;
+    private final String dataSourceUser;
+    private final String dataSourcePassword;
+    private final int dataSourceMaxConnections;
+    private final String dataSourceValidationQuery;
+    private final String driverDelegateClass;
+    private final String tablePrefix;
+    private final long clusterCheckinInterval;
+
+    private QuartzConfiguration(final SchedulePropertiesManager props) {
+        super(props);
+        coalesce = props.getBooleanProperty(PROPERTY_PREFIX + COALESCE, false);
+        jobStoreClass = props.getProperty(PROPERTY_PREFIX + JOB_STORE,
+                isClustered() ? JobStoreTX.class.getName() : RAMJobStore.class.getName());
+        dataSourceJndiUrl = props.getProperty(PROPERTY_PREFIX + DATA_SOURCE_JNDI_URL, null);
+        dataSourceDriver = props.getProperty(PROPERTY_PREFIX + DATA_SOURCE_DRIVER, null);
+        dataSourceUrl = props.getProperty(PROPERTY_PREFIX + DATA_SOURCE_URL, null);
+        dataSourceUser = props.getProperty(PROPERTY_PREFIX + DATA_SOURCE_USER, "");
+        dataSourcePassword = props.getProperty(PROPERTY_PREFIX + DATA_SOURCE_PASSWORD, "");
+        dataSourceMaxConnections = props.getIntProperty(PROPERTY_PREFIX + DATA_SOURCE_MAX_CONNECTIONS,
+                DEFAULT_MAX_CONNECTIONS);
+        dataSourceValidationQuery = props.getProperty(PROPERTY_PREFIX + DATA_SOURCE_VALIDATION_QUERY, null);
+        driverDelegateClass = props.getProperty(PROPERTY_PREFIX + DRIVER_DELEGATE, StdJDBCDelegate.class.getName());
+        tablePrefix = props.getProperty(PROPERTY_PREFIX + TABLE_PREFIX, "QRTZ_");
+        clusterCheckinInterval = props.getLongProperty(PROPERTY_PREFIX + CLUSTER_CHECKIN_INTERVAL,
+                DEFAULT_CLUSTER_CHECKIN_INTERVAL);
+
+        String id = props.getProperty(PROPERTY_PREFIX + INSTANCE_ID, null);
+        if (isClustered()) {
+            if (dataSourceJndiUrl == null && dataSourceUrl == null) {
+                throw new SchedulerConfigurationException("A clustered scheduler needs a database. Please set either "
+                        + PROPERTY_PREFIX + DATA_SOURCE_JNDI_URL + " or " + PROPERTY_PREFIX + DATA_SOURCE_URL);
+            }
+            if (id == null) {
+                try {
+                    id = InetAddress.getLocalHost().getHostName();
+                } catch (UnknownHostException ex) {
+                    throw new SchedulerConfigurationException("Could not work out the host name to use as the id of this "
+                            + "node. Please set " + PROPERTY_PREFIX + INSTANCE_ID, ex);
+                }
+            }
+        }
+        instanceId = id;
+    }
+
+    /**
+     * Read the Quartz scheduler settings from /scheduler.properties.
+     *
+     * @param props The properties to read from.
+     * @return the scheduler configuration.
+     */
+    public static QuartzConfiguration read(final SchedulePropertiesManager props) {
+        return new QuartzConfiguration(props);
+    }
+
+    public String getJobStoreClass() {
+        return jobStoreClass;
+    }
+
+    /**
+     * @return true if all of the @Every events of each time unit (other than MILLISECOND) are
+     *         fired by a single trigger.
+     */
+    public boolean isCoalesce() {
+        return coalesce;
+    }
+
+    /**
+     * @return the id of this node in the cluster, which must be unique within the cluster
+     * and the same every time the node starts.
+     */
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public String getDataSourceJndiUrl() {
+        return dataSourceJndiUrl;
+    }
+
+    public String getDataSourceDriver() {
+        return dataSourceDriver;
+    }
+
+    public String getDataSourceUrl() {
+        return dataSourceUrl;
+    }
+
+    public String getDataSourceUser() {
+        return dataSourceUser;
+    }
+
+    public String getDataSourcePassword() {
+        return dataSourcePassword;
+    }
+
+    public int getDataSourceMaxConnections() {
+        return dataSourceMaxConnections;
+    }
+
+    public String getDataSourceValidationQuery() {
+        return dataSourceValidationQuery;
+    }
+
+    public String getDriverDelegateClass() {
+        return driverDelegateClass;
+    }
+
+    public String getTablePrefix() {
+        return tablePrefix;
+    }
+
+    public long getClusterCheckinInterval() {
+        return clusterCheckinInterval;
+    }
+
+    @Override
+    public String toString() {
+        return "QuartzConfiguration{" + super.toString() + ", jobStoreClass=" + jobStoreClass
+                + ", coalesce=" + coalesce + (isClustered() ? ", name=" + getName() + ", instanceId=" + instanceId : "")
+                + '}';
+    }
+}
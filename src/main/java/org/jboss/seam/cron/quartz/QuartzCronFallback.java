@@ -0,0 +1,45 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.jboss.seam.cron.spi.CronFallback;
+import org.quartz.CronExpression;
+
+/**
+ * Leaves the cron expressions which #{@link org.jboss.seam.cron.spi.CronSchedule} doesn't compile
+ * to Quartz's #{@link CronExpression}.
+ *
+ * @author Peter Royle
+ */
+public class QuartzCronFallback implements CronFallback {
+
+    public Expression parse(final String expression, final TimeZone timeZone) throws ParseException {
+        final CronExpression quartzExpression = new CronExpression(expression);
+        quartzExpression.setTimeZone(timeZone);
+        return new Expression() {
+
+            public long getNextFireTime(final long after) {
+                final Date next = quartzExpression.getNextValidTimeAfter(new Date(after));
+                return next == null ? -1 : next.getTime();
+            }
+        };
+    }
+}
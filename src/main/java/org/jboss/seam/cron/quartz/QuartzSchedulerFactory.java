@@ -0,0 +1,159 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.sql.SQLException;
+import java.util.UUID;
+
+import org.jboss.logging.Logger;
+import org.jboss.seam.cron.annotations.ThreadMode;
+import org.jboss.seam.cron.exception.SchedulerConfigurationException;
+import org.jboss.seam.cron.util.VirtualThreads;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.DirectSchedulerFactory;
+import org.quartz.impl.jdbcjobstore.InvalidConfigurationException;
+import org.quartz.impl.jdbcjobstore.JobStoreSupport;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.simpl.SimpleThreadPool;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.ThreadPool;
+import org.quartz.utils.ConnectionProvider;
+import org.quartz.utils.DBConnectionManager;
+import org.quartz.utils.JNDIConnectionProvider;
+import org.quartz.utils.PoolingConnectionProvider;
+
+/**
+ * Creates the Quartz schedulers used to fire scheduled events, as described by a
+ * #{@link QuartzConfiguration}. The schedulers are created but not started.
+ *
+ * @author Peter Royle
+ */
+public class QuartzSchedulerFactory {
+
+    private static final String SCHEDULER_NAME_PREFIX = "SeamCronScheduler";
+    private static final Logger log = Logger.getLogger(QuartzSchedulerFactory.class);
+    private final QuartzConfiguration config;
+
+    public QuartzSchedulerFactory(final QuartzConfiguration config) {
+        this.config = config;
+    }
+
+    /**
+     * Create a scheduler which is private to this node (and this application), with a unique
+     * name so that it cannot clash with any other scheduler in the same JVM.
+     *
+     * @return a new, unstarted scheduler.
+     * @throws SchedulerException
+     */
+    public Scheduler createLocalScheduler() throws SchedulerException {
+        final String instanceId = UUID.randomUUID().toString();
+        final JobStore jobStore = config.isClustered() ? createRAMJobStore() : createJobStore();
+        return createScheduler(SCHEDULER_NAME_PREFIX + "_" + instanceId, instanceId, jobStore);
+    }
+
+    /**
+     * Create a scheduler which shares its jobs with the schedulers of the same name on the
+     * other nodes of the cluster, using a JDBC job store.
+     *
+     * @return a new, unstarted scheduler.
+     * @throws SchedulerException
+     */
+    public Scheduler createClusteredScheduler() throws SchedulerException {
+        final JobStore jobStore = createJobStore();
+        if (!(jobStore instanceof JobStoreSupport)) {
+            throw new SchedulerConfigurationException("A clustered scheduler needs a JDBC job store, but "
+                    + config.getJobStoreClass() + " was configured");
+        }
+        final JobStoreSupport jdbcStore = (JobStoreSupport) jobStore;
+        final String dataSourceName = config.getName() + "_" + config.getInstanceId();
+        DBConnectionManager.getInstance().addConnectionProvider(dataSourceName, createConnectionProvider());
+        jdbcStore.setDataSource(dataSourceName);
+        jdbcStore.setTablePrefix(config.getTablePrefix());
+        jdbcStore.setInstanceName(config.getName());
+        jdbcStore.setInstanceId(config.getInstanceId());
+        jdbcStore.setIsClustered(true);
+        jdbcStore.setClusterCheckinInterval(config.getClusterCheckinInterval());
+        try {
+            jdbcStore.setDriverDelegateClass(config.getDriverDelegateClass());
+        } catch (InvalidConfigurationException ex) {
+            throw new SchedulerConfigurationException("Invalid driver delegate " + config.getDriverDelegateClass(), ex);
+        }
+        log.info("Joining scheduler cluster " + config.getName() + " as " + config.getInstanceId());
+        // the cluster is identified by the job store, so the local name only has to be unique within the JVM
+        return createScheduler(config.getName() + "_" + config.getInstanceId(), config.getInstanceId(), jdbcStore);
+    }
+
+    private Scheduler createScheduler(final String name, final String instanceId, final JobStore jobStore)
+            throws SchedulerException {
+        final ThreadPool threadPool = createThreadPool();
+        threadPool.initialize();
+        final DirectSchedulerFactory schedulerFactory = DirectSchedulerFactory.getInstance();
+        schedulerFactory.createScheduler(name, instanceId, threadPool, jobStore);
+        return schedulerFactory.getScheduler(name);
+    }
+
+    private ThreadPool createThreadPool() {
+        if (config.getThreadMode() == ThreadMode.VIRTUAL) {
+            if (VirtualThreads.isSupported()) {
+                log.info("Scheduled observers will be run on virtual threads");
+                return new VirtualThreadPool(config.getThreadCount());
+            }
+            log.warn("Virtual threads are not supported by this JVM, running scheduled observers on platform threads");
+        }
+        return new SimpleThreadPool(config.getThreadCount(), config.getThreadPriority());
+    }
+
+    private JobStore createRAMJobStore() {
+        final RAMJobStore jobStore = new RAMJobStore();
+        jobStore.setMisfireThreshold(config.getMisfireThreshold());
+        return jobStore;
+    }
+
+    private JobStore createJobStore() {
+        final JobStore jobStore;
+        try {
+            jobStore = (JobStore) Class.forName(config.getJobStoreClass(), true,
+                    QuartzSchedulerFactory.class.getClassLoader()).newInstance();
+        } catch (Exception ex) {
+            throw new SchedulerConfigurationException("Could not create job store " + config.getJobStoreClass(), ex);
+        }
+        if (jobStore instanceof RAMJobStore) {
+            ((RAMJobStore) jobStore).setMisfireThreshold(config.getMisfireThreshold());
+        } else if (jobStore instanceof JobStoreSupport) {
+            ((JobStoreSupport) jobStore).setMisfireThreshold(config.getMisfireThreshold());
+        }
+        return jobStore;
+    }
+
+    private ConnectionProvider createConnectionProvider() {
+        if (config.getDataSourceJndiUrl() != null) {
+            return new JNDIConnectionProvider(config.getDataSourceJndiUrl(), false);
+        }
+        try {
+            return new PoolingConnectionProvider(config.getDataSourceDriver(), config.getDataSourceUrl(),
+                    config.getDataSourceUser(), config.getDataSourcePassword(),
+                    config.getDataSourceMaxConnections(), config.getDataSourceValidationQuery());
+        } catch (SQLException ex) {
+            throw new SchedulerConfigurationException("Could not connect to the scheduler database at "
+                    + config.getDataSourceUrl(), ex);
+        } catch (NoClassDefFoundError err) {
+            throw new SchedulerConfigurationException("Connecting to the scheduler database by URL requires "
+                    + "commons-dbcp. Either add it to the application or use a JNDI data source instead.", err);
+        }
+    }
+}
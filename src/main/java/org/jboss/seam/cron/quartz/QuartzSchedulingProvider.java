@@ -0,0 +1,486 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.logging.Logger;
+import org.jboss.seam.cron.annotations.MisfirePolicy;
+import org.jboss.seam.cron.events.TimeUnit;
+import org.jboss.seam.cron.exception.SchedulerConfigurationException;
+import org.jboss.seam.cron.exception.SchedulerInitialisationException;
+import org.jboss.seam.cron.metrics.SchedulerMetrics;
+import org.jboss.seam.cron.quartz.jobs.TickerJob;
+import org.jboss.seam.cron.spi.CatchUpExecutor;
+import org.jboss.seam.cron.spi.CronSchedule;
+import org.jboss.seam.cron.spi.MisfireConfiguration;
+import org.jboss.seam.cron.spi.SchedulingProvider;
+import org.jboss.seam.cron.spi.TimeEventJob;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+import org.quartz.CronTrigger;
+import org.quartz.Job;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger;
+
+/**
+ * <p>
+ * Fires scheduled events using Quartz, as configured by #{@link QuartzConfiguration}. This is
+ * the default #{@link SchedulingProvider}, and the only one which can share the events between
+ * the nodes of a cluster.
+ * </p>
+ * <p>
+ * Misfire policies are turned into the triggers' misfire instructions, except for CATCH_UP
+ * which Quartz has no instruction for: the trigger skips ahead and the missed firings are
+ * replayed by the node which notices the misfire (if it observes the event). Note that Quartz
+ * fires an @Every event which misfires with FIRE_NOW straight away and carries on from then,
+ * so the event changes phase. @Every events fired by a ticker (see
+ * #{@link QuartzConfiguration#isCoalesce()}) always skip, and any jitter in their start
+ * times is rounded to whole ticks.
+ * </p>
+ * <p>
+ * The @Scheduled events which only fire on this node get a #{@link CronScheduleTrigger}, which works
+ * out its firings from the compiled #{@link CronSchedule}. Those shared with the rest of the cluster
+ * keep to a plain <code>CronTrigger</code>, which every node can read from the job store.
+ * </p>
+ * <p>
+ * The tickers are set up when the scheduler starts, so @Every events scheduled after that get
+ * triggers of their own. Unscheduling an event which has a trigger of its own deletes the trigger,
+ * which for a clustered event stops it on every node.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+public class QuartzSchedulingProvider
+        implements SchedulingProvider {
+
+    private final BoundJobFactory jobFactory = new BoundJobFactory();
+    // coalesced @Every jobs, by the name of the ticker which will fire them
+    private final Map<String, Ticker> tickers = new TreeMap<String, Ticker>();
+    // the tickers which have been scheduled, by name
+    private final ConcurrentMap<String, TickerJob> tickerJobs = new ConcurrentHashMap<String, TickerJob>();
+    // where to find the next firing of each job
+    private final ConcurrentMap<String, Registration> registrations = new ConcurrentHashMap<String, Registration>();
+    private boolean coalesce;
+    // true if the clustered events go to a shared job store
+    private boolean clusteredStore;
+    private volatile boolean started;
+    private CatchUpExecutor catchUp;
+    private MetricsTriggerListener triggerListener;
+    private Scheduler scheduler;
+    private Scheduler localScheduler;
+    private SchedulerMetrics metrics;
+    private static final Logger log = Logger.getLogger(QuartzSchedulingProvider.class);
+
+    /**
+     * Initialises the scheduler. When clustering is enabled there are two: a clustered one for
+     * the events to be fired on just one node, and a local one for those which must be fired
+     * on every node.
+     *
+     * @param properties The contents of /scheduler.properties.
+     * @param metrics    The metrics to record the firings in.
+     */
+    public void initProvider(final SchedulePropertiesManager properties, final SchedulerMetrics metrics) {
+        final QuartzConfiguration config = QuartzConfiguration.read(properties);
+        log.info("Initialising scheduler using " + config);
+        coalesce = config.isCoalesce();
+        clusteredStore = config.isClustered();
+        try {
+            final QuartzSchedulerFactory schedulerFactory = new QuartzSchedulerFactory(config);
+            localScheduler = schedulerFactory.createLocalScheduler();
+            scheduler = config.isClustered() ? schedulerFactory.createClusteredScheduler() : localScheduler;
+            this.metrics = metrics;
+            catchUp = new CatchUpExecutor(localScheduler.getSchedulerName());
+            triggerListener = new MetricsTriggerListener(metrics, catchUp);
+            for (Scheduler sched : getSchedulers()) {
+                sched.setJobFactory(jobFactory);
+                sched.addGlobalTriggerListener(triggerListener);
+            }
+        } catch (SchedulerException ex) {
+            throw new SchedulerInitialisationException("Error setting up scheduler.", ex);
+        }
+    }
+
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void scheduleInterval(final String jobName, final TimeEventJob job, final TimeUnit unit, final int interval,
+            final boolean clustered, final MisfireConfiguration misfire, final Date startTime) {
+        // a ticker per millisecond would cost far more than the triggers it saves
+        if (coalesce && !started && unit != TimeUnit.MILLISECOND) {
+            if (misfire.getPolicy() != MisfirePolicy.SKIP) {
+                log.info("Ignoring the " + misfire + " misfire policy of " + jobName + ", coalesced @Every events "
+                        + "always skip misfired firings");
+            }
+            addToTicker(jobName, job, unit, interval, clustered, startTime);
+            return;
+        }
+        // as TriggerUtils would make, but for any unit
+        final SimpleTrigger schedTrigger = new SimpleTrigger();
+        schedTrigger.setRepeatCount(SimpleTrigger.REPEAT_INDEFINITELY);
+        schedTrigger.setRepeatInterval(interval * unit.getMillis());
+        schedTrigger.setName(jobName);
+        schedTrigger.setStartTime(startTime);
+        schedTrigger.setMisfireInstruction(misfire.getPolicy() == MisfirePolicy.FIRE_NOW
+                ? SimpleTrigger.MISFIRE_INSTRUCTION_FIRE_NOW
+                : SimpleTrigger.MISFIRE_INSTRUCTION_RESCHEDULE_NEXT_WITH_REMAINING_COUNT);
+        triggerListener.register(jobName, job, misfire);
+        register(jobName, job, clustered ? scheduler : localScheduler, schedTrigger);
+        scheduleJob(clustered ? scheduler : localScheduler, jobName + "-trigger", new TimeEventJobAdapter(job),
+                schedTrigger, null);
+    }
+
+    public void scheduleCron(final String jobName, final TimeEventJob job, final CronSchedule schedule,
+            final boolean clustered, final MisfireConfiguration misfire, final Date startTime) {
+        final String cronSpec = schedule.getExpression();
+        final boolean shared = clustered && clusteredStore;
+        final Trigger schedTrigger;
+        if (shared) {
+            try {
+                // a CronTrigger rather than one of our own, so that every node can read it from the shared job store
+                schedTrigger = new CronTrigger(jobName, QuartzStarter.SCHEDULE_JOB_GROUP, cronSpec);
+            } catch (ParseException ex) {
+                throw new SchedulerConfigurationException("Error parsing schedule '" + cronSpec + "' of " + jobName,
+                        ex);
+            }
+        } else {
+            schedTrigger = new CronScheduleTrigger(jobName, QuartzStarter.SCHEDULE_JOB_GROUP, schedule);
+        }
+        schedTrigger.setStartTime(startTime);
+        schedTrigger.setMisfireInstruction(misfire.getPolicy() == MisfirePolicy.FIRE_NOW
+                ? CronTrigger.MISFIRE_INSTRUCTION_FIRE_ONCE_NOW
+                : CronTrigger.MISFIRE_INSTRUCTION_DO_NOTHING);
+        triggerListener.register(jobName, job, misfire);
+        register(jobName, job, shared ? scheduler : localScheduler, schedTrigger);
+        scheduleJob(shared ? scheduler : localScheduler, jobName + "-trigger", new TimeEventJobAdapter(job),
+                schedTrigger, cronSpec);
+    }
+
+    public boolean unschedule(final String jobName) {
+        final Registration registration = registrations.remove(jobName);
+        if (registration == null) {
+            return false;
+        }
+        if (QuartzStarter.TICKER_JOB_GROUP.equals(registration.triggerGroup)) {
+            removeFromTicker(registration);
+            return true;
+        }
+        triggerListener.unregister(jobName);
+        jobFactory.unbind(jobName + "-trigger");
+        try {
+            registration.target.unscheduleJob(registration.triggerName, registration.triggerGroup);
+        } catch (SchedulerException ex) {
+            throw new SchedulerInitialisationException("Error unscheduling " + jobName, ex);
+        }
+        log.info("Scheduler for " + jobName + " removed");
+        return true;
+    }
+
+    public Set<String> getJobNames() {
+        return Collections.unmodifiableSet(registrations.keySet());
+    }
+
+    public Date getNextFireTime(final String jobName) {
+        final Registration registration = registrations.get(jobName);
+        if (registration == null) {
+            return null;
+        }
+        try {
+            return registration.getNextFireTime();
+        } catch (SchedulerException ex) {
+            log.error("Error looking up the next firing of " + jobName, ex);
+            return null;
+        }
+    }
+
+    public void start() {
+        scheduleTickers();
+        started = true;
+        try {
+            for (Scheduler sched : getSchedulers()) {
+                sched.start();
+            }
+        } catch (SchedulerException ex) {
+            throw new SchedulerInitialisationException("Error starting scheduler.", ex);
+        }
+    }
+
+    public void shutdown() {
+        for (Scheduler sched : getSchedulers()) {
+            try {
+                sched.shutdown();
+            } catch (SchedulerException ex) {
+                log.error("Error shutting down scheduler", ex);
+            }
+        }
+        if (catchUp != null) {
+            catchUp.shutdown();
+        }
+    }
+
+    /**
+     * @return the Quartz scheduler which fires the (clustered) events.
+     */
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    private Set<Scheduler> getSchedulers() {
+        final Set<Scheduler> schedulers = new HashSet<Scheduler>();
+        if (localScheduler != null) {
+            schedulers.add(localScheduler);
+            schedulers.add(scheduler);
+        }
+        return schedulers;
+    }
+
+    /**
+     * Construct the job details and schedule the job to be executed using the given trigger.
+     * The given instance of the job, already bound to its event(s), is the one which will be
+     * executed, so that firing the event involves no further lookups. If the job is already
+     * in a shared job store with the same schedule (ie: another node of the cluster got
+     * there first) then it is left alone, otherwise it is replaced.
+     *
+     * @param target       The scheduler to add the job to.
+     * @param jobName      The name of the job to be executed.
+     * @param boundJob     The instance of the job class to execute.
+     * @param trigger      The trigger representing the schedule of the job.
+     * @param scheduleSpec The cron schedule, if any, to be recorded in the job details.
+     */
+    private void scheduleJob(final Scheduler target, final String jobName, final Job boundJob,
+            final Trigger trigger, final String scheduleSpec) {
+        final Class jobKlass = boundJob.getClass();
+        jobFactory.bind(jobName, boundJob);
+        JobDetail job = new JobDetail(jobName,
+                trigger.getGroup(),
+                jobKlass);
+        job.setJobDataMap(new JobDataMap());
+        job.getJobDataMap().put(QuartzStarter.CRON_SCHEDULE_SPEC, scheduleSpec);
+
+        try {
+            final Trigger existing = target.getTrigger(trigger.getName(), trigger.getGroup());
+            if (existing != null) {
+                final JobDetail existingJob = target.getJobDetail(existing.getJobName(), existing.getJobGroup());
+                if (existingJob != null && jobKlass.equals(existingJob.getJobClass())
+                        && isSameSchedule(existing, trigger)) {
+                    log.info("Scheduler for " + jobName + " already registered");
+                    return;
+                }
+                log.info("Replacing out of date schedule for " + jobName);
+                target.deleteJob(existing.getJobName(), existing.getJobGroup());
+            }
+            try {
+                target.scheduleJob(job, trigger);
+            } catch (ObjectAlreadyExistsException ex) {
+                log.info("Scheduler for " + jobName + " was registered by another node in the meantime");
+                return;
+            }
+        } catch (SchedulerException ex) {
+            throw new SchedulerInitialisationException("Error scheduling " + jobName, ex);
+        }
+        log.info("Scheduler for " + jobName + " initialised");
+    }
+
+    private void register(final String jobName, final TimeEventJob job, final Scheduler target,
+            final Trigger trigger) {
+        registrations.put(jobName, new Registration(job, target, trigger.getName(), trigger.getGroup(), 1, 0, 0));
+    }
+
+    private boolean isSameSchedule(final Trigger existing, final Trigger wanted) {
+        if (existing.getMisfireInstruction() != wanted.getMisfireInstruction()) {
+            return false;
+        }
+        if (existing instanceof CronTrigger && wanted instanceof CronTrigger) {
+            return ((CronTrigger) existing).getCronExpression().equals(((CronTrigger) wanted).getCronExpression());
+        }
+        if (existing instanceof CronScheduleTrigger && wanted instanceof CronScheduleTrigger) {
+            return ((CronScheduleTrigger) existing).getCronExpression()
+                    .equals(((CronScheduleTrigger) wanted).getCronExpression());
+        }
+        if (existing instanceof SimpleTrigger && wanted instanceof SimpleTrigger) {
+            return ((SimpleTrigger) existing).getRepeatInterval() == ((SimpleTrigger) wanted).getRepeatInterval();
+        }
+        return false;
+    }
+
+    /**
+     * Rather than giving the job a trigger of its own, add it to the ticker which fires all
+     * of the @Every events of the same time unit (and scheduler).
+     */
+    private void addToTicker(final String jobName, final TimeEventJob job, final TimeUnit unit, final int interval,
+            final boolean clustered, final Date startTime) {
+        final Scheduler target = clustered ? scheduler : localScheduler;
+        final String tickerName = "Ticker#" + unit + (target != scheduler ? "-local" : "");
+        Ticker ticker = tickers.get(tickerName);
+        if (ticker == null) {
+            ticker = new Ticker(target, unit);
+            tickers.put(tickerName, ticker);
+        }
+        log.info("Adding job with interval " + interval + " to " + tickerName);
+        ticker.intervals.add(interval);
+        ticker.startTimes.add(startTime.getTime());
+        ticker.jobs.add(job);
+        registrations.put(jobName, new Registration(job, target, tickerName, QuartzStarter.TICKER_JOB_GROUP,
+                interval, unit.getMillis(), startTime.getTime()));
+    }
+
+    /**
+     * Take a job out of the ticker which fires it, whether or not the ticker has been scheduled yet.
+     */
+    private void removeFromTicker(final Registration registration) {
+        final TickerJob tickerJob = tickerJobs.get(registration.triggerName);
+        if (tickerJob != null) {
+            tickerJob.unbind(registration.job);
+            return;
+        }
+        final Ticker ticker = tickers.get(registration.triggerName);
+        final int index = ticker == null ? -1 : ticker.jobs.indexOf(registration.job);
+        if (index >= 0) {
+            ticker.jobs.remove(index);
+            ticker.intervals.remove(index);
+            ticker.startTimes.remove(index);
+            if (ticker.jobs.isEmpty()) {
+                tickers.remove(registration.triggerName);
+            }
+        }
+    }
+
+    /**
+     * Set up one ticker per time unit (and scheduler) to fire all of the @Every events
+     * with that unit, rather than a trigger each.
+     */
+    private void scheduleTickers() {
+        for (Map.Entry<String, Ticker> entry : tickers.entrySet()) {
+            final Ticker ticker = entry.getValue();
+            final long tickMillis = ticker.unit.getMillis();
+            // start with the earliest job, then each of the others is due on its own phase
+            final TickerJob tickerJob = new TickerJob();
+            final Trigger tickerTrigger = new SimpleTrigger(entry.getKey(), QuartzStarter.TICKER_JOB_GROUP,
+                    new Date(Collections.min(ticker.startTimes)), null, SimpleTrigger.REPEAT_INDEFINITELY,
+                    tickMillis);
+            scheduleJob(ticker.target, entry.getKey(), tickerJob, tickerTrigger, null);
+
+            // the ticks are counted from the start of the trigger in the job store, which may be
+            // one another node scheduled earlier, so the phases are too (this node hasn't started yet)
+            final long startTime = getStartTime(ticker.target, tickerTrigger);
+            final List<Integer> phases = new ArrayList<Integer>();
+            for (int i = 0; i < ticker.jobs.size(); i++) {
+                phases.add(phase(startTime, ticker.startTimes.get(i), tickMillis, ticker.intervals.get(i)));
+            }
+            tickerJob.bind(tickMillis, ticker.intervals, phases, ticker.jobs);
+            tickerJobs.put(entry.getKey(), tickerJob);
+        }
+        tickers.clear();
+    }
+
+    /**
+     * @return the start time of the trigger kept in the job store in place of the given one, if any,
+     *         otherwise of the given trigger.
+     */
+    private static long getStartTime(final Scheduler target, final Trigger trigger) {
+        try {
+            final Trigger kept = target.getTrigger(trigger.getName(), trigger.getGroup());
+            return (kept == null ? trigger : kept).getStartTime().getTime();
+        } catch (SchedulerException ex) {
+            throw new SchedulerInitialisationException("Error looking up trigger " + trigger.getName(), ex);
+        }
+    }
+
+    /**
+     * @return the tick (less than the interval) on which a job which should start at
+     *         <code>jobStartTime</code> is first due, on a ticker which started at <code>tickerStartTime</code>.
+     */
+    private static int phase(final long tickerStartTime, final long jobStartTime, final long tickMillis,
+            final int interval) {
+        long ticks = (jobStartTime - tickerStartTime) / tickMillis;
+        if (jobStartTime < tickerStartTime && (jobStartTime - tickerStartTime) % tickMillis != 0) {
+            ticks--;
+        }
+        final long phase = ticks % interval;
+        return (int) (phase < 0 ? phase + interval : phase);
+    }
+
+    /**
+     * The trigger which fires a job, and (for a job fired by a ticker) which of its ticks.
+     */
+    private static class Registration {
+
+        private final TimeEventJob job;
+        private final Scheduler target;
+        private final String triggerName;
+        private final String triggerGroup;
+        private final int interval;
+        private final long tickMillis;
+        private final long startTime;
+
+        Registration(final TimeEventJob job, final Scheduler target, final String triggerName,
+                final String triggerGroup, final int interval, final long tickMillis, final long startTime) {
+            this.job = job;
+            this.target = target;
+            this.triggerName = triggerName;
+            this.triggerGroup = triggerGroup;
+            this.interval = interval;
+            this.tickMillis = tickMillis;
+            this.startTime = startTime;
+        }
+
+        Date getNextFireTime() throws SchedulerException {
+            final Trigger trigger = target.getTrigger(triggerName, triggerGroup);
+            if (trigger == null || trigger.getNextFireTime() == null || interval == 1) {
+                return trigger == null ? null : trigger.getNextFireTime();
+            }
+            // skip the ticks on which this job isn't due
+            final long next = trigger.getNextFireTime().getTime();
+            final long tickerStart = trigger.getStartTime().getTime();
+            final int phase = phase(tickerStart, startTime, tickMillis, interval);
+            final long offset = ((next - tickerStart) / tickMillis - phase + interval) % interval;
+            return offset == 0 ? trigger.getNextFireTime() : new Date(next + (interval - offset) * tickMillis);
+        }
+    }
+
+    /**
+     * The @Every jobs of one time unit waiting to be given a ticker.
+     */
+    private static class Ticker {
+
+        private final Scheduler target;
+        private final TimeUnit unit;
+        private final List<Long> startTimes = new ArrayList<Long>();
+        private final List<Integer> intervals = new ArrayList<Integer>();
+        private final List<TimeEventJob> jobs = new ArrayList<TimeEventJob>();
+
+        Ticker(final Scheduler target, final TimeUnit unit) {
+            this.target = target;
+            this.unit = unit;
+        }
+    }
+}
@@ -17,16 +17,12 @@
 package org.jboss.seam.cron.quartz;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Type;
-import java.text.ParseException;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.Properties;
 import java.util.Set;
-import java.util.UUID;
 
 import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
@@ -35,42 +31,26 @@ import javax.enterprise.inject.Produces;
 import javax.enterprise.inject.spi.AfterBeanDiscovery;
 import javax.enterprise.inject.spi.AfterDeploymentValidation;
 import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.BeforeBeanDiscovery;
 import javax.enterprise.inject.spi.BeforeShutdown;
 import javax.enterprise.inject.spi.Extension;
-import javax.enterprise.inject.spi.ObserverMethod;
+import javax.enterprise.inject.spi.ProcessAnnotatedType;
 import javax.enterprise.inject.spi.ProcessObserverMethod;
 
-import org.apache.commons.lang.StringUtils;
-import org.jboss.logging.Logger;
 import org.jboss.seam.cron.annotations.Every;
-import org.jboss.seam.cron.annotations.Scheduled;
-import org.jboss.seam.cron.events.TimeUnit;
-import static org.jboss.seam.cron.events.TimeUnit.*;
 import org.jboss.seam.cron.exception.SchedulerConfigurationException;
-import org.jboss.seam.cron.exception.SchedulerInitialisationException;
-import org.jboss.seam.cron.quartz.jobs.HourJob;
-import org.jboss.seam.cron.quartz.jobs.MinuteJob;
+import org.jboss.seam.cron.metrics.SchedulerMetrics;
 import org.jboss.seam.cron.quartz.jobs.ScheduledQualifiedEventPayload;
-import org.jboss.seam.cron.quartz.jobs.ScheduledEventJob;
-import org.jboss.seam.cron.quartz.jobs.SecondJob;
+import org.jboss.seam.cron.spi.CronSchedule;
+import org.jboss.seam.cron.spi.SchedulingProvider;
 import org.jboss.seam.cron.util.SchedulePropertiesManager;
-import org.quartz.CronTrigger;
-import org.quartz.JobDataMap;
-import org.quartz.JobDetail;
 import org.quartz.Scheduler;
-import org.quartz.SchedulerException;
-import org.quartz.Trigger;
-import org.quartz.TriggerUtils;
-import org.quartz.impl.DirectSchedulerFactory;
-import org.quartz.simpl.RAMJobStore;
-import org.quartz.simpl.SimpleThreadPool;
-import org.quartz.spi.JobStore;
-import org.quartz.spi.ThreadPool;
 
 /**
  * Methods of this class are called at various stages of the JSR-299 initialisation
  * to set up and start the appropriate schedules in line with the scheduled events
- * being observed by the application.
+ * being observed by the application. The events are then fired on schedule by the
+ * configured #{@link SchedulingProvider}.
  *
  * @author Peter Royle
  */
@@ -78,11 +58,6 @@ import org.quartz.spi.ThreadPool;
 public class QuartzStarter
         implements Extension {
 
-    /**
-     * The name of the property containing the observer method bindings to be used
-     * when storing and retrieving it from the job details.
-     */
-    public static final String QUALIFIER = "qualifier";
     /**
      * The name of the property containing the schedule specification (in cron format)
      * when storing and retrieving it from the job details.
@@ -96,56 +71,54 @@ public class QuartzStarter
      * The name of the job group for all arbitrarily scheduled events.
      */
     public static final String SCHEDULE_JOB_GROUP = "schedule_job_group";
+    // the distinct qualifiers of the observed scheduled events, until they have been scheduled. Kept by
+    // type, since the qualifiers of types without members all have the same hash code
+    private final Map<Class<? extends Annotation>, Set<Annotation>> scheduleQualifiers =
+            new HashMap<Class<? extends Annotation>, Set<Annotation>>();
+    private ScheduleBindings bindings;
+    private SchedulingProvider provider;
+    private JobScheduler jobScheduler;
+
     /**
-     * The name of the JSR-299 BeanManager instance when a reference to it is
-     * stored and retrieved from the job details.
+     * Reads the index of the application's qualifier types, written at build time by the Seam Cron
+     * annotation processor if it was used. Qualifier types which aren't indexed are reflected on.
+     *
+     * @param beforeDisc The initialisation event being observed.
      */
-    public static final String MANAGER_NAME = "manager";
-    private static final String SCHEDULER_NAME_PREFIX = "SeamCronScheduler";
-    private String schedulerName;
-    private final Set<ObserverMethod<? super Trigger>> allObservers = new HashSet<ObserverMethod<? super Trigger>>();
-    private Scheduler scheduler;
-    private UUID instanceId;
-    private static final Logger log = Logger.getLogger(QuartzStarter.class);
+    public void loadScheduleIndex(@Observes BeforeBeanDiscovery beforeDisc) {
+        bindings = new ScheduleBindings(ScheduleIndex.load(Thread.currentThread().getContextClassLoader()));
+    }
 
     /**
-     * Initialises the scheduler.
+     * Creates the scheduling provider, which isn't initialised until there is an event for it to fire.
+     * Whichever provider that is, the cron expressions which aren't compiled are left to Quartz.
      *
      * @param afterDisc The initialisation event being observed.
+     * @param manager   The JSR-299 Bean Manager.
      */
-    public void initTicker(@Observes AfterBeanDiscovery afterDisc) throws Exception {
-        instanceId = UUID.randomUUID();
-        JobStore jobStore = new RAMJobStore();
-        ThreadPool threadPool = new SimpleThreadPool(4, Thread.NORM_PRIORITY);
-        threadPool.initialize();
-        final DirectSchedulerFactory schedulerFactory = DirectSchedulerFactory.getInstance();
-        schedulerName = SCHEDULER_NAME_PREFIX + "_" + instanceId.toString();
-        schedulerFactory.createScheduler(schedulerName, instanceId.toString(), threadPool, jobStore);
-        scheduler = schedulerFactory.getScheduler(schedulerName);
-        scheduler.start();
+    public void initTicker(@Observes AfterBeanDiscovery afterDisc, BeanManager manager) {
+        final SchedulePropertiesManager properties = SchedulePropertiesManager.instance();
+        CronSchedule.setFallback(new QuartzCronFallback());
+        provider = createProvider(properties.getProperty(SchedulingProvider.PROVIDER_PROPERTY,
+                QuartzSchedulingProvider.class.getName()));
+        jobScheduler = new JobScheduler(provider, manager, properties, bindings);
     }
 
     /**
-     * Initialises schedulers for all of the observed scheduled events.
+     * Initialises and starts the scheduling provider with all of the observed scheduled events,
+     * if there are any.
      *
      * @param afterValid The observed event.
      * @param manager    The JSR-299 Bean Manager.
      */
     public void startJobs(@Observes AfterDeploymentValidation afterValid, BeanManager manager) {
-        try {
-            // common Second payload sample and start time
-            GregorianCalendar gc = new GregorianCalendar();
-            gc.add(GregorianCalendar.SECOND, 1);
+        // common Second payload sample and start time
+        GregorianCalendar gc = new GregorianCalendar();
+        gc.add(GregorianCalendar.SECOND, 1);
 
-            Date startTime = new Date(gc.getTimeInMillis());
+        Date startTime = new Date(gc.getTimeInMillis());
 
-            // arbitrarily scheduled events.
-            scheduleScheduledEvents(manager, startTime);
-        } catch (SchedulerException ex) {
-            throw new SchedulerInitialisationException("Error setting up scheduler.", ex);
-        } catch (ParseException pe) {
-            throw new SchedulerInitialisationException("Error parsing schedule while initialising scheduler.", pe);
-        }
+        jobScheduler.start(findSchedules(), startTime);
     }
 
     /**
@@ -153,215 +126,112 @@ public class QuartzStarter
      */
     @PreDestroy
     public void stopTicker(@Observes BeforeShutdown event) {
-        try {
-            getScheduler().shutdown();
-        } catch (SchedulerException ex) {
-            log.error("Error shutting down scheduler", ex);
+        if (jobScheduler != null) {
+            jobScheduler.shutdown();
         }
     }
 
-    public void registerCronEventObserver(@Observes ProcessObserverMethod pom) {
-        allObservers.add(pom.getObserverMethod());
-    }
-
     /**
-     * @return the scheduler
+     * Remember the qualifiers of the scheduled events which the given observer observes, if any.
+     * Nothing else about the observer (nor any other observer) is kept.
+     *
+     * @param pom The observer method being processed.
      */
-    @Produces
-    public Scheduler getScheduler() {
-        return scheduler;
-    }
-
-    private Scheduled getScheduledBinding(Annotation binding) {
-        Scheduled schedBinding = null;
-        if (binding instanceof Scheduled) {
-            schedBinding = (Scheduled) binding;
-        } else {
-            // check for a @Scheduled meta-annotation
-            Scheduled scheduled = binding.annotationType().getAnnotation(Scheduled.class);
-
-            if (scheduled != null) {
-                schedBinding = scheduled;
+    public void registerCronEventObserver(@Observes ProcessObserverMethod pom) {
+        for (Object qualifier : pom.getObserverMethod().getObservedQualifiers()) {
+            if (bindings.isScheduled((Annotation) qualifier)) {
+                final Class<? extends Annotation> type = ((Annotation) qualifier).annotationType();
+                Set<Annotation> qualifiersOfType = scheduleQualifiers.get(type);
+                if (qualifiersOfType == null) {
+                    qualifiersOfType = new HashSet<Annotation>();
+                    scheduleQualifiers.put(type, qualifiersOfType);
+                }
+                qualifiersOfType.add((Annotation) qualifier);
             }
         }
-        return schedBinding;
     }
 
-    private Every getEveryBinding(Annotation binding) {
-        Every everyBinding = null;
-        if (binding instanceof Every) {
-            everyBinding = (Every) binding;
-        } else {
-            // check for a @Scheduled meta-annotation
-            Every every = binding.annotationType().getAnnotation(Every.class);
-
-            if (every != null) {
-                everyBinding = every;
-            }
+    /**
+     * Scheduling providers are created by this extension (see #{@link #getSchedulingProvider()}),
+     * so don't let the container make beans of them too.
+     *
+     * @param pat The type being processed.
+     */
+    public void vetoSchedulingProviders(@Observes ProcessAnnotatedType pat) {
+        if (SchedulingProvider.class.isAssignableFrom(pat.getAnnotatedType().getJavaClass())) {
+            pat.veto();
         }
-        return everyBinding;
     }
 
     /**
-     * Inspects the given @Every qualifier and extracts its settings into a new #{@link ScheduledQualifiedEventPayload}.
-     * 
-     * @param everyBinding
-     * @return a fully populated #{@link ScheduledQualifiedEventPayload}.
+     * @return the provider which fires the scheduled events, eg: to see which jobs it has and
+     *         when they will next fire.
      */
-    public ScheduledQualifiedEventPayload createScheduledQualifiedEventPayloadFromEveryBinding(final Every everyBinding) {
-        Class jobClass = null;
-        switch (everyBinding.value()) {
-            case SECOND:
-                jobClass = SecondJob.class;
-                break;
-            case MINUTE:
-                jobClass = MinuteJob.class;
-                break;
-            case HOUR:
-                jobClass = HourJob.class;
-        }
-        return new ScheduledQualifiedEventPayload(everyBinding, jobClass);
+    @Produces
+    public SchedulingProvider getSchedulingProvider() {
+        return provider;
     }
-    
+
     /**
-     * If the given String is already a schedule then just return it, otherwise check the 
-     * scheduler.properties file for schedule spec with the given name and return that.
-     * @param scheduleSpec
-     * @return
-     * @throws SchedulerConfigurationException 
+     * @return the service with which to schedule events, and change or cancel their schedules,
+     *         while the application is running.
      */
-    private String lookupNamedScheduleIfNecessary(final String scheduleSpec)
-            throws SchedulerConfigurationException {
-        final String cronScheduleSpec;
-
-        if (scheduleSpec.contains(" ")) {
-            cronScheduleSpec = scheduleSpec;
-        } else {
-            Properties schedProperties = SchedulePropertiesManager.instance().getScheduleProperties();
-            cronScheduleSpec = schedProperties.getProperty(scheduleSpec);
-
-            if (StringUtils.isEmpty(cronScheduleSpec)) {
-                throw new SchedulerConfigurationException("Found empty or missing cron definition for named scheule '"
-                        + scheduleSpec + "'. Should be specified in the file "
-                        + SchedulePropertiesManager.SCHEDULE_PROPERTIES_PATH
-                        + " on the classpath.");
-            }
-        }
-
-        return cronScheduleSpec;
+    @Produces
+    public JobScheduler getJobScheduler() {
+        return jobScheduler;
     }
 
     /**
-     * Construct the job details using the given parameter map and chedule the job
-     * to be executed by the given job class using the given trigger.
-     *
-     * @param jobName   The name of the job to be executed.
-     * @param manager   The BeanManager implementation.
-     * @param trigger   The trigger representing the schedule of the job.
-     * @param jobKlass  The class which will execute the job on schedule.
-     * @param jobParams The parameters to be passed to the job executor.
-     * @throws SchedulerException
+     * @return the Quartz scheduler, or null if the events are fired by some other provider or no
+     *         event has been scheduled yet.
+     * @deprecated Ties the application to Quartz. Use #{@link #getSchedulingProvider()} instead.
      */
-    private void scheduleJob(final String jobName, BeanManager manager, final Trigger trigger, final Class jobKlass,
-            Map jobParams)
-            throws SchedulerException {
-        JobDetail job = new JobDetail(jobName,
-                trigger.getGroup(),
-                jobKlass);
-        job.setJobDataMap(new JobDataMap());
-        job.getJobDataMap().put(MANAGER_NAME, manager);
-        job.getJobDataMap().putAll(jobParams);
-        getScheduler().scheduleJob(job, trigger);
-        log.info("Scheduler for " + jobName + " initialised");
+    @Deprecated
+    @Produces
+    public Scheduler getScheduler() {
+        return provider instanceof QuartzSchedulingProvider ? ((QuartzSchedulingProvider) provider).getScheduler() : null;
     }
 
     /**
-     * Set up schedule for an arbitrarily scheduled event. This will pass the given
-     * observerBinding binding type as the QUALIFIER job parameter to be used when firing
-     * the events. This binding type will usually be an instance of @Scheduled or
-     * some other binding type with the @Scheduled meta-annotation.
-     *
-     * @param schedQualEvtPld  The schedule specification in cron format, plus the qualifier annotations and event payload type.
-     * @param manager          The BeanManager implementation.
-     * @param startTime        The time to start the schedule.
-     * @throws SchedulerException
+     * @return the execution metrics of the scheduled events observed on this node, which are there
+     *         (if empty) even before any event has been scheduled.
      */
-    private void scheduleJobForEvent(final ScheduledQualifiedEventPayload schedQualEvtPld, Date startTime, BeanManager manager)
-            throws ParseException, SchedulerException {
-        final String name = schedQualEvtPld.toString();
-        log.info("Scheduling trigger for " + name);
+    @Produces
+    public SchedulerMetrics getSchedulerMetrics() {
+        return jobScheduler.getMetrics();
+    }
 
-        Trigger schedTrigger = null;
-        if (schedQualEvtPld.isInterval()) {
-            if (TimeUnit.SECOND.equals(schedQualEvtPld.getRepeatUnit())) {
-                schedTrigger = TriggerUtils.makeSecondlyTrigger(schedQualEvtPld.getRepeatInterval());
-            } else if (TimeUnit.MINUTE.equals(schedQualEvtPld.getRepeatUnit())) {
-                schedTrigger = TriggerUtils.makeMinutelyTrigger(schedQualEvtPld.getRepeatInterval());
-            } else if (TimeUnit.HOUR.equals(schedQualEvtPld.getRepeatUnit())) {
-                schedTrigger = TriggerUtils.makeHourlyTrigger(schedQualEvtPld.getRepeatInterval());
-            } else {
-                throw new InternalError("Could not work out which interval to use for the schedule of an @Every observer");
-            }
-            schedTrigger.setName(name);
-        } else {
-            schedTrigger = new CronTrigger(name, SCHEDULE_JOB_GROUP, schedQualEvtPld.getScheduleSpec());
+    private SchedulingProvider createProvider(final String className) {
+        try {
+            return (SchedulingProvider) Class.forName(className, true,
+                    QuartzStarter.class.getClassLoader()).newInstance();
+        } catch (Exception ex) {
+            throw new SchedulerConfigurationException("Could not create scheduling provider " + className
+                    + " (set by " + SchedulingProvider.PROVIDER_PROPERTY + ")", ex);
         }
-        schedTrigger.setStartTime(startTime);
-
-        final Map jobParams = new HashMap();
-        jobParams.put(CRON_SCHEDULE_SPEC, schedQualEvtPld.getScheduleSpec());
-        jobParams.put(QUALIFIER, schedQualEvtPld.getQualifier());
-        scheduleJob(name + "-trigger", manager, schedTrigger, schedQualEvtPld.getPayloadType(), jobParams);
     }
 
     /**
-     * Start scheduler for Event as per observers found (if any).
+     * Inspects the given @Every qualifier and extracts its settings into a new #{@link ScheduledQualifiedEventPayload}.
+     * 
+     * @param everyBinding
+     * @return a fully populated #{@link ScheduledQualifiedEventPayload}.
      */
-    private void scheduleScheduledEvents(BeanManager manager, Date startTime)
-            throws SchedulerException, SchedulerInitialisationException, ParseException {
-        Set<ScheduledQualifiedEventPayload> schedulesFound = new HashSet<ScheduledQualifiedEventPayload>();
-
-        // collect the set of unique schedule specifications
-        for (ObserverMethod<?> obsMeth : allObservers) {
-            for (Object bindingObj : obsMeth.getObservedQualifiers()) {
-                final Annotation orginalQualifier = (Annotation) bindingObj;
-                final Scheduled schedBinding = getScheduledBinding(orginalQualifier);
-                Every everyBinding = getEveryBinding(orginalQualifier);
-                ScheduledQualifiedEventPayload payload = null;
-                        
-                // observer is only meaningful if the payload is the right type
-                Type observedType = obsMeth.getObservedType();
-                //if (org.jboss.seam.cron.events.Trigger.class.isAssignableFrom(obsMeth.getObservedType())) {
-
-                // if we've found s scheduled event, record its bindings against
-                // the cron formatted schedule specification so that it can be fired according
-                // to the apropriate schedule.
-                if (schedBinding != null) {
-                    String cronScheduleSpec = lookupNamedScheduleIfNecessary(schedBinding.value());
-                    payload = new ScheduledQualifiedEventPayload(cronScheduleSpec, orginalQualifier, ScheduledEventJob.class);
-                }
-                if (everyBinding != null) {
-                    payload = createScheduledQualifiedEventPayloadFromEveryBinding(everyBinding);
-                }
-                
-                if (payload != null) {
-                    schedulesFound.add(payload);
-                }
-                    
-//                } else {
-//                    log.warn("Ignoring observer method " + obsMeth.toString() + " - Payload is of the wron type. "
-//                            + "Is " + observedType.toString() + " but should be " + Trigger.class.toString());
-//                }
-            }
-        }
+    public ScheduledQualifiedEventPayload createScheduledQualifiedEventPayloadFromEveryBinding(final Every everyBinding) {
+        return JobScheduler.createEveryPayload(everyBinding, everyBinding);
+    }
 
-        if (schedulesFound.size() > 0) {
-            // set up a schedule for each unique schedule spec found
-            for (ScheduledQualifiedEventPayload schedQualEvtPld : schedulesFound) {
-                scheduleJobForEvent(schedQualEvtPld, startTime, manager);
+    /**
+     * @return the set of unique schedule specifications of the observed scheduled events.
+     */
+    Set<ScheduledQualifiedEventPayload> findSchedules() {
+        final Set<ScheduledQualifiedEventPayload> schedulesFound = new HashSet<ScheduledQualifiedEventPayload>();
+        for (Set<Annotation> qualifiersOfType : scheduleQualifiers.values()) {
+            for (Annotation qualifier : qualifiersOfType) {
+                schedulesFound.add(jobScheduler.createPayload(qualifier));
             }
-        } else {
-            log.info("Skipping initilization of scheduler - No registered observers.");
         }
+        scheduleQualifiers.clear();
+        return schedulesFound;
     }
 }
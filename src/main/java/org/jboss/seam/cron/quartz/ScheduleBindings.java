@@ -0,0 +1,130 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.lang.annotation.Annotation;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.seam.cron.annotations.Every;
+import org.jboss.seam.cron.annotations.Scheduled;
+
+/**
+ * Finds the @Scheduled or @Every binding of a qualifier, which is either the qualifier itself or
+ * a meta-annotation on its type, and the other meta-annotations which configure a scheduled event.
+ * Qualifier types in the #{@link ScheduleIndex} are answered from it, others by reflection. What
+ * each qualifier type is bound to is looked up once and remembered, since every qualifier of every
+ * observer in the application is checked at deployment.
+ * <p/>
+ * There is one of these per deployment, so that the qualifier types of an undeployed application
+ * aren't kept.
+ *
+ * @author Peter Royle
+ */
+final class ScheduleBindings {
+
+    private static final Binding NONE = new Binding(null, null);
+    private final ScheduleIndex index;
+    // the bindings on each qualifier type looked at so far
+    private final ConcurrentMap<Class<? extends Annotation>, Binding> bindings =
+            new ConcurrentHashMap<Class<? extends Annotation>, Binding>();
+
+    /**
+     * @param index The qualifier types indexed at build time, if any.
+     */
+    ScheduleBindings(final ScheduleIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * @param qualifier A qualifier of an observed event.
+     * @return true if the qualifier is @Scheduled or @Every, or has one of those as a meta-annotation.
+     */
+    boolean isScheduled(final Annotation qualifier) {
+        return qualifier instanceof Scheduled || qualifier instanceof Every || forType(qualifier) != NONE;
+    }
+
+    /**
+     * @param binding A qualifier of an observed event.
+     * @return the qualifier if it is @Scheduled, else its @Scheduled meta-annotation, if any.
+     */
+    Scheduled getScheduled(final Annotation binding) {
+        if (binding instanceof Scheduled) {
+            return (Scheduled) binding;
+        }
+        // check for a @Scheduled meta-annotation
+        return forType(binding).scheduled;
+    }
+
+    /**
+     * @param binding A qualifier of an observed event.
+     * @return the qualifier if it is @Every, else its @Every meta-annotation, if any.
+     */
+    Every getEvery(final Annotation binding) {
+        if (binding instanceof Every) {
+            return (Every) binding;
+        }
+        // check for an @Every meta-annotation
+        return forType(binding).every;
+    }
+
+    /**
+     * @param qualifier A qualifier of a scheduled event.
+     * @param metaType  The Seam Cron meta-annotation wanted, eg: #{@link org.jboss.seam.cron.annotations.Jitter}.
+     * @return the meta-annotation on the qualifier's type, or null if it hasn't one.
+     */
+    <A extends Annotation> A getMetaAnnotation(final Annotation qualifier, final Class<A> metaType) {
+        final Class<? extends Annotation> type = qualifier.annotationType();
+        if (index.isIndexed(type.getName()) && !index.isAnnotated(type.getName(), metaType.getName())) {
+            return null;
+        }
+        return type.getAnnotation(metaType);
+    }
+
+    private Binding forType(final Annotation qualifier) {
+        final Class<? extends Annotation> type = qualifier.annotationType();
+        Binding binding = bindings.get(type);
+        if (binding == null) {
+            final Scheduled scheduled;
+            final Every every;
+            if (index.isIndexed(type.getName())) {
+                scheduled = index.getScheduled(type.getName());
+                every = index.getEvery(type.getName());
+            } else {
+                scheduled = type.getAnnotation(Scheduled.class);
+                every = type.getAnnotation(Every.class);
+            }
+            binding = scheduled == null && every == null ? NONE : new Binding(scheduled, every);
+            bindings.putIfAbsent(type, binding);
+        }
+        return binding;
+    }
+
+    /**
+     * The @Scheduled and @Every meta-annotations of a qualifier type.
+     */
+    private static final class Binding {
+
+        private final Scheduled scheduled;
+        private final Every every;
+
+        private Binding(final Scheduled scheduled, final Every every) {
+            this.scheduled = scheduled;
+            this.every = every;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.jboss.logging.Logger;
+import org.jboss.seam.cron.annotations.Every;
+import org.jboss.seam.cron.annotations.EveryBinding;
+import org.jboss.seam.cron.annotations.Scheduled;
+import org.jboss.seam.cron.annotations.ScheduledBinding;
+import org.jboss.seam.cron.events.TimeUnit;
+import org.jboss.seam.cron.exception.SchedulerConfigurationException;
+
+/**
+ * The qualifier types of the application which were indexed at build time by the Seam Cron
+ * annotation processor (seam-cron-processor), with the Seam Cron annotations on each of them.
+ * Answers whether an indexed qualifier type is scheduled, and when, without reflecting on it.
+ *
+ * @author Peter Royle
+ */
+final class ScheduleIndex {
+
+    /**
+     * Where the annotation processor writes the index, in each jar or classes directory.
+     */
+    static final String INDEX_RESOURCE = "META-INF/seam-cron/schedule-index.properties";
+    /**
+     * An index of nothing, so that every qualifier type is reflected on.
+     */
+    static final ScheduleIndex EMPTY = new ScheduleIndex(new Properties());
+    private static final Logger log = Logger.getLogger(ScheduleIndex.class);
+    private final Properties entries;
+    // the names of the annotations on each indexed qualifier type
+    private final Map<String, Set<String>> annotations = new HashMap<String, Set<String>>();
+
+    /**
+     * @param entries The contents of one or more index files.
+     */
+    ScheduleIndex(final Properties entries) {
+        this.entries = entries;
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            final String key = (String) entry.getKey();
+            if (key.indexOf('#') < 0) {
+                final String value = (String) entry.getValue();
+                annotations.put(key, value.length() == 0 ? Collections.<String>emptySet()
+                        : new HashSet<String>(Arrays.asList(value.split(","))));
+            }
+        }
+    }
+
+    /**
+     * Read and merge all of the index files visible to the given class loader.
+     *
+     * @param loader The class loader of the application, may be null.
+     * @return the index, which is empty if there are no index files or they can't be read.
+     */
+    static ScheduleIndex load(final ClassLoader loader) {
+        if (loader == null) {
+            return EMPTY;
+        }
+        final Properties entries = new Properties();
+        try {
+            final Enumeration<URL> resources = loader.getResources(INDEX_RESOURCE);
+            while (resources.hasMoreElements()) {
+                final URL url = resources.nextElement();
+                final InputStream in = url.openStream();
+                try {
+                    entries.load(in);
+                } finally {
+                    in.close();
+                }
+                log.debug("Loaded the index of qualifier types at " + url);
+            }
+        } catch (IOException ex) {
+            log.warn("Error reading " + INDEX_RESOURCE + ", the qualifier types will be reflected on instead", ex);
+            return EMPTY;
+        }
+        return new ScheduleIndex(entries);
+    }
+
+    /**
+     * @return true if the given qualifier type was indexed.
+     */
+    boolean isIndexed(final String qualifierType) {
+        return annotations.containsKey(qualifierType);
+    }
+
+    /**
+     * @param qualifierType  The name of an indexed qualifier type.
+     * @param annotationType The name of one of the Seam Cron annotation types, which are the only ones indexed.
+     * @return true if the qualifier type is annotated with the annotation.
+     */
+    boolean isAnnotated(final String qualifierType, final String annotationType) {
+        final Set<String> names = annotations.get(qualifierType);
+        return names != null && names.contains(annotationType);
+    }
+
+    /**
+     * @param qualifierType The name of an indexed qualifier type.
+     * @return the #{@link Scheduled} meta-annotation of the qualifier type, or null if it hasn't one.
+     */
+    Scheduled getScheduled(final String qualifierType) {
+        final String value = entries.getProperty(qualifierType + "#scheduled");
+        if (value == null) {
+            return null;
+        }
+        return new ScheduledBinding(value, isClustered(qualifierType + "#scheduled"));
+    }
+
+    /**
+     * @param qualifierType The name of an indexed qualifier type.
+     * @return the #{@link Every} meta-annotation of the qualifier type, or null if it hasn't one.
+     * @throws SchedulerConfigurationException if the index entry is invalid.
+     */
+    Every getEvery(final String qualifierType) {
+        final String every = entries.getProperty(qualifierType + "#every");
+        if (every == null) {
+            return null;
+        }
+        // eg: "5 MINUTE"
+        final int space = every.indexOf(' ');
+        try {
+            return new EveryBinding(Integer.parseInt(every.substring(0, space)),
+                    TimeUnit.valueOf(every.substring(space + 1)), isClustered(qualifierType + "#every"));
+        } catch (RuntimeException ex) {
+            throw new SchedulerConfigurationException("Invalid @Every '" + every + "' of " + qualifierType + " in "
+                    + INDEX_RESOURCE + ", was it written by a different version of seam-cron-processor?", ex);
+        }
+    }
+
+    private boolean isClustered(final String key) {
+        // only written when false
+        return !"false".equals(entries.getProperty(key + ".clustered"));
+    }
+}
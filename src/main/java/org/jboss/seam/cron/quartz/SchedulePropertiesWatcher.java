@@ -0,0 +1,88 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+
+/**
+ * Checks /scheduler.properties for changes every so often, on a thread of its own, and when it
+ * has changed reschedules just the jobs whose named schedules are now different. Only a file
+ * which can be edited while the application runs is checked (see
+ * #{@link SchedulePropertiesManager#reload()}), so tuning a schedule in production needs neither
+ * a restart nor rebuilding every trigger.
+ *
+ * @author Peter Royle
+ */
+class SchedulePropertiesWatcher
+        implements Runnable {
+
+    private final SchedulePropertiesManager properties;
+    private final JobScheduler jobScheduler;
+    private final ScheduledExecutorService executor;
+    private static final Logger log = Logger.getLogger(SchedulePropertiesWatcher.class);
+
+    /**
+     * Start checking for changes.
+     *
+     * @param properties     The properties to reload.
+     * @param jobScheduler   The scheduler of the jobs to reschedule.
+     * @param reloadInterval How often to check, in milliseconds.
+     */
+    SchedulePropertiesWatcher(final SchedulePropertiesManager properties, final JobScheduler jobScheduler,
+            final long reloadInterval) {
+        this.properties = properties;
+        this.jobScheduler = jobScheduler;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "SeamCron-properties-watcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        log.info("Checking " + SchedulePropertiesManager.SCHEDULE_PROPERTIES_PATH + " for changes every "
+                + reloadInterval + "ms");
+        executor.scheduleWithFixedDelay(this, reloadInterval, reloadInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public void run() {
+        try {
+            if (properties.reload()) {
+                final List<String> rescheduled = jobScheduler.reloadNamedSchedules();
+                log.info("Rescheduled " + rescheduled.size() + " job(s) after reloading "
+                        + SchedulePropertiesManager.SCHEDULE_PROPERTIES_PATH + ": " + rescheduled);
+            }
+        } catch (RuntimeException ex) {
+            // carry on checking, the next change may well fix it
+            log.error("Error reloading " + SchedulePropertiesManager.SCHEDULE_PROPERTIES_PATH, ex);
+        }
+    }
+
+    /**
+     * Stop checking for changes.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.util.Date;
+
+import org.jboss.logging.Logger;
+import org.jboss.seam.cron.spi.TimeEventJob;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+
+/**
+ * Lets Quartz execute a #{@link TimeEventJob} which knows nothing about Quartz.
+ *
+ * @author Peter Royle
+ */
+public class TimeEventJobAdapter
+        implements Job {
+    private final TimeEventJob job;
+    private static final Logger log = Logger.getLogger(TimeEventJobAdapter.class);
+
+    /**
+     * Used by Quartz for jobs from a shared job store which have no observers on this node.
+     */
+    public TimeEventJobAdapter() {
+        this(null);
+    }
+
+    /**
+     * @param job The job to fire whenever this one is executed.
+     */
+    public TimeEventJobAdapter(final TimeEventJob job) {
+        this.job = job;
+    }
+
+    public void execute(JobExecutionContext context)
+            throws JobExecutionException {
+        if (job == null) {
+            log.warn("Not firing time event for unknown job " + context.getJobDetail().getName());
+            return;
+        }
+        final Date scheduledFireTime = context.getScheduledFireTime() == null ? context.getFireTime()
+                : context.getScheduledFireTime();
+        job.fire(scheduledFireTime.getTime());
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import org.jboss.logging.Logger;
+import org.jboss.seam.cron.util.VirtualThreads;
+import org.quartz.SchedulerConfigException;
+import org.quartz.spi.ThreadPool;
+
+/**
+ * A Quartz #{@link ThreadPool} which runs each job on a brand new virtual thread instead
+ * of a pooled platform thread. The number of jobs running at once is still capped at the
+ * given size so that a runaway schedule cannot start an unbounded number of threads.
+ *
+ * @author Peter Royle
+ */
+public class VirtualThreadPool
+        implements ThreadPool {
+
+    private static final Logger log = Logger.getLogger(VirtualThreadPool.class);
+    private final int size;
+    private final Semaphore permits;
+    private ThreadFactory threadFactory;
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param size The maximum number of jobs which may run at once.
+     */
+    public VirtualThreadPool(final int size) {
+        this.size = size;
+        this.permits = new Semaphore(size);
+    }
+
+    public void initialize() throws SchedulerConfigException {
+        threadFactory = createThreadFactory();
+        if (threadFactory == null) {
+            throw new SchedulerConfigException("Virtual threads are not supported by this JVM");
+        }
+    }
+
+    /**
+     * @return the factory of the threads to run the jobs on, or null if virtual threads are not
+     *         supported.
+     */
+    protected ThreadFactory createThreadFactory() {
+        return VirtualThreads.newThreadFactory("SeamCronScheduler-virtual-");
+    }
+
+    public boolean runInThread(final Runnable runnable) {
+        if (runnable == null || shutdown) {
+            return false;
+        }
+        permits.acquireUninterruptibly();
+        try {
+            threadFactory.newThread(new Runnable() {
+
+                public void run() {
+                    try {
+                        runnable.run();
+                    } catch (RuntimeException ex) {
+                        log.error("Error while executing job", ex);
+                    } finally {
+                        permits.release();
+                    }
+                }
+            }).start();
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+        return true;
+    }
+
+    public int blockForAvailableThreads() {
+        // wait for a slot to become free, without taking it. Another thread may take it as soon
+        // as it's released, but Quartz must still be told that one was free or it will spin
+        permits.acquireUninterruptibly();
+        try {
+            return permits.availablePermits() + 1;
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void shutdown(final boolean waitForJobsToComplete) {
+        shutdown = true;
+        if (waitForJobsToComplete) {
+            // every running job holds a permit until it is complete
+            permits.acquireUninterruptibly(size);
+            permits.release(size);
+        }
+    }
+
+    public int getPoolSize() {
+        return size;
+    }
+}
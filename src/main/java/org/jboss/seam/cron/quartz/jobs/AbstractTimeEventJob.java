@@ -17,57 +17,357 @@
 package org.jboss.seam.cron.quartz.jobs;
 
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.ObserverMethod;
 
 import org.jboss.logging.Logger;
+import org.jboss.seam.cron.annotations.ConcurrencyPolicy;
 import org.jboss.seam.cron.events.Trigger;
-import org.jboss.seam.cron.quartz.QuartzStarter;
-import org.quartz.Job;
-import org.quartz.JobExecutionContext;
-import org.quartz.JobExecutionException;
+import org.jboss.seam.cron.metrics.JobMetrics;
+import org.jboss.seam.cron.metrics.ObserverMetrics;
+import org.jboss.seam.cron.spi.TimeEventJob;
 
 /**
- * Base class for quartz jobs which fire scheduled events (including the built-in
+ * Base class for the jobs which fire scheduled events (including the built-in
  * second, minute and hourly events). Implementing classes must define type of the
- * event to be fired.
+ * event to be fired. They know nothing of the #{@link org.jboss.seam.cron.spi.SchedulingProvider}
+ * which fires them (Quartz wraps them in a #{@link org.jboss.seam.cron.quartz.TimeEventJobAdapter}).
+ * <p/>
+ * Each job is bound to its qualifier when it is scheduled, at which point the observers
+ * of the event are resolved once and for all. The same instance is then fired on every
+ * firing, so it must be safe to run concurrently.
+ * How many firings actually run at once is up to its #{@link ConcurrencyPolicy}.
+ * <p/>
+ * The observers are notified one after the other on the firing thread, unless the job has
+ * been given an executor on which to notify them in parallel.
  *
  * @author Peter Royle
  */
 public abstract class AbstractTimeEventJob
-        implements Job {
-    protected int value = 0;
-    protected final GregorianCalendar gc = new GregorianCalendar();
-    private Logger log = Logger.getLogger(AbstractTimeEventJob.class);
+        implements TimeEventJob {
+    private final TimeZone timeZone = TimeZone.getDefault();
+    private Annotation qualifier;
+    private ObserverMethod<? super Trigger>[] observers;
+    private JobMetrics metrics;
+    private ObserverMetrics[] observerMetrics;
+    // null unless the observers are notified in parallel
+    private Executor observerExecutor;
+    private ConcurrencyPolicy concurrencyPolicy = ConcurrencyPolicy.ALLOW;
+    private int maxConcurrent = 1;
+    private final AtomicInteger running = new AtomicInteger();
+    // the scheduled time of the firing waiting for a running one to finish, if any
+    private final AtomicLong pending = new AtomicLong(NONE_PENDING);
+    private static final long NONE_PENDING = Long.MIN_VALUE;
+    private static final Logger log = Logger.getLogger(AbstractTimeEventJob.class);
 
     /**
      * Implement this to return an instance of the appropriate event payload
      * to be used when firing the event.
      *
+     * @param timeFired The time at which Quartz was scheduled to fire the job.
      * @return an instance of the appropriate event type.
      */
-    protected abstract Trigger createEventPayload();
+    protected abstract Trigger createEventPayload(long timeFired);
 
     /**
-     * Executes the internally scheduled job by firing the appropriate event with the
-     * appropriate binding annotation (to in turn execute the application-specific jobs
-     * which observe those events).
+     * @return true if this job has been bound to the event it fires.
+     */
+    public boolean isBound() {
+        return observers != null;
+    }
+
+    /**
+     * Bind this job to the event it fires. Must be called before the job is first executed.
+     *
+     * @param manager   The JSR-299 Bean Manager, used to resolve the observers of the event.
+     * @param qualifier The qualifier with which to fire the event.
+     * @param metrics   Where to record the executions of this job.
+     */
+    @SuppressWarnings("unchecked")
+    public void bind(final BeanManager manager, final Annotation qualifier, final JobMetrics metrics) {
+        final Set<ObserverMethod<? super Trigger>> resolved =
+                manager.resolveObserverMethods(createEventPayload(System.currentTimeMillis()), qualifier);
+        this.observers = resolved.toArray(new ObserverMethod[resolved.size()]);
+        this.qualifier = qualifier;
+        this.metrics = metrics;
+        final List<String> observerNames = new ArrayList<String>();
+        for (ObserverMethod<? super Trigger> observer : observers) {
+            observerNames.add(String.valueOf(observer));
+        }
+        this.observerMetrics = metrics.registerObservers(observerNames);
+    }
+
+    /**
+     * Notify the observers of each firing in parallel on the given executor, rather than one
+     * after the other. Must be called before the job is first executed.
+     *
+     * @param executor The executor, or null to notify the observers one after the other.
+     */
+    public void setObserverExecutor(final Executor executor) {
+        this.observerExecutor = executor;
+    }
+
+    /**
+     * Limit the number of firings of this job which may run at once. Must be called before
+     * the job is first executed.
+     *
+     * @param policy        What to do with firings beyond the limit.
+     * @param maxConcurrent The most firings which may run at once (ignored for ALLOW).
+     */
+    public void setConcurrency(final ConcurrencyPolicy policy, final int maxConcurrent) {
+        this.concurrencyPolicy = policy;
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * Fire the event to its observers, as its #{@link ConcurrencyPolicy} allows, recording
+     * the execution (or otherwise) in the job's metrics.
+     *
+     * @param scheduledFireTime The time at which the event was scheduled to fire.
+     */
+    public void fire(final long scheduledFireTime) {
+        switch (concurrencyPolicy) {
+            case SKIP:
+                if (!tryStart()) {
+                    metrics.skipped();
+                    return;
+                }
+                try {
+                    notifyObservers(scheduledFireTime);
+                } finally {
+                    running.decrementAndGet();
+                }
+                break;
+            case COALESCE:
+                if (pending.getAndSet(scheduledFireTime) != NONE_PENDING) {
+                    metrics.coalesced();
+                }
+                firePending();
+                break;
+            default:
+                notifyObservers(scheduledFireTime);
+        }
+    }
+
+    /**
+     * Run the pending firing, and any which come along while it runs, for as long as there is
+     * room. Whichever execution finishes first picks up the pending firing, so it is never left
+     * waiting with nothing running.
+     */
+    private void firePending() {
+        RuntimeException failure = null;
+        while (pending.get() != NONE_PENDING && tryStart()) {
+            final long scheduledFireTime = pending.getAndSet(NONE_PENDING);
+            try {
+                if (scheduledFireTime != NONE_PENDING) {
+                    notifyObservers(scheduledFireTime);
+                }
+            } catch (RuntimeException ex) {
+                // carry on with the pending firings, then report the first failure
+                if (failure == null) {
+                    failure = ex;
+                }
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private boolean tryStart() {
+        int current = running.get();
+        while (current < maxConcurrent) {
+            if (running.compareAndSet(current, current + 1)) {
+                return true;
+            }
+            current = running.get();
+        }
+        return false;
+    }
+
+    private void notifyObservers(final long scheduledFireTime) {
+        final Trigger eventPayload = createEventPayload(scheduledFireTime);
+        final long startTime = metrics.executionStarted(scheduledFireTime, System.currentTimeMillis());
+        if (log.isTraceEnabled()) {
+            log.trace("Firing time event for " + eventPayload + " with binding " + qualifier);
+        }
+        final Throwable failure = observerExecutor == null || observers.length < 2
+                ? notifySequentially(eventPayload) : notifyInParallel(eventPayload);
+        if (failure == null) {
+            metrics.executionSucceeded(startTime);
+            return;
+        }
+        metrics.executionFailed(startTime, failure);
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw (RuntimeException) failure;
+    }
+
+    /**
+     * Notify the observers one after the other, stopping at the first which fails.
+     *
+     * @return the failure, or null if there wasn't one.
+     */
+    private Throwable notifySequentially(final Trigger eventPayload) {
+        for (int i = 0; i < observers.length; i++) {
+            final Throwable failure = notifyObserver(i, eventPayload);
+            if (failure != null) {
+                return failure;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hand all but the first observer to the executor and notify the first on this thread.
+     * Then, rather than wait for the executor to get round to them, notify any observers it
+     * hasn't started on yet here too (which also means none are lost if it discards them).
+     * Each observer is notified whether or not any of the others fail.
+     *
+     * @return the first failure, or null if there wasn't one.
+     */
+    private Throwable notifyInParallel(final Trigger eventPayload) {
+        final ObserverTask[] tasks = new ObserverTask[observers.length];
+        for (int i = 1; i < tasks.length; i++) {
+            tasks[i] = new ObserverTask(i, eventPayload);
+            try {
+                observerExecutor.execute(tasks[i]);
+            } catch (RejectedExecutionException ex) {
+                log.debug("No room to notify observer " + observers[i] + " in parallel, notifying it in turn");
+            }
+        }
+        Throwable failure = notifyObserver(0, eventPayload);
+        for (int i = 1; i < tasks.length; i++) {
+            tasks[i].run();
+        }
+        boolean interrupted = false;
+        for (int i = 1; i < tasks.length; i++) {
+            interrupted |= tasks[i].awaitUninterruptibly();
+            final Throwable observerFailure = tasks[i].failure;
+            if (failure == null) {
+                failure = observerFailure;
+            } else if (observerFailure != null) {
+                log.error("Error notifying observer " + observers[i] + " of " + qualifier, observerFailure);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return failure;
+    }
+
+    /**
+     * @return the failure of the observer, or null if it completed normally.
+     */
+    private Throwable notifyObserver(final int index, final Trigger eventPayload) {
+        final long startTime = observerMetrics[index].started();
+        try {
+            observers[index].notify(eventPayload);
+        } catch (RuntimeException ex) {
+            observerMetrics[index].failed(startTime, ex);
+            return ex;
+        } catch (Error err) {
+            observerMetrics[index].failed(startTime, err);
+            return err;
+        }
+        observerMetrics[index].succeeded(startTime);
+        return null;
+    }
+
+    /**
+     * Works out the millisecond, second, minute or hour of the given time by arithmetic on its
+     * local (ie: offset) value, which is much cheaper than a Calendar and shares no mutable state.
+     * Other fields, needed at most once a day, are left to a Calendar.
      *
-     * @param context Details about the job.
-     * @throws JobExecutionException
+     * @param field A GregorianCalendar field, eg: GregorianCalendar.SECOND.
+     * @param time  The time, in milliseconds since the epoch.
+     * @return the value of the given field at the given time, in the default time zone.
+     */
+    protected int getField(final int field, final long time) {
+        final long localTime = time + timeZone.getOffset(time);
+        switch (field) {
+            case GregorianCalendar.MILLISECOND:
+                return floorMod(localTime, 1000);
+            case GregorianCalendar.SECOND:
+                return floorMod(floorDiv(localTime, 1000L), 60);
+            case GregorianCalendar.MINUTE:
+                return floorMod(floorDiv(localTime, 60 * 1000L), 60);
+            case GregorianCalendar.HOUR_OF_DAY:
+                return floorMod(floorDiv(localTime, 60 * 60 * 1000L), 24);
+            default:
+                final GregorianCalendar calendar = new GregorianCalendar(timeZone);
+                calendar.setTimeInMillis(time);
+                return calendar.get(field);
+        }
+    }
+
+    private static long floorDiv(final long dividend, final long divisor) {
+        final long quotient = dividend / divisor;
+        return (dividend % divisor < 0) ? quotient - 1 : quotient;
+    }
+
+    private static int floorMod(final long dividend, final int divisor) {
+        final int remainder = (int) (dividend % divisor);
+        return remainder < 0 ? remainder + divisor : remainder;
+    }
+
+    /**
+     * Notifies one observer in parallel with the others, on whichever thread gets to it first.
      */
-    public void execute(JobExecutionContext context)
-            throws JobExecutionException {
-        BeanManager manager =
-                (BeanManager) context.getJobDetail().getJobDataMap().get(QuartzStarter.MANAGER_NAME);
-        gc.setTime(new Date());
+    private class ObserverTask
+            implements Runnable {
+
+        private final int index;
+        private final Trigger eventPayload;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Throwable failure;
+
+        ObserverTask(final int index, final Trigger eventPayload) {
+            this.index = index;
+            this.eventPayload = eventPayload;
+        }
 
-        final Trigger eventPayload = createEventPayload();
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                failure = notifyObserver(index, eventPayload);
+            } finally {
+                done.countDown();
+            }
+        }
 
-        Annotation binding = (Annotation)context.getJobDetail().getJobDataMap().get(QuartzStarter.QUALIFIER);
-        log.trace("Firing time event for " + eventPayload + " with binding " + binding);
-        manager.fireEvent(eventPayload, binding);
+        /**
+         * @return true if the thread was interrupted while waiting.
+         */
+        boolean awaitUninterruptibly() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    return interrupted;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        }
     }
 }
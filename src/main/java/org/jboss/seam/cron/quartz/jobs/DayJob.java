@@ -0,0 +1,41 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz.jobs;
+
+import java.util.GregorianCalendar;
+
+import org.jboss.seam.cron.events.Trigger;
+
+/**
+ * Fires the Day event with the @Every binding.
+ *
+ * @author Peter Royle
+ */
+public class DayJob
+        extends ScheduledEventJob {
+    /**
+     * Create an event payload instance of type Day with the time it was scheduled to fire,
+     * and the day of the month as its value.
+     *
+     * @param timeFired The time at which the job was scheduled to fire.
+     * @return an instance of Day.
+     */
+    @Override
+    protected Trigger createEventPayload(final long timeFired) {
+        return new Trigger(timeFired, getField(GregorianCalendar.DAY_OF_MONTH, timeFired));
+    }
+}
@@ -28,13 +28,13 @@ import org.jboss.seam.cron.events.Trigger;
 public class MinuteJob
         extends ScheduledEventJob {
     /**
-     * Create an event payload instance of type Minute with the current system time.
+     * Create an event payload instance of type Minute with the time it was scheduled to fire.
      *
+     * @param timeFired The time at which the job was scheduled to fire.
      * @return an instance of Minute.
      */
     @Override
-    protected Trigger createEventPayload() {
-        return new Trigger(System.currentTimeMillis(),
-                gc.get(GregorianCalendar.MINUTE));
+    protected Trigger createEventPayload(final long timeFired) {
+        return new Trigger(timeFired, getField(GregorianCalendar.MINUTE, timeFired));
     }
 }
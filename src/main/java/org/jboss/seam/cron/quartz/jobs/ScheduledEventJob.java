@@ -19,18 +19,19 @@ package org.jboss.seam.cron.quartz.jobs;
 import org.jboss.seam.cron.events.Trigger;
 
 /**
- * Fires the 'Event' event with the current system time.
+ * Fires the 'Event' event with the time it was scheduled to fire.
  *
  * @author Peter Royle
  */
 public class ScheduledEventJob
         extends AbstractTimeEventJob {
     /**
-     * Create an event payload instance of type Event with the current system time.
+     * Create an event payload instance of type Event with the time it was scheduled to fire.
      *
+     * @param timeFired The time at which the job was scheduled to fire.
      * @return an instance of Event.
      */
-    protected Trigger createEventPayload() {
-        return new Trigger(System.currentTimeMillis());
+    protected Trigger createEventPayload(final long timeFired) {
+        return new Trigger(timeFired);
     }
 }
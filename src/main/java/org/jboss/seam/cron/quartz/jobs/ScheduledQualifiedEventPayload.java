@@ -16,9 +16,16 @@
  */
 package org.jboss.seam.cron.quartz.jobs;
 
+import java.io.UnsupportedEncodingException;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
 import org.jboss.seam.cron.annotations.Every;
 import org.jboss.seam.cron.events.TimeUnit;
+import org.jboss.seam.cron.exception.InternalException;
 
 /**
  * Simple container for the qualifying annotation and payload type of
@@ -33,21 +40,40 @@ public class ScheduledQualifiedEventPayload {
     private final Class payloadType;
     private final TimeUnit repeatUnit;
     private final Integer repeatInterval;
+    private final boolean clustered;
+    private String jobName;
 
     public ScheduledQualifiedEventPayload(String dereferencedScheduleSpec, Annotation qualifier, Class payloadType) {
+        this(dereferencedScheduleSpec, qualifier, payloadType, true);
+    }
+
+    public ScheduledQualifiedEventPayload(String dereferencedScheduleSpec, Annotation qualifier, Class payloadType,
+            boolean clustered) {
         this.scheduleSpec = dereferencedScheduleSpec;
         this.qualifier = qualifier;
         this.payloadType = payloadType;
         this.repeatUnit = null;
         this.repeatInterval = null;
+        this.clustered = clustered;
     }
 
     public ScheduledQualifiedEventPayload(Every qualifier, Class payloadType) {
+        this(qualifier, qualifier, payloadType);
+    }
+
+    /**
+     * @param qualifier    The qualifier to fire the event with, which may be a custom qualifier with
+     *                     the @Every binding as a meta-annotation.
+     * @param everyBinding The interval of the event.
+     * @param payloadType  The job which fires the event.
+     */
+    public ScheduledQualifiedEventPayload(Annotation qualifier, Every everyBinding, Class payloadType) {
         this.scheduleSpec = null;
         this.qualifier = qualifier;
         this.payloadType = payloadType;
-        this.repeatUnit = qualifier.value();
-        this.repeatInterval = qualifier.nth();
+        this.repeatUnit = everyBinding.value();
+        this.repeatInterval = everyBinding.nth();
+        this.clustered = everyBinding.clustered();
     }
 
     public String getScheduleSpec() {
@@ -74,6 +100,75 @@ public class ScheduledQualifiedEventPayload {
         return repeatUnit != null && scheduleSpec == null;
     }
 
+    /**
+     * @return false if the event must be fired on every node of a clustered scheduler.
+     */
+    public boolean isClustered() {
+        return clustered;
+    }
+
+    /**
+     * A short name for the job which is the same on every node and across restarts, so that
+     * it can be used to identify the job in a persistent (and possibly shared) job store.
+     * It is made up of the simple name of the qualifier and a digest of everything which
+     * distinguishes this schedule from any other.
+     *
+     * @return the job name.
+     */
+    public String getJobName() {
+        if (jobName == null) {
+            final StringBuilder key = new StringBuilder();
+            key.append(scheduleSpec).append('|').append(repeatUnit).append('|').append(repeatInterval).append('|');
+            key.append(payloadType == null ? null : payloadType.getName()).append('|');
+            if (qualifier != null) {
+                key.append(qualifier.annotationType().getName());
+                appendMemberValues(key, qualifier);
+            }
+            jobName = (qualifier == null ? "Unqualified" : qualifier.annotationType().getSimpleName())
+                    + "#" + digest(key.toString());
+        }
+        return jobName;
+    }
+
+    private static void appendMemberValues(final StringBuilder key, final Annotation annotation) {
+        final Method[] members = annotation.annotationType().getDeclaredMethods();
+        Arrays.sort(members, new Comparator<Method>() {
+
+            public int compare(Method m1, Method m2) {
+                return m1.getName().compareTo(m2.getName());
+            }
+        });
+        for (Method member : members) {
+            try {
+                member.setAccessible(true);
+                Object value = member.invoke(annotation);
+                if (value instanceof Object[]) {
+                    value = Arrays.asList((Object[]) value);
+                }
+                key.append('|').append(member.getName()).append('=').append(value);
+            } catch (Exception ex) {
+                throw new InternalException("Could not read member " + member.getName() + " of " + annotation, ex);
+            }
+        }
+    }
+
+    private static String digest(final String key) {
+        try {
+            final byte[] hash = MessageDigest.getInstance("MD5").digest(key.getBytes("UTF-8"));
+            final StringBuilder hex = new StringBuilder();
+            // the first 64 bits are plenty to tell the schedules of one application apart
+            for (int i = 0; i < 8; i++) {
+                hex.append(Character.forDigit((hash[i] >> 4) & 0xF, 16));
+                hex.append(Character.forDigit(hash[i] & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new InternalException("MD5 is not supported by this JVM", ex);
+        } catch (UnsupportedEncodingException ex) {
+            throw new InternalException("UTF-8 is not supported by this JVM", ex);
+        }
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == null) {
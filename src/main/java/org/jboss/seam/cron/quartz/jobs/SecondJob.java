@@ -28,13 +28,13 @@ import org.jboss.seam.cron.events.Trigger;
 public class SecondJob
         extends ScheduledEventJob {
     /**
-     * Create an instance of the Event payload using the current system time.
+     * Create an instance of the Event payload using the time it was scheduled to fire.
      *
+     * @param timeFired The time at which the job was scheduled to fire.
      * @return an instance of Event.
      */
     @Override
-    protected Trigger createEventPayload() {
-        return new Trigger(System.currentTimeMillis(),
-                gc.get(GregorianCalendar.SECOND));
+    protected Trigger createEventPayload(final long timeFired) {
+        return new Trigger(timeFired, getField(GregorianCalendar.SECOND, timeFired));
     }
 }
@@ -0,0 +1,127 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz.jobs;
+
+import java.util.List;
+
+import org.jboss.logging.Logger;
+import org.jboss.seam.cron.spi.TimeEventJob;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+
+/**
+ * A single clock for all of the @Every events of one time unit. It ticks once per unit and
+ * on each tick fires, one after the other, every event whose interval divides the number of
+ * ticks since the clock started (less the event's phase, if it has been spread out from the
+ * others). This saves the scheduler from keeping (and waking up for)
+ * a trigger per event when there are lots of them.
+ *
+ * @author Peter Royle
+ */
+public class TickerJob
+        implements Job {
+    private int[] intervals;
+    private int[] phases;
+    // replaced rather than changed when an event is unbound, so that a tick sees one or the other
+    private volatile TimeEventJob[] events;
+    private long tickMillis;
+    private static final Logger log = Logger.getLogger(TickerJob.class);
+
+    /**
+     * Bind this ticker to the events it fires. Must be called before it is first executed.
+     *
+     * @param tickMillis The length of one tick (ie: of the time unit) in milliseconds.
+     * @param intervals  The number of ticks between firings of each event.
+     * @param events     The jobs which fire the events, in the same order as the intervals.
+     */
+    public void bind(final long tickMillis, final List<Integer> intervals, final List<TimeEventJob> events) {
+        bind(tickMillis, intervals, null, events);
+    }
+
+    /**
+     * Bind this ticker to the events it fires, each on its own phase. Must be called before it
+     * is first executed.
+     *
+     * @param tickMillis The length of one tick (ie: of the time unit) in milliseconds.
+     * @param intervals  The number of ticks between firings of each event.
+     * @param phases     The first tick on which each event fires, less than its interval, or null for 0.
+     * @param events     The jobs which fire the events, in the same order as the intervals.
+     */
+    public void bind(final long tickMillis, final List<Integer> intervals, final List<Integer> phases,
+            final List<TimeEventJob> events) {
+        this.intervals = new int[intervals.size()];
+        this.phases = new int[intervals.size()];
+        for (int i = 0; i < this.intervals.length; i++) {
+            this.intervals[i] = intervals.get(i);
+            this.phases[i] = phases == null ? 0 : phases.get(i);
+        }
+        this.tickMillis = tickMillis;
+        this.events = events.toArray(new TimeEventJob[events.size()]);
+    }
+
+    /**
+     * Stop firing the given event. Its tick is left empty rather than taken out, so that the
+     * ticker doesn't have to be rescheduled.
+     *
+     * @param event The job which fires the event.
+     * @return false if this ticker doesn't fire the event.
+     */
+    public synchronized boolean unbind(final TimeEventJob event) {
+        final TimeEventJob[] unbound = events.clone();
+        for (int i = 0; i < unbound.length; i++) {
+            if (unbound[i] == event) {
+                unbound[i] = null;
+                events = unbound;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void execute(JobExecutionContext context)
+            throws JobExecutionException {
+        if (events == null) {
+            // a ticker from a shared job store which has no observers on this node
+            log.warn("Not firing time events for unknown ticker " + context.getJobDetail().getName());
+            return;
+        }
+        final long scheduledFireTime = context.getScheduledFireTime() == null ? context.getFireTime().getTime()
+                : context.getScheduledFireTime().getTime();
+        tick(scheduledFireTime, (scheduledFireTime - context.getTrigger().getStartTime().getTime()) / tickMillis);
+    }
+
+    /**
+     * Fire every event which is due on the given tick. A failing observer doesn't stop the
+     * rest of the events from being fired.
+     *
+     * @param scheduledFireTime The time at which the tick was scheduled.
+     * @param tick              The number of ticks since the clock started.
+     */
+    public void tick(final long scheduledFireTime, final long tick) {
+        final TimeEventJob[] current = events;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] != null && tick % intervals[i] == phases[i]) {
+                try {
+                    current[i].fire(scheduledFireTime);
+                } catch (RuntimeException ex) {
+                    log.error("Error firing time event on tick " + tick, ex);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.spi;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import org.jboss.logging.Logger;
+
+/**
+ * <p>
+ * Makes up for the firings which a scheduled event missed, for events with the CATCH_UP
+ * misfire policy (see #{@link org.jboss.seam.cron.annotations.Misfire}). The missed firings
+ * are replayed in order, one at a time, on a thread of their own. That keeps a burst of
+ * catching up from taking over the scheduler's threads (and from running the observers of
+ * one event alongside each other) just when the scheduler is already struggling.
+ * </p>
+ * <p>
+ * The thread is only started the first time something needs catching up on.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+public class CatchUpExecutor {
+
+    private final ExecutorService executor;
+    private static final Logger log = Logger.getLogger(CatchUpExecutor.class);
+
+    /**
+     * @param name The name of the scheduler, used to name the thread.
+     */
+    public CatchUpExecutor(final String name) {
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(runnable, name + "-catch-up");
+            }
+        });
+    }
+
+    /**
+     * Fire the given job once for each of the missed firings, in order, after any catching up
+     * already under way.
+     *
+     * @param jobName            The name of the job, for logging.
+     * @param job                The job to fire.
+     * @param scheduledFireTimes The missed firings, oldest first.
+     */
+    public void replay(final String jobName, final TimeEventJob job, final List<Long> scheduledFireTimes) {
+        if (scheduledFireTimes.isEmpty()) {
+            return;
+        }
+        log.info("Catching up on " + scheduledFireTimes.size() + " missed firings of " + jobName);
+        try {
+            executor.execute(new Runnable() {
+
+                public void run() {
+                    for (Long scheduledFireTime : scheduledFireTimes) {
+                        try {
+                            job.fire(scheduledFireTime);
+                        } catch (RuntimeException ex) {
+                            log.error("Error firing scheduled event " + jobName + " while catching up", ex);
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            log.debug("Not catching up on " + jobName + ", the scheduler has been shut down");
+        }
+    }
+
+    /**
+     * Stop catching up, abandoning any missed firings not yet replayed.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
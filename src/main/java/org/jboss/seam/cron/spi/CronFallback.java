@@ -0,0 +1,51 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.spi;
+
+import java.text.ParseException;
+import java.util.TimeZone;
+
+/**
+ * Works out the firings of the cron expressions which #{@link CronSchedule} doesn't compile
+ * itself, ie: those whose day-of-month or day-of-week depends on the shape of the month
+ * ("L", "W" and "#"). Installed with #{@link CronSchedule#setFallback(CronFallback)}.
+ *
+ * @author Peter Royle
+ */
+public interface CronFallback {
+
+    /**
+     * @param expression The schedule, in Quartz cron format.
+     * @param timeZone   The time zone in which to interpret the schedule.
+     * @return the parsed schedule.
+     * @throws ParseException if the expression is invalid.
+     */
+    Expression parse(String expression, TimeZone timeZone) throws ParseException;
+
+    /**
+     * A schedule parsed by a #{@link CronFallback}. Must be safe to use from many threads at once.
+     */
+    interface Expression {
+
+        /**
+         * @param after A time, in milliseconds since the epoch.
+         * @return the first time after the given one at which the schedule fires, or -1 if it
+         *         never does again.
+         */
+        long getNextFireTime(long after);
+    }
+}
@@ -0,0 +1,455 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.spi;
+
+import java.text.ParseException;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * A cron schedule in Quartz format (eg: "0 0 12 ? * MON-FRI"), compiled into one bitset per
+ * field so that working out the next firing is a handful of bit operations and some date
+ * arithmetic rather than the walk through calendar fields and sorted sets which Quartz's
+ * <code>CronExpression</code> does. Compiled schedules are immutable, so they are cached by
+ * expression (and time zone) and shared: see #{@link #compile(String)}.
+ * </p>
+ * <p>
+ * The day-of-month and day-of-week forms which depend on the shape of the month ("L", "W" and
+ * "#") are left to the #{@link CronFallback} (Quartz, when Seam Cron starts), and refused if
+ * there is none.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+public final class CronSchedule {
+
+    private static final ConcurrentMap<String, CronSchedule> CACHE = new ConcurrentHashMap<String, CronSchedule>();
+    private static final String[] MONTHS = {"JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT",
+        "NOV", "DEC"};
+    private static final String[] DAYS = {"SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"};
+    private static final int MIN_YEAR = 1970;
+    private static final int MAX_YEAR = 2099;
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    private static volatile CronFallback fallbackParser;
+    private final String expression;
+    private final TimeZone timeZone;
+    private final long seconds;
+    private final long minutes;
+    private final long hours;
+    private final long daysOfMonth;
+    private final long months;
+    private final long daysOfWeek;
+    // true if the day of the month is '?', ie: the day of the week decides
+    private final boolean byDayOfWeek;
+    // null for any year
+    private final BitSet years;
+    // for the expressions which aren't compiled
+    private final CronFallback.Expression fallback;
+
+    /**
+     * Install the parser of the expressions which aren't compiled, in place of any installed earlier.
+     * Schedules which have already been compiled keep the one they were compiled with.
+     *
+     * @param fallback The parser, or null to refuse those expressions.
+     */
+    public static void setFallback(final CronFallback fallback) {
+        fallbackParser = fallback;
+    }
+
+    /**
+     * Compile the given schedule for the default time zone, or return the one compiled earlier.
+     *
+     * @param expression The schedule, in Quartz cron format.
+     * @return the compiled schedule.
+     * @throws ParseException if the expression is invalid.
+     */
+    public static CronSchedule compile(final String expression) throws ParseException {
+        final TimeZone timeZone = TimeZone.getDefault();
+        final String key = timeZone.getID() + " " + expression;
+        CronSchedule schedule = CACHE.get(key);
+        if (schedule == null) {
+            schedule = new CronSchedule(expression, timeZone);
+            final CronSchedule existing = CACHE.putIfAbsent(key, schedule);
+            if (existing != null) {
+                schedule = existing;
+            }
+        }
+        return schedule;
+    }
+
+    private CronSchedule(final String expression, final TimeZone timeZone) throws ParseException {
+        this.expression = expression;
+        this.timeZone = timeZone;
+        final String[] fields = expression.trim().toUpperCase(Locale.US).split("\\s+");
+        if (fields.length < 6 || fields.length > 7) {
+            throw new ParseException("Expected 6 or 7 fields in cron expression '" + expression + "'", 0);
+        }
+        if (fields[3].indexOf('L') >= 0 || fields[3].indexOf('W') >= 0
+                || fields[5].indexOf('L') >= 0 || fields[5].indexOf('#') >= 0) {
+            final CronFallback parser = fallbackParser;
+            if (parser == null) {
+                throw new ParseException("The 'L', 'W' and '#' forms of cron expression '" + expression
+                        + "' are not supported without a " + CronFallback.class.getSimpleName(), 0);
+            }
+            fallback = parser.parse(expression, timeZone);
+            seconds = minutes = hours = daysOfMonth = months = daysOfWeek = 0;
+            byDayOfWeek = false;
+            years = null;
+            return;
+        }
+        fallback = null;
+        seconds = parseField(fields[0], 0, 59, null);
+        minutes = parseField(fields[1], 0, 59, null);
+        hours = parseField(fields[2], 0, 23, null);
+        months = parseField(fields[4], 1, 12, MONTHS);
+        final boolean noDayOfMonth = "?".equals(fields[3]);
+        final boolean noDayOfWeek = "?".equals(fields[5]);
+        if (noDayOfMonth == noDayOfWeek) {
+            throw new ParseException("Exactly one of the day-of-month and day-of-week of cron expression '"
+                    + expression + "' must be '?'", 0);
+        }
+        byDayOfWeek = noDayOfMonth;
+        daysOfMonth = noDayOfMonth ? 0 : parseField(fields[3], 1, 31, null);
+        daysOfWeek = noDayOfWeek ? 0 : parseField(fields[5], 1, 7, DAYS);
+        if (fields.length == 7 && !"*".equals(fields[6])) {
+            years = new BitSet();
+            for (String item : fields[6].split(",")) {
+                final int[] range = parseRange(item, MIN_YEAR, MAX_YEAR, null);
+                for (int year = range[0]; year <= range[1]; year += range[2]) {
+                    years.set(year - MIN_YEAR);
+                }
+            }
+        } else {
+            years = null;
+        }
+    }
+
+    /**
+     * @return the expression this schedule was compiled from.
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * @param after A time, in milliseconds since the epoch.
+     * @return the first time after the given one at which the schedule fires, or -1 if it never
+     *         does again.
+     */
+    public long getNextFireTime(final long after) {
+        if (fallback != null) {
+            return fallback.getNextFireTime(after);
+        }
+        // whole seconds only
+        long local = toLocal(after - floorMod(after, 1000L) + 1000L);
+        while (true) {
+            final long next = nextLocal(local);
+            if (next < 0) {
+                return -1;
+            }
+            final long utc = toUtc(next);
+            if (toLocal(utc) != next) {
+                // skipped when the clocks went forward, so (as Quartz does) it doesn't fire
+                local = toLocal(endOfGap(next));
+            } else if (utc > after) {
+                return utc;
+            } else {
+                local = next + 1000L;
+            }
+        }
+    }
+
+    /**
+     * @param after A time.
+     * @return the first time after the given one at which the schedule fires, or null if it
+     *         never does again.
+     */
+    public Date getNextFireTime(final Date after) {
+        final long next = getNextFireTime(after.getTime());
+        return next < 0 ? null : new Date(next);
+    }
+
+    /**
+     * The first local time at or after the given one which matches the schedule, found by
+     * moving each field on to its next set bit and resetting the fields below it.
+     */
+    private long nextLocal(final long local) {
+        final long days = floorDiv(local, DAY_MILLIS);
+        final int millisOfDay = (int) (local - days * DAY_MILLIS);
+        // civil date from days since the epoch (after Howard Hinnant)
+        final long z = days + 719468;
+        final long era = floorDiv(z, 146097);
+        final int dayOfEra = (int) (z - era * 146097);
+        final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final int mp = (5 * dayOfYear + 2) / 153;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int hour = millisOfDay / 3600000;
+        int minute = millisOfDay / 60000 % 60;
+        int second = millisOfDay / 1000 % 60;
+
+        while (year <= MAX_YEAR) {
+            if (years != null) {
+                final int nextYear = years.nextSetBit(Math.max(year - MIN_YEAR, 0)) + MIN_YEAR;
+                if (nextYear < MIN_YEAR) {
+                    return -1;
+                }
+                if (nextYear != year) {
+                    year = nextYear;
+                    month = 1;
+                    day = 1;
+                    hour = minute = second = 0;
+                }
+            }
+            final int nextMonth = nextBit(months, month);
+            if (nextMonth < 0) {
+                year++;
+                month = 1;
+                day = 1;
+                hour = minute = second = 0;
+                continue;
+            }
+            if (nextMonth != month) {
+                month = nextMonth;
+                day = 1;
+                hour = minute = second = 0;
+            }
+            final int nextDay = nextDay(year, month, day);
+            if (nextDay < 0) {
+                month++;
+                if (month > 12) {
+                    year++;
+                    month = 1;
+                }
+                day = 1;
+                hour = minute = second = 0;
+                continue;
+            }
+            if (nextDay != day) {
+                day = nextDay;
+                hour = minute = second = 0;
+            }
+            final int nextHour = nextBit(hours, hour);
+            if (nextHour < 0) {
+                day++;
+                hour = minute = second = 0;
+                continue;
+            }
+            if (nextHour != hour) {
+                hour = nextHour;
+                minute = second = 0;
+            }
+            final int nextMinute = nextBit(minutes, minute);
+            if (nextMinute < 0) {
+                hour++;
+                minute = second = 0;
+                continue;
+            }
+            if (nextMinute != minute) {
+                minute = nextMinute;
+                second = 0;
+            }
+            final int nextSecond = nextBit(seconds, second);
+            if (nextSecond < 0) {
+                minute++;
+                second = 0;
+                continue;
+            }
+            return daysFromCivil(year, month, day) * DAY_MILLIS
+                    + ((hour * 60L + minute) * 60L + nextSecond) * 1000L;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the first day of the month from the given one which matches the schedule, or
+     *         -1 if there are none left in the month.
+     */
+    private int nextDay(final int year, final int month, final int day) {
+        final int daysInMonth = daysInMonth(year, month);
+        if (!byDayOfWeek) {
+            final int next = nextBit(daysOfMonth, day);
+            return next > daysInMonth ? -1 : next;
+        }
+        // 1 = Sunday, as for Quartz; the epoch was a Thursday
+        int dayOfWeek = (int) floorMod(daysFromCivil(year, month, day) + 4, 7L) + 1;
+        for (int d = day; d <= daysInMonth; d++) {
+            if ((daysOfWeek & (1L << dayOfWeek)) != 0) {
+                return d;
+            }
+            dayOfWeek = dayOfWeek == 7 ? 1 : dayOfWeek + 1;
+        }
+        return -1;
+    }
+
+    private long toLocal(final long utc) {
+        return utc + timeZone.getOffset(utc);
+    }
+
+    /**
+     * Interprets a local time as a lenient Calendar would, so that one which is repeated when
+     * the clocks go back is taken as the later of the two.
+     */
+    private long toUtc(final long local) {
+        final long standard = local - timeZone.getRawOffset();
+        return local - timeZone.getOffset(standard - (timeZone.getOffset(standard) - timeZone.getRawOffset()));
+    }
+
+    /**
+     * @return the instant at which the clocks went forward over the given local time.
+     */
+    private long endOfGap(final long local) {
+        // no time zone is more than a day out, so the change is somewhere in between
+        long before = local - DAY_MILLIS;
+        long after = local + DAY_MILLIS;
+        while (after - before > 1000L) {
+            final long middle = before + (after - before) / 2000L * 1000L;
+            if (toLocal(middle) > local) {
+                after = middle;
+            } else {
+                before = middle;
+            }
+        }
+        return after;
+    }
+
+    private static int nextBit(final long bits, final int from) {
+        if (from > 63) {
+            return -1;
+        }
+        final long remaining = bits & (-1L << from);
+        return remaining == 0 ? -1 : Long.numberOfTrailingZeros(remaining);
+    }
+
+    private static int daysInMonth(final int year, final int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static long daysFromCivil(final int year, final int month, final int day) {
+        final int y = month <= 2 ? year - 1 : year;
+        final long era = floorDiv(y, 400);
+        final int yearOfEra = (int) (y - era * 400);
+        final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static long floorDiv(final long dividend, final long divisor) {
+        final long quotient = dividend / divisor;
+        return (dividend % divisor < 0) ? quotient - 1 : quotient;
+    }
+
+    private static long floorMod(final long dividend, final long divisor) {
+        final long remainder = dividend % divisor;
+        return remainder < 0 ? remainder + divisor : remainder;
+    }
+
+    /**
+     * Parse one field of the expression (a comma separated list of values, ranges, '*'s with
+     * optional increments) into a bitset with a bit for each value.
+     */
+    private long parseField(final String field, final int min, final int max, final String[] names)
+            throws ParseException {
+        long bits = 0;
+        for (String item : field.split(",")) {
+            final int[] range = parseRange(item, min, max, names);
+            if (range[1] < range[0]) {
+                // wraps round, eg: FRI-MON
+                for (int value = range[0]; value <= range[1] + max - min + 1; value += range[2]) {
+                    bits |= 1L << (value > max ? value - (max - min + 1) : value);
+                }
+            } else {
+                for (int value = range[0]; value <= range[1]; value += range[2]) {
+                    bits |= 1L << value;
+                }
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * @return the first value, last value and increment of one item of a field.
+     */
+    private int[] parseRange(final String item, final int min, final int max, final String[] names)
+            throws ParseException {
+        String values = item;
+        int increment = 1;
+        final int slash = item.indexOf('/');
+        if (slash >= 0) {
+            values = item.substring(0, slash);
+            increment = parseNumber(item.substring(slash + 1), 1, max, null);
+            if (values.indexOf('-') < 0 && !"*".equals(values)) {
+                // eg: 5/15, from 5 to the end
+                return new int[]{parseNumber(values, min, max, names), max, increment};
+            }
+        }
+        if ("*".equals(values)) {
+            return new int[]{min, max, increment};
+        }
+        final int dash = values.indexOf('-');
+        if (dash > 0) {
+            return new int[]{parseNumber(values.substring(0, dash), min, max, names),
+                parseNumber(values.substring(dash + 1), min, max, names), increment};
+        }
+        final int value = parseNumber(values, min, max, names);
+        return new int[]{value, value, increment};
+    }
+
+    private int parseNumber(final String text, final int min, final int max, final String[] names)
+            throws ParseException {
+        if (names != null) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(text)) {
+                    return i + 1;
+                }
+            }
+        }
+        final int value;
+        try {
+            value = Integer.parseInt(text);
+        } catch (NumberFormatException ex) {
+            throw new ParseException("Invalid value '" + text + "' in cron expression '" + expression + "'", 0);
+        }
+        if (value < min || value > max) {
+            throw new ParseException("Value " + value + " out of range (" + min + "-" + max + ") in cron expression '"
+                    + expression + "'", 0);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
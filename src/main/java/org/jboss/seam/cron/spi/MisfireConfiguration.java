@@ -0,0 +1,125 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.spi;
+
+import java.lang.annotation.Annotation;
+
+import org.jboss.seam.cron.annotations.Misfire;
+import org.jboss.seam.cron.annotations.MisfirePolicy;
+import org.jboss.seam.cron.exception.SchedulerConfigurationException;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+
+/**
+ * <p>
+ * What to do when one scheduled event misfires. Unless told otherwise, @Every events skip to
+ * their next firing and @Scheduled events fire once straight away. That can be changed for
+ * all events in /scheduler.properties:
+ * </p>
+ * <pre>
+ * # one of FIRE_NOW, SKIP or CATCH_UP
+ * org.jboss.seam.cron.scheduler.misfire=SKIP
+ * org.jboss.seam.cron.scheduler.maxCatchUp=10
+ * </pre>
+ * <p>
+ * An event's qualifier can have its own settings, either with a #{@link Misfire}
+ * meta-annotation or by repeating these with its fully qualified name inserted, eg:
+ * {@literal org.jboss.seam.cron.scheduler.com.acme.Reports.misfire=CATCH_UP}, which wins.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+public class MisfireConfiguration {
+
+    public static final String MISFIRE = "misfire";
+    public static final String MAX_CATCH_UP = "maxCatchUp";
+    private static final int DEFAULT_MAX_CATCH_UP = 10;
+    private final MisfirePolicy policy;
+    private final int maxCatchUp;
+
+    public MisfireConfiguration(final MisfirePolicy policy, final int maxCatchUp) {
+        this.policy = policy;
+        this.maxCatchUp = maxCatchUp;
+    }
+
+    /**
+     * Work out the settings for the event fired with the given qualifier.
+     *
+     * @param props         The properties to read from.
+     * @param qualifier     The qualifier of the event.
+     * @param defaultPolicy The policy to use if none is configured.
+     * @return the misfire settings of the event.
+     */
+    public static MisfireConfiguration read(final SchedulePropertiesManager props, final Annotation qualifier,
+            final MisfirePolicy defaultPolicy) {
+        return read(props, qualifier, qualifier.annotationType().getAnnotation(Misfire.class), defaultPolicy);
+    }
+
+    /**
+     * Work out the settings for the event fired with the given qualifier.
+     *
+     * @param props         The properties to read from.
+     * @param qualifier     The qualifier of the event.
+     * @param annotation    The #{@link Misfire} meta-annotation of the qualifier, or null if it hasn't one.
+     * @param defaultPolicy The policy to use if none is configured.
+     * @return the misfire settings of the event.
+     */
+    public static MisfireConfiguration read(final SchedulePropertiesManager props, final Annotation qualifier,
+            final Misfire annotation, final MisfirePolicy defaultPolicy) {
+        final String prefix = SchedulerConfiguration.PROPERTY_PREFIX + qualifier.annotationType().getName() + ".";
+
+        MisfirePolicy policy = readPolicy(props, SchedulerConfiguration.PROPERTY_PREFIX, defaultPolicy);
+        int max = props.getIntProperty(SchedulerConfiguration.PROPERTY_PREFIX + MAX_CATCH_UP, DEFAULT_MAX_CATCH_UP);
+        if (annotation != null) {
+            policy = annotation.value();
+            max = annotation.maxCatchUp();
+        }
+        policy = readPolicy(props, prefix, policy);
+        max = props.getIntProperty(prefix + MAX_CATCH_UP, max);
+        if (max < 1) {
+            throw new SchedulerConfigurationException("The maximum missed firings of " + qualifier
+                    + " to catch up on must be at least 1, but is " + max);
+        }
+        return new MisfireConfiguration(policy, max);
+    }
+
+    private static MisfirePolicy readPolicy(final SchedulePropertiesManager props, final String prefix,
+            final MisfirePolicy defaultPolicy) {
+        final String policyName = props.getProperty(prefix + MISFIRE, null);
+        if (policyName == null) {
+            return defaultPolicy;
+        }
+        try {
+            return MisfirePolicy.valueOf(policyName.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new SchedulerConfigurationException("Unknown misfire policy '" + policyName + "' for "
+                    + prefix + MISFIRE + " in " + SchedulePropertiesManager.SCHEDULE_PROPERTIES_PATH, ex);
+        }
+    }
+
+    public MisfirePolicy getPolicy() {
+        return policy;
+    }
+
+    public int getMaxCatchUp() {
+        return maxCatchUp;
+    }
+
+    @Override
+    public String toString() {
+        return policy == MisfirePolicy.CATCH_UP ? policy + " (up to " + maxCatchUp + ")" : policy.toString();
+    }
+}
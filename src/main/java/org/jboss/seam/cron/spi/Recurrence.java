@@ -0,0 +1,204 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.spi;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.jboss.seam.cron.annotations.MisfirePolicy;
+
+/**
+ * <p>
+ * When a repeating event fires: every so many milliseconds (#{@link #every(long)}) or on a cron
+ * schedule (#{@link #of(CronSchedule)}). A #{@link SchedulingProvider} which keeps its own
+ * timers hands each firing which falls due to #{@link #fireDue}, which fires it on time or as its
+ * #{@link MisfirePolicy} says if it is late, and works out the deadline of the next one.
+ * </p>
+ * <p>
+ * Recurrences are immutable, so one may be shared by any number of jobs and threads.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+public abstract class Recurrence {
+
+    /**
+     * What a #{@link SchedulingProvider} does with a firing which has fallen due.
+     */
+    public interface Firing {
+
+        /**
+         * Called first, so that the next firing is not held up by this one.
+         *
+         * @param deadline The time of the next firing, or -1 if there isn't one.
+         */
+        void next(long deadline);
+
+        /**
+         * @param scheduledFireTime The time to fire the job for.
+         */
+        void fire(long scheduledFireTime);
+
+        /**
+         * @param deadline The firing which was missed.
+         * @param now      The current time.
+         * @param policy   How the missed firing is being handled.
+         */
+        void misfired(long deadline, long now, MisfirePolicy policy);
+
+        /**
+         * @param scheduledFireTimes The missed firings to replay (see #{@link CatchUpExecutor}), oldest first.
+         */
+        void catchUp(List<Long> scheduledFireTimes);
+    }
+
+    /**
+     * @param period The milliseconds between firings.
+     * @return firings which keep to the same phase whatever happens.
+     */
+    public static Recurrence every(final long period) {
+        return new Interval(period);
+    }
+
+    /**
+     * @param schedule The cron schedule.
+     * @return firings on the given schedule.
+     */
+    public static Recurrence of(final CronSchedule schedule) {
+        return new Cron(schedule);
+    }
+
+    /**
+     * @param fireTime A firing.
+     * @return the time of the firing after it, or -1 if there isn't one.
+     */
+    public abstract long following(long fireTime);
+
+    /**
+     * @param deadline The firing which is due.
+     * @param now      The current time, after the deadline.
+     * @return the time of the first firing after now, or -1 if there isn't one.
+     */
+    public abstract long firstAfter(long deadline, long now);
+
+    /**
+     * @param deadline The first missed firing.
+     * @param now      The current time, after the deadline.
+     * @param max      The most firings to return.
+     * @return the latest <code>max</code> firings from <code>deadline</code> up to <code>now</code>, oldest first.
+     */
+    public abstract List<Long> missedFirings(long deadline, long now, int max);
+
+    /**
+     * Fire a firing which has fallen due. If it is no more than the misfire threshold late it is
+     * fired for its deadline, otherwise it is handled as its misfire policy says and the firings
+     * up to now are skipped.
+     *
+     * @param deadline         The firing which is due.
+     * @param now              The current time.
+     * @param misfireThreshold How late (in ms) a firing may be before it has misfired.
+     * @param misfire          How to handle a misfire.
+     * @param firing           Fires the job.
+     * @return the time of the next firing, or -1 if there isn't one.
+     */
+    public long fireDue(final long deadline, final long now, final long misfireThreshold,
+            final MisfireConfiguration misfire, final Firing firing) {
+        if (now - deadline <= misfireThreshold) {
+            final long next = following(deadline);
+            firing.next(next);
+            firing.fire(deadline);
+            return next;
+        }
+        final MisfirePolicy policy = misfire.getPolicy();
+        firing.misfired(deadline, now, policy);
+        final long next = firstAfter(deadline, now);
+        firing.next(next);
+        switch (policy) {
+            case FIRE_NOW:
+                firing.fire(now);
+                break;
+            case CATCH_UP:
+                firing.catchUp(missedFirings(deadline, now, misfire.getMaxCatchUp()));
+                break;
+            default:
+                // SKIP
+                break;
+        }
+        return next;
+    }
+
+    private static final class Interval extends Recurrence {
+
+        private final long period;
+
+        Interval(final long period) {
+            this.period = period;
+        }
+
+        @Override
+        public long following(final long fireTime) {
+            return fireTime + period;
+        }
+
+        @Override
+        public long firstAfter(final long deadline, final long now) {
+            return deadline + ((now - deadline) / period + 1) * period;
+        }
+
+        @Override
+        public List<Long> missedFirings(final long deadline, final long now, final int max) {
+            final List<Long> missed = new LinkedList<Long>();
+            final long last = deadline + ((now - deadline) / period) * period;
+            for (long fireTime = Math.max(deadline, last - (max - 1) * period); fireTime <= last; fireTime += period) {
+                missed.add(fireTime);
+            }
+            return missed;
+        }
+    }
+
+    private static final class Cron extends Recurrence {
+
+        private final CronSchedule schedule;
+
+        Cron(final CronSchedule schedule) {
+            this.schedule = schedule;
+        }
+
+        @Override
+        public long following(final long fireTime) {
+            return schedule.getNextFireTime(fireTime);
+        }
+
+        @Override
+        public long firstAfter(final long deadline, final long now) {
+            return schedule.getNextFireTime(now);
+        }
+
+        @Override
+        public List<Long> missedFirings(final long deadline, final long now, final int max) {
+            final LinkedList<Long> missed = new LinkedList<Long>();
+            for (long fireTime = deadline; fireTime >= 0 && fireTime <= now;
+                    fireTime = schedule.getNextFireTime(fireTime)) {
+                missed.add(fireTime);
+                if (missed.size() > max) {
+                    missed.removeFirst();
+                }
+            }
+            return missed;
+        }
+    }
+}
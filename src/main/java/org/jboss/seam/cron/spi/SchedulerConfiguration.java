@@ -0,0 +1,219 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.spi;
+
+import org.jboss.seam.cron.annotations.ThreadMode;
+import org.jboss.seam.cron.exception.SchedulerConfigurationException;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+
+/**
+ * <p>
+ * The settings which every #{@link SchedulingProvider} shares, as read from the
+ * /scheduler.properties file (or overridden by system properties of the same name):
+ * </p>
+ * <pre>
+ * # a fixed number of worker threads ...
+ * org.jboss.seam.cron.scheduler.threadCount=4
+ * # ... or a number of worker threads per available processor
+ * org.jboss.seam.cron.scheduler.threadsPerCore=2
+ * org.jboss.seam.cron.scheduler.threadPriority=5
+ * org.jboss.seam.cron.scheduler.threads=PLATFORM
+ * org.jboss.seam.cron.scheduler.misfireThreshold=5000
+ * # how often (in ms) to check this file for changes to the named schedules, or 0 for never
+ * org.jboss.seam.cron.scheduler.reloadInterval=0
+ * </pre>
+ * <p>
+ * When running on VIRTUAL threads the thread count limits the number of observers which
+ * may run at once and defaults to 1000.
+ * </p>
+ * <p>
+ * The timing wheel
+ * (<code>org.jboss.seam.cron.scheduler.provider=org.jboss.seam.cron.wheel.HashedWheelSchedulingProvider</code>)
+ * has a couple of its own:
+ * </p>
+ * <pre>
+ * # the precision of the wheel
+ * org.jboss.seam.cron.scheduler.wheel.tickMillis=10
+ * # the number of ticks in one turn of the wheel
+ * org.jboss.seam.cron.scheduler.wheel.size=512
+ * </pre>
+ * <p>
+ * Whether the events are shared between the nodes of a cluster
+ * (<code>org.jboss.seam.cron.scheduler.clustered=true</code>), and the name of the scheduler,
+ * are read here too so that a provider which can't share them can refuse to start. The settings
+ * of the default provider which uses Quartz, including those of a cluster, are described by
+ * #{@link org.jboss.seam.cron.quartz.QuartzConfiguration}.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+public class SchedulerConfiguration {
+
+    /**
+     * The prefix of all properties used to configure the scheduler.
+     */
+    public static final String PROPERTY_PREFIX = "org.jboss.seam.cron.scheduler.";
+    public static final String THREAD_COUNT = "threadCount";
+    public static final String THREADS_PER_CORE = "threadsPerCore";
+    public static final String THREAD_PRIORITY = "threadPriority";
+    public static final String THREADS = "threads";
+    public static final String MISFIRE_THRESHOLD = "misfireThreshold";
+    public static final String RELOAD_INTERVAL = "reloadInterval";
+    public static final String WHEEL_TICK_MILLIS = "wheel.tickMillis";
+    public static final String WHEEL_SIZE = "wheel.size";
+    public static final String CLUSTERED = "clustered";
+    public static final String NAME = "name";
+    /**
+     * The name of the scheduler when none is configured.
+     */
+    public static final String DEFAULT_NAME = "SeamCronScheduler";
+    private static final int DEFAULT_THREAD_COUNT = 4;
+    private static final int DEFAULT_VIRTUAL_THREAD_COUNT = 1000;
+    private static final long DEFAULT_MISFIRE_THRESHOLD = 5000;
+    private static final long DEFAULT_WHEEL_TICK_MILLIS = 10;
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+    private final int threadCount;
+    private final int threadPriority;
+    private final ThreadMode threadMode;
+    private final long misfireThreshold;
+    private final long reloadInterval;
+    private final long wheelTickMillis;
+    private final int wheelSize;
+    private final boolean clustered;
+    private final String name;
+
+    /**
+     * Read the settings from /scheduler.properties. Extended by providers with settings of their own.
+     *
+     * @param props The properties to read from.
+     */
+    protected SchedulerConfiguration(final SchedulePropertiesManager props) {
+        ThreadMode mode = ThreadMode.PLATFORM;
+        final String modeName = props.getProperty(PROPERTY_PREFIX + THREADS, null);
+        if (modeName != null) {
+            try {
+                mode = ThreadMode.valueOf(modeName.toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                throw new SchedulerConfigurationException("Unknown thread mode '" + modeName + "' for "
+                        + PROPERTY_PREFIX + THREADS + " in " + SchedulePropertiesManager.SCHEDULE_PROPERTIES_PATH, ex);
+            }
+            if (mode == ThreadMode.DEFAULT) {
+                mode = ThreadMode.PLATFORM;
+            }
+        }
+        threadMode = mode;
+
+        int defaultThreadCount = threadMode == ThreadMode.VIRTUAL ? DEFAULT_VIRTUAL_THREAD_COUNT : DEFAULT_THREAD_COUNT;
+        final int threadsPerCore = props.getIntProperty(PROPERTY_PREFIX + THREADS_PER_CORE, 0);
+        if (threadsPerCore > 0) {
+            defaultThreadCount = threadsPerCore * Runtime.getRuntime().availableProcessors();
+        }
+        threadCount = props.getIntProperty(PROPERTY_PREFIX + THREAD_COUNT, defaultThreadCount);
+        if (threadCount < 1) {
+            throw new SchedulerConfigurationException("The scheduler needs at least one thread, but "
+                    + PROPERTY_PREFIX + THREAD_COUNT + " was " + threadCount);
+        }
+
+        threadPriority = props.getIntProperty(PROPERTY_PREFIX + THREAD_PRIORITY, Thread.NORM_PRIORITY);
+        if (threadPriority < Thread.MIN_PRIORITY || threadPriority > Thread.MAX_PRIORITY) {
+            throw new SchedulerConfigurationException("Thread priority must be between " + Thread.MIN_PRIORITY
+                    + " and " + Thread.MAX_PRIORITY + ", but " + PROPERTY_PREFIX + THREAD_PRIORITY
+                    + " was " + threadPriority);
+        }
+
+        misfireThreshold = props.getLongProperty(PROPERTY_PREFIX + MISFIRE_THRESHOLD, DEFAULT_MISFIRE_THRESHOLD);
+        reloadInterval = Math.max(0, props.getLongProperty(PROPERTY_PREFIX + RELOAD_INTERVAL, 0));
+        wheelTickMillis = props.getLongProperty(PROPERTY_PREFIX + WHEEL_TICK_MILLIS, DEFAULT_WHEEL_TICK_MILLIS);
+        wheelSize = props.getIntProperty(PROPERTY_PREFIX + WHEEL_SIZE, DEFAULT_WHEEL_SIZE);
+        if (wheelTickMillis < 1 || wheelSize < 1) {
+            throw new SchedulerConfigurationException("The timing wheel needs a tick of at least 1ms and at least "
+                    + "one bucket, but " + PROPERTY_PREFIX + WHEEL_TICK_MILLIS + " was " + wheelTickMillis
+                    + " and " + PROPERTY_PREFIX + WHEEL_SIZE + " was " + wheelSize);
+        }
+        clustered = props.getBooleanProperty(PROPERTY_PREFIX + CLUSTERED, false);
+        name = props.getProperty(PROPERTY_PREFIX + NAME, DEFAULT_NAME);
+    }
+
+    /**
+     * Read the scheduler settings from /scheduler.properties.
+     *
+     * @param props The properties to read from.
+     * @return the scheduler configuration.
+     */
+    public static SchedulerConfiguration read(final SchedulePropertiesManager props) {
+        return new SchedulerConfiguration(props);
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public int getThreadPriority() {
+        return threadPriority;
+    }
+
+    public ThreadMode getThreadMode() {
+        return threadMode;
+    }
+
+    public long getMisfireThreshold() {
+        return misfireThreshold;
+    }
+
+    /**
+     * @return how often to check /scheduler.properties for changes to the named schedules, in
+     *         milliseconds, or 0 if it is read only when the application starts.
+     */
+    public long getReloadInterval() {
+        return reloadInterval;
+    }
+
+    /**
+     * @return the length of one tick of the timing wheel, in milliseconds.
+     */
+    public long getWheelTickMillis() {
+        return wheelTickMillis;
+    }
+
+    /**
+     * @return the number of ticks in one turn of the timing wheel.
+     */
+    public int getWheelSize() {
+        return wheelSize;
+    }
+
+    /**
+     * @return true if the scheduled events are shared between the nodes of a cluster.
+     */
+    public boolean isClustered() {
+        return clustered;
+    }
+
+    /**
+     * @return the name of the scheduler, which for a clustered scheduler must be the same on every node.
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "SchedulerConfiguration{" + "threadCount=" + threadCount + ", threadPriority=" + threadPriority
+                + ", threadMode=" + threadMode + ", misfireThreshold=" + misfireThreshold
+                + ", clustered=" + clustered + '}';
+    }
+}
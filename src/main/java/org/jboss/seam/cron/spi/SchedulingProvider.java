@@ -0,0 +1,123 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.spi;
+
+import java.util.Date;
+import java.util.Set;
+
+import org.jboss.seam.cron.events.TimeUnit;
+import org.jboss.seam.cron.metrics.SchedulerMetrics;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+
+/**
+ * <p>
+ * The engine which fires scheduled events on time. Seam Cron works out which events are
+ * observed and on what schedules, then hands them to the provider named by
+ * <code>org.jboss.seam.cron.scheduler.provider</code> in /scheduler.properties (Quartz by default).
+ * </p>
+ * <p>
+ * The provider is initialised, given all of the jobs and then started, in that order and
+ * all on one thread. That waits until there is a job, so an application which observes no
+ * scheduled events doesn't pay for an idle provider. After that, jobs may be scheduled and
+ * unscheduled from any thread (by the #{@link org.jboss.seam.cron.quartz.JobScheduler}), but
+ * never two changes to the same job at once.
+ * Implementations need a public no-argument constructor. Once started, the provider can be
+ * injected (<code>@Inject SchedulingProvider</code>) to see what it's up to.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+public interface SchedulingProvider {
+
+    /**
+     * The name of the property which selects the provider, as a class name.
+     */
+    String PROVIDER_PROPERTY = "org.jboss.seam.cron.scheduler.provider";
+
+    /**
+     * Set up the provider (but don't start firing anything yet).
+     *
+     * @param properties The contents of /scheduler.properties.
+     * @param metrics    The metrics to record the firings in. They already exist (and may have
+     *                   been injected) before the provider is set up, so don't create others.
+     */
+    void initProvider(SchedulePropertiesManager properties, SchedulerMetrics metrics);
+
+    /**
+     * @return the metrics given to #{@link #initProvider(SchedulePropertiesManager, SchedulerMetrics)},
+     *         in which the jobs' own metrics are registered.
+     */
+    SchedulerMetrics getMetrics();
+
+    /**
+     * Fire the given job repeatedly, every <code>interval</code> units from the start time.
+     *
+     * @param jobName   A name for the job which is unique and the same on every node.
+     * @param job       The job to fire.
+     * @param unit      The unit of the interval.
+     * @param interval  The number of units between firings.
+     * @param clustered false if the job must be fired on every node of a cluster.
+     * @param misfire   What to do when the job falls more than the misfire threshold behind.
+     * @param startTime The time of the first firing.
+     */
+    void scheduleInterval(String jobName, TimeEventJob job, TimeUnit unit, int interval, boolean clustered,
+            MisfireConfiguration misfire, Date startTime);
+
+    /**
+     * Fire the given job at the times described by a cron expression.
+     *
+     * @param jobName   A name for the job which is unique and the same on every node.
+     * @param job       The job to fire.
+     * @param schedule  The schedule, already compiled from Quartz cron format (eg: "0 0 * ? * *").
+     * @param clustered false if the job must be fired on every node of a cluster.
+     * @param misfire   What to do when the job falls more than the misfire threshold behind.
+     * @param startTime The time from which the schedule applies.
+     */
+    void scheduleCron(String jobName, TimeEventJob job, CronSchedule schedule, boolean clustered,
+            MisfireConfiguration misfire, Date startTime);
+
+    /**
+     * Stop firing the given job and forget about it. A firing which is already running is
+     * left to finish.
+     *
+     * @param jobName The name of a job given to this provider.
+     * @return false if the provider doesn't have the job.
+     */
+    boolean unschedule(String jobName);
+
+    /**
+     * @return the names of all of the jobs given to this provider.
+     */
+    Set<String> getJobNames();
+
+    /**
+     * @param jobName The name of a job given to this provider.
+     * @return the time at which the job will next fire, or null if it is unknown or will never
+     *         fire again (and, depending on the provider, before it has been started).
+     */
+    Date getNextFireTime(String jobName);
+
+    /**
+     * Start firing the scheduled jobs.
+     */
+    void start();
+
+    /**
+     * Stop firing the scheduled jobs and release any threads.
+     */
+    void shutdown();
+}
@@ -0,0 +1,34 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.spi;
+
+/**
+ * Fires one scheduled event to its observers. Seam Cron creates these (one per distinct
+ * schedule and qualifier) and binds them to their observers; all a #{@link SchedulingProvider}
+ * has to do is call #{@link #fire(long)} on schedule. They may be fired concurrently.
+ *
+ * @author Peter Royle
+ */
+public interface TimeEventJob {
+
+    /**
+     * Fire the event to its observers.
+     *
+     * @param scheduledFireTime The time at which the event was scheduled to fire.
+     */
+    void fire(long scheduledFireTime);
+}
@@ -0,0 +1,163 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import org.jboss.seam.cron.async.AsyncCallback;
+import org.jboss.seam.cron.exception.InternalException;
+
+/**
+ * Access to #{@literal CompletionStage} and #{@literal CompletableFuture} on JVMs which have them.
+ * Looked up reflectively so that Seam Cron still runs on older JVMs, where methods returning
+ * them cannot exist anyway.
+ *
+ * @author Peter Royle
+ */
+public final class CompletionStages {
+
+    private static final Class<?> COMPLETION_STAGE;
+    private static final Class<?> COMPLETABLE_FUTURE;
+    private static final Class<?> BI_CONSUMER;
+    private static final Method COMPLETE;
+    private static final Method COMPLETE_EXCEPTIONALLY;
+    private static final Method WHEN_COMPLETE;
+
+    static {
+        Class<?> stage = null;
+        Class<?> future = null;
+        Class<?> biConsumer = null;
+        Method complete = null;
+        Method completeExceptionally = null;
+        Method whenComplete = null;
+        try {
+            stage = Class.forName("java.util.concurrent.CompletionStage");
+            future = Class.forName("java.util.concurrent.CompletableFuture");
+            biConsumer = Class.forName("java.util.function.BiConsumer");
+            complete = future.getMethod("complete", Object.class);
+            completeExceptionally = future.getMethod("completeExceptionally", Throwable.class);
+            whenComplete = stage.getMethod("whenComplete", biConsumer);
+        } catch (Exception ex) {
+            stage = null;
+        }
+        COMPLETION_STAGE = stage;
+        COMPLETABLE_FUTURE = future;
+        BI_CONSUMER = biConsumer;
+        COMPLETE = complete;
+        COMPLETE_EXCEPTIONALLY = completeExceptionally;
+        WHEN_COMPLETE = whenComplete;
+    }
+
+    private CompletionStages() {
+    }
+
+    /**
+     * @return true if the running JVM has #{@literal CompletionStage}.
+     */
+    public static boolean isSupported() {
+        return COMPLETION_STAGE != null;
+    }
+
+    /**
+     * @param type The declared return type of a method.
+     * @return true if a #{@literal CompletableFuture} can be returned as the given type, and the
+     * type is a #{@literal CompletionStage} (ie: not just #{@link Object} or #{@link java.util.concurrent.Future}).
+     */
+    public static boolean isCompletionStageType(final Class<?> type) {
+        return isSupported() && COMPLETION_STAGE.isAssignableFrom(type) && type.isAssignableFrom(COMPLETABLE_FUTURE);
+    }
+
+    /**
+     * @param value The object to test.
+     * @return true if the object is a #{@literal CompletionStage}.
+     */
+    public static boolean isCompletionStage(final Object value) {
+        return isSupported() && COMPLETION_STAGE.isInstance(value);
+    }
+
+    /**
+     * @return a new, incomplete #{@literal CompletableFuture}.
+     */
+    public static Object newCompletableFuture() {
+        try {
+            return COMPLETABLE_FUTURE.newInstance();
+        } catch (Exception ex) {
+            throw new InternalException("Could not create a CompletableFuture", ex);
+        }
+    }
+
+    /**
+     * Complete the given #{@literal CompletableFuture} with a value.
+     *
+     * @param future The future to complete.
+     * @param value  The value to complete it with.
+     */
+    public static void complete(final Object future, final Object value) {
+        invoke(COMPLETE, future, value);
+    }
+
+    /**
+     * Complete the given #{@literal CompletableFuture} with an exception.
+     *
+     * @param future  The future to complete.
+     * @param failure The exception to complete it with.
+     */
+    public static void completeExceptionally(final Object future, final Throwable failure) {
+        invoke(COMPLETE_EXCEPTIONALLY, future, failure);
+    }
+
+    /**
+     * Have the given callback notified when the given #{@literal CompletionStage} completes.
+     *
+     * @param stage    The stage to listen to.
+     * @param callback The callback to notify.
+     */
+    public static void whenComplete(final Object stage, final AsyncCallback<Object> callback) {
+        final Object biConsumer = Proxy.newProxyInstance(CompletionStages.class.getClassLoader(),
+                new Class<?>[]{BI_CONSUMER}, new InvocationHandler() {
+
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        if ("accept".equals(method.getName()) && args != null && args.length == 2) {
+                            if (args[1] != null) {
+                                callback.onFailure((Throwable) args[1]);
+                            } else {
+                                callback.onSuccess(args[0]);
+                            }
+                            return null;
+                        } else if ("equals".equals(method.getName())) {
+                            return proxy == args[0];
+                        } else if ("hashCode".equals(method.getName())) {
+                            return System.identityHashCode(proxy);
+                        }
+                        return "BiConsumer for " + callback;
+                    }
+                });
+        invoke(WHEN_COMPLETE, stage, biConsumer);
+    }
+
+    private static void invoke(final Method method, final Object target, final Object arg) {
+        try {
+            method.invoke(target, arg);
+        } catch (InvocationTargetException ex) {
+            throw new InternalException("Error invoking " + method.getName(), ex.getCause());
+        } catch (IllegalAccessException ex) {
+            throw new InternalException("Could not invoke " + method.getName(), ex);
+        }
+    }
+}
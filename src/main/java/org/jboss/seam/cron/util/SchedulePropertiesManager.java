@@ -16,15 +16,22 @@
  */
 package org.jboss.seam.cron.util;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.Properties;
 
 import org.jboss.logging.Logger;
 
 /**
  * A singleton instance of the properties read from the /schedule.properties
- * file on the classpath.
+ * file on the classpath, or from the file named by the #{@value #PROPERTIES_FILE_PROPERTY}
+ * system property. If the properties came from a file which can be edited while the
+ * application runs (ie: not one inside an archive) then they can be re-read with
+ * #{@link #reload()}.
  *
  * @author Peter Royle
  */
@@ -33,7 +40,16 @@ public class SchedulePropertiesManager {
      * The path on the classpath at which the properties file cotaining named schedules is expected to be found.
      */
     public static final String SCHEDULE_PROPERTIES_PATH = "/scheduler.properties";
-    private Properties scheduleProperties = null;
+    /**
+     * The name of the system property giving the path of a properties file to read instead of the one on the
+     * classpath, eg: one outside the application which can be tuned in production.
+     */
+    public static final String PROPERTIES_FILE_PROPERTY = "org.jboss.seam.cron.propertiesFile";
+    private volatile Properties scheduleProperties = null;
+    // the file the properties were read from, or null if they can't be re-read
+    private File sourceFile;
+    private long lastModified;
+    private long lastLength;
     private static SchedulePropertiesManager instance = null;
     private Logger log = Logger.getLogger(SchedulePropertiesManager.class);
 
@@ -60,6 +76,17 @@ public class SchedulePropertiesManager {
      */
     public SchedulePropertiesManager() {
         scheduleProperties = new Properties();
+        sourceFile = findSourceFile();
+        if (sourceFile != null) {
+            lastModified = sourceFile.lastModified();
+            lastLength = sourceFile.length();
+            try {
+                scheduleProperties = load(sourceFile);
+            } catch (IOException ex) {
+                log.error("Error loading properties file for named schedules at " + sourceFile, ex);
+            }
+            return;
+        }
 
         final InputStream schedPropsIS = this.getClass().getResourceAsStream(SCHEDULE_PROPERTIES_PATH);
 
@@ -75,10 +102,184 @@ public class SchedulePropertiesManager {
         }
     }
 
+    /**
+     * Creates a new instance of SchedulePropertiesManager using the given properties rather
+     * than reading them from the classpath.
+     *
+     * @param scheduleProperties The named schedules and configuration settings.
+     */
+    public SchedulePropertiesManager(final Properties scheduleProperties) {
+        this.scheduleProperties = scheduleProperties;
+    }
+
     /**
      * @return the scheduleProperties.
      */
     public Properties getScheduleProperties() {
         return scheduleProperties;
     }
+
+    /**
+     * Read the properties file again if it has been changed since it was last read.
+     *
+     * @return true if the properties are now different, false if they are the same or can't be re-read.
+     */
+    public synchronized boolean reload() {
+        if (sourceFile == null) {
+            return false;
+        }
+        final long modified = sourceFile.lastModified();
+        final long length = sourceFile.length();
+        if (modified == lastModified && length == lastLength) {
+            return false;
+        }
+        lastModified = modified;
+        lastLength = length;
+        final Properties reloaded;
+        try {
+            reloaded = load(sourceFile);
+        } catch (IOException ex) {
+            log.error("Error reloading properties file for named schedules at " + sourceFile, ex);
+            return false;
+        }
+        if (reloaded.equals(scheduleProperties)) {
+            return false;
+        }
+        log.info("Reloaded " + sourceFile);
+        scheduleProperties = reloaded;
+        return true;
+    }
+
+    /**
+     * @return the file named by the system property, or else the one on the classpath if it is a file
+     *         rather than inside an archive, or null if neither.
+     */
+    private File findSourceFile() {
+        final String path = System.getProperty(PROPERTIES_FILE_PROPERTY);
+        if (path != null) {
+            final File file = new File(path);
+            if (file.isFile()) {
+                return file;
+            }
+            log.warn(path + " (set by " + PROPERTIES_FILE_PROPERTY + ") not found, looking for "
+                    + SCHEDULE_PROPERTIES_PATH + " on the classpath instead");
+        }
+        final URL url = this.getClass().getResource(SCHEDULE_PROPERTIES_PATH);
+        if (url == null || !"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException ex) {
+            return null;
+        }
+    }
+
+    private static Properties load(final File file) throws IOException {
+        final Properties properties = new Properties();
+        final InputStream in = new FileInputStream(file);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        return properties;
+    }
+
+    /**
+     * Look up a configuration setting, falling back to the given default if it is not set.
+     * A system property of the same name takes precedence over the properties file, so that
+     * settings can be tuned per node without rebuilding the application.
+     *
+     * @param name         The name of the property.
+     * @param defaultValue The value to return if the property is missing or empty.
+     * @return the trimmed value of the property, or the default.
+     */
+    public String getProperty(final String name, final String defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            value = scheduleProperties.getProperty(name);
+        }
+        if (value == null || value.trim().length() == 0) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
+    /**
+     * Look up an integer configuration setting, falling back to the given default if it
+     * is not set or is not a valid number.
+     *
+     * @param name         The name of the property.
+     * @param defaultValue The value to return if the property is missing or invalid.
+     * @return the value of the property, or the default.
+     */
+    public int getIntProperty(final String name, final int defaultValue) {
+        final String value = getProperty(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            log.warn("Ignoring invalid value '" + value + "' for " + name + " in " + SCHEDULE_PROPERTIES_PATH
+                    + ", using default of " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Look up a long configuration setting, falling back to the given default if it
+     * is not set or is not a valid number.
+     *
+     * @param name         The name of the property.
+     * @param defaultValue The value to return if the property is missing or invalid.
+     * @return the value of the property, or the default.
+     */
+    public long getLongProperty(final String name, final long defaultValue) {
+        final String value = getProperty(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            log.warn("Ignoring invalid value '" + value + "' for " + name + " in " + SCHEDULE_PROPERTIES_PATH
+                    + ", using default of " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Look up a boolean configuration setting, falling back to the given default if it is not set.
+     *
+     * @param name         The name of the property.
+     * @param defaultValue The value to return if the property is missing.
+     * @return the value of the property, or the default.
+     */
+    public boolean getBooleanProperty(final String name, final boolean defaultValue) {
+        final String value = getProperty(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        return Boolean.valueOf(value);
+    }
+
+    /**
+     * @param prefix The prefix to look for, eg: "org.jboss.seam.cron.asynchronous.com.acme.Reports."
+     * @return true if at least one property name (or system property name) starts with the given prefix.
+     */
+    public boolean hasPropertiesStartingWith(final String prefix) {
+        for (Object key : scheduleProperties.keySet()) {
+            if (key.toString().startsWith(prefix)) {
+                return true;
+            }
+        }
+        for (Object key : System.getProperties().keySet()) {
+            if (key.toString().startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,237 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.wheel;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+import org.jboss.seam.cron.annotations.MisfirePolicy;
+import org.jboss.seam.cron.annotations.ThreadMode;
+import org.jboss.seam.cron.events.TimeUnit;
+import org.jboss.seam.cron.exception.SchedulerConfigurationException;
+import org.jboss.seam.cron.metrics.JobMetrics;
+import org.jboss.seam.cron.metrics.SchedulerMetrics;
+import org.jboss.seam.cron.spi.CatchUpExecutor;
+import org.jboss.seam.cron.spi.CronSchedule;
+import org.jboss.seam.cron.spi.MisfireConfiguration;
+import org.jboss.seam.cron.spi.Recurrence;
+import org.jboss.seam.cron.spi.SchedulerConfiguration;
+import org.jboss.seam.cron.spi.SchedulingProvider;
+import org.jboss.seam.cron.spi.TimeEventJob;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+import org.jboss.seam.cron.util.VirtualThreads;
+
+/**
+ * <p>
+ * Fires scheduled events from a #{@link HashedWheelTimer} rather than Quartz, for applications
+ * with so many @Every observers that Quartz's sorted trigger set and global lock get in the way.
+ * Select it in /scheduler.properties:
+ * </p>
+ * <pre>
+ * org.jboss.seam.cron.scheduler.provider=org.jboss.seam.cron.wheel.HashedWheelSchedulingProvider
+ * </pre>
+ * <p>
+ * Events which fall more than the misfire threshold behind follow their misfire policy, and
+ * whatever the policy they stay in phase. The jobs are run on a pool of <code>threadCount</code> threads. Everything is
+ * kept in memory, so the wheel can't be clustered.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+public class HashedWheelSchedulingProvider
+        implements SchedulingProvider {
+
+    private static final String NAME_PREFIX = "SeamCronWheel";
+    private final ConcurrentMap<String, WheelTimeout> timeouts = new ConcurrentHashMap<String, WheelTimeout>();
+    private HashedWheelTimer timer;
+    private ExecutorService executor;
+    private CatchUpExecutor catchUp;
+    private SchedulerMetrics metrics;
+    private long misfireThreshold;
+    private static final Logger log = Logger.getLogger(HashedWheelSchedulingProvider.class);
+
+    public void initProvider(final SchedulePropertiesManager properties, final SchedulerMetrics metrics) {
+        final SchedulerConfiguration config = SchedulerConfiguration.read(properties);
+        if (config.isClustered()) {
+            throw new SchedulerConfigurationException("The timing wheel can't share scheduled events between the "
+                    + "nodes of a cluster. Please use the Quartz provider, or turn off "
+                    + SchedulerConfiguration.PROPERTY_PREFIX + SchedulerConfiguration.CLUSTERED);
+        }
+        log.info("Initialising timing wheel using " + config + ", tick=" + config.getWheelTickMillis()
+                + "ms, size=" + config.getWheelSize());
+        final String name = NAME_PREFIX + "_" + UUID.randomUUID();
+        misfireThreshold = config.getMisfireThreshold();
+        executor = createExecutor(config);
+        catchUp = new CatchUpExecutor(NAME_PREFIX);
+        timer = new HashedWheelTimer(name, config.getWheelTickMillis(), config.getWheelSize());
+        this.metrics = metrics;
+    }
+
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void scheduleInterval(final String jobName, final TimeEventJob job, final TimeUnit unit, final int interval,
+            final boolean clustered, final MisfireConfiguration misfire, final Date startTime) {
+        log.debug("Scheduler for " + jobName + " initialised");
+        add(jobName, new JobTimeout(jobName, job, misfire, startTime.getTime(),
+                Recurrence.every(interval * unit.getMillis())));
+    }
+
+    public void scheduleCron(final String jobName, final TimeEventJob job, final CronSchedule schedule,
+            final boolean clustered, final MisfireConfiguration misfire, final Date startTime) {
+        // as Quartz does, the start time itself is a candidate
+        final long first = schedule.getNextFireTime(startTime.getTime() - 1000L);
+        if (first < 0) {
+            log.warn("Schedule '" + schedule + "' of " + jobName + " will never fire");
+            return;
+        }
+        log.debug("Scheduler for " + jobName + " initialised");
+        add(jobName, new JobTimeout(jobName, job, misfire, first, Recurrence.of(schedule)));
+    }
+
+    public boolean unschedule(final String jobName) {
+        final WheelTimeout timeout = timeouts.remove(jobName);
+        if (timeout == null) {
+            return false;
+        }
+        timeout.cancelled = true;
+        return true;
+    }
+
+    public Set<String> getJobNames() {
+        return Collections.unmodifiableSet(timeouts.keySet());
+    }
+
+    public Date getNextFireTime(final String jobName) {
+        final WheelTimeout timeout = timeouts.get(jobName);
+        if (timeout == null) {
+            return null;
+        }
+        final long deadline = timeout.deadline;
+        return deadline < 0 ? null : new Date(deadline);
+    }
+
+    public void start() {
+        timer.start();
+    }
+
+    public void shutdown() {
+        if (timer != null) {
+            timer.stop();
+            executor.shutdown();
+            catchUp.shutdown();
+        }
+    }
+
+    private void add(final String jobName, final WheelTimeout timeout) {
+        timeouts.put(jobName, timeout);
+        timer.add(timeout);
+    }
+
+    private ExecutorService createExecutor(final SchedulerConfiguration config) {
+        if (config.getThreadMode() == ThreadMode.VIRTUAL) {
+            if (VirtualThreads.isSupported()) {
+                log.info("Scheduled observers will be run on virtual threads");
+                return VirtualThreads.newThreadPerTaskExecutor(NAME_PREFIX + "-virtual-");
+            }
+            log.warn("Virtual threads are not supported by this JVM, running scheduled observers on platform threads");
+        }
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(config.getThreadCount(), new ThreadFactory() {
+
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, NAME_PREFIX + "-worker-" + threadNumber.incrementAndGet());
+                thread.setPriority(config.getThreadPriority());
+                return thread;
+            }
+        });
+    }
+
+    private void fire(final TimeEventJob job, final long scheduledFireTime) {
+        executor.execute(new Runnable() {
+
+            public void run() {
+                try {
+                    job.fire(scheduledFireTime);
+                } catch (RuntimeException ex) {
+                    log.error("Error firing scheduled event", ex);
+                }
+            }
+        });
+    }
+
+    private void misfired(final String jobName, final long deadline, final long now, final MisfirePolicy policy) {
+        log.warn("Scheduled event " + jobName + " misfired by " + (now - deadline) + "ms, handling with " + policy);
+        final JobMetrics jobMetrics = metrics.getJobMetrics(jobName);
+        if (jobMetrics != null) {
+            jobMetrics.misfired(policy);
+        }
+    }
+
+    /**
+     * Fires a scheduled event and works out when it should next fire.
+     */
+    private class JobTimeout extends WheelTimeout
+            implements Recurrence.Firing {
+
+        private final String jobName;
+        private final TimeEventJob job;
+        private final MisfireConfiguration misfire;
+        private final Recurrence recurrence;
+
+        JobTimeout(final String jobName, final TimeEventJob job, final MisfireConfiguration misfire,
+                final long firstDeadline, final Recurrence recurrence) {
+            super(firstDeadline);
+            this.jobName = jobName;
+            this.job = job;
+            this.misfire = misfire;
+            this.recurrence = recurrence;
+        }
+
+        @Override
+        long expire(final long deadline, final long now) {
+            return recurrence.fireDue(deadline, now, misfireThreshold, misfire, this);
+        }
+
+        public void next(final long deadline) {
+            // put back on the wheel by expire()
+        }
+
+        public void fire(final long scheduledFireTime) {
+            HashedWheelSchedulingProvider.this.fire(job, scheduledFireTime);
+        }
+
+        public void misfired(final long deadline, final long now, final MisfirePolicy policy) {
+            HashedWheelSchedulingProvider.this.misfired(jobName, deadline, now, policy);
+        }
+
+        public void catchUp(final List<Long> scheduledFireTimes) {
+            catchUp.replay(jobName, job, scheduledFireTimes);
+        }
+    }
+}
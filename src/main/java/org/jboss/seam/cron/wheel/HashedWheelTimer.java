@@ -0,0 +1,183 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.wheel;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jboss.logging.Logger;
+
+/**
+ * <p>
+ * A hashed timing wheel (after Varghese and Lauck): a ring of buckets, one per tick, which a
+ * single thread walks round, expiring the timeouts in each bucket as it gets to it. A timeout
+ * due further away than one turn of the wheel waits in its bucket for the right number of rounds.
+ * </p>
+ * <p>
+ * Adding a timeout just puts it on a lock-free queue, which the timer's thread empties into
+ * the wheel on its next tick, and each tick only looks at the timeouts in its own bucket. So
+ * neither depends on how many timeouts there are in total, unlike a sorted set of triggers.
+ * The price is precision: timeouts expire up to one tick late. Cancelling a timeout just marks
+ * it, and it is dropped when its bucket next comes round.
+ * </p>
+ *
+ * @author Peter Royle
+ */
+class HashedWheelTimer implements Runnable {
+
+    private final long tickMillis;
+    private final long tickNanos;
+    private final WheelTimeout[] wheel;
+    private final int mask;
+    private final Queue<WheelTimeout> pending = new ConcurrentLinkedQueue<WheelTimeout>();
+    private final Thread worker;
+    private volatile boolean running;
+    private long startMillis;
+    private long startNanos;
+    private long tick;
+    private static final Logger log = Logger.getLogger(HashedWheelTimer.class);
+
+    /**
+     * @param name       The name of the timer's thread.
+     * @param tickMillis The length of a tick, ie: the precision of the timer.
+     * @param wheelSize  The number of buckets (rounded up to a power of two).
+     */
+    HashedWheelTimer(final String name, final long tickMillis, final int wheelSize) {
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new WheelTimeout[size];
+        this.mask = size - 1;
+        this.tickMillis = tickMillis;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.worker = new Thread(this, name);
+        this.worker.setDaemon(true);
+    }
+
+    /**
+     * Add a timeout to the wheel. Safe to call from any thread, before or after the timer starts.
+     *
+     * @param timeout The timeout.
+     */
+    void add(final WheelTimeout timeout) {
+        pending.offer(timeout);
+    }
+
+    void start() {
+        startMillis = System.currentTimeMillis();
+        startNanos = System.nanoTime();
+        running = true;
+        worker.start();
+    }
+
+    void stop() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void run() {
+        while (running) {
+            final long tickDeadline = startNanos + (tick + 1) * tickNanos;
+            long sleepNanos;
+            while ((sleepNanos = tickDeadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+                if (!running) {
+                    return;
+                }
+            }
+            WheelTimeout timeout;
+            while ((timeout = pending.poll()) != null) {
+                if (!timeout.cancelled) {
+                    place(timeout, tick);
+                }
+            }
+            expireBucket((int) (tick & mask));
+            tick++;
+        }
+    }
+
+    private void expireBucket(final int bucket) {
+        final long now = startMillis + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        WheelTimeout rearmed = null;
+        WheelTimeout timeout = wheel[bucket];
+        while (timeout != null) {
+            final WheelTimeout next = timeout.next;
+            if (timeout.cancelled) {
+                unlink(bucket, timeout);
+            } else if (timeout.remainingRounds <= 0) {
+                unlink(bucket, timeout);
+                long nextDeadline = -1;
+                try {
+                    nextDeadline = timeout.expire(timeout.deadline, now);
+                } catch (RuntimeException ex) {
+                    log.error("Error expiring timeout, it will not be re-armed", ex);
+                }
+                timeout.deadline = nextDeadline;
+                if (nextDeadline >= 0) {
+                    timeout.next = rearmed;
+                    rearmed = timeout;
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+        // not until the bucket is done with, so that nothing can expire twice in one tick
+        while (rearmed != null) {
+            final WheelTimeout next = rearmed.next;
+            place(rearmed, tick + 1);
+            rearmed = next;
+        }
+    }
+
+    /**
+     * @param timeout  The timeout to put in the wheel.
+     * @param earliest The first tick on which it may be expired.
+     */
+    private void place(final WheelTimeout timeout, final long earliest) {
+        final long ticks = Math.max((timeout.deadline - startMillis) / tickMillis, earliest);
+        timeout.remainingRounds = (ticks - earliest) / wheel.length;
+        final int bucket = (int) (ticks & mask);
+        timeout.prev = null;
+        timeout.next = wheel[bucket];
+        if (wheel[bucket] != null) {
+            wheel[bucket].prev = timeout;
+        }
+        wheel[bucket] = timeout;
+    }
+
+    private void unlink(final int bucket, final WheelTimeout timeout) {
+        if (timeout.prev == null) {
+            wheel[bucket] = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.next = null;
+        timeout.prev = null;
+    }
+}
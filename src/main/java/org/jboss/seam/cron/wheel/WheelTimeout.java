@@ -0,0 +1,49 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.wheel;
+
+/**
+ * Something waiting in a #{@link HashedWheelTimer}. The same instance goes round the wheel
+ * again each time it is re-armed, so a repeating job costs nothing per firing to keep track of.
+ *
+ * @author Peter Royle
+ */
+abstract class WheelTimeout {
+
+    volatile long deadline;
+    // set from any thread, and the timer drops the timeout next time it comes across it
+    volatile boolean cancelled;
+    long remainingRounds;
+    WheelTimeout next;
+    WheelTimeout prev;
+
+    /**
+     * @param deadline The time (in milliseconds since the epoch) at which to expire first.
+     */
+    WheelTimeout(final long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Called on the timer's thread when the deadline has passed. Must not block.
+     *
+     * @param deadline The deadline which has passed.
+     * @param now      The current time.
+     * @return the next deadline, or -1 if this timeout is finished with.
+     */
+    abstract long expire(long deadline, long now);
+}
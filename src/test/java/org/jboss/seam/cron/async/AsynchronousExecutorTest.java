@@ -0,0 +1,377 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.inject.spi.BeanManager;
+import javax.interceptor.InvocationContext;
+
+import org.jboss.seam.cron.annotations.Asynchronous;
+import org.jboss.seam.cron.annotations.ThreadMode;
+import org.jboss.seam.cron.async.ExecutorConfiguration.RejectionPolicy;
+import org.jboss.seam.cron.metrics.AsynchronousMethodMetrics;
+import org.jboss.seam.cron.metrics.AsynchronousMetrics;
+import org.jboss.seam.cron.util.VirtualThreads;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that the #{@link AsynchronousExecutor} sizes its pools as configured, follows each
+ * rejection policy once a pool is full, and gives a configured qualifier a pool of its own.
+ *
+ * @author Peter Royle
+ */
+public class AsynchronousExecutorTest {
+
+    private static final String POOL_PREFIX = ExecutorConfiguration.PROPERTY_PREFIX + Reports.class.getName() + ".";
+    private static final String[] POOL_PROPERTIES = {ExecutorConfiguration.CORE_SIZE, ExecutorConfiguration.MAX_SIZE,
+        ExecutorConfiguration.QUEUE_CAPACITY, ExecutorConfiguration.REJECTION_POLICY, ExecutorConfiguration.THREADS};
+    private final List<String> ran = Collections.synchronizedList(new ArrayList<String>());
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AsynchronousExecutor executor;
+    private ExecutorService pool;
+
+    @Before
+    public void createExecutor() {
+        executor = new AsynchronousExecutor();
+        executor.beanMan = createBeanManager();
+        executor.metrics = new AsynchronousMetrics();
+        executor.init();
+    }
+
+    @After
+    public void shutdownExecutor() {
+        release.countDown();
+        for (String property : POOL_PROPERTIES) {
+            System.clearProperty(POOL_PREFIX + property);
+        }
+        executor.shutdown();
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPoolIsSizedAsConfigured() {
+        pool = executor.createExecutorService(new ExecutorConfiguration("sized", 2, 4, 3, 30,
+                RejectionPolicy.ABORT, ThreadMode.PLATFORM));
+        final ThreadPoolExecutor sized = (ThreadPoolExecutor) pool;
+        Assert.assertEquals(2, sized.getCorePoolSize());
+        Assert.assertEquals(4, sized.getMaximumPoolSize());
+        Assert.assertEquals(30, sized.getKeepAliveTime(TimeUnit.SECONDS));
+        Assert.assertTrue(sized.getQueue() instanceof ArrayBlockingQueue);
+        Assert.assertEquals(3, sized.getQueue().remainingCapacity());
+        Assert.assertTrue(sized.getRejectedExecutionHandler() instanceof ThreadPoolExecutor.AbortPolicy);
+
+        final ThreadPoolExecutor handOff = (ThreadPoolExecutor) executor.createExecutorService(
+                new ExecutorConfiguration("handOff", 1, 1, 0, 30, RejectionPolicy.DISCARD, ThreadMode.PLATFORM));
+        handOff.shutdown();
+        Assert.assertTrue(handOff.getQueue() instanceof SynchronousQueue);
+        Assert.assertTrue(handOff.getRejectedExecutionHandler() instanceof DiscardPolicy);
+    }
+
+    @Test
+    public void testAbortRejects() {
+        fill(RejectionPolicy.ABORT);
+        try {
+            pool.execute(task("rejected"));
+            Assert.fail("The invocation should have been rejected");
+        } catch (RejectedExecutionException expected) {
+        }
+    }
+
+    @Test
+    public void testCallerRuns() throws InterruptedException {
+        fill(RejectionPolicy.CALLER_RUNS);
+        pool.execute(new Runnable() {
+
+            public void run() {
+                ran.add(Thread.currentThread().getName());
+            }
+        });
+        Assert.assertEquals(Collections.singletonList(Thread.currentThread().getName()), ran);
+    }
+
+    @Test
+    public void testDiscard() throws Exception {
+        configureReportsPool(RejectionPolicy.DISCARD);
+        invoke("reportAndForget", "running");
+        invoke("reportAndForget", "queued");
+        invoke("reportAndForget", "discarded");
+        awaitReports();
+        Assert.assertEquals(2, ran.size());
+        Assert.assertFalse(ran.contains("discarded"));
+        assertOneRejection("reportAndForget");
+    }
+
+    @Test
+    public void testDiscardOldest() throws Exception {
+        configureReportsPool(RejectionPolicy.DISCARD_OLDEST);
+        invoke("reportLater", "running");
+        final Future<?> queued = invoke("reportLater", "queued");
+        invoke("reportLater", "newest");
+        awaitReports();
+        Assert.assertEquals(2, ran.size());
+        Assert.assertFalse(ran.contains("queued"));
+        Assert.assertTrue(ran.contains("newest"));
+        try {
+            queued.get(5, TimeUnit.SECONDS);
+            Assert.fail("The discarded invocation should have failed");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+        assertOneRejection("reportLater");
+    }
+
+    @Test
+    public void testQualifierHasItsOwnPool() throws NoSuchMethodException {
+        final ExecutorService defaultPool = executor.getDefaultExecutorService();
+        Assert.assertSame(defaultPool, executor.getExecutorService(Holder.class.getAnnotation(Reports.class)));
+
+        System.setProperty(POOL_PREFIX + ExecutorConfiguration.CORE_SIZE, "2");
+        final ExecutorService reportsPool = executor.getExecutorService(Holder.class.getAnnotation(Reports.class));
+        Assert.assertNotSame(defaultPool, reportsPool);
+        Assert.assertSame(reportsPool, executor.getExecutorService(Holder.class.getAnnotation(Reports.class)));
+        Assert.assertEquals(2, ((ThreadPoolExecutor) reportsPool).getCorePoolSize());
+
+        // a method is run on the pool of its qualifier
+        Assert.assertSame(reportsPool, executor.getExecutorService(Holder.class.getMethod("report")));
+        Assert.assertSame(defaultPool, executor.getExecutorService(Holder.class.getMethod("other")));
+    }
+
+    @Test
+    public void testVirtualThreadsForAMethod() throws Exception {
+        final ExecutorService virtualPool = executor.getExecutorService(Holder.class.getMethod("onVirtualThreads"));
+        Assert.assertNotSame(executor.getDefaultExecutorService(), virtualPool);
+        assertVirtualOrFallenBack(virtualPool, "SeamCronAsynchronous-default-virtual-");
+        Assert.assertSame(virtualPool, executor.getExecutorService(Holder.class.getMethod("onVirtualThreads")));
+    }
+
+    @Test
+    public void testVirtualThreadsForAQualifier() throws Exception {
+        System.setProperty(POOL_PREFIX + ExecutorConfiguration.THREADS, "VIRTUAL");
+        final ExecutorService reportsPool = executor.getExecutorService(Holder.class.getMethod("report"));
+        assertVirtualOrFallenBack(reportsPool, "SeamCronAsynchronous-" + Reports.class.getName() + "-virtual-");
+
+        // the method's own choice wins
+        final ExecutorService platformPool = executor.getExecutorService(
+                Holder.class.getMethod("reportOnPlatformThreads"));
+        Assert.assertTrue(platformPool instanceof ThreadPoolExecutor);
+        Assert.assertTrue(threadName(platformPool).startsWith("SeamCronAsynchronous-" + Reports.class.getName() + "-"));
+    }
+
+    @Test
+    public void testDiscardedInvocationFailsItsFuture() throws Exception {
+        configureReportsPool(RejectionPolicy.DISCARD);
+        final Future<?> running = invoke("reportLater", "running");
+        final Future<?> queued = invoke("reportLater", "queued");
+        final Future<?> discarded = invoke("reportLater", "discarded");
+        try {
+            discarded.get(5, TimeUnit.SECONDS);
+            Assert.fail("The discarded invocation should have failed");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+
+        release.countDown();
+        Assert.assertEquals("running", running.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+        Assert.assertFalse(ran.contains("discarded"));
+    }
+
+    /**
+     * Check that the given pool runs its invocations on virtual threads with the given name, or
+     * on a pool of platform threads if the JVM has no virtual threads.
+     */
+    private void assertVirtualOrFallenBack(final ExecutorService virtualPool, final String namePrefix)
+            throws Exception {
+        if (VirtualThreads.isSupported()) {
+            Assert.assertFalse(virtualPool instanceof ThreadPoolExecutor);
+            Assert.assertTrue(threadName(virtualPool).startsWith(namePrefix));
+        } else {
+            Assert.assertTrue(virtualPool instanceof ThreadPoolExecutor);
+            Assert.assertEquals(16, ((ThreadPoolExecutor) virtualPool).getCorePoolSize());
+        }
+    }
+
+    private String threadName(final ExecutorService pool) throws Exception {
+        return pool.submit(new Callable<String>() {
+
+            public String call() {
+                return Thread.currentThread().getName();
+            }
+        }).get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Give the methods qualified @Reports a pool with one thread and one place in its queue,
+     * which does the given thing when it's full.
+     */
+    private void configureReportsPool(final RejectionPolicy policy) {
+        System.setProperty(POOL_PREFIX + ExecutorConfiguration.CORE_SIZE, "1");
+        System.setProperty(POOL_PREFIX + ExecutorConfiguration.MAX_SIZE, "1");
+        System.setProperty(POOL_PREFIX + ExecutorConfiguration.QUEUE_CAPACITY, "1");
+        System.setProperty(POOL_PREFIX + ExecutorConfiguration.REJECTION_POLICY, policy.toString());
+    }
+
+    /**
+     * Let the invocations in the pool of the methods qualified @Reports finish.
+     */
+    private void awaitReports() throws Exception {
+        release.countDown();
+        final ExecutorService reports = executor.getExecutorService(Holder.class.getMethod("reportLater"));
+        reports.shutdown();
+        Assert.assertTrue(reports.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Check that the dropped invocation of the given method was counted as rejected, rather than
+     * left waiting for ever.
+     */
+    private void assertOneRejection(final String methodName) throws Exception {
+        final AsynchronousMethodMetrics metrics = executor.getAsynchronousMethod(
+                Holder.class.getMethod(methodName)).getMetrics();
+        Assert.assertEquals(3, metrics.getQueued());
+        Assert.assertEquals(1, metrics.getRejected());
+        Assert.assertEquals(2, metrics.getCompleted());
+        Assert.assertEquals(0, metrics.getWaiting());
+        Assert.assertEquals(0, metrics.getRunning());
+    }
+
+    /**
+     * Call a method of #{@link Holder} through the #{@link AsynchronousInterceptor}, as a container would.
+     *
+     * @param methodName The method to call.
+     * @param name       What the invocation returns, once released.
+     * @return the future handed back to the caller, if the method returns one.
+     */
+    private Future<?> invoke(final String methodName, final String name) throws Exception {
+        final AsynchronousInterceptor interceptor = new AsynchronousInterceptor();
+        interceptor.beanMan = executor.beanMan;
+        interceptor.executor = executor;
+        final Method method = Holder.class.getMethod(methodName);
+        final InvocationContext ctx = (InvocationContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{InvocationContext.class}, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method called, Object[] args) throws Throwable {
+                if ("getMethod".equals(called.getName())) {
+                    return method;
+                }
+                if ("proceed".equals(called.getName())) {
+                    task(name).run();
+                    return method.getReturnType() == Void.TYPE ? null : new AsyncResult<String>(name);
+                }
+                return null;
+            }
+        });
+        return (Future<?>) interceptor.executeAsynchronously(ctx);
+    }
+
+    /**
+     * Occupy the only thread of a new pool, and the only place in its queue.
+     */
+    private void fill(final RejectionPolicy policy) {
+        pool = executor.createExecutorService(new ExecutorConfiguration(policy.toString(), 1, 1, 1, 30, policy,
+                ThreadMode.PLATFORM));
+        pool.execute(task("running"));
+        pool.execute(task("queued"));
+    }
+
+    private Runnable task(final String name) {
+        return new Runnable() {
+
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                ran.add(name);
+            }
+        };
+    }
+
+    private BeanManager createBeanManager() {
+        return (BeanManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{BeanManager.class},
+                new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("isQualifier".equals(method.getName())) {
+                    return args[0] == Reports.class;
+                }
+                return null;
+            }
+        });
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface Reports {
+    }
+
+    @Reports
+    private static class Holder {
+
+        @Asynchronous
+        @Reports
+        public void report() {
+        }
+
+        @Asynchronous
+        public void other() {
+        }
+
+        @Asynchronous
+        @Reports
+        public Future<String> reportLater() {
+            return null;
+        }
+
+        @Asynchronous
+        @Reports
+        public void reportAndForget() {
+        }
+
+        @Asynchronous(threads = ThreadMode.PLATFORM)
+        @Reports
+        public void reportOnPlatformThreads() {
+        }
+
+        @Asynchronous(threads = ThreadMode.VIRTUAL)
+        public void onVirtualThreads() {
+        }
+    }
+}
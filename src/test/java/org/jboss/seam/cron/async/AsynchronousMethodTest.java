@@ -0,0 +1,233 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.inject.spi.BeanManager;
+
+import org.jboss.seam.cron.annotations.Asynchronous;
+import org.jboss.seam.cron.async.AsynchronousMethod.ReturnKind;
+import org.jboss.seam.cron.metrics.AsynchronousMetrics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that #{@link AsynchronousMethod} classifies how each kind of method returns its result,
+ * and that the #{@link AsynchronousExecutor} works out the details of a method only once, from
+ * the #{@link AsynchronousIndex} if the method is in it.
+ *
+ * @author Peter Royle
+ */
+public class AsynchronousMethodTest {
+
+    private final AtomicInteger qualifierChecks = new AtomicInteger();
+    private AsynchronousExecutor executor;
+
+    @Before
+    public void createExecutor() {
+        executor = new AsynchronousExecutor();
+        executor.beanMan = createBeanManager();
+        executor.metrics = new AsynchronousMetrics();
+        executor.init();
+    }
+
+    @After
+    public void shutdownExecutor() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testReturnKinds() throws NoSuchMethodException {
+        Assert.assertEquals(ReturnKind.VOID, returnKindOf("doSomething"));
+        Assert.assertEquals(ReturnKind.VALUE, returnKindOf("count"));
+        Assert.assertEquals(ReturnKind.VALUE, returnKindOf("describe"));
+        Assert.assertEquals(ReturnKind.FUTURE, returnKindOf("later"));
+        Assert.assertEquals(ReturnKind.FUTURE, returnKindOf("listenable"));
+        Assert.assertEquals(ReturnKind.COMPLETION_STAGE, returnKindOf("stage"));
+        // both a Future and a CompletionStage, and handed back as the latter
+        Assert.assertEquals(ReturnKind.COMPLETION_STAGE, returnKindOf("completable"));
+    }
+
+    @Test
+    public void testDetailsAreWorkedOutOnce() throws NoSuchMethodException {
+        final Method method = Methods.class.getMethod("describe");
+        final AsynchronousMethod asyncMethod = executor.getAsynchronousMethod(method);
+        Assert.assertSame(method, asyncMethod.getMethod());
+        Assert.assertEquals(1, asyncMethod.getQualifiers().length);
+        Assert.assertSame(Reports.class, asyncMethod.getQualifiers()[0].annotationType());
+        Assert.assertSame(executor.getDefaultExecutorService(), asyncMethod.getExecutorService());
+        final int checks = qualifierChecks.get();
+        Assert.assertTrue(checks > 0);
+
+        for (int i = 0; i < 10; i++) {
+            final AsynchronousMethod again = executor.getAsynchronousMethod(method);
+            Assert.assertSame(asyncMethod, again);
+            Assert.assertSame(asyncMethod.getQualifiers(), again.getQualifiers());
+            Assert.assertSame(asyncMethod.getMetrics(), again.getMetrics());
+        }
+        Assert.assertEquals("The qualifiers should only be looked up once", checks, qualifierChecks.get());
+        Assert.assertNotSame(asyncMethod, executor.getAsynchronousMethod(Methods.class.getMethod("count")));
+    }
+
+    @Test
+    public void testIndexedMethodsAreNotReflectedOn() throws NoSuchMethodException {
+        final Method method = Methods.class.getMethod("describe");
+        final String key = AsynchronousIndex.key(method);
+        Assert.assertEquals(Methods.class.getName() + "#describe()", key);
+        final Properties entries = new Properties();
+        entries.setProperty(key, Reports.class.getName());
+        entries.setProperty(key + ".returns", "VALUE");
+        entries.setProperty(key + ".threads", "PLATFORM");
+        executor.index = new AsynchronousIndex(entries);
+
+        final AsynchronousMethod asyncMethod = executor.getAsynchronousMethod(method);
+        Assert.assertEquals(ReturnKind.VALUE, asyncMethod.getReturnKind());
+        Assert.assertEquals(1, asyncMethod.getQualifiers().length);
+        Assert.assertSame(Reports.class, asyncMethod.getQualifiers()[0].annotationType());
+        Assert.assertSame(executor.getDefaultExecutorService(), asyncMethod.getExecutorService());
+        Assert.assertEquals("The qualifiers should be read from the index", 0, qualifierChecks.get());
+
+        // the rest are reflected on as usual
+        Assert.assertEquals(ReturnKind.FUTURE, executor.getAsynchronousMethod(Methods.class.getMethod("later"))
+                .getReturnKind());
+        Assert.assertTrue(qualifierChecks.get() > 0);
+    }
+
+    @Test
+    public void testIndexKeys() throws NoSuchMethodException {
+        Assert.assertEquals(Methods.class.getName() + "#report(java.lang.String,int[][],"
+                + Reports.class.getName() + ")",
+                AsynchronousIndex.key(Methods.class.getMethod("report", String.class, int[][].class, Reports.class)));
+        // entries written by an incompatible processor are ignored rather than trusted
+        final Properties entries = new Properties();
+        entries.setProperty(Methods.class.getName() + "#count()", "");
+        entries.setProperty(Methods.class.getName() + "#count().returns", "SOMETIMES");
+        Assert.assertNull(new AsynchronousIndex(entries).get(Methods.class.getMethod("count")));
+    }
+
+    @Test
+    public void testConcurrentLookupsAgree() throws Exception {
+        final Method method = Methods.class.getMethod("later");
+        final AsynchronousMethod[] found = new AsynchronousMethod[8];
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[found.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    found[index] = executor.getAsynchronousMethod(method);
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        for (AsynchronousMethod asyncMethod : found) {
+            Assert.assertSame(found[0], asyncMethod);
+        }
+        Assert.assertSame(found[0], executor.getAsynchronousMethod(method));
+    }
+
+    private ReturnKind returnKindOf(final String methodName) throws NoSuchMethodException {
+        final Method method = Methods.class.getMethod(methodName);
+        final ReturnKind kind = new AsynchronousMethod(method, new Annotation[0], null).getReturnKind();
+        Assert.assertEquals(kind, executor.getAsynchronousMethod(method).getReturnKind());
+        return kind;
+    }
+
+    private BeanManager createBeanManager() {
+        return (BeanManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{BeanManager.class},
+                new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("isQualifier".equals(method.getName())) {
+                    qualifierChecks.incrementAndGet();
+                    return args[0] == Reports.class;
+                }
+                return null;
+            }
+        });
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface Reports {
+    }
+
+    private static class Methods {
+
+        @Asynchronous
+        public void doSomething() {
+        }
+
+        @Asynchronous
+        public int count() {
+            return 0;
+        }
+
+        @Asynchronous
+        @Reports
+        public String describe() {
+            return null;
+        }
+
+        @Asynchronous
+        public Future<String> later() {
+            return null;
+        }
+
+        @Asynchronous
+        public ListenableFuture<String> listenable() {
+            return null;
+        }
+
+        @Asynchronous
+        public CompletionStage<String> stage() {
+            return null;
+        }
+
+        @Asynchronous
+        public CompletableFuture<String> completable() {
+            return null;
+        }
+
+        @Asynchronous
+        public void report(final String name, final int[][] days, final Reports qualifier) {
+        }
+    }
+}
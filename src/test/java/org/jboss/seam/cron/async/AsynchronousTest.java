@@ -17,17 +17,22 @@
 package org.jboss.seam.cron.async;
 
 import org.jboss.logging.Logger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.io.File;
 import java.io.Serializable;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
 
 import org.jboss.arquillian.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.seam.cron.metrics.AsynchronousMethodMetrics;
+import org.jboss.seam.cron.metrics.AsynchronousMetrics;
 import org.jboss.shrinkwrap.api.ArchivePaths;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
@@ -52,6 +57,7 @@ public class AsynchronousTest implements Serializable {
     public static JavaArchive createTestArchive() {
         JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "test.jar")
                 .addPackages(true, "org.jboss.seam.cron.async")
+                .addPackage(AsynchronousMetrics.class.getPackage())
                 .addAsManifestResource(new File("src/main/resources/META-INF/beans.xml"), 
                         ArchivePaths.create("beans.xml"))
     		.addAsManifestResource(
@@ -64,6 +70,8 @@ public class AsynchronousTest implements Serializable {
 
     @Inject
     SomeAsynchMethods asynchBean;
+    @Inject
+    AsynchronousMetrics asyncMetrics;
 
     @Test
     public void testTypeLevelAsyncMethods() throws SchedulerException {
@@ -136,6 +144,96 @@ public class AsynchronousTest implements Serializable {
         assertNull(asynchBean.getHaystackCount());
     }
     
+    @Test
+    public void testAsynchReturningListenableFuture() throws InterruptedException {
+        log.info("Testing asynchronous methods returning a ListenableFuture notify callbacks");
+        assertNotNull(asynchBean);
+        asynchBean.reset();
+        final CountDownLatch callbackLatch = new CountDownLatch(1);
+        final AtomicReference<Status> callbackStatus = new AtomicReference<Status>();
+        String statusToSet = "green";
+        ListenableFuture<Status> result = asynchBean.returnStatusInListenableFuture(statusToSet);
+        assertNotNull(result);
+        result.addCallback(new AsyncCallback<Status>() {
+
+            public void onSuccess(Status status) {
+                callbackStatus.set(status);
+                callbackLatch.countDown();
+            }
+
+            public void onFailure(Throwable failure) {
+                log.error("Should not have failed here!", failure);
+            }
+        });
+        assertTrue(callbackLatch.await(2, TimeUnit.SECONDS));
+        assertEquals(statusToSet, callbackStatus.get().getDescription());
+    }
+
+    @Test
+    public void testAsynchReturningCompletableFuture() throws Exception {
+        log.info("Testing asynchronous methods returning a CompletableFuture complete when the returned stage does");
+        asynchBean.reset();
+        CompletableFuture<Status> result = asynchBean.returnPendingStatus();
+        assertNotNull(result);
+        assertNotSame(asynchBean.getPendingStatus(), result);
+        assertTrue(asynchBean.getInvokedLatch().await(2, TimeUnit.SECONDS));
+        assertFalse(result.isDone());
+        asynchBean.getPendingStatus().complete(new Status("yellow"));
+        assertEquals("yellow", result.get(2, TimeUnit.SECONDS).getDescription());
+    }
+
+    @Test
+    public void testAsynchReturningCompletableFutureFails() throws Exception {
+        log.info("Testing asynchronous methods returning a CompletableFuture pass on the failure of the returned stage");
+        asynchBean.reset();
+        CompletableFuture<Status> result = asynchBean.returnPendingStatus();
+        assertTrue(asynchBean.getInvokedLatch().await(2, TimeUnit.SECONDS));
+        asynchBean.getPendingStatus().completeExceptionally(new IllegalStateException("red"));
+        try {
+            result.get(2, TimeUnit.SECONDS);
+            fail("The failure of the returned stage should have been passed on");
+        } catch (ExecutionException ee) {
+            assertEquals(IllegalStateException.class, ee.getCause().getClass());
+            assertEquals("red", ee.getCause().getMessage());
+        }
+        assertTrue(result.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testCancellingCompletableFutureCancelsTheCall() throws Exception {
+        log.info("Testing that cancelling the CompletableFuture of an asynchronous method cancels the call");
+        asynchBean.reset();
+        CompletableFuture<Status> result = asynchBean.waitToBeInterrupted();
+        assertTrue(asynchBean.getInvokedLatch().await(2, TimeUnit.SECONDS));
+        assertTrue(result.cancel(true));
+        assertTrue(result.isCancelled());
+        assertTrue(asynchBean.getInterruptedLatch().await(2, TimeUnit.SECONDS));
+
+        // and once the method has returned, the stage it returned is cancelled
+        asynchBean.reset();
+        result = asynchBean.returnPendingStatus();
+        assertTrue(asynchBean.getInvokedLatch().await(2, TimeUnit.SECONDS));
+        result.cancel(true);
+        final long deadline = System.currentTimeMillis() + 2000;
+        while (!asynchBean.getPendingStatus().isCancelled() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(asynchBean.getPendingStatus().isCancelled());
+    }
+
+    @Test
+    public void testMetricsRecorded() throws Exception {
+        log.info("Testing asynchronous invocations are counted");
+        asynchBean.reset();
+        asynchBean.returnStatusInFuture("purple").get(2, TimeUnit.SECONDS);
+        final AsynchronousMethodMetrics metrics = asyncMetrics.getMethodMetrics(
+                SomeAsynchMethods.class.getMethod("returnStatusInFuture", String.class));
+        assertNotNull(metrics);
+        assertTrue(metrics.getQueued() >= 1);
+        assertTrue(metrics.getCompleted() >= 1);
+        assertEquals(0, metrics.getFailed());
+    }
+
     @Test
     public void testErrorThrownReturnsAsPerEJBSpec() {
         log.info("Testing that an error thrown during an @Asynchronous invocation which returns a Future will be delivered to the caller as per the EJB spec");
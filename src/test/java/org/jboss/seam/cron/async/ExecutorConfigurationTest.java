@@ -0,0 +1,99 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.async;
+
+import java.util.Properties;
+
+import org.jboss.seam.cron.annotations.ThreadMode;
+import org.jboss.seam.cron.async.ExecutorConfiguration.RejectionPolicy;
+import org.jboss.seam.cron.exception.SchedulerConfigurationException;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that #{@link ExecutorConfiguration} reads the settings of the application-wide pool, and
+ * that a qualifier's own pool inherits whatever it doesn't repeat.
+ *
+ * @author Peter Royle
+ */
+public class ExecutorConfigurationTest {
+
+    private static final String QUALIFIER = "com.acme.Reports";
+
+    @Test
+    public void testDefaults() {
+        final ExecutorConfiguration config = ExecutorConfiguration.defaultConfiguration(
+                new SchedulePropertiesManager(new Properties()));
+        Assert.assertEquals("default", config.getName());
+        Assert.assertEquals(16, config.getCoreSize());
+        Assert.assertEquals(64, config.getMaxSize());
+        Assert.assertEquals(10000, config.getQueueCapacity());
+        Assert.assertEquals(60, config.getKeepAliveSeconds());
+        Assert.assertEquals(RejectionPolicy.CALLER_RUNS, config.getRejectionPolicy());
+        Assert.assertEquals(ThreadMode.PLATFORM, config.getThreadMode());
+    }
+
+    @Test
+    public void testApplicationWideSettings() {
+        final Properties props = new Properties();
+        props.setProperty("org.jboss.seam.cron.asynchronous.coreSize", "4");
+        props.setProperty("org.jboss.seam.cron.asynchronous.maxSize", "8");
+        props.setProperty("org.jboss.seam.cron.asynchronous.queueCapacity", "0");
+        props.setProperty("org.jboss.seam.cron.asynchronous.keepAliveSeconds", "5");
+        props.setProperty("org.jboss.seam.cron.asynchronous.rejectionPolicy", "discard_oldest");
+        final ExecutorConfiguration config = ExecutorConfiguration.defaultConfiguration(
+                new SchedulePropertiesManager(props));
+        Assert.assertEquals(4, config.getCoreSize());
+        Assert.assertEquals(8, config.getMaxSize());
+        Assert.assertEquals(0, config.getQueueCapacity());
+        Assert.assertEquals(5, config.getKeepAliveSeconds());
+        Assert.assertEquals(RejectionPolicy.DISCARD_OLDEST, config.getRejectionPolicy());
+
+        // never fewer threads at most than at least
+        props.setProperty("org.jboss.seam.cron.asynchronous.maxSize", "2");
+        Assert.assertEquals(4, ExecutorConfiguration.defaultConfiguration(
+                new SchedulePropertiesManager(props)).getMaxSize());
+    }
+
+    @Test
+    public void testQualifierInheritsWhatItDoesntRepeat() {
+        final Properties props = new Properties();
+        props.setProperty("org.jboss.seam.cron.asynchronous.queueCapacity", "100");
+        props.setProperty("org.jboss.seam.cron.asynchronous.rejectionPolicy", "ABORT");
+        final SchedulePropertiesManager properties = new SchedulePropertiesManager(props);
+        final ExecutorConfiguration defaults = ExecutorConfiguration.defaultConfiguration(properties);
+        Assert.assertNull(ExecutorConfiguration.qualifierConfiguration(properties, QUALIFIER, defaults));
+
+        props.setProperty("org.jboss.seam.cron.asynchronous." + QUALIFIER + ".coreSize", "1");
+        props.setProperty("org.jboss.seam.cron.asynchronous." + QUALIFIER + ".maxSize", "2");
+        final ExecutorConfiguration config = ExecutorConfiguration.qualifierConfiguration(properties, QUALIFIER,
+                defaults);
+        Assert.assertEquals(QUALIFIER, config.getName());
+        Assert.assertEquals(1, config.getCoreSize());
+        Assert.assertEquals(2, config.getMaxSize());
+        Assert.assertEquals(100, config.getQueueCapacity());
+        Assert.assertEquals(RejectionPolicy.ABORT, config.getRejectionPolicy());
+    }
+
+    @Test(expected = SchedulerConfigurationException.class)
+    public void testUnknownRejectionPolicy() {
+        final Properties props = new Properties();
+        props.setProperty("org.jboss.seam.cron.asynchronous.rejectionPolicy", "WAIT");
+        ExecutorConfiguration.defaultConfiguration(new SchedulePropertiesManager(props));
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.jboss.seam.cron.async;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -37,6 +38,9 @@ public class SomeAsynchMethods {
     private CountDownLatch heystackLatch;
     private Status statusEvent;
     private Integer haystackCount;
+    private CompletableFuture<Status> pendingStatus;
+    private CountDownLatch invokedLatch;
+    private CountDownLatch interruptedLatch;
     private static Logger log = Logger.getLogger(SomeAsynchMethods.class);
 
     public void reset() {
@@ -44,6 +48,9 @@ public class SomeAsynchMethods {
         haystackCount = null;
         statusLatch = new CountDownLatch(1);
         heystackLatch = new CountDownLatch(1);
+        pendingStatus = new CompletableFuture<Status>();
+        invokedLatch = new CountDownLatch(1);
+        interruptedLatch = new CountDownLatch(1);
     }
     
     @Asynchronous
@@ -75,6 +82,31 @@ public class SomeAsynchMethods {
         return new AsyncResult<Status>(new Status(statusToSet));
     }
 
+    @Asynchronous
+    public ListenableFuture<Status> returnStatusInListenableFuture(String statusToSet) {
+        return new AsyncResult<Status>(new Status(statusToSet));
+    }
+
+    /**
+     * @return a stage which the caller completes through #{@link #getPendingStatus()}.
+     */
+    @Asynchronous
+    public CompletableFuture<Status> returnPendingStatus() {
+        invokedLatch.countDown();
+        return pendingStatus;
+    }
+
+    @Asynchronous
+    public CompletableFuture<Status> waitToBeInterrupted() {
+        invokedLatch.countDown();
+        try {
+            Thread.sleep(10000);
+        } catch (InterruptedException ex) {
+            interruptedLatch.countDown();
+        }
+        return CompletableFuture.completedFuture(new Status("too late"));
+    }
+
     @Asynchronous
     @HaystackCount
     public Integer countNeedlesInTheHaystack(int numToReturn) {
@@ -109,5 +141,17 @@ public class SomeAsynchMethods {
     public CountDownLatch getHeystackLatch() {
         return heystackLatch;
     }
+
+    public CompletableFuture<Status> getPendingStatus() {
+        return pendingStatus;
+    }
+
+    public CountDownLatch getInvokedLatch() {
+        return invokedLatch;
+    }
+
+    public CountDownLatch getInterruptedLatch() {
+        return interruptedLatch;
+    }
     
 }
@@ -0,0 +1,172 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.executor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.seam.cron.annotations.MisfirePolicy;
+import org.jboss.seam.cron.metrics.SchedulerMetrics;
+import org.jboss.seam.cron.spi.MisfireConfiguration;
+import org.jboss.seam.cron.spi.TimeEventJob;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.jboss.seam.cron.events.TimeUnit.MILLISECOND;
+import static org.jboss.seam.cron.events.TimeUnit.SECOND;
+
+/**
+ * Test that the #{@link ScheduledExecutorSchedulingProvider} fires jobs on their schedule,
+ * handles jobs which are too late according to their misfire policy and reports what it's doing.
+ *
+ * @author Peter Royle
+ */
+public class ScheduledExecutorSchedulingProviderTest {
+
+    private static final MisfireConfiguration SKIP = new MisfireConfiguration(MisfirePolicy.SKIP, 1);
+
+    @Test
+    public void testIntervalJobKeepsItsPhase() throws InterruptedException {
+        final ScheduledExecutorSchedulingProvider provider = createProvider();
+        final RecordingJob job = new RecordingJob(3);
+        final long start = System.currentTimeMillis() + 100;
+        provider.scheduleInterval("every-second", job, SECOND, 1, false, SKIP, new Date(start));
+        Assert.assertEquals(Collections.singleton("every-second"), provider.getJobNames());
+        Assert.assertEquals(new Date(start), provider.getNextFireTime("every-second"));
+        provider.start();
+        try {
+            Assert.assertTrue("The job should fire three times", job.fired.await(5, TimeUnit.SECONDS));
+        } finally {
+            provider.shutdown();
+        }
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(start + 1000L * i, (long) job.fireTimes.get(i));
+        }
+        Assert.assertTrue(provider.getNextFireTime("every-second").getTime() >= start + 3000L);
+        Assert.assertNull(provider.getNextFireTime("unknown"));
+    }
+
+    @Test
+    public void testMillisecondIntervalsDoNotDrift() throws InterruptedException {
+        final ScheduledExecutorSchedulingProvider provider = createProvider();
+        final RecordingJob job = new RecordingJob(20);
+        final long start = System.currentTimeMillis() + 100;
+        provider.scheduleInterval("every-25ms", job, MILLISECOND, 25, false, SKIP, new Date(start));
+        provider.start();
+        try {
+            Assert.assertTrue("The job should fire twenty times", job.fired.await(5, TimeUnit.SECONDS));
+        } finally {
+            provider.shutdown();
+        }
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(start + 25L * i, (long) job.fireTimes.get(i));
+        }
+    }
+
+    @Test
+    public void testLateIntervalJobSkipsToItsNextFiring() throws InterruptedException {
+        final ScheduledExecutorSchedulingProvider provider = createProvider();
+        final RecordingJob job = new RecordingJob(1);
+        // well past the misfire threshold
+        final long start = System.currentTimeMillis() - 10500;
+        provider.getMetrics().register("late", "@Every(SECOND)");
+        provider.scheduleInterval("late", job, SECOND, 1, false, SKIP, new Date(start));
+        provider.start();
+        try {
+            Assert.assertTrue("The job should fire", job.fired.await(5, TimeUnit.SECONDS));
+        } finally {
+            provider.shutdown();
+        }
+        Assert.assertEquals(0, (job.fireTimes.get(0) - start) % 1000L);
+        Assert.assertTrue(job.fireTimes.get(0) > start + 10000L);
+        Assert.assertEquals(1, provider.getMetrics().getJobMetrics("late").getMisfires());
+        Assert.assertEquals(1, provider.getMetrics().getJobMetrics("late").getMisfiresSkipped());
+    }
+
+    @Test
+    public void testLateIntervalJobCatchesUpOnTheLatestMissedFirings() throws InterruptedException {
+        final ScheduledExecutorSchedulingProvider provider = createProvider();
+        final RecordingJob job = new RecordingJob(4);
+        final long start = System.currentTimeMillis() - 10500;
+        provider.getMetrics().register("late", "@Every(SECOND)");
+        provider.scheduleInterval("late", job, SECOND, 1, false, new MisfireConfiguration(MisfirePolicy.CATCH_UP, 3),
+                new Date(start));
+        provider.start();
+        try {
+            Assert.assertTrue("The job should catch up and then fire", job.fired.await(5, TimeUnit.SECONDS));
+        } finally {
+            provider.shutdown();
+        }
+        // the three most recent missed firings, then back on schedule
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(start + 8000L + 1000L * i, (long) job.fireTimes.get(i));
+        }
+        Assert.assertEquals(1, provider.getMetrics().getJobMetrics("late").getMisfiresCaughtUp());
+    }
+
+    @Test
+    public void testJobsCanBeScheduledAndUnscheduledOnceStarted() throws InterruptedException {
+        final ScheduledExecutorSchedulingProvider provider = createProvider();
+        provider.start();
+        try {
+            final RecordingJob job = new RecordingJob(3);
+            provider.scheduleInterval("every-25ms", job, MILLISECOND, 25, false, SKIP,
+                    new Date(System.currentTimeMillis() + 50));
+            Assert.assertTrue("The job should fire once the provider has started",
+                    job.fired.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(provider.unschedule("every-25ms"));
+            final int firings = job.fireTimes.size();
+            Thread.sleep(200);
+            Assert.assertEquals(firings, job.fireTimes.size());
+            Assert.assertTrue(provider.getJobNames().isEmpty());
+            Assert.assertNull(provider.getNextFireTime("every-25ms"));
+            Assert.assertFalse(provider.unschedule("every-25ms"));
+        } finally {
+            provider.shutdown();
+        }
+    }
+
+    private ScheduledExecutorSchedulingProvider createProvider() {
+        final Properties props = new Properties();
+        props.setProperty("org.jboss.seam.cron.scheduler.misfireThreshold", "200");
+        final ScheduledExecutorSchedulingProvider provider = new ScheduledExecutorSchedulingProvider();
+        provider.initProvider(new SchedulePropertiesManager(props), new SchedulerMetrics("test", 1));
+        return provider;
+    }
+
+    private static class RecordingJob
+            implements TimeEventJob {
+
+        private final List<Long> fireTimes = Collections.synchronizedList(new ArrayList<Long>());
+        private final CountDownLatch fired;
+
+        RecordingJob(final int firings) {
+            fired = new CountDownLatch(firings);
+        }
+
+        public void fire(final long scheduledFireTime) {
+            fireTimes.add(scheduledFireTime);
+            fired.countDown();
+        }
+    }
+}
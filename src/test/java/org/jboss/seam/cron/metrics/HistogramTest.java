@@ -0,0 +1,65 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the bucketing and percentiles of #{@link Histogram}.
+ *
+ * @author Peter Royle
+ */
+public class HistogramTest {
+
+    @Test
+    public void testEmptyHistogram() {
+        final Histogram histogram = new Histogram();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMean(), 0);
+        Assert.assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void testBuckets() {
+        Assert.assertEquals(0, Histogram.bucketOf(0));
+        Assert.assertEquals(1, Histogram.bucketOf(1));
+        Assert.assertEquals(2, Histogram.bucketOf(3));
+        Assert.assertEquals(3, Histogram.bucketOf(4));
+        Assert.assertEquals(63, Histogram.bucketOf(Long.MAX_VALUE));
+        Assert.assertEquals(7, Histogram.upperBoundOf(3));
+    }
+
+    @Test
+    public void testPercentiles() {
+        final Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-5);
+        Assert.assertEquals(101, histogram.getCount());
+        Assert.assertEquals(5050, histogram.getSum());
+        Assert.assertEquals(100, histogram.getMax());
+        // the 50th value is 49, which is in the 32..63 bucket
+        Assert.assertEquals(63, histogram.getPercentile(50));
+        // capped at the largest value
+        Assert.assertEquals(100, histogram.getPercentile(99));
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMax());
+    }
+}
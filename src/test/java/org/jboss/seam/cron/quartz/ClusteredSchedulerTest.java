@@ -0,0 +1,124 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.quartz.Job;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.SimpleTrigger;
+
+/**
+ * Two nodes sharing a job store should fire each scheduled event exactly once
+ * between them. Runs without a container as the nodes are plain Quartz schedulers.
+ *
+ * @author Peter Royle
+ */
+public class ClusteredSchedulerTest {
+
+    private static final String DB_URL = "jdbc:h2:mem:seamcron;DB_CLOSE_DELAY=-1";
+    private static final Set<Long> firedAt = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    private static final AtomicInteger duplicates = new AtomicInteger();
+    private static Connection keepAlive;
+
+    @BeforeClass
+    public static void createTables() throws Exception {
+        Class.forName("org.h2.Driver");
+        keepAlive = DriverManager.getConnection(DB_URL, "sa", "");
+        final BufferedReader ddl = new BufferedReader(new InputStreamReader(
+                ClusteredSchedulerTest.class.getResourceAsStream("/quartz-tables-h2.sql"), "UTF-8"));
+        final StringBuilder sql = new StringBuilder();
+        String line;
+        while ((line = ddl.readLine()) != null) {
+            if (!line.startsWith("--")) {
+                sql.append(line).append('\n');
+            }
+        }
+        ddl.close();
+        final Statement stmt = keepAlive.createStatement();
+        for (String each : sql.toString().split(";")) {
+            if (each.trim().length() > 0) {
+                stmt.execute(each);
+            }
+        }
+        stmt.close();
+    }
+
+    @AfterClass
+    public static void dropDatabase() throws Exception {
+        keepAlive.createStatement().execute("DROP ALL OBJECTS");
+        keepAlive.close();
+    }
+
+    @Test
+    public void testEachFiringRunsOnOneNodeOnly() throws Exception {
+        final Scheduler node1 = createNode("node1");
+        final Scheduler node2 = createNode("node2");
+        try {
+            final SimpleTrigger trigger = new SimpleTrigger("every100ms", QuartzStarter.TICKER_JOB_GROUP, new Date(),
+                    null, SimpleTrigger.REPEAT_INDEFINITELY, 100);
+            node1.scheduleJob(new JobDetail("counting", QuartzStarter.TICKER_JOB_GROUP, CountingJob.class), trigger);
+            Assert.assertNotNull(node2.getTrigger("every100ms", QuartzStarter.TICKER_JOB_GROUP));
+            node1.start();
+            node2.start();
+            Thread.sleep(3000);
+        } finally {
+            node1.shutdown(true);
+            node2.shutdown(true);
+        }
+        Assert.assertTrue("The job should have fired", firedAt.size() > 10);
+        Assert.assertEquals("Each firing should run on one node only", 0, duplicates.get());
+    }
+
+    private Scheduler createNode(final String instanceId) throws Exception {
+        final Properties props = new Properties();
+        props.setProperty(QuartzConfiguration.PROPERTY_PREFIX + QuartzConfiguration.CLUSTERED, "true");
+        props.setProperty(QuartzConfiguration.PROPERTY_PREFIX + QuartzConfiguration.INSTANCE_ID, instanceId);
+        props.setProperty(QuartzConfiguration.PROPERTY_PREFIX + QuartzConfiguration.DATA_SOURCE_DRIVER, "org.h2.Driver");
+        props.setProperty(QuartzConfiguration.PROPERTY_PREFIX + QuartzConfiguration.DATA_SOURCE_URL, DB_URL);
+        props.setProperty(QuartzConfiguration.PROPERTY_PREFIX + QuartzConfiguration.DATA_SOURCE_USER, "sa");
+        props.setProperty(QuartzConfiguration.PROPERTY_PREFIX + QuartzConfiguration.CLUSTER_CHECKIN_INTERVAL, "1000");
+        final QuartzConfiguration config = QuartzConfiguration.read(new SchedulePropertiesManager(props));
+        return new QuartzSchedulerFactory(config).createClusteredScheduler();
+    }
+
+    public static class CountingJob implements Job {
+
+        public void execute(JobExecutionContext context) {
+            if (!firedAt.add(context.getScheduledFireTime().getTime())) {
+                duplicates.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that #{@link JitterConfiguration} spreads jobs out the same way every time, within
+ * their limits. The settings of each qualifier are tested through the #{@link JobScheduler}.
+ *
+ * @author Peter Royle
+ */
+public class JitterConfigurationTest {
+
+    @Test
+    public void testOffsetsAreRepeatableAndWithinTheirLimits() {
+        final long[] offsets = new long[200];
+        int distinct = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = JitterConfiguration.offset("job" + i, 60000, 3600000);
+            Assert.assertTrue(offsets[i] >= 0 && offsets[i] < 60000);
+            Assert.assertEquals(offsets[i], JitterConfiguration.offset("job" + i, 60000, 3600000));
+            if (i > 0 && offsets[i] != offsets[i - 1]) {
+                distinct++;
+            }
+        }
+        Assert.assertTrue("Similar names should be spread out", distinct > 190);
+        // capped at the period
+        Assert.assertTrue(JitterConfiguration.offset("job", 60000, 1000) < 1000);
+        Assert.assertEquals(0, JitterConfiguration.offset("job", 0, 1000));
+    }
+}
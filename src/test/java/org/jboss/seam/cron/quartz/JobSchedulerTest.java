@@ -0,0 +1,468 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.ObserverMethod;
+
+import org.jboss.seam.cron.annotations.Concurrency;
+import org.jboss.seam.cron.annotations.ConcurrencyPolicy;
+import org.jboss.seam.cron.annotations.Every;
+import org.jboss.seam.cron.annotations.EveryBinding;
+import org.jboss.seam.cron.annotations.Jitter;
+import org.jboss.seam.cron.annotations.Misfire;
+import org.jboss.seam.cron.annotations.MisfirePolicy;
+import org.jboss.seam.cron.annotations.ParallelObservers;
+import org.jboss.seam.cron.annotations.ScheduledBinding;
+import org.jboss.seam.cron.async.AsynchronousExecutor;
+import org.jboss.seam.cron.events.Trigger;
+import org.jboss.seam.cron.exception.SchedulerConfigurationException;
+import org.jboss.seam.cron.executor.ScheduledExecutorSchedulingProvider;
+import org.jboss.seam.cron.metrics.JobMetrics;
+import org.jboss.seam.cron.metrics.SchedulerMetrics;
+import org.jboss.seam.cron.quartz.jobs.ScheduledQualifiedEventPayload;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.jboss.seam.cron.events.TimeUnit.MILLISECOND;
+import static org.jboss.seam.cron.events.TimeUnit.MINUTE;
+
+/**
+ * Test that the #{@link JobScheduler} can schedule, reschedule, pause, resume and cancel
+ * events once the scheduler is running, and reschedules those whose named schedules change.
+ *
+ * @author Peter Royle
+ */
+public class JobSchedulerTest {
+
+    private final List<Long> firings = Collections.synchronizedList(new ArrayList<Long>());
+    // the number of notifications (from now) which take the observer delay
+    private final AtomicInteger slowNotifications = new AtomicInteger();
+    private volatile long observerDelay;
+    private final List<String> observerThreads = Collections.synchronizedList(new ArrayList<String>());
+    // how many observers each event has
+    private int observerCount = 1;
+    private AsynchronousExecutor asynchronousExecutor;
+    // read when the first job is scheduled, so the tests may add to them until then
+    private Properties props;
+    private ScheduledExecutorSchedulingProvider provider;
+    private JobScheduler jobs;
+
+    @Before
+    public void createScheduler() {
+        props = new Properties();
+        props.setProperty("org.jboss.seam.cron.scheduler.misfireThreshold", "200");
+        final SchedulePropertiesManager properties = new SchedulePropertiesManager(props);
+        // started by the first job
+        provider = new ScheduledExecutorSchedulingProvider();
+        jobs = new JobScheduler(provider, createBeanManager(), properties,
+                new ScheduleBindings(ScheduleIndex.EMPTY));
+    }
+
+    @After
+    public void stopScheduler() {
+        jobs.shutdown();
+        if (asynchronousExecutor != null) {
+            asynchronousExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testProviderIsNotStartedUntilThereIsAJob() throws InterruptedException {
+        jobs.start(Collections.<ScheduledQualifiedEventPayload>emptySet(), new Date());
+        Assert.assertFalse(jobs.isStarted());
+        // not even initialised, but the metrics are already there to be injected
+        Assert.assertNull(provider.getMetrics());
+        final SchedulerMetrics metrics = jobs.getMetrics();
+        Assert.assertNotNull(metrics);
+        Assert.assertEquals(0, metrics.getJobNames().length);
+        Assert.assertFalse(jobs.cancel("nothing"));
+
+        final String jobName = jobs.schedule(new EveryBinding(50, MILLISECOND));
+        Assert.assertTrue(jobs.isStarted());
+        Assert.assertSame(metrics, jobs.getMetrics());
+        Assert.assertSame(metrics, provider.getMetrics());
+        awaitFirings(1);
+        Assert.assertNotNull(metrics.getJobMetrics(jobName));
+    }
+
+    @Test
+    public void testScheduleAtRuntime() throws InterruptedException {
+        final String jobName = jobs.schedule(new EveryBinding(50, MILLISECOND));
+        Assert.assertEquals(Collections.singleton(jobName), jobs.getJobNames());
+        Assert.assertEquals(Collections.singleton(jobName), provider.getJobNames());
+        Assert.assertEquals(jobName, jobs.schedule(new EveryBinding(50, MILLISECOND)));
+        awaitFirings(3);
+        Assert.assertTrue(provider.getMetrics().getJobMetrics(jobName).getExecutions() >= 3);
+    }
+
+    @Test
+    public void testPauseAndResumeInPhase() throws InterruptedException {
+        final String jobName = jobs.schedule(new EveryBinding(50, MILLISECOND));
+        awaitFirings(1);
+        final long phase = firings.get(0) % 50;
+        Assert.assertTrue(jobs.pause(jobName));
+        Assert.assertTrue(jobs.isPaused(jobName));
+        Assert.assertTrue(provider.getJobNames().isEmpty());
+        firings.clear();
+        Thread.sleep(200);
+        Assert.assertTrue(firings.isEmpty());
+
+        Assert.assertTrue(jobs.resume(jobName));
+        Assert.assertFalse(jobs.isPaused(jobName));
+        awaitFirings(2);
+        for (long firing : new ArrayList<Long>(firings)) {
+            Assert.assertEquals(phase, firing % 50);
+        }
+    }
+
+    @Test
+    public void testReschedule() throws InterruptedException {
+        final String jobName = jobs.schedule(new EveryBinding(50, MILLISECOND));
+        awaitFirings(1);
+        Assert.assertTrue(jobs.reschedule(jobName, MILLISECOND, 100));
+        firings.clear();
+        awaitFirings(3);
+        Assert.assertEquals(100L, firings.get(2) - firings.get(1));
+
+        Assert.assertTrue(jobs.reschedule(jobName, "* * * ? * *"));
+        firings.clear();
+        awaitFirings(2);
+        Assert.assertEquals(0, firings.get(1) % 1000);
+        try {
+            jobs.reschedule(jobName, "not.a.named.schedule");
+            Assert.fail("The schedule should be rejected");
+        } catch (SchedulerConfigurationException expected) {
+        }
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        final String jobName = jobs.schedule(new EveryBinding(50, MILLISECOND));
+        awaitFirings(1);
+        Assert.assertTrue(jobs.cancel(jobName));
+        Assert.assertTrue(jobs.getJobNames().isEmpty());
+        Assert.assertTrue(provider.getJobNames().isEmpty());
+        Assert.assertNull(provider.getMetrics().getJobMetrics(jobName));
+        firings.clear();
+        Thread.sleep(200);
+        Assert.assertTrue(firings.isEmpty());
+        Assert.assertFalse(jobs.cancel(jobName));
+        Assert.assertFalse(jobs.pause(jobName));
+        Assert.assertFalse(jobs.resume(jobName));
+        Assert.assertFalse(jobs.reschedule(jobName, MILLISECOND, 100));
+    }
+
+    @Test
+    public void testJitterOfCustomQualifier() {
+        props.setProperty("org.jboss.seam.cron.scheduler.maxJitter", "60000");
+        props.setProperty("org.jboss.seam.cron.scheduler." + EveryMinuteOrSoButNotHere.class.getName()
+                + ".maxJitter", "0");
+        final long before = System.currentTimeMillis();
+        final String jittered = jobs.schedule(qualifier(EveryMinuteOrSo.class));
+        final String inStep = jobs.schedule(qualifier(EveryMinuteInStep.class));
+        final String notHere = jobs.schedule(qualifier(EveryMinuteOrSoButNotHere.class));
+        // fired with the custom qualifier, not its @Every
+        Assert.assertTrue(jittered, jittered.startsWith(EveryMinuteOrSo.class.getSimpleName() + "#"));
+
+        final long offset = JitterConfiguration.offset(jittered, 30000, 60000);
+        Assert.assertTrue(offset % 1000 != 0);
+        final long start = provider.getNextFireTime(jittered).getTime() - offset;
+        Assert.assertEquals(0, start % 1000);
+        Assert.assertTrue(start > before && start <= System.currentTimeMillis() + 1000);
+
+        // the global maximum would move them off the whole second
+        Assert.assertTrue(JitterConfiguration.offset(inStep, 60000, 60000) % 1000 != 0);
+        Assert.assertEquals(0, provider.getNextFireTime(inStep).getTime() % 1000);
+        Assert.assertTrue(JitterConfiguration.offset(notHere, 30000, 60000) % 1000 != 0);
+        Assert.assertEquals(0, provider.getNextFireTime(notHere).getTime() % 1000);
+    }
+
+    @Test
+    public void testConcurrencyOfCustomQualifier() throws InterruptedException {
+        props.setProperty("org.jboss.seam.cron.scheduler.threadCount", "8");
+        observerDelay = 120;
+        slowNotifications.set(Integer.MAX_VALUE);
+        final String oneAtATime = jobs.schedule(qualifier(EveryFewMillisOneAtATime.class));
+        final String overlapping = jobs.schedule(new EveryBinding(40, MILLISECOND));
+        Thread.sleep(1500);
+        final JobMetrics oneAtATimeMetrics = provider.getMetrics().getJobMetrics(oneAtATime);
+        Assert.assertEquals(1, oneAtATimeMetrics.getPeakConcurrentExecutions());
+        Assert.assertTrue(oneAtATimeMetrics.getSkipped() > 0);
+        Assert.assertTrue(provider.getMetrics().getJobMetrics(overlapping).getPeakConcurrentExecutions() > 1);
+    }
+
+    @Test
+    public void testMisfirePolicyOfCustomIntervalQualifier() throws InterruptedException {
+        // one thread, so that the first notification holds up every other job past the threshold
+        props.setProperty("org.jboss.seam.cron.scheduler.threadCount", "1");
+        props.setProperty("org.jboss.seam.cron.scheduler." + EveryFewMillisCaughtUp.class.getName() + ".misfire",
+                "CATCH_UP");
+        observerDelay = 500;
+        slowNotifications.set(1);
+        final String skipped = jobs.schedule(new EveryBinding(100, MILLISECOND));
+        final String firedNow = jobs.schedule(qualifier(EveryFewMillisFiredNow.class));
+        final String caughtUp = jobs.schedule(qualifier(EveryFewMillisCaughtUp.class));
+        final JobMetrics skippedMetrics = awaitMisfire(skipped);
+        final JobMetrics firedNowMetrics = awaitMisfire(firedNow);
+        final JobMetrics caughtUpMetrics = awaitMisfire(caughtUp);
+
+        Assert.assertEquals(skippedMetrics.getMisfires(), skippedMetrics.getMisfiresSkipped());
+        Assert.assertEquals(firedNowMetrics.getMisfires(), firedNowMetrics.getMisfiresFiredNow());
+        Assert.assertEquals(caughtUpMetrics.getMisfires(), caughtUpMetrics.getMisfiresCaughtUp());
+    }
+
+    @Test
+    public void testParallelObserversOfCustomQualifier() throws InterruptedException {
+        final String poolProperty = "org.jboss.seam.cron.asynchronous." + EveryFewMillisInParallel.class.getName()
+                + ".coreSize";
+        System.setProperty(poolProperty, "2");
+        try {
+            props.setProperty("org.jboss.seam.cron.scheduler." + EveryFewMillisInParallelByProperty.class.getName()
+                    + ".parallelObservers", "true");
+            asynchronousExecutor = new AsynchronousExecutor();
+            asynchronousExecutor.init();
+            observerCount = 2;
+            // long enough for the pool to pick up the second observer while the first is notified
+            observerDelay = 50;
+            slowNotifications.set(Integer.MAX_VALUE);
+            jobs.schedule(qualifier(EveryFewMillisInParallel.class));
+            awaitObserverThread("SeamCronAsynchronous-" + EveryFewMillisInParallel.class.getName() + "-");
+
+            jobs.schedule(qualifier(EveryFewMillisInParallelByProperty.class));
+            awaitObserverThread("SeamCronAsynchronous-default-");
+        } finally {
+            System.clearProperty(poolProperty);
+        }
+    }
+
+    @Test
+    public void testOnlyChangedNamedSchedulesAreRescheduled() throws IOException {
+        final File file = File.createTempFile("scheduler", ".properties");
+        System.setProperty(SchedulePropertiesManager.PROPERTIES_FILE_PROPERTY, file.getPath());
+        try {
+            final Properties props = new Properties();
+            props.setProperty("heavy.job", "0/7 * * ? * *");
+            props.setProperty("light.job", "0 0 * ? * *");
+            write(props, file);
+            final SchedulePropertiesManager properties = new SchedulePropertiesManager();
+            jobs = new JobScheduler(provider, createBeanManager(), properties,
+                    new ScheduleBindings(ScheduleIndex.EMPTY));
+            final String heavy = jobs.schedule(new ScheduledBinding("heavy.job"));
+            final String light = jobs.schedule(new ScheduledBinding("light.job"));
+            final Date lightNextFireTime = provider.getNextFireTime(light);
+            Assert.assertFalse(properties.reload());
+
+            props.setProperty("heavy.job", "0/2 * * ? * *");
+            write(props, file);
+            Assert.assertTrue(properties.reload());
+            Assert.assertEquals(Collections.singletonList(heavy), jobs.reloadNamedSchedules());
+            Assert.assertEquals(0, provider.getNextFireTime(heavy).getTime() / 1000 % 2);
+            Assert.assertEquals(lightNextFireTime, provider.getNextFireTime(light));
+
+            // no longer on the named schedule
+            jobs.reschedule(heavy, "* * * ? * *");
+            props.setProperty("heavy.job", "0/3 * * ? * *");
+            write(props, file);
+            Assert.assertTrue(properties.reload());
+            Assert.assertTrue(jobs.reloadNamedSchedules().isEmpty());
+        } finally {
+            System.clearProperty(SchedulePropertiesManager.PROPERTIES_FILE_PROPERTY);
+            file.delete();
+        }
+    }
+
+    private void write(final Properties props, final File file) throws IOException {
+        final long lastModified = file.lastModified();
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            props.store(out, null);
+        } finally {
+            out.close();
+        }
+        // as if it was edited a little later
+        file.setLastModified(lastModified + 2000);
+    }
+
+    private static <A extends Annotation> A qualifier(final Class<A> type) {
+        return Qualified.class.getAnnotation(type);
+    }
+
+    private JobMetrics awaitMisfire(final String jobName) throws InterruptedException {
+        final JobMetrics metrics = provider.getMetrics().getJobMetrics(jobName);
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (metrics.getMisfires() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue("Expected " + jobName + " to misfire", metrics.getMisfires() > 0);
+        return metrics;
+    }
+
+    private void awaitObserverThread(final String prefix) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            for (String thread : new ArrayList<String>(observerThreads)) {
+                if (thread.startsWith(prefix)) {
+                    return;
+                }
+            }
+            Thread.sleep(10);
+        }
+        Assert.fail("No observer was notified on " + prefix + "*, only on "
+                + new LinkedHashSet<String>(observerThreads));
+    }
+
+    private void awaitFirings(final int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (firings.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue("Expected " + count + " firings but got " + firings.size(), firings.size() >= count);
+    }
+
+    private BeanManager createBeanManager() {
+        final List<ObserverMethod<?>> observers = new ArrayList<ObserverMethod<?>>();
+        for (int i = 0; i < 2; i++) {
+            observers.add(createObserver("observer" + i));
+        }
+        final Bean<?> asynchronousExecutorBean = (Bean<?>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{Bean.class}, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                return "toString".equals(method.getName()) ? "AsynchronousExecutor bean" : null;
+            }
+        });
+        return (BeanManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{BeanManager.class},
+                new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("resolveObserverMethods".equals(method.getName())) {
+                    return new LinkedHashSet<ObserverMethod<?>>(observers.subList(0, observerCount));
+                } else if ("getBeans".equals(method.getName())) {
+                    return Collections.singleton(asynchronousExecutorBean);
+                } else if ("resolve".equals(method.getName())) {
+                    return asynchronousExecutor == null ? null : asynchronousExecutorBean;
+                } else if ("getReference".equals(method.getName())) {
+                    return asynchronousExecutor;
+                }
+                return null;
+            }
+        });
+    }
+
+    private ObserverMethod<?> createObserver(final String name) {
+        return (ObserverMethod<?>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{ObserverMethod.class}, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("notify".equals(method.getName())) {
+                    firings.add(((Trigger) args[0]).getTimeFired());
+                    observerThreads.add(Thread.currentThread().getName());
+                    if (slowNotifications.getAndDecrement() > 0) {
+                        Thread.sleep(observerDelay);
+                    }
+                } else if ("hashCode".equals(method.getName())) {
+                    return System.identityHashCode(proxy);
+                } else if ("equals".equals(method.getName())) {
+                    return proxy == args[0];
+                } else if ("toString".equals(method.getName())) {
+                    return name;
+                }
+                return null;
+            }
+        });
+    }
+
+    @Every(MINUTE)
+    @Jitter(30000)
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface EveryMinuteOrSo {
+    }
+
+    @Every(MINUTE)
+    @Jitter(0)
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface EveryMinuteInStep {
+    }
+
+    @Every(MINUTE)
+    @Jitter(30000)
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface EveryMinuteOrSoButNotHere {
+    }
+
+    @Every(nth = 40, value = MILLISECOND)
+    @Concurrency(ConcurrencyPolicy.SKIP)
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface EveryFewMillisOneAtATime {
+    }
+
+    @Every(nth = 100, value = MILLISECOND)
+    @Misfire(MisfirePolicy.FIRE_NOW)
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface EveryFewMillisFiredNow {
+    }
+
+    @Every(nth = 100, value = MILLISECOND)
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface EveryFewMillisCaughtUp {
+    }
+
+    @Every(nth = 100, value = MILLISECOND)
+    @ParallelObservers
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface EveryFewMillisInParallel {
+    }
+
+    @Every(nth = 100, value = MILLISECOND)
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface EveryFewMillisInParallelByProperty {
+    }
+
+    @EveryMinuteOrSo
+    @EveryMinuteInStep
+    @EveryMinuteOrSoButNotHere
+    @EveryFewMillisOneAtATime
+    @EveryFewMillisFiredNow
+    @EveryFewMillisCaughtUp
+    @EveryFewMillisInParallel
+    @EveryFewMillisInParallelByProperty
+    private static class Qualified {
+    }
+}
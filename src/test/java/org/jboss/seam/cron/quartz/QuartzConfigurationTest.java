@@ -0,0 +1,78 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.util.Properties;
+
+import org.jboss.seam.cron.exception.SchedulerConfigurationException;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+import org.junit.Assert;
+import org.junit.Test;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.quartz.simpl.RAMJobStore;
+
+/**
+ * Test that #{@link QuartzConfiguration} picks a job store to suit the scheduler and refuses
+ * settings it can't use.
+ *
+ * @author Peter Royle
+ */
+public class QuartzConfigurationTest {
+
+    private final Properties props = new Properties();
+
+    @Test
+    public void testDefaults() {
+        final QuartzConfiguration config = read();
+        Assert.assertEquals(RAMJobStore.class.getName(), config.getJobStoreClass());
+        Assert.assertFalse(config.isCoalesce());
+        Assert.assertNull(config.getInstanceId());
+        Assert.assertEquals(4, config.getThreadCount());
+    }
+
+    @Test
+    public void testClusteredUsesTheDatabase() {
+        set(QuartzConfiguration.CLUSTERED, "true");
+        set(QuartzConfiguration.DATA_SOURCE_JNDI_URL, "java:/CronDS");
+        set(QuartzConfiguration.INSTANCE_ID, "node1");
+        final QuartzConfiguration config = read();
+        Assert.assertEquals(JobStoreTX.class.getName(), config.getJobStoreClass());
+        Assert.assertEquals("node1", config.getInstanceId());
+    }
+
+    @Test(expected = SchedulerConfigurationException.class)
+    public void testClusteredNeedsADatabase() {
+        set(QuartzConfiguration.CLUSTERED, "true");
+        read();
+    }
+
+    @Test(expected = SchedulerConfigurationException.class)
+    public void testUnknownJobStore() throws Exception {
+        set(QuartzConfiguration.JOB_STORE, "com.acme.NoSuchJobStore");
+        final QuartzConfiguration config = read();
+        Assert.assertEquals("com.acme.NoSuchJobStore", config.getJobStoreClass());
+        new QuartzSchedulerFactory(config).createLocalScheduler();
+    }
+
+    private void set(final String name, final String value) {
+        props.setProperty(QuartzConfiguration.PROPERTY_PREFIX + name, value);
+    }
+
+    private QuartzConfiguration read() {
+        return QuartzConfiguration.read(new SchedulePropertiesManager(props));
+    }
+}
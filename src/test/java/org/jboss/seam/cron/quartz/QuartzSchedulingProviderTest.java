@@ -0,0 +1,142 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.seam.cron.annotations.MisfirePolicy;
+import org.jboss.seam.cron.metrics.SchedulerMetrics;
+import org.jboss.seam.cron.quartz.jobs.TickerJob;
+import org.jboss.seam.cron.spi.CronSchedule;
+import org.jboss.seam.cron.spi.MisfireConfiguration;
+import org.jboss.seam.cron.spi.TimeEventJob;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+import org.junit.Assert;
+import org.junit.Test;
+import org.quartz.CronTrigger;
+import org.quartz.JobDetail;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger;
+
+import static org.jboss.seam.cron.events.TimeUnit.SECOND;
+
+/**
+ * Test that the #{@link QuartzSchedulingProvider} fires coalesced @Every events on the ticks of
+ * the ticker trigger in the job store, even when that trigger was scheduled by another node, and
+ * fires local cron events from their compiled schedules.
+ *
+ * @author Peter Royle
+ */
+public class QuartzSchedulingProviderTest {
+
+    private static final MisfireConfiguration SKIP = new MisfireConfiguration(MisfirePolicy.SKIP, 1);
+
+    @Test
+    public void testTickerPhasesFollowTheTriggerInTheJobStore() throws Exception {
+        final QuartzSchedulingProvider provider = createProvider();
+        final long start = (System.currentTimeMillis() / 1000L + 2) * 1000L;
+        // as if another node had scheduled the ticker a second earlier
+        provider.getScheduler().scheduleJob(new JobDetail("Ticker#SECOND", QuartzStarter.TICKER_JOB_GROUP,
+                TickerJob.class), new SimpleTrigger("Ticker#SECOND", QuartzStarter.TICKER_JOB_GROUP,
+                new Date(start - 1000L), null, SimpleTrigger.REPEAT_INDEFINITELY, 1000L));
+
+        final RecordingJob job = new RecordingJob(2);
+        provider.scheduleInterval("every-2-seconds", job, SECOND, 2, false, SKIP, new Date(start));
+        provider.start();
+        try {
+            Assert.assertEquals(new Date(start), provider.getNextFireTime("every-2-seconds"));
+            Assert.assertTrue("The job should fire twice", job.fired.await(6, TimeUnit.SECONDS));
+        } finally {
+            provider.shutdown();
+        }
+        // on the odd ticks of the kept trigger, rather than the even ones
+        Assert.assertEquals(start, (long) job.fireTimes.get(0));
+        Assert.assertEquals(start + 2000L, (long) job.fireTimes.get(1));
+    }
+
+    @Test
+    public void testLocalCronEventsUseTheCompiledSchedule() throws Exception {
+        final QuartzSchedulingProvider provider = createProvider();
+        final RecordingJob job = new RecordingJob(2);
+        provider.scheduleCron("every-second", job, CronSchedule.compile("* * * * * ?"), false, SKIP, new Date());
+        provider.start();
+        try {
+            final Trigger trigger = provider.getScheduler().getTrigger("every-second",
+                    QuartzStarter.SCHEDULE_JOB_GROUP);
+            Assert.assertTrue(trigger instanceof CronScheduleTrigger);
+            Assert.assertEquals(CronTrigger.MISFIRE_INSTRUCTION_DO_NOTHING, trigger.getMisfireInstruction());
+            Assert.assertTrue("The job should fire twice", job.fired.await(5, TimeUnit.SECONDS));
+        } finally {
+            provider.shutdown();
+        }
+        Assert.assertEquals(0, job.fireTimes.get(0) % 1000L);
+        Assert.assertEquals(job.fireTimes.get(0) + 1000L, (long) job.fireTimes.get(1));
+    }
+
+    @Test
+    public void testCronScheduleTriggerFiresWhenCronTriggerDoes() throws Exception {
+        final String expression = "0 15 10 ? * MON-FRI";
+        final Date start = new Date(1262304012345L);
+        final CronTrigger quartz = new CronTrigger("quartz", "test", expression);
+        quartz.setStartTime(start);
+        final CronScheduleTrigger compiled = new CronScheduleTrigger("compiled", "test",
+                CronSchedule.compile(expression));
+        compiled.setStartTime(start);
+        Assert.assertEquals(quartz.computeFirstFireTime(null), compiled.computeFirstFireTime(null));
+        for (int i = 0; i < 50; i++) {
+            quartz.triggered(null);
+            compiled.triggered(null);
+            Assert.assertEquals(quartz.getPreviousFireTime(), compiled.getPreviousFireTime());
+            Assert.assertEquals(quartz.getNextFireTime(), compiled.getNextFireTime());
+        }
+
+        quartz.setEndTime(new Date(start.getTime() + 24 * 60 * 60 * 1000L));
+        compiled.setEndTime(quartz.getEndTime());
+        Assert.assertEquals(quartz.getFireTimeAfter(start), compiled.getFireTimeAfter(start));
+        Assert.assertNull(compiled.getFireTimeAfter(quartz.getEndTime()));
+    }
+
+    private QuartzSchedulingProvider createProvider() {
+        final Properties props = new Properties();
+        props.setProperty("org.jboss.seam.cron.scheduler.coalesce", "true");
+        final QuartzSchedulingProvider provider = new QuartzSchedulingProvider();
+        provider.initProvider(new SchedulePropertiesManager(props), new SchedulerMetrics("test", 1));
+        return provider;
+    }
+
+    private static class RecordingJob
+            implements TimeEventJob {
+
+        private final List<Long> fireTimes = Collections.synchronizedList(new ArrayList<Long>());
+        private final CountDownLatch fired;
+
+        RecordingJob(final int firings) {
+            fired = new CountDownLatch(firings);
+        }
+
+        public void fire(final long scheduledFireTime) {
+            fireTimes.add(scheduledFireTime);
+            fired.countDown();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Properties;
+
+import org.jboss.seam.cron.annotations.Every;
+import org.jboss.seam.cron.annotations.Jitter;
+import org.jboss.seam.cron.annotations.Scheduled;
+import org.jboss.seam.cron.events.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that #{@link ScheduleBindings} answers for the qualifier types in the #{@link ScheduleIndex}
+ * from the index alone, and reflects on the others.
+ *
+ * @author Peter Royle
+ */
+public class ScheduleBindingsTest {
+
+    @Test
+    public void testQualifierTypesWhichAreNotIndexedAreReflectedOn() {
+        final ScheduleBindings bindings = new ScheduleBindings(ScheduleIndex.EMPTY);
+        Assert.assertFalse(bindings.isScheduled(plain()));
+        Assert.assertTrue(bindings.isScheduled(everyQuarterHour()));
+        Assert.assertEquals(15, bindings.getEvery(everyQuarterHour()).nth());
+        Assert.assertEquals(TimeUnit.MINUTE, bindings.getEvery(everyQuarterHour()).value());
+        Assert.assertNull(bindings.getScheduled(everyQuarterHour()));
+        Assert.assertEquals(60000, bindings.getMetaAnnotation(everyQuarterHour(), Jitter.class).value());
+    }
+
+    @Test
+    public void testIndexedQualifierTypesAreAnsweredFromTheIndex() {
+        // the index disagrees with the annotations, to show that they aren't reflected on
+        final Properties entries = new Properties();
+        entries.setProperty(Plain.class.getName(), Scheduled.class.getName());
+        entries.setProperty(Plain.class.getName() + "#scheduled", "0 0 12 * * ?");
+        entries.setProperty(Plain.class.getName() + "#scheduled.clustered", "false");
+        entries.setProperty(EveryQuarterHour.class.getName(), Every.class.getName());
+        entries.setProperty(EveryQuarterHour.class.getName() + "#every", "2 HOUR");
+        final ScheduleBindings bindings = new ScheduleBindings(new ScheduleIndex(entries));
+
+        Assert.assertTrue(bindings.isScheduled(plain()));
+        final Scheduled scheduled = bindings.getScheduled(plain());
+        Assert.assertEquals("0 0 12 * * ?", scheduled.value());
+        Assert.assertFalse(scheduled.clustered());
+        final Every every = bindings.getEvery(everyQuarterHour());
+        Assert.assertEquals(2, every.nth());
+        Assert.assertEquals(TimeUnit.HOUR, every.value());
+        Assert.assertTrue(every.clustered());
+        Assert.assertNull(bindings.getMetaAnnotation(everyQuarterHour(), Jitter.class));
+    }
+
+    @Test
+    public void testIndexFilesAreMerged() throws Exception {
+        final File first = File.createTempFile("index", "");
+        final File second = File.createTempFile("index", "");
+        try {
+            final Properties entries = new Properties();
+            entries.setProperty("com.acme.Hourly", "");
+            write(entries, first);
+            entries.clear();
+            entries.setProperty("com.acme.Daily", Scheduled.class.getName() + "," + Jitter.class.getName());
+            write(entries, second);
+            final ClassLoader loader = new URLClassLoader(new URL[]{first.toURI().toURL(), second.toURI().toURL()},
+                    null);
+
+            final ScheduleIndex index = ScheduleIndex.load(loader);
+            Assert.assertTrue(index.isIndexed("com.acme.Hourly"));
+            Assert.assertTrue(index.isIndexed("com.acme.Daily"));
+            Assert.assertFalse(index.isIndexed(Plain.class.getName()));
+            Assert.assertTrue(index.isAnnotated("com.acme.Daily", Jitter.class.getName()));
+            Assert.assertFalse(index.isAnnotated("com.acme.Hourly", Jitter.class.getName()));
+        } finally {
+            delete(first);
+            delete(second);
+        }
+    }
+
+    private static void write(final Properties entries, final File dir) throws Exception {
+        // each "jar" is a directory holding an index
+        dir.delete();
+        final File file = new File(dir, ScheduleIndex.INDEX_RESOURCE);
+        file.getParentFile().mkdirs();
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            entries.store(out, null);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static Plain plain() {
+        return Holder.class.getAnnotation(Plain.class);
+    }
+
+    private static EveryQuarterHour everyQuarterHour() {
+        return Holder.class.getAnnotation(EveryQuarterHour.class);
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface Plain {
+    }
+
+    @Every(nth = 15, value = TimeUnit.MINUTE)
+    @Jitter(60000)
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface EveryQuarterHour {
+    }
+
+    @Plain
+    @EveryQuarterHour
+    private static class Holder {
+    }
+}
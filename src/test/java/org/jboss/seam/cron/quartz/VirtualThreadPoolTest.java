@@ -0,0 +1,210 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+import org.jboss.seam.cron.util.VirtualThreads;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerConfigException;
+import org.quartz.simpl.SimpleThreadPool;
+
+/**
+ * Test that the #{@link VirtualThreadPool} keeps to its size, always tells Quartz that a thread is
+ * free once one is, and is only used when the JVM has virtual threads. The pool's bookkeeping is
+ * tested on platform threads, so that it is tested on any JVM.
+ *
+ * @author Peter Royle
+ */
+public class VirtualThreadPoolTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger finished = new AtomicInteger();
+    private VirtualThreadPool pool;
+
+    @Before
+    public void createPool() throws SchedulerConfigException {
+        pool = new PlatformThreadPool(2);
+        pool.initialize();
+    }
+
+    @After
+    public void shutdownPool() {
+        release.countDown();
+        pool.shutdown(true);
+    }
+
+    @Test
+    public void testRunsNoMoreJobsThanItsSize() throws InterruptedException {
+        Assert.assertTrue(pool.runInThread(blockingJob()));
+        Assert.assertTrue(pool.runInThread(blockingJob()));
+        final Thread third = new Thread(new Runnable() {
+
+            public void run() {
+                pool.runInThread(blockingJob());
+            }
+        });
+        third.start();
+        third.join(200);
+        Assert.assertTrue("The third job should wait for a free thread", third.isAlive());
+        Assert.assertEquals(2, running.get());
+
+        release.countDown();
+        third.join(5000);
+        Assert.assertFalse(third.isAlive());
+        pool.shutdown(true);
+        Assert.assertEquals(3, finished.get());
+        Assert.assertFalse(pool.runInThread(blockingJob()));
+    }
+
+    @Test
+    public void testBlocksUntilAThreadIsFree() throws InterruptedException {
+        pool.runInThread(blockingJob());
+        pool.runInThread(blockingJob());
+        final AtomicInteger available = new AtomicInteger(-1);
+        final Thread waiting = new Thread(new Runnable() {
+
+            public void run() {
+                available.set(pool.blockForAvailableThreads());
+            }
+        });
+        waiting.start();
+        waiting.join(200);
+        Assert.assertTrue("Both threads are busy", waiting.isAlive());
+
+        release.countDown();
+        waiting.join(5000);
+        Assert.assertFalse(waiting.isAlive());
+        Assert.assertTrue(available.get() >= 1);
+    }
+
+    @Test
+    public void testNeverReportsNoFreeThreads() throws InterruptedException {
+        // one thread stays busy, and the other is taken and given back over and over
+        pool.runInThread(blockingJob());
+        final Thread contender = new Thread(new Runnable() {
+
+            public void run() {
+                while (release.getCount() > 0) {
+                    pool.runInThread(new Runnable() {
+
+                        public void run() {
+                        }
+                    });
+                }
+            }
+        });
+        contender.start();
+        try {
+            for (int i = 0; i < 20000; i++) {
+                Assert.assertTrue(pool.blockForAvailableThreads() >= 1);
+            }
+        } finally {
+            release.countDown();
+            contender.join(5000);
+        }
+    }
+
+    @Test
+    public void testNeedsVirtualThreads() throws SchedulerConfigException, InterruptedException {
+        final VirtualThreadPool virtualPool = new VirtualThreadPool(1);
+        if (!VirtualThreads.isSupported()) {
+            try {
+                virtualPool.initialize();
+                Assert.fail("Virtual threads are not supported by this JVM");
+            } catch (SchedulerConfigException expected) {
+            }
+            return;
+        }
+        virtualPool.initialize();
+        final String[] threadName = new String[1];
+        final CountDownLatch ran = new CountDownLatch(1);
+        virtualPool.runInThread(new Runnable() {
+
+            public void run() {
+                threadName[0] = Thread.currentThread().getName();
+                ran.countDown();
+            }
+        });
+        Assert.assertTrue(ran.await(5, TimeUnit.SECONDS));
+        virtualPool.shutdown(true);
+        Assert.assertTrue(threadName[0].startsWith("SeamCronScheduler-virtual-"));
+    }
+
+    @Test
+    public void testSchedulerFallsBackToPlatformThreads() throws Exception {
+        final Properties props = new Properties();
+        props.setProperty(QuartzConfiguration.PROPERTY_PREFIX + QuartzConfiguration.THREADS, "VIRTUAL");
+        props.setProperty(QuartzConfiguration.PROPERTY_PREFIX + QuartzConfiguration.THREAD_COUNT, "3");
+        final QuartzConfiguration config = QuartzConfiguration.read(new SchedulePropertiesManager(props));
+        final Scheduler scheduler = new QuartzSchedulerFactory(config).createLocalScheduler();
+        try {
+            Assert.assertEquals(VirtualThreads.isSupported() ? VirtualThreadPool.class : SimpleThreadPool.class,
+                    scheduler.getMetaData().getThreadPoolClass());
+            Assert.assertEquals(config.getThreadCount(), scheduler.getMetaData().getThreadPoolSize());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private Runnable blockingJob() {
+        return new Runnable() {
+
+            public void run() {
+                running.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                finished.incrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * Runs its jobs on platform threads, on any JVM.
+     */
+    private static class PlatformThreadPool extends VirtualThreadPool {
+
+        PlatformThreadPool(final int size) {
+            super(size);
+        }
+
+        @Override
+        protected ThreadFactory createThreadFactory() {
+            return new ThreadFactory() {
+
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+        }
+    }
+}
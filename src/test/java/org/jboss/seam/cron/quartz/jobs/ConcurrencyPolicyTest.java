@@ -0,0 +1,148 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz.jobs;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.ObserverMethod;
+
+import org.jboss.seam.cron.annotations.ConcurrencyPolicy;
+import org.jboss.seam.cron.annotations.EveryBinding;
+import org.jboss.seam.cron.events.Trigger;
+import org.jboss.seam.cron.metrics.JobMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that a scheduled event's #{@link ConcurrencyPolicy} is enforced when its job is fired
+ * while earlier firings are still running.
+ *
+ * @author Peter Royle
+ */
+public class ConcurrencyPolicyTest {
+
+    private final List<Long> notified = Collections.synchronizedList(new ArrayList<Long>());
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final JobMetrics metrics = new JobMetrics("test", "@Every(SECOND)");
+
+    @Test
+    public void testSkip() throws InterruptedException {
+        final SecondJob job = createJob(ConcurrencyPolicy.SKIP, 1);
+        final Thread first = fireInBackground(job, 0);
+        job.fire(1000);
+        job.fire(2000);
+        release.countDown();
+        first.join();
+        Assert.assertEquals(Collections.singletonList(0L), notified);
+        Assert.assertEquals(2, metrics.getSkipped());
+    }
+
+    @Test
+    public void testSkipBeyondMax() throws InterruptedException {
+        final SecondJob job = createJob(ConcurrencyPolicy.SKIP, 2);
+        final Thread first = fireInBackground(job, 0);
+        final Thread second = fireInBackground(job, 1000);
+        job.fire(2000);
+        release.countDown();
+        first.join();
+        second.join();
+        Assert.assertEquals(2, notified.size());
+        Assert.assertEquals(1, metrics.getSkipped());
+    }
+
+    @Test
+    public void testCoalesce() throws InterruptedException {
+        final SecondJob job = createJob(ConcurrencyPolicy.COALESCE, 1);
+        final Thread first = fireInBackground(job, 0);
+        job.fire(1000);
+        job.fire(2000);
+        Assert.assertEquals("Firings should wait rather than run", 1, notified.size());
+        release.countDown();
+        first.join();
+        // the pending firing runs when the first finishes, with the latest scheduled time
+        Assert.assertEquals(Arrays.asList(0L, 2000L), notified);
+        Assert.assertEquals(1, metrics.getCoalesced());
+    }
+
+    @Test
+    public void testAllow() throws InterruptedException {
+        final SecondJob job = createJob(ConcurrencyPolicy.ALLOW, 1);
+        final Thread first = fireInBackground(job, 0);
+        final Thread second = fireInBackground(job, 1000);
+        release.countDown();
+        first.join();
+        second.join();
+        Assert.assertEquals(2, metrics.getPeakConcurrentExecutions());
+    }
+
+    private SecondJob createJob(final ConcurrencyPolicy policy, final int max) {
+        final SecondJob job = new SecondJob();
+        job.bind(createBeanManager(), new EveryBinding(1, org.jboss.seam.cron.events.TimeUnit.SECOND), metrics);
+        job.setConcurrency(policy, max);
+        return job;
+    }
+
+    /**
+     * Fire the job on another thread and wait until its observer is blocked.
+     */
+    private Thread fireInBackground(final SecondJob job, final long scheduledFireTime) throws InterruptedException {
+        final int before = notified.size();
+        final Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+                job.fire(scheduledFireTime);
+            }
+        };
+        thread.start();
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (notified.size() == before && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        return thread;
+    }
+
+    private BeanManager createBeanManager() {
+        final ObserverMethod<?> observer = (ObserverMethod<?>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{ObserverMethod.class}, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("notify".equals(method.getName())) {
+                    notified.add(((Trigger) args[0]).getTimeFired());
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                return null;
+            }
+        });
+        return (BeanManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{BeanManager.class},
+                new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                return Collections.singleton(observer);
+            }
+        });
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz.jobs;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.ObserverMethod;
+
+import org.jboss.seam.cron.annotations.EveryBinding;
+import org.jboss.seam.cron.events.Trigger;
+import org.jboss.seam.cron.metrics.JobMetrics;
+import org.jboss.seam.cron.metrics.ObserverMetrics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that the observers of a scheduled event can be notified in parallel, that each is
+ * measured separately and that a failing one doesn't stop the others.
+ *
+ * @author Peter Royle
+ */
+public class ParallelObserversTest {
+
+    private static final int OBSERVERS = 3;
+    private final ExecutorService executor = Executors.newFixedThreadPool(OBSERVERS);
+    private final JobMetrics metrics = new JobMetrics("test", "@Every(SECOND)");
+    private final Set<String> threads = Collections.synchronizedSet(new LinkedHashSet<String>());
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testObserversRunAtTheSameTime() {
+        // would time out if the observers were notified one after the other
+        final CyclicBarrier allRunning = new CyclicBarrier(OBSERVERS);
+        final SecondJob job = createJob(executor, allRunning, -1);
+        job.fire(0);
+        Assert.assertEquals(OBSERVERS, threads.size());
+        Assert.assertEquals(1, metrics.getExecutions());
+        Assert.assertEquals(OBSERVERS, metrics.getObserverMetrics().size());
+        for (ObserverMetrics observer : metrics.getObserverMetrics()) {
+            Assert.assertEquals(1, observer.getExecutions());
+        }
+    }
+
+    @Test
+    public void testFailingObserverDoesNotStopTheOthers() {
+        final SecondJob job = createJob(executor, null, 1);
+        try {
+            job.fire(0);
+            Assert.fail("The observer's failure should be reported");
+        } catch (IllegalStateException expected) {
+        }
+        Assert.assertEquals(1, metrics.getFailures());
+        for (int i = 0; i < OBSERVERS; i++) {
+            final ObserverMetrics observer = metrics.getObserverMetrics().get(i);
+            Assert.assertEquals(1, observer.getExecutions());
+            Assert.assertEquals(i == 1 ? 1 : 0, observer.getFailures());
+        }
+    }
+
+    @Test
+    public void testObserversDroppedByTheExecutorAreStillNotified() {
+        final SecondJob job = createJob(new Executor() {
+
+            public void execute(final Runnable command) {
+                // discarded
+            }
+        }, null, -1);
+        job.fire(0);
+        Assert.assertEquals(Collections.singleton(Thread.currentThread().getName()), threads);
+        for (ObserverMetrics observer : metrics.getObserverMetrics()) {
+            Assert.assertEquals(1, observer.getExecutions());
+        }
+    }
+
+    private SecondJob createJob(final Executor observerExecutor, final CyclicBarrier barrier, final int failing) {
+        final SecondJob job = new SecondJob();
+        job.bind(createBeanManager(barrier, failing), new EveryBinding(1, org.jboss.seam.cron.events.TimeUnit.SECOND),
+                metrics);
+        job.setObserverExecutor(observerExecutor);
+        return job;
+    }
+
+    private BeanManager createBeanManager(final CyclicBarrier barrier, final int failing) {
+        final Set<ObserverMethod<?>> observers = new LinkedHashSet<ObserverMethod<?>>();
+        for (int i = 0; i < OBSERVERS; i++) {
+            final int index = i;
+            observers.add((ObserverMethod<?>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[]{ObserverMethod.class}, new InvocationHandler() {
+
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if ("notify".equals(method.getName())) {
+                        Assert.assertTrue(args[0] instanceof Trigger);
+                        threads.add(Thread.currentThread().getName());
+                        if (barrier != null) {
+                            barrier.await(5, TimeUnit.SECONDS);
+                        }
+                        if (index == failing) {
+                            throw new IllegalStateException("Observer failed");
+                        }
+                    } else if ("hashCode".equals(method.getName())) {
+                        return index;
+                    } else if ("equals".equals(method.getName())) {
+                        return proxy == args[0];
+                    } else if ("toString".equals(method.getName())) {
+                        return "observer" + index;
+                    }
+                    return null;
+                }
+            }));
+        }
+        return (BeanManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{BeanManager.class},
+                new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                return observers;
+            }
+        });
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz.jobs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.seam.cron.events.Trigger;
+import org.jboss.seam.cron.spi.TimeEventJob;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that a #{@link TickerJob} fires each of its events on the right ticks.
+ *
+ * @author Peter Royle
+ */
+public class TickerJobTest {
+
+    @Test
+    public void testEventsFireOnTheirOwnIntervals() {
+        final CountingJob everyTick = new CountingJob();
+        final CountingJob everySecondTick = new CountingJob();
+        final CountingJob everyFifthTick = new CountingJob();
+        final TickerJob ticker = new TickerJob();
+        ticker.bind(1000, Arrays.asList(1, 2, 5),
+                Arrays.<TimeEventJob>asList(everyTick, everySecondTick, everyFifthTick));
+        for (int tick = 0; tick < 10; tick++) {
+            ticker.tick(tick * 1000L, tick);
+        }
+        Assert.assertEquals(Arrays.asList(0L, 1000L, 2000L, 3000L, 4000L, 5000L, 6000L, 7000L, 8000L, 9000L),
+                everyTick.fired);
+        Assert.assertEquals(Arrays.asList(0L, 2000L, 4000L, 6000L, 8000L), everySecondTick.fired);
+        Assert.assertEquals(Arrays.asList(0L, 5000L), everyFifthTick.fired);
+    }
+
+    @Test
+    public void testEventsFireOnTheirOwnPhase() {
+        final CountingJob firstOfThree = new CountingJob();
+        final CountingJob thirdOfThree = new CountingJob();
+        final TickerJob ticker = new TickerJob();
+        ticker.bind(1000, Arrays.asList(3, 3), Arrays.asList(0, 2),
+                Arrays.<TimeEventJob>asList(firstOfThree, thirdOfThree));
+        for (int tick = 0; tick < 7; tick++) {
+            ticker.tick(tick * 1000L, tick);
+        }
+        Assert.assertEquals(Arrays.asList(0L, 3000L, 6000L), firstOfThree.fired);
+        Assert.assertEquals(Arrays.asList(2000L, 5000L), thirdOfThree.fired);
+    }
+
+    @Test
+    public void testFailingEventDoesNotStopTheRest() {
+        final CountingJob failing = new CountingJob() {
+
+            @Override
+            public void fire(final long scheduledFireTime) {
+                throw new IllegalStateException("Observer failed");
+            }
+        };
+        final CountingJob healthy = new CountingJob();
+        final TickerJob ticker = new TickerJob();
+        ticker.bind(1000, Arrays.asList(1, 1), Arrays.<TimeEventJob>asList(failing, healthy));
+        ticker.tick(0, 0);
+        Assert.assertEquals(Arrays.asList(0L), healthy.fired);
+    }
+
+    private static class CountingJob extends AbstractTimeEventJob {
+
+        private final List<Long> fired = new ArrayList<Long>();
+
+        @Override
+        protected Trigger createEventPayload(final long timeFired) {
+            return new Trigger(timeFired);
+        }
+
+        @Override
+        public void fire(final long scheduledFireTime) {
+            fired.add(scheduledFireTime);
+        }
+    }
+}
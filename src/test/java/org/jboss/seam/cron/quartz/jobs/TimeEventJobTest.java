@@ -0,0 +1,89 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.quartz.jobs;
+
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that the millisecond, second, minute and hour of the built-in time events agree with
+ * #{@link GregorianCalendar}, including when one job instance fires on many threads at once.
+ *
+ * @author Peter Royle
+ */
+public class TimeEventJobTest {
+
+    private static final int THREADS = 8;
+    private static final int FIRINGS = 50000;
+    // 1900 to 2100, either side of the epoch and across plenty of daylight saving changes
+    private static final long RANGE = 200L * 365 * 24 * 60 * 60 * 1000;
+    private static final long START = -70L * 365 * 24 * 60 * 60 * 1000;
+
+    @Test
+    public void testFieldsMatchCalendar() {
+        final SecondJob job = new SecondJob();
+        final GregorianCalendar gc = new GregorianCalendar();
+        final Random random = new Random(42);
+        for (int i = 0; i < FIRINGS; i++) {
+            final long time = START + (long) (random.nextDouble() * RANGE);
+            gc.setTimeInMillis(time);
+            Assert.assertEquals(gc.get(GregorianCalendar.MILLISECOND), job.getField(GregorianCalendar.MILLISECOND, time));
+            Assert.assertEquals(gc.get(GregorianCalendar.SECOND), job.getField(GregorianCalendar.SECOND, time));
+            Assert.assertEquals(gc.get(GregorianCalendar.MINUTE), job.getField(GregorianCalendar.MINUTE, time));
+            Assert.assertEquals(gc.get(GregorianCalendar.HOUR_OF_DAY), job.getField(GregorianCalendar.HOUR_OF_DAY, time));
+        }
+    }
+
+    @Test
+    public void testNoTornValuesWhenFiredConcurrently() throws InterruptedException {
+        final SecondJob secondJob = new SecondJob();
+        final MinuteJob minuteJob = new MinuteJob();
+        final HourJob hourJob = new HourJob();
+        final AtomicInteger mismatches = new AtomicInteger();
+        final Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final long seed = t;
+            threads[t] = new Thread() {
+
+                @Override
+                public void run() {
+                    final GregorianCalendar gc = new GregorianCalendar();
+                    final Random random = new Random(seed);
+                    for (int i = 0; i < FIRINGS; i++) {
+                        final long time = START + (long) (random.nextDouble() * RANGE);
+                        gc.setTimeInMillis(time);
+                        if (secondJob.createEventPayload(time).getValue() != gc.get(GregorianCalendar.SECOND)
+                                || minuteJob.createEventPayload(time).getValue() != gc.get(GregorianCalendar.MINUTE)
+                                || hourJob.createEventPayload(time).getValue() != gc.get(GregorianCalendar.HOUR_OF_DAY)
+                                || secondJob.createEventPayload(time).getTimeFired() != time) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(0, mismatches.get());
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.spi;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.jboss.seam.cron.quartz.QuartzCronFallback;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.quartz.CronExpression;
+
+/**
+ * Test that a #{@link CronSchedule} fires at exactly the same times as Quartz's
+ * #{@link CronExpression}, including around changes to daylight saving.
+ *
+ * @author Peter Royle
+ */
+public class CronScheduleTest {
+
+    private static final String[] EXPRESSIONS = {"0 0 12 ? * *", "0 0/7 * * * ?", "0 30 2 * * ?", "0 15 1 * * ?",
+        "0 0 12 ? * MON-FRI", "0 15 10 1,15 * ?", "*/13 */5 1-3 ? JAN,JUL,OCT-DEC SUN", "0 0 0 29 2 ? *",
+        "0 0 12 ? * FRI-MON", "5/20 10-40/7 */3 ? * *", "0 0 12 * * ? 2030-2032", "0 0 0 1 1/3 ?",
+        "0 0 12 31 * ?", "0 0 12 L * ?", "0 30 2 ? * 1#2"};
+    private static final String[] TIME_ZONES = {"UTC", "America/New_York", "Europe/London", "Australia/Lord_Howe",
+        "Asia/Kolkata", "Pacific/Apia"};
+    // 2010-01-01T00:00:12.345Z
+    private static final long START = 1262304012345L;
+
+    @BeforeClass
+    public static void installFallback() {
+        CronSchedule.setFallback(new QuartzCronFallback());
+    }
+
+    @Test
+    public void testFiresWhenQuartzDoes() throws ParseException {
+        final TimeZone defaultTimeZone = TimeZone.getDefault();
+        try {
+            for (String timeZone : TIME_ZONES) {
+                TimeZone.setDefault(TimeZone.getTimeZone(timeZone));
+                for (String expression : EXPRESSIONS) {
+                    final CronSchedule schedule = CronSchedule.compile(expression);
+                    final CronExpression quartz = new CronExpression(expression);
+                    Date after = new Date(START);
+                    for (int i = 0; i < 2000 && after != null; i++) {
+                        final Date expected = quartz.getNextValidTimeAfter(after);
+                        Assert.assertEquals("Next firing of '" + expression + "' in " + timeZone + " after " + after,
+                                expected, schedule.getNextFireTime(after));
+                        after = expected;
+                    }
+                }
+            }
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    @Test
+    public void testCompiledSchedulesAreShared() throws ParseException {
+        Assert.assertSame(CronSchedule.compile("0 0 12 ? * *"), CronSchedule.compile("0 0 12 ? * *"));
+    }
+
+    @Test
+    public void testNeverFires() throws ParseException {
+        Assert.assertEquals(-1, CronSchedule.compile("0 0 12 31 2 ?").getNextFireTime(START));
+        Assert.assertEquals(-1, CronSchedule.compile("0 0 12 * * ? 2011").getNextFireTime(START + 2 * 366 * 86400000L));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testBothDaysRejected() throws ParseException {
+        CronSchedule.compile("0 0 12 * * MON");
+    }
+
+    @Test(expected = ParseException.class)
+    public void testOutOfRangeRejected() throws ParseException {
+        CronSchedule.compile("0 60 12 * * ?");
+    }
+
+    @Test(expected = ParseException.class)
+    public void testMissingFieldRejected() throws ParseException {
+        CronSchedule.compile("0 0 12 * *");
+    }
+
+    @Test
+    public void testShapeOfTheMonthNeedsAFallback() throws ParseException {
+        CronSchedule.setFallback(null);
+        try {
+            CronSchedule.compile("0 0 8 LW * ?");
+            Assert.fail("Compiled 'LW' without a fallback");
+        } catch (ParseException ex) {
+            // expected
+        } finally {
+            CronSchedule.setFallback(new QuartzCronFallback());
+        }
+        Assert.assertEquals(-1, CronSchedule.compile("0 0 8 LW * ? 2009").getNextFireTime(START));
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.spi;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.seam.cron.annotations.MisfirePolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that #{@link Recurrence} works out the next deadline of a firing which is on time or
+ * late, and handles a late one as its #{@link MisfirePolicy} says.
+ *
+ * @author Peter Royle
+ */
+public class RecurrenceTest {
+
+    // 2010-01-01T00:00:00Z
+    private static final long START = 1262304000000L;
+    private static final long THRESHOLD = 500;
+
+    @Test
+    public void testOnTime() {
+        final RecordingFiring firing = new RecordingFiring();
+        Assert.assertEquals(START + 1000, Recurrence.every(1000).fireDue(START, START + THRESHOLD, THRESHOLD,
+                new MisfireConfiguration(MisfirePolicy.FIRE_NOW, 1), firing));
+        Assert.assertEquals(Arrays.asList("next " + (START + 1000), "fire " + START), firing.calls);
+    }
+
+    @Test
+    public void testSkip() {
+        final RecordingFiring firing = new RecordingFiring();
+        final long now = START + 3500;
+        Assert.assertEquals(START + 4000, Recurrence.every(1000).fireDue(START, now, THRESHOLD,
+                new MisfireConfiguration(MisfirePolicy.SKIP, 1), firing));
+        Assert.assertEquals(Arrays.asList("misfired " + START + " SKIP", "next " + (START + 4000)), firing.calls);
+    }
+
+    @Test
+    public void testFireNow() {
+        final RecordingFiring firing = new RecordingFiring();
+        final long now = START + 3500;
+        Recurrence.every(1000).fireDue(START, now, THRESHOLD, new MisfireConfiguration(MisfirePolicy.FIRE_NOW, 1),
+                firing);
+        Assert.assertEquals(Arrays.asList("misfired " + START + " FIRE_NOW", "next " + (START + 4000), "fire " + now),
+                firing.calls);
+    }
+
+    @Test
+    public void testCatchUp() {
+        final RecordingFiring firing = new RecordingFiring();
+        Recurrence.every(1000).fireDue(START, START + 3500, THRESHOLD,
+                new MisfireConfiguration(MisfirePolicy.CATCH_UP, 2), firing);
+        Assert.assertEquals(Arrays.asList("misfired " + START + " CATCH_UP", "next " + (START + 4000),
+                "catch up " + Arrays.asList(START + 2000, START + 3000)), firing.calls);
+    }
+
+    @Test
+    public void testIntervalMissedFirings() {
+        final Recurrence recurrence = Recurrence.every(1000);
+        Assert.assertEquals(Arrays.asList(START, START + 1000, START + 2000),
+                recurrence.missedFirings(START, START + 2999, 10));
+        Assert.assertEquals(Arrays.asList(START + 2000), recurrence.missedFirings(START, START + 2999, 1));
+    }
+
+    @Test
+    public void testCron() throws ParseException {
+        // every minute, whatever the time zone
+        final Recurrence recurrence = Recurrence.of(CronSchedule.compile("0 * * * * ?"));
+        final long minute = 60 * 1000L;
+        Assert.assertEquals(START + minute, recurrence.following(START));
+        Assert.assertEquals(START + 3 * minute, recurrence.firstAfter(START, START + 2 * minute + 1));
+        Assert.assertEquals(Arrays.asList(START + minute, START + 2 * minute),
+                recurrence.missedFirings(START, START + 2 * minute + 1, 2));
+
+        final RecordingFiring firing = new RecordingFiring();
+        Assert.assertEquals(START + 3 * minute, recurrence.fireDue(START, START + 2 * minute + 1, THRESHOLD,
+                new MisfireConfiguration(MisfirePolicy.CATCH_UP, 5), firing));
+        Assert.assertEquals(Arrays.asList("misfired " + START + " CATCH_UP", "next " + (START + 3 * minute),
+                "catch up " + Arrays.asList(START, START + minute, START + 2 * minute)), firing.calls);
+    }
+
+    @Test
+    public void testCronWhichNeverFiresAgain() throws ParseException {
+        final Recurrence recurrence = Recurrence.of(CronSchedule.compile("0 0 0 1 1 ? 2009"));
+        final RecordingFiring firing = new RecordingFiring();
+        Assert.assertEquals(-1, recurrence.fireDue(START, START, THRESHOLD,
+                new MisfireConfiguration(MisfirePolicy.SKIP, 1), firing));
+        Assert.assertEquals(Arrays.asList("next -1", "fire " + START), firing.calls);
+    }
+
+    private static class RecordingFiring implements Recurrence.Firing {
+
+        private final List<String> calls = new ArrayList<String>();
+
+        public void next(final long deadline) {
+            calls.add("next " + deadline);
+        }
+
+        public void fire(final long scheduledFireTime) {
+            calls.add("fire " + scheduledFireTime);
+        }
+
+        public void misfired(final long deadline, final long now, final MisfirePolicy policy) {
+            calls.add("misfired " + deadline + " " + policy);
+        }
+
+        public void catchUp(final List<Long> scheduledFireTimes) {
+            calls.add("catch up " + scheduledFireTimes);
+        }
+    }
+}
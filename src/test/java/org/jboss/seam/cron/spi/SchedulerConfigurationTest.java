@@ -0,0 +1,109 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.spi;
+
+import java.util.Properties;
+
+import org.jboss.seam.cron.annotations.ThreadMode;
+import org.jboss.seam.cron.exception.SchedulerConfigurationException;
+import org.jboss.seam.cron.util.SchedulePropertiesManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that #{@link SchedulerConfiguration} sizes the scheduler as configured, lets system
+ * properties override /scheduler.properties, and refuses settings it can't use.
+ *
+ * @author Peter Royle
+ */
+public class SchedulerConfigurationTest {
+
+    private final Properties props = new Properties();
+
+    @After
+    public void clearSystemProperties() {
+        System.clearProperty(SchedulerConfiguration.PROPERTY_PREFIX + SchedulerConfiguration.THREAD_COUNT);
+    }
+
+    @Test
+    public void testDefaults() {
+        final SchedulerConfiguration config = read();
+        Assert.assertEquals(4, config.getThreadCount());
+        Assert.assertEquals(Thread.NORM_PRIORITY, config.getThreadPriority());
+        Assert.assertEquals(ThreadMode.PLATFORM, config.getThreadMode());
+        Assert.assertEquals(5000, config.getMisfireThreshold());
+        Assert.assertFalse(config.isClustered());
+    }
+
+    @Test
+    public void testThreadsPerCore() {
+        set(SchedulerConfiguration.THREADS_PER_CORE, "3");
+        Assert.assertEquals(3 * Runtime.getRuntime().availableProcessors(), read().getThreadCount());
+
+        // a fixed number wins
+        set(SchedulerConfiguration.THREAD_COUNT, "7");
+        Assert.assertEquals(7, read().getThreadCount());
+    }
+
+    @Test
+    public void testVirtualThreadsAllowMoreObservers() {
+        set(SchedulerConfiguration.THREADS, "virtual");
+        final SchedulerConfiguration config = read();
+        Assert.assertEquals(ThreadMode.VIRTUAL, config.getThreadMode());
+        Assert.assertEquals(1000, config.getThreadCount());
+    }
+
+    @Test
+    public void testSystemPropertiesOverride() {
+        set(SchedulerConfiguration.THREAD_COUNT, "2");
+        System.setProperty(SchedulerConfiguration.PROPERTY_PREFIX + SchedulerConfiguration.THREAD_COUNT, "9");
+        Assert.assertEquals(9, read().getThreadCount());
+    }
+
+    @Test
+    public void testMisfireThreshold() {
+        set(SchedulerConfiguration.MISFIRE_THRESHOLD, "250");
+        Assert.assertEquals(250, read().getMisfireThreshold());
+    }
+
+    @Test(expected = SchedulerConfigurationException.class)
+    public void testInvalidThreadPriority() {
+        set(SchedulerConfiguration.THREAD_PRIORITY, String.valueOf(Thread.MAX_PRIORITY + 1));
+        read();
+    }
+
+    @Test(expected = SchedulerConfigurationException.class)
+    public void testNoThreads() {
+        set(SchedulerConfiguration.THREAD_COUNT, "0");
+        read();
+    }
+
+    @Test(expected = SchedulerConfigurationException.class)
+    public void testUnknownThreadMode() {
+        set(SchedulerConfiguration.THREADS, "GREEN");
+        read();
+    }
+
+    private void set(final String name, final String value) {
+        props.setProperty(SchedulerConfiguration.PROPERTY_PREFIX + name, value);
+    }
+
+    private SchedulerConfiguration read() {
+        return SchedulerConfiguration.read(new SchedulePropertiesManager(props));
+    }
+}
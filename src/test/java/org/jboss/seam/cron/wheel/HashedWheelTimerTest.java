@@ -0,0 +1,124 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.cron.wheel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that a #{@link HashedWheelTimer} expires timeouts on time, including those more than
+ * one turn of the wheel away, re-arms repeating ones and drops cancelled ones.
+ *
+ * @author Peter Royle
+ */
+public class HashedWheelTimerTest {
+
+    private static final long TICK = 5;
+    // a small wheel (40ms a turn) so that most of the timeouts go round more than once
+    private static final int SIZE = 8;
+
+    @Test
+    public void testTimeoutsExpireOnTime() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer("test-wheel", TICK, SIZE);
+        final List<Long> lateness = Collections.synchronizedList(new ArrayList<Long>());
+        final CountDownLatch expired = new CountDownLatch(50);
+        final long now = System.currentTimeMillis();
+        for (int i = 0; i < 50; i++) {
+            timer.add(new WheelTimeout(now + 7 * i) {
+
+                @Override
+                long expire(final long deadline, final long now) {
+                    lateness.add(System.currentTimeMillis() - deadline);
+                    expired.countDown();
+                    return -1;
+                }
+            });
+        }
+        timer.start();
+        try {
+            Assert.assertTrue("All of the timeouts should expire", expired.await(5, TimeUnit.SECONDS));
+        } finally {
+            timer.stop();
+        }
+        for (long late : lateness) {
+            Assert.assertTrue("Expired " + (-late) + "ms early", late >= 0);
+            Assert.assertTrue("Expired " + late + "ms late", late < 200);
+        }
+    }
+
+    @Test
+    public void testRepeatingTimeoutKeepsItsPhase() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer("test-wheel", TICK, SIZE);
+        final List<Long> deadlines = Collections.synchronizedList(new ArrayList<Long>());
+        final CountDownLatch expired = new CountDownLatch(10);
+        final long start = System.currentTimeMillis() + 20;
+        timer.add(new WheelTimeout(start) {
+
+            @Override
+            long expire(final long deadline, final long now) {
+                deadlines.add(deadline);
+                expired.countDown();
+                return deadline + 50;
+            }
+        });
+        timer.start();
+        try {
+            Assert.assertTrue("The timeout should be re-armed", expired.await(5, TimeUnit.SECONDS));
+        } finally {
+            timer.stop();
+        }
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(start + 50 * i, (long) deadlines.get(i));
+        }
+    }
+
+    @Test
+    public void testCancelledTimeoutIsNotExpired() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer("test-wheel", TICK, SIZE);
+        final List<Long> deadlines = Collections.synchronizedList(new ArrayList<Long>());
+        final CountDownLatch expired = new CountDownLatch(3);
+        final long start = System.currentTimeMillis() + 20;
+        final WheelTimeout timeout = new WheelTimeout(start) {
+
+            @Override
+            long expire(final long deadline, final long now) {
+                deadlines.add(deadline);
+                expired.countDown();
+                return deadline + 10;
+            }
+        };
+        timer.add(timeout);
+        timer.start();
+        try {
+            Assert.assertTrue("The timeout should be re-armed", expired.await(5, TimeUnit.SECONDS));
+            timeout.cancelled = true;
+            // one turn of the wheel is enough for the timer to come across it
+            Thread.sleep(TICK * SIZE * 2);
+            final int expiries = deadlines.size();
+            Thread.sleep(TICK * SIZE * 2);
+            Assert.assertEquals(expiries, deadlines.size());
+        } finally {
+            timer.stop();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+-- Quartz 1.6 tables, used by ClusteredSchedulerTest.
+CREATE TABLE QRTZ_JOB_DETAILS (
+    JOB_NAME VARCHAR(200) NOT NULL,
+    JOB_GROUP VARCHAR(200) NOT NULL,
+    DESCRIPTION VARCHAR(250),
+    JOB_CLASS_NAME VARCHAR(250) NOT NULL,
+    IS_DURABLE BOOLEAN NOT NULL,
+    IS_VOLATILE BOOLEAN NOT NULL,
+    IS_STATEFUL BOOLEAN NOT NULL,
+    REQUESTS_RECOVERY BOOLEAN NOT NULL,
+    JOB_DATA BLOB,
+    PRIMARY KEY (JOB_NAME, JOB_GROUP)
+);
+CREATE TABLE QRTZ_JOB_LISTENERS (
+    JOB_NAME VARCHAR(200) NOT NULL,
+    JOB_GROUP VARCHAR(200) NOT NULL,
+    JOB_LISTENER VARCHAR(200) NOT NULL,
+    PRIMARY KEY (JOB_NAME, JOB_GROUP, JOB_LISTENER),
+    FOREIGN KEY (JOB_NAME, JOB_GROUP) REFERENCES QRTZ_JOB_DETAILS (JOB_NAME, JOB_GROUP)
+);
+CREATE TABLE QRTZ_TRIGGERS (
+    TRIGGER_NAME VARCHAR(200) NOT NULL,
+    TRIGGER_GROUP VARCHAR(200) NOT NULL,
+    JOB_NAME VARCHAR(200) NOT NULL,
+    JOB_GROUP VARCHAR(200) NOT NULL,
+    IS_VOLATILE BOOLEAN NOT NULL,
+    DESCRIPTION VARCHAR(250),
+    NEXT_FIRE_TIME BIGINT,
+    PREV_FIRE_TIME BIGINT,
+    PRIORITY INTEGER,
+    TRIGGER_STATE VARCHAR(16) NOT NULL,
+    TRIGGER_TYPE VARCHAR(8) NOT NULL,
+    START_TIME BIGINT NOT NULL,
+    END_TIME BIGINT,
+    CALENDAR_NAME VARCHAR(200),
+    MISFIRE_INSTR SMALLINT,
+    JOB_DATA BLOB,
+    PRIMARY KEY (TRIGGER_NAME, TRIGGER_GROUP),
+    FOREIGN KEY (JOB_NAME, JOB_GROUP) REFERENCES QRTZ_JOB_DETAILS (JOB_NAME, JOB_GROUP)
+);
+CREATE TABLE QRTZ_SIMPLE_TRIGGERS (
+    TRIGGER_NAME VARCHAR(200) NOT NULL,
+    TRIGGER_GROUP VARCHAR(200) NOT NULL,
+    REPEAT_COUNT BIGINT NOT NULL,
+    REPEAT_INTERVAL BIGINT NOT NULL,
+    TIMES_TRIGGERED BIGINT NOT NULL,
+    PRIMARY KEY (TRIGGER_NAME, TRIGGER_GROUP),
+    FOREIGN KEY (TRIGGER_NAME, TRIGGER_GROUP) REFERENCES QRTZ_TRIGGERS (TRIGGER_NAME, TRIGGER_GROUP)
+);
+CREATE TABLE QRTZ_CRON_TRIGGERS (
+    TRIGGER_NAME VARCHAR(200) NOT NULL,
+    TRIGGER_GROUP VARCHAR(200) NOT NULL,
+    CRON_EXPRESSION VARCHAR(120) NOT NULL,
+    TIME_ZONE_ID VARCHAR(80),
+    PRIMARY KEY (TRIGGER_NAME, TRIGGER_GROUP),
+    FOREIGN KEY (TRIGGER_NAME, TRIGGER_GROUP) REFERENCES QRTZ_TRIGGERS (TRIGGER_NAME, TRIGGER_GROUP)
+);
+CREATE TABLE QRTZ_BLOB_TRIGGERS (
+    TRIGGER_NAME VARCHAR(200) NOT NULL,
+    TRIGGER_GROUP VARCHAR(200) NOT NULL,
+    BLOB_DATA BLOB,
+    PRIMARY KEY (TRIGGER_NAME, TRIGGER_GROUP),
+    FOREIGN KEY (TRIGGER_NAME, TRIGGER_GROUP) REFERENCES QRTZ_TRIGGERS (TRIGGER_NAME, TRIGGER_GROUP)
+);
+CREATE TABLE QRTZ_TRIGGER_LISTENERS (
+    TRIGGER_NAME VARCHAR(200) NOT NULL,
+    TRIGGER_GROUP VARCHAR(200) NOT NULL,
+    TRIGGER_LISTENER VARCHAR(200) NOT NULL,
+    PRIMARY KEY (TRIGGER_NAME, TRIGGER_GROUP, TRIGGER_LISTENER),
+    FOREIGN KEY (TRIGGER_NAME, TRIGGER_GROUP) REFERENCES QRTZ_TRIGGERS (TRIGGER_NAME, TRIGGER_GROUP)
+);
+CREATE TABLE QRTZ_CALENDARS (
+    CALENDAR_NAME VARCHAR(200) NOT NULL,
+    CALENDAR BLOB NOT NULL,
+    PRIMARY KEY (CALENDAR_NAME)
+);
+CREATE TABLE QRTZ_PAUSED_TRIGGER_GRPS (
+    TRIGGER_GROUP VARCHAR(200) NOT NULL,
+    PRIMARY KEY (TRIGGER_GROUP)
+);
+CREATE TABLE QRTZ_FIRED_TRIGGERS (
+    ENTRY_ID VARCHAR(95) NOT NULL,
+    TRIGGER_NAME VARCHAR(200) NOT NULL,
+    TRIGGER_GROUP VARCHAR(200) NOT NULL,
+    IS_VOLATILE BOOLEAN NOT NULL,
+    INSTANCE_NAME VARCHAR(200) NOT NULL,
+    FIRED_TIME BIGINT NOT NULL,
+    PRIORITY INTEGER NOT NULL,
+    STATE VARCHAR(16) NOT NULL,
+    JOB_NAME VARCHAR(200),
+    JOB_GROUP VARCHAR(200),
+    IS_STATEFUL BOOLEAN,
+    REQUESTS_RECOVERY BOOLEAN,
+    PRIMARY KEY (ENTRY_ID)
+);
+CREATE TABLE QRTZ_SCHEDULER_STATE (
+    INSTANCE_NAME VARCHAR(200) NOT NULL,
+    LAST_CHECKIN_TIME BIGINT NOT NULL,
+    CHECKIN_INTERVAL BIGINT NOT NULL,
+    PRIMARY KEY (INSTANCE_NAME)
+);
+CREATE TABLE QRTZ_LOCKS (
+    LOCK_NAME VARCHAR(40) NOT NULL,
+    PRIMARY KEY (LOCK_NAME)
+);
+INSERT INTO QRTZ_LOCKS VALUES ('TRIGGER_ACCESS');
+INSERT INTO QRTZ_LOCKS VALUES ('JOB_ACCESS');
+INSERT INTO QRTZ_LOCKS VALUES ('CALENDAR_ACCESS');
+INSERT INTO QRTZ_LOCKS VALUES ('STATE_ACCESS');
+INSERT INTO QRTZ_LOCKS VALUES ('MISFIRE_ACCESS');